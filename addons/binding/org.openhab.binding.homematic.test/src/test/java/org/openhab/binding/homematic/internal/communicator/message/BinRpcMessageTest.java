@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.message;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for {@link BinRpcMessage}
+ *
+ * @author agent - Initial contribution
+ */
+public class BinRpcMessageTest {
+    private static final String ENCODING = "ISO-8859-1";
+    private static final double DOUBLE_PRECISION = 0.000001;
+
+    @Test
+    public void roundTripTest() throws IOException, ParseException {
+        Map<String, Object> struct = new HashMap<>();
+        struct.put("ADDRESS", "KEQ0123456:1");
+        struct.put("VERSION", 12);
+        struct.put("AES_ACTIVE", true);
+        struct.put("PARENT", "");
+        List<Object> list = new ArrayList<>();
+        list.add("LEVEL");
+        list.add(-0.25);
+
+        BinRpcMessage request = new BinRpcMessage("event", ENCODING);
+        request.addArg("BidCos-RF");
+        request.addArg(42);
+        request.addArg(false);
+        request.addArg(21.5);
+        request.addArg(struct);
+        request.addArg(list);
+        assertEquals(6, request.getArgCount());
+
+        BinRpcMessage decoded = new BinRpcMessage(request.createMessage(), true, ENCODING);
+        assertEquals("event", decoded.getMethodName());
+        assertValueEquals(new Object[] { "BidCos-RF", 42, false, 21.5, struct, list.toArray() },
+                decoded.getResponseData());
+    }
+
+    @Test
+    public void structKeysAreOrderedTest() throws IOException, ParseException {
+        Map<String, Object> struct = new LinkedHashMap<>();
+        struct.put("VALUES", 1);
+        struct.put("ADDRESS", 2);
+        struct.put("MASTER", 3);
+        BinRpcMessage request = new BinRpcMessage(null, BinRpcMessage.TYPE.RESPONSE, ENCODING);
+        request.addArg(struct);
+
+        Object[] data = new BinRpcMessage(request.createMessage(), false, ENCODING).getResponseData();
+        Iterator<?> keys = ((Map<?, ?>) data[0]).keySet().iterator();
+        assertEquals("ADDRESS", keys.next());
+        assertEquals("MASTER", keys.next());
+        assertEquals("VALUES", keys.next());
+    }
+
+    @Test
+    public void randomizedDecodersAreEquivalentTest() throws IOException, ParseException {
+        Random random = new Random(4711);
+        for (int i = 0; i < 200; i++) {
+            BinRpcMessage request = new BinRpcMessage("system.multicall", ENCODING);
+            List<Object> args = new ArrayList<>();
+            int argCount = random.nextInt(5);
+            for (int j = 0; j < argCount; j++) {
+                Object arg = randomValue(random, 3);
+                args.add(arg);
+                request.addArg(arg);
+            }
+            byte[] message = request.createMessage();
+
+            // the same message decoded from a stream, an array and a buffer with a following message
+            BinRpcMessage fromStream = new BinRpcMessage(new ByteArrayInputStream(message), true, ENCODING);
+            BinRpcMessage fromArray = new BinRpcMessage(message, true, ENCODING);
+            ByteBuffer buffer = ByteBuffer.allocate(message.length * 2);
+            buffer.put(message).put(message).flip();
+            BinRpcMessage fromBuffer = new BinRpcMessage(buffer, true, ENCODING);
+            assertEquals(message.length, buffer.position());
+
+            Object[] expected = args.toArray();
+            assertValueEquals(expected, fromStream.getResponseData());
+            assertValueEquals(expected, fromArray.getResponseData());
+            assertValueEquals(expected, fromBuffer.getResponseData());
+            assertEquals("system.multicall", fromBuffer.getMethodName());
+        }
+    }
+
+    @Test
+    public void incompleteHeaderTest() throws IOException {
+        assertEquals(-1, BinRpcMessage.getMessageLength(ByteBuffer.wrap(new byte[] { 'B', 'i', 'n', 0 })));
+    }
+
+    @Test(expected = IOException.class)
+    public void negativeLengthTest() throws IOException {
+        new BinRpcMessage(new ByteArrayInputStream(header(-1)), true, ENCODING);
+    }
+
+    @Test(expected = IOException.class)
+    public void oversizedLengthTest() throws IOException {
+        // rejected before the message data is allocated
+        new BinRpcMessage(new ByteArrayInputStream(header(Integer.MAX_VALUE - 1)), true, ENCODING);
+    }
+
+    @Test(expected = IOException.class)
+    public void oversizedBufferLengthTest() throws IOException {
+        BinRpcMessage.getMessageLength(ByteBuffer.wrap(header(BinRpcMessage.MAX_MESSAGE_LENGTH)));
+    }
+
+    private static byte[] header(int datasize) {
+        return ByteBuffer.allocate(BinRpcMessage.HEADER_LENGTH).put(new byte[] { 'B', 'i', 'n', 0 }).putInt(datasize)
+                .array();
+    }
+
+    private static Object randomValue(Random random, int depth) {
+        switch (random.nextInt(depth > 0 ? 6 : 4)) {
+            case 0:
+                return random.nextInt();
+            case 1:
+                return random.nextBoolean();
+            case 2:
+                char[] chars = new char[random.nextInt(12)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = (char) (' ' + random.nextInt(95));
+                }
+                return new String(chars);
+            case 3:
+                return (random.nextInt(20001) - 10000) / 100.0;
+            case 4:
+                List<Object> list = new ArrayList<>();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    list.add(randomValue(random, depth - 1));
+                }
+                return list;
+            default:
+                Map<String, Object> struct = new HashMap<>();
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    struct.put("KEY_" + random.nextInt(100), randomValue(random, depth - 1));
+                }
+                return struct;
+        }
+    }
+
+    private static void assertValueEquals(Object expected, Object actual) {
+        if (expected instanceof Double) {
+            assertEquals((Double) expected, (Double) actual, DOUBLE_PRECISION);
+        } else if (expected instanceof Object[]) {
+            Object[] expectedArray = (Object[]) expected;
+            Object[] actualArray = (Object[]) actual;
+            assertEquals(Arrays.toString(expectedArray), expectedArray.length, actualArray.length);
+            for (int i = 0; i < expectedArray.length; i++) {
+                assertValueEquals(expectedArray[i], actualArray[i]);
+            }
+        } else if (expected instanceof List) {
+            // lists are decoded as arrays
+            assertValueEquals(((List<?>) expected).toArray(), actual);
+        } else if (expected instanceof Map) {
+            Map<?, ?> expectedMap = (Map<?, ?>) expected;
+            Map<?, ?> actualMap = (Map<?, ?>) actual;
+            assertEquals(expectedMap.keySet(), actualMap.keySet());
+            for (Map.Entry<?, ?> entry : expectedMap.entrySet()) {
+                assertValueEquals(entry.getValue(), actualMap.get(entry.getKey()));
+            }
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -9,7 +9,9 @@
 package org.openhab.binding.homematic.handler;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -29,6 +31,7 @@ import org.openhab.binding.homematic.internal.communicator.HomematicGatewayAdapt
 import org.openhab.binding.homematic.internal.communicator.HomematicGatewayFactory;
 import org.openhab.binding.homematic.internal.discovery.HomematicDeviceDiscoveryService;
 import org.openhab.binding.homematic.internal.misc.HomematicClientException;
+import org.openhab.binding.homematic.internal.model.HmChannel;
 import org.openhab.binding.homematic.internal.model.HmDatapoint;
 import org.openhab.binding.homematic.internal.model.HmDatapointConfig;
 import org.openhab.binding.homematic.internal.model.HmDevice;
@@ -234,12 +237,17 @@ public class HomematicBridgeHandler extends BaseBridgeHandler implements Homemat
 
     @Override
     public void onStateUpdated(HmDatapoint dp) {
-        Thing hmThing = getThingByUID(UidUtils.generateThingUID(dp.getChannel().getDevice(), getThing()));
+        onStatesUpdated(dp.getChannel(), Collections.singletonList(dp));
+    }
+
+    @Override
+    public void onStatesUpdated(HmChannel channel, List<HmDatapoint> dps) {
+        Thing hmThing = getThingByUID(UidUtils.generateThingUID(channel.getDevice(), getThing()));
         if (hmThing != null && hmThing.getHandler() != null) {
             final ThingStatus status = hmThing.getStatus();
             if (status == ThingStatus.ONLINE || status == ThingStatus.OFFLINE) {
                 HomematicThingHandler thingHandler = (HomematicThingHandler) hmThing.getHandler();
-                thingHandler.updateDatapointState(dp);
+                thingHandler.updateDatapointStates(dps);
             }
         }
     }
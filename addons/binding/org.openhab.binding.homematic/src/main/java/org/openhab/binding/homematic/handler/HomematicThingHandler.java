@@ -13,6 +13,9 @@ import static org.openhab.binding.homematic.internal.misc.HomematicConstants.*;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -87,11 +90,11 @@ public class HomematicThingHandler extends BaseThingHandler {
                     updateProperties(properties);
 
                     // update configurations
+                    loadHomematicChannelValues(device.getChannels());
                     Configuration config = editConfiguration();
                     for (HmChannel channel : device.getChannels()) {
                         for (HmDatapoint dp : channel.getDatapoints().values()) {
                             if (dp.getParamsetType() == HmParamsetType.MASTER) {
-                                loadHomematicChannelValues(dp.getChannel());
                                 config.put(MetadataUtils.getParameterName(dp),
                                         dp.isEnumType() ? dp.getOptionValue() : dp.getValue());
                             }
@@ -206,28 +209,33 @@ public class HomematicThingHandler extends BaseThingHandler {
     }
 
     /**
-     * Sets the configuration or evaluates the channel for this datapoint and updates the state of the channel.
+     * Sets the configuration or evaluates the channels for these datapoints and updates the states of the channels.
+     * The thing status and the configuration are updated only once for all datapoints.
      */
-    protected void updateDatapointState(HmDatapoint dp) {
+    protected void updateDatapointStates(List<HmDatapoint> dps) {
         try {
-            if (HomematicTypeGeneratorImpl.isStatusDatapoint(dp)) {
-                updateStatus(dp.getChannel().getDevice());
+            for (HmDatapoint dp : dps) {
+                if (HomematicTypeGeneratorImpl.isStatusDatapoint(dp)) {
+                    updateStatus(dp.getChannel().getDevice());
+                    break;
+                }
             }
-            if (dp.getParamsetType() == HmParamsetType.MASTER) {
-                // update configuration
-                Configuration config = editConfiguration();
-                config.put(MetadataUtils.getParameterName(dp), dp.isEnumType() ? dp.getOptionValue() : dp.getValue());
-                updateConfiguration(config);
-            } else if (!HomematicTypeGeneratorImpl.isIgnoredDatapoint(dp)) {
-                // update channel
-                ChannelUID channelUID = UidUtils.generateChannelUID(dp, thing.getUID());
-                Channel channel = thing.getChannel(channelUID.getId());
-                if (channel != null) {
-                    updateChannelState(dp, channel);
-                } else {
-                    logger.warn("Channel not found for datapoint '{}'", new HmDatapointInfo(dp));
+            Configuration config = null;
+            for (HmDatapoint dp : dps) {
+                if (dp.getParamsetType() == HmParamsetType.MASTER) {
+                    // update configuration
+                    if (config == null) {
+                        config = editConfiguration();
+                    }
+                    config.put(MetadataUtils.getParameterName(dp),
+                            dp.isEnumType() ? dp.getOptionValue() : dp.getValue());
+                } else if (!HomematicTypeGeneratorImpl.isIgnoredDatapoint(dp)) {
+                    updateChannelState(dp);
                 }
             }
+            if (config != null) {
+                updateConfiguration(config);
+            }
         } catch (BridgeHandlerNotAvailableException ex) {
             // ignore
         } catch (Exception ex) {
@@ -235,6 +243,25 @@ public class HomematicThingHandler extends BaseThingHandler {
         }
     }
 
+    /**
+     * Evaluates the channel for this datapoint and updates the state of the channel.
+     */
+    private void updateChannelState(HmDatapoint dp) throws BridgeHandlerNotAvailableException {
+        try {
+            ChannelUID channelUID = UidUtils.generateChannelUID(dp, thing.getUID());
+            Channel channel = thing.getChannel(channelUID.getId());
+            if (channel != null) {
+                updateChannelState(dp, channel);
+            } else {
+                logger.warn("Channel not found for datapoint '{}'", new HmDatapointInfo(dp));
+            }
+        } catch (BridgeHandlerNotAvailableException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            logger.error("{}", ex.getMessage(), ex);
+        }
+    }
+
     /**
      * Converts the value of the datapoint to a State, updates the channel and also sets the thing status if necessary.
      */
@@ -279,6 +306,34 @@ public class HomematicThingHandler extends BaseThingHandler {
         }
     }
 
+    /**
+     * Loads all values for the given Homematic channels that are not initialized, the gateway loads them in parallel.
+     */
+    private void loadHomematicChannelValues(Collection<HmChannel> hmChannels)
+            throws BridgeHandlerNotAvailableException, IOException {
+        synchronized (this) {
+            List<HmChannel> uninitializedChannels = new ArrayList<HmChannel>();
+            for (HmChannel hmChannel : hmChannels) {
+                if (!hmChannel.isInitialized()) {
+                    uninitializedChannels.add(hmChannel);
+                }
+            }
+            if (!uninitializedChannels.isEmpty()) {
+                try {
+                    getHomematicGateway().loadChannelValues(uninitializedChannels);
+                } catch (IOException ex) {
+                    HmDevice device = uninitializedChannels.get(0).getDevice();
+                    if (device.isOffline()) {
+                        logger.warn("Device '{}' is OFFLINE, can't update {} channels", device.getAddress(),
+                                uninitializedChannels.size());
+                    } else {
+                        throw ex;
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Updates the thing status based on device status.
      */
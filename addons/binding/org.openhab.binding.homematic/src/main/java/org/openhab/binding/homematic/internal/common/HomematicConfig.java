@@ -45,9 +45,11 @@ public class HomematicConfig {
     private String callbackHost;
     private int xmlCallbackPort;
     private int binCallbackPort;
+    private boolean binCallbackKeepAlive;
 
     private int socketMaxAlive = 900;
     private int timeout = 15;
+    private int rpcConnectionsPerInterface = 2;
 
     private HmGatewayInfo gatewayInfo;
 
@@ -117,6 +119,20 @@ public class HomematicConfig {
         this.binCallbackPort = binCallbackPort;
     }
 
+    /**
+     * Returns true, if the BIN-RPC server keeps the connections from the Homematic gateway open.
+     */
+    public boolean isBinCallbackKeepAlive() {
+        return binCallbackKeepAlive;
+    }
+
+    /**
+     * Sets if the BIN-RPC server keeps the connections from the Homematic gateway open.
+     */
+    public void setBinCallbackKeepAlive(boolean binCallbackKeepAlive) {
+        this.binCallbackKeepAlive = binCallbackKeepAlive;
+    }
+
     /**
      * Returns the HmGatewayInfo.
      */
@@ -159,6 +175,20 @@ public class HomematicConfig {
         this.timeout = timeout;
     }
 
+    /**
+     * Returns the max number of parallel requests (connections) to each interface of a Homematic gateway.
+     */
+    public int getRpcConnectionsPerInterface() {
+        return Math.max(1, rpcConnectionsPerInterface);
+    }
+
+    /**
+     * Sets the max number of parallel requests (connections) to each interface of a Homematic gateway.
+     */
+    public void setRpcConnectionsPerInterface(int rpcConnectionsPerInterface) {
+        this.rpcConnectionsPerInterface = rpcConnectionsPerInterface;
+    }
+
     /**
      * Returns the HmGatewayType.
      */
@@ -297,9 +327,11 @@ public class HomematicConfig {
         ToStringBuilder tsb = new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE);
         tsb.append("gatewayAddress", gatewayAddress).append("callbackHost", callbackHost)
                 .append("xmlCallbackPort", xmlCallbackPort).append("binCallbackPort", binCallbackPort)
-                .append("gatewayType", gatewayType).append("rfPort", getRfPort()).append("wiredPort", getWiredPort())
+                .append("binCallbackKeepAlive", binCallbackKeepAlive).append("gatewayType", gatewayType)
+                .append("rfPort", getRfPort()).append("wiredPort", getWiredPort())
                 .append("hmIpPort", getHmIpPort()).append("cuxdPort", getCuxdPort()).append("groupPort", getGroupPort())
-                .append("timeout", timeout).append("socketMaxAlive", socketMaxAlive);
+                .append("timeout", timeout).append("socketMaxAlive", socketMaxAlive)
+                .append("rpcConnectionsPerInterface", rpcConnectionsPerInterface);
         return tsb.toString();
     }
 }
@@ -12,18 +12,34 @@ import static org.openhab.binding.homematic.internal.misc.HomematicConstants.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
@@ -34,6 +50,7 @@ import org.openhab.binding.homematic.internal.communicator.client.TransferMode;
 import org.openhab.binding.homematic.internal.communicator.client.UnknownParameterSetException;
 import org.openhab.binding.homematic.internal.communicator.client.XmlRpcClient;
 import org.openhab.binding.homematic.internal.communicator.server.BinRpcServer;
+import org.openhab.binding.homematic.internal.communicator.server.RpcEventBatch;
 import org.openhab.binding.homematic.internal.communicator.server.RpcEventListener;
 import org.openhab.binding.homematic.internal.communicator.server.RpcServer;
 import org.openhab.binding.homematic.internal.communicator.server.XmlRpcServer;
@@ -92,13 +109,20 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     private HomematicGatewayAdapter gatewayAdapter;
     private DelayedExecuter sendDelayedExecutor = new DelayedExecuter();
     private DelayedExecuter receiveDelayedExecutor = new DelayedExecuter();
+    private final AtomicLong receivedEventCount = new AtomicLong();
+    private final AtomicLong coalescedEventCount = new AtomicLong();
+    private final AtomicLong dispatchedEventCount = new AtomicLong();
     private Set<HmDatapointInfo> echoEvents = Collections.synchronizedSet(new HashSet<HmDatapointInfo>());
     private ScheduledFuture<?> connectionTrackerFuture;
     private ConnectionTrackerThread connectionTrackerThread;
     private Map<String, HmDevice> devices = Collections.synchronizedMap(new HashMap<String, HmDevice>());
     private Map<HmInterface, TransferMode> availableInterfaces = new TreeMap<HmInterface, TransferMode>();
+    private ParamsetDescriptionCache paramsetDescriptionCache;
+    private ThreadPoolExecutor loaderPool;
     private static List<VirtualDatapointHandler> virtualDatapointHandlers = new ArrayList<VirtualDatapointHandler>();
-    private boolean cancelLoadAllMetadata;
+    private Map<HmDatapoint, List<VirtualDatapointHandler>> virtualEventHandlers = new ConcurrentHashMap<>();
+    private final Object deviceLoadedLock = new Object();
+    private volatile boolean cancelLoadAllMetadata;
     private boolean initialized;
 
     static {
@@ -126,6 +150,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         this.id = id;
         this.config = config;
         this.gatewayAdapter = gatewayAdapter;
+        this.paramsetDescriptionCache = new ParamsetDescriptionCache(id);
     }
 
     @Override
@@ -171,6 +196,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
             sb.setLength(sb.length() - 2);
         }
         logger.debug("Used Homematic transfer modes: {}", sb.toString());
+        startLoaderPool();
         startClients();
         startServers();
     }
@@ -179,16 +205,48 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
     public void dispose() {
         initialized = false;
         stopWatchdogs();
+        logger.debug("Delayed events of gateway with id '{}': send {}, receive {}", id, sendDelayedExecutor,
+                receiveDelayedExecutor);
+        logger.debug("Events of gateway with id '{}': received {}, coalesced {}, dispatched {}", id,
+                getReceivedEventCount(), getCoalescedEventCount(), getDispatchedEventCount());
         sendDelayedExecutor.stop();
         receiveDelayedExecutor.stop();
         stopServers();
         stopClients();
+        stopLoaderPool();
         devices.clear();
+        virtualEventHandlers.clear();
         echoEvents.clear();
         availableInterfaces.clear();
         config.setGatewayInfo(null);
     }
 
+    /**
+     * Starts the pool which loads metadata and values, with one thread per RPC connection of every interface.
+     */
+    private void startLoaderPool() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        int threads = Math.max(1, availableInterfaces.size()) * config.getRpcConnectionsPerInterface();
+        loaderPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "homematicLoader-" + id + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        loaderPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stops the loader pool, running loads are interrupted.
+     */
+    private void stopLoaderPool() {
+        if (loaderPool != null) {
+            loaderPool.shutdownNow();
+            loaderPool = null;
+        }
+    }
+
     /**
      * Starts the Homematic gateway client.
      */
@@ -342,56 +400,110 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         // load all device descriptions
         List<HmDevice> deviceDescriptions = getDeviceDescriptions();
 
-        // loading datapoints for all channels
-        Set<String> loadedDevices = new HashSet<String>();
-        Map<String, Collection<HmDatapoint>> datapointsByChannelIdCache = new HashMap<String, Collection<HmDatapoint>>();
+        // group the devices by interface, all interfaces are loaded in parallel
+        Map<HmInterface, Queue<HmDevice>> devicesByInterface = new TreeMap<HmInterface, Queue<HmDevice>>();
         for (HmDevice device : deviceDescriptions) {
-            if (!cancelLoadAllMetadata) {
+            devicesByInterface.computeIfAbsent(device.getHmInterface(), k -> new ConcurrentLinkedQueue<HmDevice>())
+                    .add(device);
+        }
+
+        // loading datapoints for all channels
+        Set<String> loadedDevices = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        paramsetDescriptionCache.load(config.getGatewayInfo().getFirmware());
+        int cachedChannels = paramsetDescriptionCache.size();
+        int connectionsPerInterface = config.getRpcConnectionsPerInterface();
+        long startTime = System.currentTimeMillis();
+        ExecutorService loaderPool = this.loaderPool;
+        if (loaderPool == null) {
+            throw new IOException("Gateway with id '" + id + "' is not initialized");
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try {
+            for (Entry<HmInterface, Queue<HmDevice>> entry : devicesByInterface.entrySet()) {
+                InterfaceMetadataLoader loader = new InterfaceMetadataLoader(entry.getKey(), entry.getValue(),
+                        connectionsPerInterface, loadedDevices);
+                for (int i = 0; i < connectionsPerInterface; i++) {
+                    futures.add(loaderPool.submit(loader));
+                }
+            }
+            for (Future<?> future : futures) {
                 try {
-                    logger.trace("Loading metadata for device '{}' of type '{}'", device.getAddress(),
-                            device.getType());
-                    if (device.isGatewayExtras()) {
-                        loadChannelValues(device.getChannel(HmChannel.CHANNEL_NUMBER_VARIABLE));
-                        loadChannelValues(device.getChannel(HmChannel.CHANNEL_NUMBER_SCRIPT));
-                    } else {
-                        for (HmChannel channel : device.getChannels()) {
-                            logger.trace("  Loading channel {}", channel);
-                            // speed up metadata generation a little bit for equal channels in the gateway devices
-                            if ((DEVICE_TYPE_VIRTUAL.equals(device.getType())
-                                    || DEVICE_TYPE_VIRTUAL_WIRED.equals(device.getType())) && channel.getNumber() > 1) {
-                                HmChannel previousChannel = device.getChannel(channel.getNumber() - 1);
-                                cloneAllDatapointsIntoChannel(channel, previousChannel.getDatapoints().values());
-                            } else {
-                                String channelId = String.format("%s:%s:%s", channel.getDevice().getType(),
-                                        channel.getDevice().getFirmware(), channel.getNumber());
-                                Collection<HmDatapoint> cachedDatapoints = datapointsByChannelIdCache.get(channelId);
-                                if (cachedDatapoints != null) {
-                                    // clone all datapoints
-                                    cloneAllDatapointsIntoChannel(channel, cachedDatapoints);
-                                } else {
-                                    logger.trace("    Loading datapoints into channel {}", channel);
-                                    addChannelDatapoints(channel, HmParamsetType.MASTER);
-                                    addChannelDatapoints(channel, HmParamsetType.VALUES);
-                                    datapointsByChannelIdCache.put(channelId, channel.getDatapoints().values());
-                                }
-                            }
-                        }
-                    }
-                    prepareDevice(device);
-                    loadedDevices.add(device.getAddress());
-                    gatewayAdapter.onDeviceLoaded(device);
-                } catch (IOException ex) {
-                    logger.warn("Can't load device with address '{}' from gateway '{}': {}", device.getAddress(), id,
-                            ex.getMessage());
+                    future.get();
+                } catch (ExecutionException ex) {
+                    logger.warn("Error loading devices from gateway '{}': {}", id, ex.getCause().getMessage(),
+                            ex.getCause());
+                } catch (InterruptedException ex) {
+                    cancelLoadAllMetadata = true;
+                    Thread.currentThread().interrupt();
+                    break;
                 }
             }
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            logger.debug("Loaded metadata of {} devices from gateway '{}' in {} ms ({} cached and {} loaded paramset "
+                    + "descriptions)", loadedDevices.size(), id, System.currentTimeMillis() - startTime,
+                    cachedChannels, paramsetDescriptionCache.size() - cachedChannels);
+            paramsetDescriptionCache.save();
         }
         if (!cancelLoadAllMetadata) {
-            devices.keySet().retainAll(loadedDevices);
+            synchronized (devices) {
+                for (Iterator<HmDevice> iterator = devices.values().iterator(); iterator.hasNext();) {
+                    HmDevice device = iterator.next();
+                    if (!loadedDevices.contains(device.getAddress())) {
+                        iterator.remove();
+                        removeVirtualEventHandlers(device);
+                    }
+                }
+            }
         }
         initialized = true;
     }
 
+    /**
+     * Loads all channel datapoints of the device and publishes the device.
+     */
+    private void loadDeviceMetadata(HmDevice device) throws IOException {
+        logger.trace("Loading metadata for device '{}' of type '{}'", device.getAddress(), device.getType());
+        if (device.isGatewayExtras()) {
+            loadChannelValues(Arrays.asList(device.getChannel(HmChannel.CHANNEL_NUMBER_VARIABLE),
+                    device.getChannel(HmChannel.CHANNEL_NUMBER_SCRIPT)));
+        } else {
+            for (HmChannel channel : device.getChannels()) {
+                logger.trace("  Loading channel {}", channel);
+                // speed up metadata generation a little bit for equal channels in the gateway devices
+                if ((DEVICE_TYPE_VIRTUAL.equals(device.getType()) || DEVICE_TYPE_VIRTUAL_WIRED.equals(device.getType()))
+                        && channel.getNumber() > 1) {
+                    HmChannel previousChannel = device.getChannel(channel.getNumber() - 1);
+                    cloneAllDatapointsIntoChannel(channel, previousChannel.getDatapoints().values());
+                } else {
+                    loadChannelDatapoints(channel);
+                }
+            }
+        }
+        synchronized (deviceLoadedLock) {
+            prepareDevice(device);
+            gatewayAdapter.onDeviceLoaded(device);
+        }
+    }
+
+    /**
+     * Loads the datapoint metadata of the channel from the paramset description cache or, if the type/firmware
+     * combination of the device is unknown, from the gateway.
+     */
+    private void loadChannelDatapoints(HmChannel channel) throws IOException {
+        Collection<HmDatapoint> cachedDatapoints = paramsetDescriptionCache.get(channel);
+        if (cachedDatapoints != null) {
+            cloneAllDatapointsIntoChannel(channel, cachedDatapoints);
+        } else {
+            logger.trace("    Loading datapoints into channel {}", channel);
+            addChannelDatapoints(channel, HmParamsetType.MASTER);
+            addChannelDatapoints(channel, HmParamsetType.VALUES);
+            paramsetDescriptionCache.put(channel);
+        }
+    }
+
     /**
      * Loads all datapoints from the gateway.
      */
@@ -453,7 +565,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         }
 
         for (HmDatapoint dp : channel.getDatapoints().values()) {
-            for (VirtualDatapointHandler vdph : virtualDatapointHandlers) {
+            for (VirtualDatapointHandler vdph : getVirtualEventHandlers(dp)) {
                 if (vdph.canHandleEvent(dp)) {
                     vdph.handleEvent(this, dp);
                 }
@@ -463,6 +575,46 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         channel.setInitialized(true);
     }
 
+    @Override
+    public void loadChannelValues(Collection<HmChannel> channels) throws IOException {
+        final Queue<HmChannel> pendingChannels = new ConcurrentLinkedQueue<HmChannel>(channels);
+        final CountDownLatch loadedChannels = new CountDownLatch(pendingChannels.size());
+        final AtomicReference<IOException> error = new AtomicReference<IOException>();
+        Runnable loader = () -> {
+            HmChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                try {
+                    loadChannelValues(channel);
+                } catch (IOException ex) {
+                    error.compareAndSet(null, ex);
+                } finally {
+                    loadedChannels.countDown();
+                }
+            }
+        };
+
+        int helpers = Math.min(pendingChannels.size(), config.getRpcConnectionsPerInterface()) - 1;
+        ExecutorService loaderPool = this.loaderPool;
+        try {
+            for (int i = 0; i < helpers && loaderPool != null; i++) {
+                loaderPool.execute(loader);
+            }
+        } catch (RejectedExecutionException ex) {
+            logger.debug("Loading channel values of gateway '{}' without helpers, the gateway is disposed", id);
+        }
+        // the calling thread loads channels too, so it never waits for a helper that has not been started yet
+        loader.run();
+        try {
+            loadedChannels.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading channel values", ex);
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
     /**
      * Sets all datapoint values for the given channel.
      */
@@ -589,6 +741,91 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
 
     @Override
     public void eventReceived(HmDatapointInfo dpInfo, Object newValue) {
+        receivedEventCount.incrementAndGet();
+        final HmDatapoint dp = getEventDatapoint(dpInfo, newValue);
+        if (dp != null) {
+            HmDatapointConfig config = gatewayAdapter.getDatapointConfig(dp);
+            try {
+                receiveDelayedExecutor.start(dpInfo, config.getReceiveDelay(), () -> {
+                    List<HmDatapoint> updatedDatapoints = new ArrayList<HmDatapoint>();
+                    updateDatapointValue(dp, newValue, updatedDatapoints);
+                    dispatchStateUpdates(dp.getChannel(), updatedDatapoints);
+                });
+            } catch (HomematicClientException | IOException ex) {
+                // ignore
+            }
+        }
+    }
+
+    @Override
+    public void eventsReceived(RpcEventBatch eventBatch) {
+        // events of state datapoints are merged into their first occurrence with the latest value, events of trigger
+        // and action datapoints are all populated in the order in which they have been received
+        List<HmDatapoint> eventDatapoints = new ArrayList<HmDatapoint>(eventBatch.getReceivedCount());
+        List<Object> eventValues = new ArrayList<Object>(eventBatch.getReceivedCount());
+        Map<HmDatapoint, Integer> stateEventIndexes = new HashMap<HmDatapoint, Integer>();
+        int coalesced = 0;
+        for (RpcEventBatch.Event event : eventBatch.getEvents()) {
+            HmDatapoint dp = getEventDatapoint(event.getDpInfo(), event.getValue());
+            if (dp != null) {
+                boolean stateDatapoint = !dp.isTrigger() && !dp.isActionType() && !dp.isPressDatapoint();
+                Integer index = stateDatapoint ? stateEventIndexes.get(dp) : null;
+                if (index != null) {
+                    eventValues.set(index, event.getValue());
+                    coalesced++;
+                } else {
+                    if (stateDatapoint) {
+                        stateEventIndexes.put(dp, eventDatapoints.size());
+                    }
+                    eventDatapoints.add(dp);
+                    eventValues.add(event.getValue());
+                }
+            }
+        }
+        receivedEventCount.addAndGet(eventBatch.getReceivedCount());
+        coalescedEventCount.addAndGet(coalesced);
+        logger.debug("Received {} events ({} coalesced) from gateway with id '{}'", eventBatch.getReceivedCount(),
+                coalesced, id);
+
+        Map<HmChannel, List<HmDatapoint>> updatedDatapointsByChannel = new LinkedHashMap<>();
+        for (int i = 0; i < eventDatapoints.size(); i++) {
+            final HmDatapoint dp = eventDatapoints.get(i);
+            final Object newValue = eventValues.get(i);
+            HmDatapointConfig config = gatewayAdapter.getDatapointConfig(dp);
+            if (config.getReceiveDelay() > 0.0) {
+                try {
+                    receiveDelayedExecutor.start(new HmDatapointInfo(dp), config.getReceiveDelay(), () -> {
+                        List<HmDatapoint> updatedDatapoints = new ArrayList<HmDatapoint>();
+                        updateDatapointValue(dp, newValue, updatedDatapoints);
+                        dispatchStateUpdates(dp.getChannel(), updatedDatapoints);
+                    });
+                } catch (HomematicClientException | IOException ex) {
+                    // ignore
+                }
+            } else {
+                List<HmDatapoint> updatedDatapoints = updatedDatapointsByChannel.get(dp.getChannel());
+                if (updatedDatapoints != null && updatedDatapoints.contains(dp)) {
+                    // a repeated trigger has to be populated with its own value
+                    dispatchStateUpdates(dp.getChannel(), updatedDatapoints);
+                    updatedDatapoints = null;
+                }
+                if (updatedDatapoints == null) {
+                    updatedDatapoints = new ArrayList<HmDatapoint>();
+                    updatedDatapointsByChannel.put(dp.getChannel(), updatedDatapoints);
+                }
+                updateDatapointValue(dp, newValue, updatedDatapoints);
+            }
+        }
+        for (Map.Entry<HmChannel, List<HmDatapoint>> entry : updatedDatapointsByChannel.entrySet()) {
+            dispatchStateUpdates(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Handles echo and pong events and returns the datapoint of the event, or null if the event must not be
+     * populated.
+     */
+    private HmDatapoint getEventDatapoint(HmDatapointInfo dpInfo, Object newValue) {
         String className = newValue == null ? "Unknown" : newValue.getClass().getSimpleName();
         logger.debug("Received new ({}) value '{}' for '{}' from gateway with id '{}'", className, newValue, dpInfo,
                 id);
@@ -601,28 +838,60 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
                     connectionTrackerThread.pongReceived();
                 }
                 if (initialized) {
-                    final HmDatapoint dp = getDatapoint(dpInfo);
-                    HmDatapointConfig config = gatewayAdapter.getDatapointConfig(dp);
-                    receiveDelayedExecutor.start(dpInfo, config.getReceiveDelay(), () -> {
-                        dp.setValue(newValue);
-
-                        gatewayAdapter.onStateUpdated(dp);
-                        if (dp.isPressDatapoint() && MiscUtils.isTrueValue(dp.getValue())) {
-                            disableDatapoint(dp, DEFAULT_DISABLE_DELAY);
-                        }
-                        for (VirtualDatapointHandler vdph : virtualDatapointHandlers) {
-                            if (vdph.canHandleEvent(dp)) {
-                                vdph.handleEvent(this, dp);
-                                gatewayAdapter.onStateUpdated(vdph.getVirtualDatapoint(dp.getChannel()));
-                            }
-                        }
-
-                    });
+                    return getDatapoint(dpInfo);
                 }
-            } catch (HomematicClientException | IOException ex) {
+            } catch (HomematicClientException ex) {
                 // ignore
             }
         }
+        return null;
+    }
+
+    /**
+     * Sets the new value of the datapoint and collects the datapoint and all virtual datapoints depending on it.
+     */
+    private void updateDatapointValue(HmDatapoint dp, Object newValue, List<HmDatapoint> updatedDatapoints) {
+        dp.setValue(newValue);
+        updatedDatapoints.add(dp);
+
+        if (dp.isPressDatapoint() && MiscUtils.isTrueValue(dp.getValue())) {
+            disableDatapoint(dp, DEFAULT_DISABLE_DELAY);
+        }
+        for (VirtualDatapointHandler vdph : getVirtualEventHandlers(dp)) {
+            if (vdph.canHandleEvent(dp)) {
+                vdph.handleEvent(this, dp);
+                updatedDatapoints.add(vdph.getVirtualDatapoint(dp.getChannel()));
+            }
+        }
+    }
+
+    /**
+     * Populates the updated datapoints of a channel to the gateway adapter.
+     */
+    private void dispatchStateUpdates(HmChannel channel, List<HmDatapoint> updatedDatapoints) {
+        dispatchedEventCount.addAndGet(updatedDatapoints.size());
+        gatewayAdapter.onStatesUpdated(channel, updatedDatapoints);
+    }
+
+    /**
+     * Returns the number of events received from the gateway.
+     */
+    public long getReceivedEventCount() {
+        return receivedEventCount.get();
+    }
+
+    /**
+     * Returns the number of events replaced by a newer value of the same datapoint within one multicall.
+     */
+    public long getCoalescedEventCount() {
+        return coalescedEventCount.get();
+    }
+
+    /**
+     * Returns the number of datapoint updates populated to the gateway adapter.
+     */
+    public long getDispatchedEventCount() {
+        return dispatchedEventCount.get();
     }
 
     @Override
@@ -635,9 +904,9 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
                     for (HmDevice device : deviceDescriptions) {
                         if (device.getAddress().equals(address)) {
                             for (HmChannel channel : device.getChannels()) {
-                                addChannelDatapoints(channel, HmParamsetType.MASTER);
-                                addChannelDatapoints(channel, HmParamsetType.VALUES);
+                                loadChannelDatapoints(channel);
                             }
+                            paramsetDescriptionCache.save();
                             prepareDevice(device);
                             gatewayAdapter.onNewDevice(device);
                         }
@@ -656,6 +925,7 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
                 logger.debug("Device '{}' removed from gateway with id '{}'", address, id);
                 HmDevice device = devices.remove(address);
                 if (device != null) {
+                    removeVirtualEventHandlers(device);
                     gatewayAdapter.onDeviceDeleted(device);
                 }
             }
@@ -709,7 +979,23 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
             vdph.initialize(device);
 
         }
-        devices.put(device.getAddress(), device);
+        for (HmChannel channel : device.getChannels()) {
+            for (HmDatapoint dp : channel.getDatapoints().values()) {
+                List<VirtualDatapointHandler> eventHandlers = new ArrayList<VirtualDatapointHandler>(1);
+                for (VirtualDatapointHandler vdph : virtualDatapointHandlers) {
+                    if (vdph.isEventHandlerFor(dp)) {
+                        eventHandlers.add(vdph);
+                    }
+                }
+                if (!eventHandlers.isEmpty()) {
+                    virtualEventHandlers.put(dp, eventHandlers);
+                }
+            }
+        }
+        HmDevice previousDevice = devices.put(device.getAddress(), device);
+        if (previousDevice != null && previousDevice != device) {
+            removeVirtualEventHandlers(previousDevice);
+        }
         logger.debug("Loaded device '{}' ({}) with {} datapoints", device.getAddress(), device.getType(),
                 device.getDatapointCount());
 
@@ -724,6 +1010,25 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         }
     }
 
+    /**
+     * Returns the VirtualDatapointHandlers which may handle events of the datapoint.
+     */
+    private List<VirtualDatapointHandler> getVirtualEventHandlers(HmDatapoint dp) {
+        List<VirtualDatapointHandler> eventHandlers = virtualEventHandlers.get(dp);
+        return eventHandlers == null ? Collections.<VirtualDatapointHandler> emptyList() : eventHandlers;
+    }
+
+    /**
+     * Removes all datapoints of the device from the virtual datapoint event routing.
+     */
+    private void removeVirtualEventHandlers(HmDevice device) {
+        for (HmChannel channel : device.getChannels()) {
+            for (HmDatapoint dp : channel.getDatapoints().values()) {
+                virtualEventHandlers.remove(dp);
+            }
+        }
+    }
+
     @Override
     public void disableDatapoint(final HmDatapoint dp, double delay) {
         try {
@@ -745,6 +1050,58 @@ public abstract class AbstractHomematicGateway implements RpcEventListener, Home
         }
     }
 
+    /**
+     * Loads the metadata of all devices of one interface. The loader is executed by several threads at the same time,
+     * each thread takes the next device from the queue until all devices are loaded or loading has been cancelled.
+     */
+    private class InterfaceMetadataLoader implements Runnable {
+        private static final int PROGRESS_LOG_INTERVAL = 25;
+
+        private HmInterface hmInterface;
+        private Queue<HmDevice> pendingDevices;
+        private Set<String> loadedDevices;
+        private int deviceCount;
+        private AtomicInteger processedDevices = new AtomicInteger();
+        private AtomicInteger runningWorkers;
+        private long startTime = System.currentTimeMillis();
+
+        public InterfaceMetadataLoader(HmInterface hmInterface, Queue<HmDevice> pendingDevices, int workers,
+                Set<String> loadedDevices) {
+            this.hmInterface = hmInterface;
+            this.pendingDevices = pendingDevices;
+            this.loadedDevices = loadedDevices;
+            this.deviceCount = pendingDevices.size();
+            this.runningWorkers = new AtomicInteger(workers);
+        }
+
+        @Override
+        public void run() {
+            try {
+                HmDevice device;
+                while (!cancelLoadAllMetadata && (device = pendingDevices.poll()) != null) {
+                    try {
+                        loadDeviceMetadata(device);
+                        loadedDevices.add(device.getAddress());
+                    } catch (IOException ex) {
+                        logger.warn("Can't load device with address '{}' from gateway '{}': {}", device.getAddress(),
+                                id, ex.getMessage());
+                    }
+                    int processed = processedDevices.incrementAndGet();
+                    if (processed % PROGRESS_LOG_INTERVAL == 0) {
+                        logger.debug("Loaded {} of {} devices from interface '{}' of gateway '{}'", processed,
+                                deviceCount, hmInterface, id);
+                    }
+                }
+            } finally {
+                if (runningWorkers.decrementAndGet() == 0) {
+                    logger.debug("Loaded {} of {} devices from interface '{}' of gateway '{}' in {} ms{}",
+                            processedDevices.get(), deviceCount, hmInterface, id,
+                            System.currentTimeMillis() - startTime, cancelLoadAllMetadata ? " (cancelled)" : "");
+                }
+            }
+        }
+    }
+
     /**
      * Thread which validates the connection to the gateway and restarts the RPC client if necessary.
      */
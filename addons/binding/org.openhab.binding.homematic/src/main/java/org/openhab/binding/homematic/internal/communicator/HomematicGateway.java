@@ -9,6 +9,7 @@
 package org.openhab.binding.homematic.internal.communicator;
 
 import java.io.IOException;
+import java.util.Collection;
 
 import org.openhab.binding.homematic.internal.misc.HomematicClientException;
 import org.openhab.binding.homematic.internal.model.HmChannel;
@@ -59,6 +60,11 @@ public interface HomematicGateway {
      */
     public void loadChannelValues(HmChannel channel) throws IOException;
 
+    /**
+     * Loads all values into the given channels, the channels are loaded in parallel.
+     */
+    public void loadChannelValues(Collection<HmChannel> channels) throws IOException;
+
     /**
      * Prepares the device for reloading all values from the gateway.
      */
@@ -8,6 +8,9 @@
  */
 package org.openhab.binding.homematic.internal.communicator;
 
+import java.util.List;
+
+import org.openhab.binding.homematic.internal.model.HmChannel;
 import org.openhab.binding.homematic.internal.model.HmDatapoint;
 import org.openhab.binding.homematic.internal.model.HmDatapointConfig;
 import org.openhab.binding.homematic.internal.model.HmDevice;
@@ -24,6 +27,11 @@ public interface HomematicGatewayAdapter {
      */
     public void onStateUpdated(HmDatapoint dp);
 
+    /**
+     * Called when multiple datapoints of a channel have been updated.
+     */
+    public void onStatesUpdated(HmChannel channel, List<HmDatapoint> dps);
+
     /**
      * Called when a new device has been detected on the gateway.
      */
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.openhab.binding.homematic.internal.model.HmChannel;
+import org.openhab.binding.homematic.internal.model.HmDatapoint;
+import org.openhab.binding.homematic.internal.model.HmParamsetType;
+import org.openhab.binding.homematic.internal.model.HmValueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache for the paramset descriptions (MASTER and VALUES) of all channels of a gateway. The descriptions
+ * are keyed by device type, device firmware and channel number, so a firmware update of a device automatically
+ * requests the new description from the gateway. The whole cache is discarded if the cache format or the firmware of
+ * the gateway changes.
+ *
+ * @author agent - Initial contribution
+ */
+public class ParamsetDescriptionCache {
+    private final Logger logger = LoggerFactory.getLogger(ParamsetDescriptionCache.class);
+
+    private static final int CACHE_MAGIC = 0x484D5044;
+    private static final int CACHE_VERSION = 1;
+    private static final String CACHE_FOLDER = "homematic";
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_BOOLEAN = 1;
+    private static final byte VALUE_INTEGER = 2;
+    private static final byte VALUE_DOUBLE = 3;
+    private static final byte VALUE_NUMBER = 4;
+    private static final byte VALUE_STRING = 5;
+
+    private final File cacheFile;
+    private Map<String, Collection<HmDatapoint>> datapointsByChannelId = new ConcurrentHashMap<>();
+    private String gatewayFirmware;
+    private boolean loaded;
+    private volatile boolean modified;
+
+    public ParamsetDescriptionCache(String gatewayId) {
+        this(new File(ConfigConstants.getUserDataFolder() + File.separator + CACHE_FOLDER,
+                gatewayId + "-paramsets.cache"));
+    }
+
+    public ParamsetDescriptionCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Returns the cache key of the channel.
+     */
+    public static String getChannelId(HmChannel channel) {
+        return String.format("%s:%s:%s", channel.getDevice().getType(), channel.getDevice().getFirmware(),
+                channel.getNumber());
+    }
+
+    /**
+     * Loads the cache file, if not already loaded. If the file was written for another gateway firmware or with
+     * another cache version, the cache starts empty.
+     */
+    public synchronized void load(String gatewayFirmware) {
+        if (loaded && StringUtils.equals(this.gatewayFirmware, gatewayFirmware)) {
+            return;
+        }
+        datapointsByChannelId.clear();
+        this.gatewayFirmware = gatewayFirmware;
+        this.loaded = true;
+        this.modified = false;
+
+        if (!cacheFile.exists()) {
+            logger.debug("No paramset description cache '{}' available", cacheFile);
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+                logger.debug("Paramset description cache '{}' has an unknown format, ignoring it", cacheFile);
+                return;
+            }
+            String cachedGatewayFirmware = readString(in);
+            if (!StringUtils.equals(cachedGatewayFirmware, gatewayFirmware)) {
+                logger.info("Gateway firmware changed from '{}' to '{}', paramset description cache discarded",
+                        cachedGatewayFirmware, gatewayFirmware);
+                modified = true;
+                return;
+            }
+            int channelCount = in.readInt();
+            for (int i = 0; i < channelCount; i++) {
+                String channelId = in.readUTF();
+                int dpCount = in.readInt();
+                List<HmDatapoint> datapoints = new ArrayList<HmDatapoint>(dpCount);
+                for (int j = 0; j < dpCount; j++) {
+                    datapoints.add(readDatapoint(in));
+                }
+                datapointsByChannelId.put(channelId, datapoints);
+            }
+            logger.debug("Loaded {} paramset descriptions from cache '{}'", datapointsByChannelId.size(), cacheFile);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Can't read paramset description cache '{}', ignoring it: {}", cacheFile, ex.getMessage());
+            datapointsByChannelId.clear();
+            modified = true;
+        }
+    }
+
+    /**
+     * Writes the cache file, if something has changed since the last load or save.
+     */
+    public synchronized void save() {
+        if (!loaded || !modified) {
+            return;
+        }
+        File folder = cacheFile.getParentFile();
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            logger.warn("Can't create folder '{}' for the paramset description cache", folder);
+            return;
+        }
+        File tempFile = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+            writeString(out, gatewayFirmware);
+            Map<String, Collection<HmDatapoint>> snapshot = new HashMap<String, Collection<HmDatapoint>>(
+                    datapointsByChannelId);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Collection<HmDatapoint>> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (HmDatapoint dp : entry.getValue()) {
+                    writeDatapoint(out, dp);
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("Can't write paramset description cache '{}': {}", cacheFile, ex.getMessage());
+            tempFile.delete();
+            return;
+        }
+        if (cacheFile.exists() && !cacheFile.delete() || !tempFile.renameTo(cacheFile)) {
+            logger.warn("Can't replace paramset description cache '{}'", cacheFile);
+            tempFile.delete();
+            return;
+        }
+        modified = false;
+        logger.debug("Saved {} paramset descriptions to cache '{}'", datapointsByChannelId.size(), cacheFile);
+    }
+
+    /**
+     * Returns the cached datapoint metadata for the channel or null, if the description is not available.
+     */
+    public Collection<HmDatapoint> get(HmChannel channel) {
+        return datapointsByChannelId.get(getChannelId(channel));
+    }
+
+    /**
+     * Stores a copy of all non virtual datapoints of the channel in the cache.
+     */
+    public void put(HmChannel channel) {
+        List<HmDatapoint> datapoints = new ArrayList<HmDatapoint>(channel.getDatapoints().size());
+        for (HmDatapoint dp : channel.getDatapoints().values()) {
+            if (!dp.isVirtual()) {
+                HmDatapoint clonedDp = dp.clone();
+                clonedDp.setChannel(null);
+                clonedDp.setValue(null);
+                datapoints.add(clonedDp);
+            }
+        }
+        datapointsByChannelId.put(getChannelId(channel), datapoints);
+        modified = true;
+    }
+
+    /**
+     * Returns the number of cached channel descriptions.
+     */
+    public int size() {
+        return datapointsByChannelId.size();
+    }
+
+    private void writeDatapoint(DataOutputStream out, HmDatapoint dp) throws IOException {
+        writeString(out, dp.getName());
+        writeString(out, dp.getDescription());
+        writeString(out, ObjectUtils.toString(dp.getType(), null));
+        writeString(out, ObjectUtils.toString(dp.getParamsetType(), null));
+        writeValue(out, dp.getMinValue());
+        writeValue(out, dp.getMaxValue());
+        writeValue(out, dp.getStep());
+        writeValue(out, dp.getDefaultValue());
+        String[] options = dp.getOptions();
+        out.writeInt(options == null ? -1 : options.length);
+        if (options != null) {
+            for (String option : options) {
+                writeString(out, option);
+            }
+        }
+        out.writeBoolean(dp.isReadOnly());
+        out.writeBoolean(dp.isReadable());
+        out.writeBoolean(dp.isTrigger());
+        writeString(out, dp.getInfo());
+        writeString(out, dp.getUnit());
+    }
+
+    private HmDatapoint readDatapoint(DataInputStream in) throws IOException {
+        HmDatapoint dp = new HmDatapoint();
+        dp.setName(readString(in));
+        dp.setDescription(readString(in));
+        dp.setType(HmValueType.parse(readString(in)));
+        dp.setParamsetType(HmParamsetType.parse(readString(in)));
+        dp.setMinValue((Number) readValue(in));
+        dp.setMaxValue((Number) readValue(in));
+        dp.setStep((Number) readValue(in));
+        dp.setDefaultValue(readValue(in));
+        int optionCount = in.readInt();
+        if (optionCount >= 0) {
+            String[] options = new String[optionCount];
+            for (int i = 0; i < optionCount; i++) {
+                options[i] = readString(in);
+            }
+            dp.setOptions(options);
+        }
+        dp.setReadOnly(in.readBoolean());
+        dp.setReadable(in.readBoolean());
+        dp.setTrigger(in.readBoolean());
+        dp.setInfo(readString(in));
+        dp.setUnit(readString(in));
+        return dp;
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Number) {
+            out.writeByte(VALUE_NUMBER);
+            out.writeUTF(value.toString());
+        } else {
+            out.writeByte(VALUE_STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte valueType = in.readByte();
+        switch (valueType) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_BOOLEAN:
+                return in.readBoolean();
+            case VALUE_INTEGER:
+                return in.readInt();
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_NUMBER:
+                return NumberUtils.createNumber(in.readUTF());
+            case VALUE_STRING:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown value type " + valueType);
+        }
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
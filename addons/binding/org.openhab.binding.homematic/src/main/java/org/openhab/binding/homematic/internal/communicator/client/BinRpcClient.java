@@ -59,7 +59,7 @@ public class BinRpcClient extends RpcClient<byte[]> {
      * Sends a BIN-RPC message and parses the response to see if there was an error.
      */
     @Override
-    protected synchronized Object[] sendMessage(int port, RpcRequest<byte[]> request) throws IOException {
+    protected Object[] sendMessage(int port, RpcRequest<byte[]> request) throws IOException {
         if (logger.isTraceEnabled()) {
             logger.trace("Client BinRpcRequest:\n{}", request);
         }
@@ -72,9 +72,7 @@ public class BinRpcClient extends RpcClient<byte[]> {
     private Object[] sendMessage(int port, RpcRequest<byte[]> request, int rpcRetryCounter) throws IOException {
         BinRpcMessage resp = null;
         try {
-            Socket socket = socketHandler.getSocket(port);
-            socket.getOutputStream().write(request.createMessage());
-            resp = new BinRpcMessage(socket.getInputStream(), false, config.getEncoding());
+            resp = sendAndReceive(port, request);
             return new RpcResponseParser(request).parse(resp.getResponseData());
         } catch (UnknownRpcFailureException | UnknownParameterSetException rpcEx) {
             // throw immediately, don't retry the message
@@ -86,7 +84,6 @@ public class BinRpcClient extends RpcClient<byte[]> {
                 rpcRetryCounter++;
                 logger.debug("BinRpcMessage socket failure, sending message again {}/{}", rpcRetryCounter,
                         MAX_RPC_RETRY);
-                socketHandler.removeSocket(port);
                 return sendMessage(port, request, rpcRetryCounter);
             }
         } finally {
@@ -96,4 +93,26 @@ public class BinRpcClient extends RpcClient<byte[]> {
         }
     }
 
+    /**
+     * Sends the message with a pooled socket and reads the response. The socket is closed if the communication
+     * failed, otherwise it is handed back to the pool.
+     */
+    private BinRpcMessage sendAndReceive(int port, RpcRequest<byte[]> request) throws IOException {
+        SocketInfo socketInfo = socketHandler.getSocket(port);
+        boolean success = false;
+        try {
+            Socket socket = socketInfo.getSocket();
+            socket.getOutputStream().write(request.createMessage());
+            BinRpcMessage resp = new BinRpcMessage(socket.getInputStream(), false, config.getEncoding());
+            success = true;
+            return resp;
+        } finally {
+            if (success) {
+                socketHandler.releaseSocket(port, socketInfo);
+            } else {
+                socketHandler.discardSocket(port, socketInfo);
+            }
+        }
+    }
+
 }
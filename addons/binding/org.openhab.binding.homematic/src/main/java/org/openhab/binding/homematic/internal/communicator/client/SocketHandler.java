@@ -11,22 +11,28 @@ package org.openhab.binding.homematic.internal.communicator.client;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Simple socket cache class.
+ * Simple socket pool class. For each port, at most {@link HomematicConfig#getRpcConnectionsPerInterface()} sockets
+ * are in use at the same time, idle sockets are reused.
  *
  * @author Gerhard Riegler - Initial contribution
  */
 public class SocketHandler {
     private final Logger logger = LoggerFactory.getLogger(SocketHandler.class);
 
-    private Map<Integer, SocketInfo> socketsPerPort = new HashMap<Integer, SocketInfo>();
+    private Map<Integer, Deque<SocketInfo>> idleSocketsPerPort = new ConcurrentHashMap<Integer, Deque<SocketInfo>>();
+    private Map<Integer, Semaphore> permitsPerPort = new ConcurrentHashMap<Integer, Semaphore>();
     private HomematicConfig config;
 
     public SocketHandler(HomematicConfig config) {
@@ -34,40 +40,74 @@ public class SocketHandler {
     }
 
     /**
-     * Returns a socket for the given port, (re)creates it if required.
+     * Returns a socket for the given port, (re)creates it if required. Blocks if all sockets for the port are in use.
+     * The socket must be handed back with {@link #releaseSocket(int, SocketInfo)} or
+     * {@link #discardSocket(int, SocketInfo)}.
      */
-    public Socket getSocket(int port) throws IOException {
-        SocketInfo socketInfo = socketsPerPort.get(port);
-        if (socketInfo == null) {
+    public SocketInfo getSocket(int port) throws IOException {
+        Semaphore permits = permitsPerPort.computeIfAbsent(port,
+                p -> new Semaphore(config.getRpcConnectionsPerInterface(), true));
+        try {
+            if (!permits.tryAcquire(config.getTimeout(), TimeUnit.SECONDS)) {
+                throw new IOException("Timeout waiting for a free socket on port " + port);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a free socket on port " + port, ex);
+        }
+
+        try {
+            SocketInfo socketInfo;
+            while ((socketInfo = getIdleSockets(port).pollFirst()) != null) {
+                boolean isMaxAliveReached = System.currentTimeMillis()
+                        - socketInfo.getCreated() > (config.getSocketMaxAlive() * 1000);
+                if (!isMaxAliveReached && !socketInfo.getSocket().isClosed()) {
+                    logger.trace("Returning socket for port {}", port);
+                    return socketInfo;
+                }
+                logger.debug("Max alive time reached for socket on port {}", port);
+                closeSilent(socketInfo.getSocket());
+            }
+
             logger.trace("Creating new socket for port {}", port);
             Socket socket = new Socket();
             socket.setSoTimeout(config.getTimeout() * 1000);
             socket.connect(new InetSocketAddress(config.getGatewayAddress(), port), socket.getSoTimeout());
-            socketInfo = new SocketInfo(socket);
-            socketsPerPort.put(port, socketInfo);
-        } else {
-            boolean isMaxAliveReached = System.currentTimeMillis()
-                    - socketInfo.getCreated() > (config.getSocketMaxAlive() * 1000);
-
-            if (isMaxAliveReached) {
-                logger.debug("Max alive time reached for socket on port {}", port);
-                removeSocket(port);
-                return getSocket(port);
-            }
-            logger.trace("Returning socket for port {}", port);
+            return new SocketInfo(socket);
+        } catch (IOException | RuntimeException ex) {
+            permits.release();
+            throw ex;
         }
-        return socketInfo.getSocket();
     }
 
     /**
-     * Removes the socket for the given port from the cache.
+     * Hands back a socket after a successful request, it is reused for the next request on the port.
+     */
+    public void releaseSocket(int port, SocketInfo socketInfo) {
+        getIdleSockets(port).offerFirst(socketInfo);
+        releasePermit(port);
+    }
+
+    /**
+     * Hands back a socket after a failed request, the socket is closed.
+     */
+    public void discardSocket(int port, SocketInfo socketInfo) {
+        logger.trace("Closing Socket on port {}", port);
+        closeSilent(socketInfo.getSocket());
+        releasePermit(port);
+    }
+
+    /**
+     * Closes all idle sockets for the given port.
      */
     public void removeSocket(int port) {
-        SocketInfo socketInfo = socketsPerPort.get(port);
-        if (socketInfo != null) {
-            logger.trace("Closing Socket on port {}", port);
-            socketsPerPort.remove(port);
-            closeSilent(socketInfo.getSocket());
+        Deque<SocketInfo> idleSockets = idleSocketsPerPort.get(port);
+        if (idleSockets != null) {
+            SocketInfo socketInfo;
+            while ((socketInfo = idleSockets.pollFirst()) != null) {
+                logger.trace("Closing Socket on port {}", port);
+                closeSilent(socketInfo.getSocket());
+            }
         }
     }
 
@@ -75,11 +115,19 @@ public class SocketHandler {
      * Removes all cached sockets.
      */
     public void flush() {
-        synchronized (SocketHandler.class) {
-            Integer[] portsToRemove = socketsPerPort.keySet().toArray(new Integer[0]);
-            for (Integer key : portsToRemove) {
-                removeSocket(key);
-            }
+        for (Integer port : idleSocketsPerPort.keySet()) {
+            removeSocket(port);
+        }
+    }
+
+    private Deque<SocketInfo> getIdleSockets(int port) {
+        return idleSocketsPerPort.computeIfAbsent(port, p -> new LinkedBlockingDeque<SocketInfo>());
+    }
+
+    private void releasePermit(int port) {
+        Semaphore permits = permitsPerPort.get(port);
+        if (permits != null) {
+            permits.release();
         }
     }
 
@@ -37,6 +37,7 @@ public class XmlRpcClient extends RpcClient<String> {
         super(config);
         httpClient = new HttpClient();
         httpClient.setConnectTimeout(config.getTimeout() * 1000L);
+        httpClient.setMaxConnectionsPerDestination(config.getRpcConnectionsPerInterface());
 
         try {
             httpClient.start();
@@ -66,21 +67,27 @@ public class XmlRpcClient extends RpcClient<String> {
     }
 
     @Override
-    protected synchronized Object[] sendMessage(int port, RpcRequest<String> request) throws IOException {
+    protected Object[] sendMessage(int port, RpcRequest<String> request) throws IOException {
         if (logger.isTraceEnabled()) {
             logger.trace("Client XmlRpcRequest (port {}):\n{}", port, request);
         }
-        return sendMessage(port, request, 0);
+        byte[] message;
+        try {
+            message = request.createMessage().getBytes(config.getEncoding());
+        } catch (IllegalArgumentException ex) {
+            // the request can't be encoded, sending it again would fail the same way
+            throw new IOException(ex.getMessage(), ex);
+        }
+        return sendMessage(port, request, message, 0);
     }
 
     /**
      * Sends the message, retries if there was an error.
      */
-    private synchronized Object[] sendMessage(int port, RpcRequest<String> request, int rpcRetryCounter)
+    private Object[] sendMessage(int port, RpcRequest<String> request, byte[] message, int rpcRetryCounter)
             throws IOException {
         try {
-            BytesContentProvider content = new BytesContentProvider(
-                    request.createMessage().getBytes(config.getEncoding()));
+            BytesContentProvider content = new BytesContentProvider(message);
             String url = String.format("http://%s:%s", config.getGatewayAddress(), port);
             if (port == config.getGroupPort()) {
                 url += "/groups";
@@ -89,13 +96,13 @@ public class XmlRpcClient extends RpcClient<String> {
                     .timeout(config.getTimeout(), TimeUnit.SECONDS)
                     .header(HttpHeader.CONTENT_TYPE, "text/xml;charset=" + config.getEncoding()).send();
 
-            String result = new String(response.getContent(), config.getEncoding());
             if (logger.isTraceEnabled()) {
-                logger.trace("Client XmlRpcResponse (port {}):\n{}", port, result);
+                logger.trace("Client XmlRpcResponse (port {}):\n{}", port,
+                        new String(response.getContent(), config.getEncoding()));
             }
 
-            Object[] data = new XmlRpcResponse(new ByteArrayInputStream(result.getBytes(config.getEncoding())),
-                    config.getEncoding()).getResponseData();
+            Object[] data = new XmlRpcResponse(new ByteArrayInputStream(response.getContent()), config.getEncoding())
+                    .getResponseData();
             return new RpcResponseParser(request).parse(data);
         } catch (UnknownRpcFailureException | UnknownParameterSetException ex) {
             throw ex;
@@ -105,7 +112,7 @@ public class XmlRpcClient extends RpcClient<String> {
             } else {
                 rpcRetryCounter++;
                 logger.debug("XmlRpcMessage failure, sending message again {}/{}", rpcRetryCounter, MAX_RPC_RETRY);
-                return sendMessage(port, request, rpcRetryCounter);
+                return sendMessage(port, request, message, rpcRetryCounter);
             }
         }
     }
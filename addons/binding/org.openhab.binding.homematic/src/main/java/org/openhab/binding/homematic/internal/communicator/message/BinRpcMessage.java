@@ -15,42 +15,51 @@ import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.text.ParseException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Handles BIN-RPC request and response messages to communicate with a Homematic gateway.
+ * Handles BIN-RPC request and response messages to communicate with a Homematic gateway. Messages are encoded into and
+ * decoded directly from a {@link ByteBuffer}, without copying the raw message data.
  *
  * @author Gerhard Riegler - Initial contribution
  */
 public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     private final Logger logger = LoggerFactory.getLogger(BinRpcMessage.class);
 
+    /**
+     * Length of the BinX header, the signature followed by the length of the message data.
+     */
+    public static final int HEADER_LENGTH = 8;
+
+    /**
+     * Maximum length of a message including the header, larger messages are rejected before they are read.
+     */
+    public static final int MAX_MESSAGE_LENGTH = 16 * 1024 * 1024;
+    private static final int INITIAL_CAPACITY = 256;
+
     public enum TYPE {
         REQUEST,
         RESPONSE;
     }
 
     private Object[] messageData;
-    private byte binRpcData[];
-    private int offset;
+    private ByteBuffer binRpcData;
 
     private String methodName;
     private TYPE type;
     private int args;
-    private String encoding;
+    private Charset charset;
 
     public BinRpcMessage(String methodName, String encoding) {
         this(methodName, TYPE.REQUEST, encoding);
@@ -62,7 +71,7 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     public BinRpcMessage(String methodName, TYPE type, String encoding) {
         this.methodName = methodName;
         this.type = type;
-        this.encoding = encoding;
+        this.charset = Charset.forName(encoding);
         createHeader();
     }
 
@@ -70,22 +79,76 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
      * Decodes a BIN-RPC message from the given InputStream.
      */
     public BinRpcMessage(InputStream is, boolean methodHeader, String encoding) throws IOException {
-        this.encoding = encoding;
-        byte sig[] = new byte[8];
-        int length = is.read(sig, 0, 4);
+        this.charset = Charset.forName(encoding);
+        byte header[] = new byte[HEADER_LENGTH];
+        int length = readFully(is, header, 0, 4);
         if (length != 4) {
             throw new EOFException("Only " + length + " bytes received reading signature");
         }
-        validateBinXSignature(sig);
-        length = is.read(sig, 4, 4);
+        validateBinXSignature(header);
+        length = readFully(is, header, 4, 4);
         if (length != 4) {
             throw new EOFException("Only " + length + " bytes received reading message length");
         }
-        int datasize = (new BigInteger(ArrayUtils.subarray(sig, 4, 8))).intValue();
-        byte[] message = ArrayUtils.addAll(sig, IOUtils.toByteArray(is, datasize));
+        int datasize = getMessageLength(ByteBuffer.wrap(header)) - HEADER_LENGTH;
+        byte[] message = new byte[HEADER_LENGTH + datasize];
+        System.arraycopy(header, 0, message, 0, HEADER_LENGTH);
+        length = readFully(is, message, HEADER_LENGTH, datasize);
+        if (length != datasize) {
+            throw new EOFException("Only " + length + " of " + datasize + " bytes received reading message data");
+        }
+        decodeMessage(ByteBuffer.wrap(message), methodHeader);
+    }
+
+    /**
+     * Decodes a BIN-RPC message from the given byte array.
+     */
+    public BinRpcMessage(byte[] message, boolean methodHeader, String encoding) throws IOException, ParseException {
+        this.charset = Charset.forName(encoding);
+        if (message.length < HEADER_LENGTH) {
+            throw new EOFException("Only " + message.length + " bytes received");
+        }
+        validateBinXSignature(message);
+        decodeMessage(ByteBuffer.wrap(message), methodHeader);
+    }
+
+    /**
+     * Decodes one complete BIN-RPC message starting at the current position of the buffer. The message is decoded in
+     * place, afterwards the position of the buffer points to the first byte after the message.
+     */
+    public BinRpcMessage(ByteBuffer buffer, boolean methodHeader, String encoding) throws IOException {
+        this.charset = Charset.forName(encoding);
+        int messageLength = getMessageLength(buffer);
+        if (messageLength < 0 || buffer.remaining() < messageLength) {
+            throw new EOFException("Only " + buffer.remaining() + " bytes received");
+        }
+        ByteBuffer message = buffer.slice();
+        message.limit(messageLength);
+        buffer.position(buffer.position() + messageLength);
         decodeMessage(message, methodHeader);
     }
 
+    /**
+     * Returns the length of the message (including the header) starting at the current position of the buffer, or -1
+     * if the header is not yet complete. The position of the buffer is not changed.
+     *
+     * @throws IOException if the signature is missing or the length exceeds {@link #MAX_MESSAGE_LENGTH}
+     */
+    public static int getMessageLength(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return -1;
+        }
+        int start = buffer.position();
+        if (buffer.get(start) != 'B' || buffer.get(start + 1) != 'i' || buffer.get(start + 2) != 'n') {
+            throw new UnsupportedEncodingException("No BinX signature");
+        }
+        int datasize = buffer.getInt(start + 4);
+        if (datasize < 0 || datasize > MAX_MESSAGE_LENGTH - HEADER_LENGTH) {
+            throw new IOException("Invalid BIN-RPC message length: " + datasize);
+        }
+        return HEADER_LENGTH + datasize;
+    }
+
     private void validateBinXSignature(byte[] sig) throws UnsupportedEncodingException {
         if (sig[0] != 'B' || sig[1] != 'i' || sig[2] != 'n') {
             throw new UnsupportedEncodingException("No BinX signature");
@@ -93,21 +156,23 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     }
 
     /**
-     * Decodes a BIN-RPC message from the given byte array.
+     * Reads up to len bytes from the stream, blocks until all bytes are available or the end of the stream is reached.
      */
-    public BinRpcMessage(byte[] message, boolean methodHeader, String encoding) throws IOException, ParseException {
-        this.encoding = encoding;
-        if (message.length < 8) {
-            throw new EOFException("Only " + message.length + " bytes received");
+    private int readFully(InputStream is, byte[] buffer, int offset, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int count = is.read(buffer, offset + total, len - total);
+            if (count < 0) {
+                break;
+            }
+            total += count;
         }
-        validateBinXSignature(message);
-        decodeMessage(message, methodHeader);
+        return total;
     }
 
-    private void decodeMessage(byte[] message, boolean methodHeader) throws IOException {
+    private void decodeMessage(ByteBuffer message, boolean methodHeader) throws IOException {
         binRpcData = message;
-
-        offset = 8;
+        binRpcData.position(HEADER_LENGTH);
 
         if (methodHeader) {
             methodName = readString();
@@ -117,30 +182,33 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     }
 
     public void setType(TYPE type) {
-        binRpcData[3] = type == TYPE.RESPONSE ? (byte) 1 : (byte) 0;
+        binRpcData.put(3, type == TYPE.RESPONSE ? (byte) 1 : (byte) 0);
     }
 
     private void generateResponseData() throws IOException {
-        offset = 8 + (methodName != null ? methodName.length() + 8 : 0);
-        List<Object> values = new ArrayList<Object>();
-        while (offset < binRpcData.length) {
-            values.add(readRpcValue());
+        binRpcData.position(HEADER_LENGTH + (methodName != null ? methodName.length() + 8 : 0));
+        Object[] values = new Object[4];
+        int count = 0;
+        while (binRpcData.hasRemaining()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = readRpcValue();
         }
-        messageData = values.toArray();
-        values.clear();
+        messageData = Arrays.copyOf(values, count);
     }
 
     private void createHeader() {
-        binRpcData = new byte[256];
-        addString("Bin ");
+        binRpcData = ByteBuffer.allocate(INITIAL_CAPACITY);
+        addBytes(new byte[] { 'B', 'i', 'n', ' ' });
         setType(type);
         addInt(0); // placeholder content length
         if (methodName != null) {
             addInt(methodName.length());
-            addString(methodName);
+            addBytes(methodName.getBytes(charset));
             addInt(0); // placeholder arguments
         }
-        setInt(4, offset - 8);
+        binRpcData.putInt(4, binRpcData.position() - HEADER_LENGTH);
     }
 
     /**
@@ -149,10 +217,10 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     @Override
     public void addArg(Object argument) {
         addObject(argument);
-        setInt(4, offset - 8);
+        binRpcData.putInt(4, binRpcData.position() - HEADER_LENGTH);
 
         if (methodName != null) {
-            setInt(12 + methodName.length(), ++args);
+            binRpcData.putInt(12 + methodName.length(), ++args);
         }
     }
 
@@ -167,14 +235,9 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
 
     @Override
     public byte[] createMessage() {
-        trimBinRpcData();
-        return binRpcData;
-    }
-
-    private void trimBinRpcData() {
-        byte[] trimmed = new byte[offset];
-        System.arraycopy(binRpcData, 0, trimmed, 0, offset);
-        binRpcData = trimmed;
+        byte[] message = new byte[binRpcData.position()];
+        ((ByteBuffer) binRpcData.duplicate().flip()).get(message);
+        return message;
     }
 
     @Override
@@ -184,42 +247,48 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
 
     // read rpc values
     private int readInt() {
-        byte bi[] = new byte[4];
-        System.arraycopy(binRpcData, offset, bi, 0, 4);
-        offset += 4;
-        return (new BigInteger(bi)).intValue();
+        return binRpcData.getInt();
     }
 
-    private String readString() throws UnsupportedEncodingException {
+    private String readString() {
         int len = readInt();
-        offset += len;
-        return new String(binRpcData, offset - len, len, encoding);
+        String value;
+        if (binRpcData.hasArray()) {
+            value = new String(binRpcData.array(), binRpcData.arrayOffset() + binRpcData.position(), len, charset);
+            binRpcData.position(binRpcData.position() + len);
+        } else {
+            byte[] bytes = new byte[len];
+            binRpcData.get(bytes);
+            value = new String(bytes, charset);
+        }
+        return value;
     }
 
     private Object readRpcValue() throws IOException {
         int type = readInt();
         switch (type) {
             case 1:
-                return new Integer(readInt());
+                return Integer.valueOf(readInt());
             case 2:
-                return binRpcData[offset++] != 0 ? Boolean.TRUE : Boolean.FALSE;
+                return binRpcData.get() != 0 ? Boolean.TRUE : Boolean.FALSE;
             case 3:
                 return readString();
             case 4:
                 int mantissa = readInt();
                 int exponent = readInt();
-                BigDecimal bd = new BigDecimal((double) mantissa / (double) (1 << 30) * Math.pow(2, exponent));
+                // scalb is the exact power of two, equal to Math.pow(2, exponent)
+                BigDecimal bd = new BigDecimal((double) mantissa / (double) (1 << 30) * Math.scalb(1.0, exponent));
                 return bd.setScale(6, RoundingMode.HALF_DOWN).doubleValue();
             case 5:
                 return new Date(readInt() * 1000);
             case 0x100:
                 // Array
                 int numElements = readInt();
-                Collection<Object> array = new ArrayList<Object>();
-                while (numElements-- > 0) {
-                    array.add(readRpcValue());
+                Object[] array = new Object[numElements];
+                for (int i = 0; i < numElements; i++) {
+                    array[i] = readRpcValue();
                 }
-                return array.toArray();
+                return array;
             case 0x101:
                 // Struct
                 numElements = readInt();
@@ -231,34 +300,37 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
                 return struct;
 
             default:
-                for (int i = 0; i < binRpcData.length; i++) {
-                    logger.info("{} {}", Integer.toHexString(binRpcData[i]), (char) binRpcData[i]);
+                for (int i = 0; i < binRpcData.limit(); i++) {
+                    byte b = binRpcData.get(i);
+                    logger.info("{} {}", Integer.toHexString(b), (char) b);
                 }
                 throw new IOException("Unknown data type " + type);
         }
     }
 
-    private void setInt(int position, int value) {
-        int temp = offset;
-        offset = position;
-        addInt(value);
-        offset = temp;
+    private void ensureCapacity(int size) {
+        if (binRpcData.capacity() - binRpcData.position() < size) {
+            ByteBuffer newData = ByteBuffer
+                    .allocate(Math.max(binRpcData.capacity() * 2, binRpcData.position() + size));
+            binRpcData.flip();
+            newData.put(binRpcData);
+            binRpcData = newData;
+        }
     }
 
     private void addByte(byte b) {
-        if (offset == binRpcData.length) {
-            byte newdata[] = new byte[binRpcData.length * 2];
-            System.arraycopy(binRpcData, 0, newdata, 0, binRpcData.length);
-            binRpcData = newdata;
-        }
-        binRpcData[offset++] = b;
+        ensureCapacity(1);
+        binRpcData.put(b);
+    }
+
+    private void addBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        binRpcData.put(bytes);
     }
 
     private void addInt(int value) {
-        addByte((byte) (value >> 24));
-        addByte((byte) (value >> 16));
-        addByte((byte) (value >> 8));
-        addByte((byte) (value));
+        ensureCapacity(4);
+        binRpcData.putInt(value);
     }
 
     private void addDouble(double value) {
@@ -284,15 +356,9 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     }
 
     private void addString(String string) {
-        byte sd[];
-        try {
-            sd = string.getBytes(encoding);
-        } catch (UnsupportedEncodingException use) {
-            sd = string.getBytes();
-        }
-        for (byte ch : sd) {
-            addByte(ch);
-        }
+        byte sd[] = string.getBytes(charset);
+        addInt(sd.length);
+        addBytes(sd);
     }
 
     private void addList(Collection<?> collection) {
@@ -304,9 +370,7 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     private void addObject(Object object) {
         if (object.getClass() == String.class) {
             addInt(3);
-            String string = (String) object;
-            addInt(string.length());
-            addString(string);
+            addString((String) object);
         } else if (object.getClass() == Boolean.class) {
             addInt(2);
             addByte(((Boolean) object).booleanValue() ? (byte) 1 : (byte) 0);
@@ -341,9 +405,8 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
             for (Map.Entry<?, ?> entry : map.entrySet()) {
                 String key = (String) entry.getKey();
                 if (key != null) {
-                    addInt(key.length());
                     addString(key);
-                    addList(Collections.singleton(entry.getValue()));
+                    addObject(entry.getValue());
                 }
             }
         }
@@ -356,8 +419,13 @@ public class BinRpcMessage implements RpcRequest<byte[]>, RpcResponse {
     @Override
     public String toString() {
         try {
-            trimBinRpcData();
-            generateResponseData();
+            if (type != null) {
+                // message created with this class, decode it again for dumping
+                ByteBuffer encoded = binRpcData;
+                binRpcData = ByteBuffer.wrap(createMessage());
+                generateResponseData();
+                binRpcData = encoded;
+            }
             return RpcUtils.dumpRpcMessage(methodName, messageData);
         } catch (Exception e) {
             throw new RuntimeException(e.getMessage(), e);
@@ -8,10 +8,13 @@
  */
 package org.openhab.binding.homematic.internal.communicator.message;
 
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Calendar;
 import java.util.Date;
@@ -19,7 +22,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.apache.commons.lang.StringEscapeUtils;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
  * A XML-RPC request for sending data to the Homematic server.
@@ -33,11 +38,13 @@ public class XmlRpcRequest implements RpcRequest<String> {
         RESPONSE;
     }
 
+    public static final DateTimeFormatter XML_RPC_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HH:mm:ss");
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final int INITIAL_CAPACITY = 512;
+
     private String methodName;
     private List<Object> parms;
-    private StringBuilder sb;
     private TYPE type;
-    public static SimpleDateFormat xmlRpcDateFormat = new SimpleDateFormat("yyyyMMdd'T'HH:mm:ss");
 
     public XmlRpcRequest(String methodName) {
         this(methodName, TYPE.REQUEST);
@@ -66,107 +73,125 @@ public class XmlRpcRequest implements RpcRequest<String> {
 
     @Override
     public String toString() {
-        sb = new StringBuilder();
-
-        sb.append("<?xml");
-        attr("version", "1.0");
-        attr("encoding", "ISO-8859-1");
-        sb.append("?>\n");
-
-        if (type == TYPE.REQUEST) {
-            sb.append("<methodCall>");
-            tag("methodName", methodName);
-        } else {
-            sb.append("<methodResponse>");
-        }
-
-        sb.append("\n");
-        sb.append("<params>");
-        for (Object parameter : parms) {
-            sb.append("<param><value>");
-            generateValue(parameter);
-            sb.append("</value></param>");
-        }
-        sb.append("</params>");
+        StringWriter out = new StringWriter(INITIAL_CAPACITY);
+        try {
+            // a writer per call, so a request can be logged while it is sent
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(out);
+            writer.writeStartDocument("ISO-8859-1", "1.0");
+            writer.writeCharacters("\n");
+
+            if (type == TYPE.REQUEST) {
+                writer.writeStartElement("methodCall");
+                tag(writer, "methodName", methodName);
+            } else {
+                writer.writeStartElement("methodResponse");
+            }
 
-        if (type == TYPE.REQUEST) {
-            sb.append("</methodCall>");
-        } else {
-            sb.append("</methodResponse>");
+            writer.writeCharacters("\n");
+            writer.writeStartElement("params");
+            for (Object parameter : parms) {
+                writer.writeStartElement("param");
+                writer.writeStartElement("value");
+                generateValue(writer, parameter);
+                writer.writeEndElement();
+                writer.writeEndElement();
+            }
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException ex) {
+            throw new IllegalStateException("Can't write XML-RPC message: " + ex.getMessage(), ex);
         }
-        return sb.toString();
+        return out.toString();
     }
 
     /**
-     * Generates a XML attribute.
+     * Generates a XML tag.
      */
-    private void attr(String name, String value) {
-        sb.append(" ").append(name).append("=\"").append(value).append("\"");
+    private void tag(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        writer.writeStartElement(name);
+        writeText(writer, value);
+        writer.writeEndElement();
     }
 
     /**
-     * Generates a XML tag.
+     * Writes the escaped text, characters outside of ASCII are written as numeric character references. Characters
+     * not allowed in XML 1.0 are rejected, the gateway would not be able to parse the message.
      */
-    private void tag(String name, String value) {
-        sb.append("<").append(name).append(">").append(value).append("</").append(name).append(">");
+    private void writeText(XMLStreamWriter writer, String text) throws XMLStreamException {
+        char[] chars = text.toCharArray();
+        int start = 0;
+        int i = 0;
+        while (i < chars.length) {
+            int c = Character.codePointAt(chars, i);
+            if ((c < 0x20 && c != 0x9 && c != 0xA && c != 0xD) || (c >= 0xD800 && c <= 0xDFFF) || c == 0xFFFE
+                    || c == 0xFFFF) {
+                throw new IllegalArgumentException(String.format("Invalid XML character 0x%X at position %d", c, i));
+            }
+            int next = i + Character.charCount(c);
+            if (c > 0x7f) {
+                writer.writeCharacters(chars, start, i - start);
+                writer.writeEntityRef("#" + c);
+                start = next;
+            }
+            i = next;
+        }
+        writer.writeCharacters(chars, start, chars.length - start);
     }
 
     /**
      * Generates a value tag based on the type of the value.
      */
-    private void generateValue(Object value) {
+    private void generateValue(XMLStreamWriter writer, Object value) throws XMLStreamException {
         if (value == null) {
-            tag("string", "void");
+            tag(writer, "string", "void");
         } else {
             Class<?> clazz = value.getClass();
             if (clazz == String.class || clazz == Character.class) {
-                sb.append(StringEscapeUtils.escapeXml(value.toString()));
+                writeText(writer, value.toString());
             } else if (clazz == Long.class || clazz == Integer.class || clazz == Short.class || clazz == Byte.class) {
-                tag("int", value.toString());
+                tag(writer, "int", String.valueOf(((Number) value).longValue()));
             } else if (clazz == Double.class) {
-                tag("double", String.valueOf(((Double) value).doubleValue()));
+                tag(writer, "double", String.valueOf(((Double) value).doubleValue()));
             } else if (clazz == Float.class) {
                 BigDecimal bd = new BigDecimal((Float) value);
-                generateValue(bd.setScale(6, RoundingMode.HALF_DOWN).doubleValue());
+                generateValue(writer, bd.setScale(6, RoundingMode.HALF_DOWN).doubleValue());
             } else if (clazz == BigDecimal.class) {
-                generateValue(((BigDecimal) value).setScale(6, RoundingMode.HALF_DOWN).doubleValue());
+                generateValue(writer, ((BigDecimal) value).setScale(6, RoundingMode.HALF_DOWN).doubleValue());
             } else if (clazz == Boolean.class) {
-                tag("boolean", ((Boolean) value).booleanValue() ? "1" : "0");
+                tag(writer, "boolean", ((Boolean) value).booleanValue() ? "1" : "0");
             } else if (clazz == Date.class) {
-                tag("dateTime.iso8601", xmlRpcDateFormat.format(((Date) value)));
+                tag(writer, "dateTime.iso8601",
+                        XML_RPC_DATE_FORMAT.format(((Date) value).toInstant().atZone(ZoneId.systemDefault())));
             } else if (value instanceof Calendar) {
-                generateValue(((Calendar) value).getTime());
+                generateValue(writer, ((Calendar) value).getTime());
             } else if (value instanceof byte[]) {
-                tag("base64", Base64.getEncoder().encodeToString((byte[]) value));
+                tag(writer, "base64", Base64.getEncoder().encodeToString((byte[]) value));
             } else if (clazz.isArray() || value instanceof List) {
-                sb.append("<array><data>");
+                writer.writeStartElement("array");
+                writer.writeStartElement("data");
 
-                Object[] array = null;
-                if (value instanceof List) {
-                    array = ((List<?>) value).toArray();
-                } else {
-                    array = (Object[]) value;
-                }
+                Iterable<?> array = value instanceof List ? (List<?>) value : Arrays.asList((Object[]) value);
                 for (Object arrayObject : array) {
-                    sb.append("<value>");
-                    generateValue(arrayObject);
-                    sb.append("</value>");
+                    writer.writeStartElement("value");
+                    generateValue(writer, arrayObject);
+                    writer.writeEndElement();
                 }
 
-                sb.append("</data></array>");
+                writer.writeEndElement();
+                writer.writeEndElement();
             } else if (value instanceof Map) {
-                sb.append("<struct>");
+                writer.writeStartElement("struct");
 
                 for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
-                    sb.append("<member>");
-                    sb.append("<name>").append(entry.getKey()).append("</name>");
-                    sb.append("<value>");
-                    generateValue(entry.getValue());
-                    sb.append("</value>");
-                    sb.append("</member>");
+                    writer.writeStartElement("member");
+                    tag(writer, "name", String.valueOf(entry.getKey()));
+                    writer.writeStartElement("value");
+                    generateValue(writer, entry.getValue());
+                    writer.writeEndElement();
+                    writer.writeEndElement();
                 }
 
-                sb.append("</struct>");
+                writer.writeEndElement();
             } else {
                 throw new RuntimeException("Unsupported XML-RPC Type: " + value.getClass());
             }
@@ -8,44 +8,57 @@
  */
 package org.openhab.binding.homematic.internal.communicator.message;
 
-import java.io.IOException;
 import java.io.InputStream;
-import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
- * Decodes a XML-RPC message from the Homematic server.
+ * Decodes a XML-RPC message from the Homematic server. The message is read with a StAX stream reader, all messages
+ * share one preconfigured factory.
  *
  * @author Gerhard Riegler - Initial contribution
  */
 public class XmlRpcResponse implements RpcResponse {
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
     private String methodName;
     private Object[] responseData;
 
     /**
      * Decodes a XML-RPC message from the given InputStream.
      */
-    public XmlRpcResponse(InputStream is, String encoding)
-            throws SAXException, ParserConfigurationException, IOException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser saxParser = factory.newSAXParser();
-        InputSource inputSource = new InputSource(is);
-        inputSource.setEncoding(encoding);
-        saxParser.parse(inputSource, new XmlRpcHandler());
+    public XmlRpcResponse(InputStream is, String encoding) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(is, encoding);
+        try {
+            parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates the factory for all stream readers, the configured factory is thread safe.
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
     }
 
     @Override
@@ -64,109 +77,99 @@ public class XmlRpcResponse implements RpcResponse {
     }
 
     /**
-     * SAX parser implementation to decode XML-RPC.
-     *
-     * @author Gerhard Riegler
-     * @since 1.9.0
+     * Reads all values of the message into the same object model as the BIN-RPC decoder, arrays are decoded to
+     * Object[] and structs to Maps.
      */
-    private class XmlRpcHandler extends DefaultHandler {
-        private List<Object> result = new ArrayList<Object>();
-        private LinkedList<List<Object>> currentDataObject = new LinkedList<List<Object>>();
-        private StringBuilder tagValue;
-        private boolean isValueTag;
-
-        @Override
-        public void startDocument() throws SAXException {
-            currentDataObject.addLast(new ArrayList<Object>());
-        }
-
-        @Override
-        public void endDocument() throws SAXException {
-            result.addAll(currentDataObject.removeLast());
-            responseData = result.toArray();
-        }
-
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes)
-                throws SAXException {
-            String tag = qName.toLowerCase();
-            if (tag.equals("array") || tag.equals("struct")) {
-                currentDataObject.addLast(new ArrayList<Object>());
-            }
-            isValueTag = tag.equals("value");
-            tagValue = new StringBuilder();
-        }
-
-        @Override
-        public void endElement(String uri, String localName, String qName) throws SAXException {
-            String currentTag = qName.toLowerCase();
-            String currentValue = tagValue.toString();
-            List<Object> data = currentDataObject.peekLast();
-
-            switch (currentTag) {
-                case "boolean":
-                    data.add("1".equals(currentValue) ? Boolean.TRUE : Boolean.FALSE);
-                    break;
-                case "int":
-                case "i4":
-                    data.add(new Integer(currentValue));
-                    break;
-                case "double":
-                    data.add(new Double(currentValue));
-                    break;
-                case "string":
-                case "name":
-                    data.add(currentValue);
-                    break;
-                case "value":
-                    if (isValueTag) {
-                        data.add(currentValue);
-                        isValueTag = false;
+    private void parse(XMLStreamReader reader) throws XMLStreamException {
+        Deque<List<Object>> currentDataObject = new ArrayDeque<List<Object>>();
+        currentDataObject.addLast(new ArrayList<Object>());
+        StringBuilder tagValue = new StringBuilder();
+        boolean isValueTag = false;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    String startTag = reader.getLocalName().toLowerCase();
+                    if (startTag.equals("array") || startTag.equals("struct")) {
+                        currentDataObject.addLast(new ArrayList<Object>());
                     }
+                    isValueTag = startTag.equals("value");
+                    tagValue.setLength(0);
                     break;
-                case "array":
-                    List<Object> arrayData = currentDataObject.removeLast();
-                    currentDataObject.peekLast().add(arrayData.toArray());
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    tagValue.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
                     break;
-                case "struct":
-                    List<Object> mapData = currentDataObject.removeLast();
-                    Map<Object, Object> resultMap = new HashMap<Object, Object>();
-
-                    for (int i = 0; i < mapData.size(); i += 2) {
-                        resultMap.put(mapData.get(i), mapData.get(i + 1));
+                case XMLStreamConstants.END_ELEMENT:
+                    String endTag = reader.getLocalName().toLowerCase();
+                    List<Object> data = currentDataObject.peekLast();
+
+                    switch (endTag) {
+                        case "boolean":
+                            data.add(tagValue.length() == 1 && tagValue.charAt(0) == '1' ? Boolean.TRUE
+                                    : Boolean.FALSE);
+                            break;
+                        case "int":
+                        case "i4":
+                            data.add(Integer.valueOf(tagValue.toString()));
+                            break;
+                        case "double":
+                            data.add(Double.valueOf(tagValue.toString()));
+                            break;
+                        case "string":
+                        case "name":
+                            data.add(tagValue.toString());
+                            break;
+                        case "value":
+                            if (isValueTag) {
+                                data.add(tagValue.toString());
+                                isValueTag = false;
+                            }
+                            break;
+                        case "array":
+                            List<Object> arrayData = currentDataObject.removeLast();
+                            currentDataObject.peekLast().add(arrayData.toArray());
+                            break;
+                        case "struct":
+                            List<Object> mapData = currentDataObject.removeLast();
+                            Map<Object, Object> resultMap = new HashMap<Object, Object>(mapData.size());
+                            for (int i = 0; i < mapData.size(); i += 2) {
+                                resultMap.put(mapData.get(i), mapData.get(i + 1));
+                            }
+                            currentDataObject.peekLast().add(resultMap);
+                            break;
+                        case "base64":
+                            data.add(Base64.getDecoder().decode(tagValue.toString()));
+                            break;
+                        case "datetime.iso8601":
+                            try {
+                                data.add(Date.from(
+                                        LocalDateTime.parse(tagValue.toString(), XmlRpcRequest.XML_RPC_DATE_FORMAT)
+                                                .atZone(ZoneId.systemDefault()).toInstant()));
+                            } catch (DateTimeParseException ex) {
+                                throw new XMLStreamException(ex.getMessage(), ex);
+                            }
+                            break;
+                        case "methodname":
+                            methodName = tagValue.toString();
+                            break;
+                        case "params":
+                        case "param":
+                        case "methodcall":
+                        case "methodresponse":
+                        case "member":
+                        case "data":
+                        case "fault":
+                            break;
+                        default:
+                            throw new XMLStreamException("Unknown XML-RPC tag: " + endTag);
                     }
-                    currentDataObject.peekLast().add(resultMap);
-                    break;
-                case "base64":
-                    data.add(Base64.getDecoder().decode(currentValue));
-                    break;
-                case "datetime.iso8601":
-                    try {
-                        data.add(XmlRpcRequest.xmlRpcDateFormat.parse(currentValue));
-                    } catch (ParseException ex) {
-                        throw new SAXException(ex.getMessage(), ex);
-                    }
-                    break;
-                case "methodname":
-                    methodName = currentValue;
-                    break;
-                case "params":
-                case "param":
-                case "methodcall":
-                case "methodresponse":
-                case "member":
-                case "data":
-                case "fault":
                     break;
                 default:
-                    throw new SAXException("Unknown XML-RPC tag: " + currentTag);
+                    break;
             }
         }
-
-        @Override
-        public void characters(char[] ch, int start, int length) throws SAXException {
-            tagValue.append(new String(ch, start, length));
-        }
-
+        responseData = currentDataObject.removeLast().toArray();
     }
 }
@@ -15,8 +15,6 @@ import java.net.Socket;
 
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
-import org.openhab.binding.homematic.internal.communicator.message.BinRpcMessage;
-import org.openhab.binding.homematic.internal.communicator.message.RpcRequest;
 
 /**
  * Waits for a message from the Homematic gateway and starts the RpcCallbackHandler to handle the message.
@@ -24,11 +22,6 @@ import org.openhab.binding.homematic.internal.communicator.message.RpcRequest;
  * @author Gerhard Riegler - Initial contribution
  */
 public class BinRpcNetworkService implements Runnable {
-    private static final byte BIN_EMPTY_STRING[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 0, 3, 0, 0, 0, 0 };
-    private static final byte BIN_EMPTY_ARRAY[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 1, 0, 0, 0, 0, 0 };
-    private static final byte BIN_EMPTY_EVENT_LIST[] = { 'B', 'i', 'n', 1, 0, 0, 0, 21, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0,
-            3, 0, 0, 0, 5, 'e', 'v', 'e', 'n', 't' };
-
     private static final String RPC_POOL_NAME = "homematicRpc";
     private ServerSocket serverSocket;
     private boolean accept = true;
@@ -38,35 +31,15 @@ public class BinRpcNetworkService implements Runnable {
     /**
      * Creates the socket for listening to events from the Homematic gateway.
      */
-    public BinRpcNetworkService(RpcEventListener listener, HomematicConfig config) throws IOException {
+    public BinRpcNetworkService(RpcResponseHandler<byte[]> rpcResponseHandler, HomematicConfig config)
+            throws IOException {
         this.config = config;
 
         serverSocket = new ServerSocket();
         serverSocket.setReuseAddress(true);
         serverSocket.bind(new InetSocketAddress(config.getBinCallbackPort()));
 
-        this.rpcResponseHandler = new RpcResponseHandler<byte[]>(listener) {
-
-            @Override
-            protected byte[] getEmptyStringResult() {
-                return BIN_EMPTY_STRING;
-            }
-
-            @Override
-            protected byte[] getEmptyEventListResult() {
-                return BIN_EMPTY_EVENT_LIST;
-            }
-
-            @Override
-            protected byte[] getEmptyArrayResult() {
-                return BIN_EMPTY_ARRAY;
-            }
-
-            @Override
-            protected RpcRequest<byte[]> createRpcRequest() {
-                return new BinRpcMessage(null, BinRpcMessage.TYPE.RESPONSE, config.getEncoding());
-            }
-        };
+        this.rpcResponseHandler = rpcResponseHandler;
     }
 
     /**
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.openhab.binding.homematic.internal.common.HomematicConfig;
+import org.openhab.binding.homematic.internal.communicator.message.BinRpcMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits for messages from the Homematic gateway with one selector thread and keeps the connections open for further
+ * messages. Messages are framed by the length in the BinX header, the method calls are handled in the RPC thread pool.
+ * A connection does not read the next message until the response of the current message has been sent.
+ *
+ * @author agent - Initial contribution
+ */
+public class BinRpcSelectorService implements Runnable {
+    private final Logger logger = LoggerFactory.getLogger(BinRpcSelectorService.class);
+
+    private static final String RPC_POOL_NAME = "homematicRpc";
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final long IDLE_CHECK_INTERVAL = 30000;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean accept = true;
+    private HomematicConfig config;
+    private RpcResponseHandler<byte[]> rpcResponseHandler;
+    private Queue<Connection> handledConnections = new ConcurrentLinkedQueue<Connection>();
+    private long lastIdleCheck = System.currentTimeMillis();
+
+    /**
+     * Creates the server channel for listening to events from the Homematic gateway.
+     */
+    public BinRpcSelectorService(RpcResponseHandler<byte[]> rpcResponseHandler, HomematicConfig config)
+            throws IOException {
+        this.config = config;
+        this.rpcResponseHandler = rpcResponseHandler;
+
+        selector = Selector.open();
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.bind(new InetSocketAddress(config.getBinCallbackPort()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            closeSilent();
+            throw ex;
+        }
+    }
+
+    /**
+     * Accepts connections, reads messages and writes the responses until the service is stopped.
+     */
+    @Override
+    public void run() {
+        try {
+            while (accept && !Thread.currentThread().isInterrupted()) {
+                selector.select(IDLE_CHECK_INTERVAL);
+                sendResponses();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        acceptConnection();
+                    } else if (key.isValid()) {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.read();
+                            } else if (key.isWritable()) {
+                                connection.write();
+                            }
+                        } catch (IOException ex) {
+                            logger.trace("Closing BIN-RPC connection: {}", ex.getMessage());
+                            connection.close();
+                        }
+                    }
+                }
+                closeIdleConnections();
+            }
+        } catch (ClosedSelectorException ex) {
+            // shutdown
+        } catch (IOException ex) {
+            logger.error("BIN-RPC server stopped: {}", ex.getMessage(), ex);
+        } finally {
+            closeSilent();
+        }
+    }
+
+    /**
+     * Stops the listening and closes all connections.
+     */
+    public void shutdown() {
+        accept = false;
+        try {
+            serverChannel.close();
+        } catch (IOException ex) {
+            // ignore
+        }
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts a new connection from the Homematic gateway.
+     */
+    private void acceptConnection() {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                logger.trace("Accepted BIN-RPC connection from {}", channel.getRemoteAddress());
+            }
+        } catch (IOException ex) {
+            // ignore
+        }
+    }
+
+    /**
+     * Sends the responses of all method calls which have been handled in the meantime.
+     */
+    private void sendResponses() {
+        Connection connection;
+        while ((connection = handledConnections.poll()) != null) {
+            try {
+                connection.sendResponse();
+            } catch (IOException ex) {
+                logger.trace("Closing BIN-RPC connection: {}", ex.getMessage());
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Closes all connections without activity since the max alive time of a socket.
+     */
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < IDLE_CHECK_INTERVAL) {
+            return;
+        }
+        lastIdleCheck = now;
+        for (SelectionKey key : selector.keys()) {
+            Connection connection = (Connection) key.attachment();
+            if (connection != null && connection.isIdle(now)) {
+                logger.trace("Closing idle BIN-RPC connection");
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Silently closes the selector, the server channel and all connections.
+     */
+    private void closeSilent() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        } catch (IOException | ClosedSelectorException ex) {
+            // ignore
+        }
+        try {
+            selector.close();
+        } catch (IOException ex) {
+            // ignore
+        }
+    }
+
+    /**
+     * A connection from the Homematic gateway, handles one message after the other.
+     */
+    private class Connection implements Runnable {
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private ByteBuffer writeBuffer;
+        private BinRpcMessage request;
+        private byte[] response;
+        private boolean busy;
+        private long lastActivity = System.currentTimeMillis();
+
+        public Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the available bytes and dispatches the message, if it is complete.
+         */
+        public void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                throw new EOFException("Connection closed by the Homematic gateway");
+            }
+            lastActivity = System.currentTimeMillis();
+            dispatchMessage();
+        }
+
+        /**
+         * Writes the remaining bytes of the response, afterwards the next message is read.
+         */
+        public void write() throws IOException {
+            channel.write(writeBuffer);
+            lastActivity = System.currentTimeMillis();
+            if (writeBuffer.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                writeBuffer = null;
+                busy = false;
+                key.interestOps(SelectionKey.OP_READ);
+                dispatchMessage();
+            }
+        }
+
+        /**
+         * Starts sending the response of the handled method call.
+         */
+        public void sendResponse() throws IOException {
+            if (!key.isValid()) {
+                return;
+            }
+            // the gateway waits for a response on keep-alive connections, even if the method call failed
+            writeBuffer = ByteBuffer.wrap(response != null ? response : rpcResponseHandler.getEmptyStringResult());
+            response = null;
+            write();
+        }
+
+        /**
+         * Handles the method call in the RPC thread pool.
+         */
+        @Override
+        public void run() {
+            try {
+                response = rpcResponseHandler.handleMethodCall(request.getMethodName(), request.getResponseData());
+            } catch (Exception ex) {
+                logger.error("{}", ex.getMessage(), ex);
+                response = null;
+            }
+            request = null;
+            handledConnections.add(this);
+            selector.wakeup();
+        }
+
+        /**
+         * Decodes the next message from the read buffer and hands it to the RPC thread pool, if it is complete.
+         */
+        private void dispatchMessage() throws IOException {
+            readBuffer.flip();
+            int messageLength = BinRpcMessage.getMessageLength(readBuffer);
+            if (messageLength >= 0 && readBuffer.remaining() >= messageLength) {
+                request = new BinRpcMessage(readBuffer, true, config.getEncoding());
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Event BinRpcMessage: {}", request);
+                }
+                busy = true;
+                key.interestOps(0);
+                ThreadPoolManager.getPool(RPC_POOL_NAME).execute(this);
+            }
+            readBuffer.compact();
+
+            if (messageLength > readBuffer.capacity()) {
+                // the length has been validated against the maximum message length
+                readBuffer.flip();
+                readBuffer = ByteBuffer.allocate(messageLength).put(readBuffer);
+            }
+        }
+
+        /**
+         * Returns true, if the connection waits for a message longer than the max alive time of a socket.
+         */
+        public boolean isIdle(long now) {
+            return !busy && now - lastActivity > config.getSocketMaxAlive() * 1000L;
+        }
+
+        /**
+         * Silently closes the connection.
+         */
+        public void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+    }
+}
@@ -11,6 +11,8 @@ package org.openhab.binding.homematic.internal.communicator.server;
 import java.io.IOException;
 
 import org.openhab.binding.homematic.internal.common.HomematicConfig;
+import org.openhab.binding.homematic.internal.communicator.message.BinRpcMessage;
+import org.openhab.binding.homematic.internal.communicator.message.RpcRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,29 +24,64 @@ import org.slf4j.LoggerFactory;
 public class BinRpcServer implements RpcServer {
     private final Logger logger = LoggerFactory.getLogger(BinRpcServer.class);
 
+    private static final byte BIN_EMPTY_STRING[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 0, 3, 0, 0, 0, 0 };
+    private static final byte BIN_EMPTY_ARRAY[] = { 'B', 'i', 'n', 1, 0, 0, 0, 8, 0, 0, 1, 0, 0, 0, 0, 0 };
+    private static final byte BIN_EMPTY_EVENT_LIST[] = { 'B', 'i', 'n', 1, 0, 0, 0, 21, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0,
+            3, 0, 0, 0, 5, 'e', 'v', 'e', 'n', 't' };
+
     private Thread networkServiceThread;
     private BinRpcNetworkService networkService;
+    private BinRpcSelectorService selectorService;
     private HomematicConfig config;
-    private RpcEventListener listener;
+    private RpcResponseHandler<byte[]> rpcResponseHandler;
 
     public BinRpcServer(RpcEventListener listener, HomematicConfig config) {
-        this.listener = listener;
         this.config = config;
+        this.rpcResponseHandler = new RpcResponseHandler<byte[]>(listener) {
+
+            @Override
+            protected byte[] getEmptyStringResult() {
+                return BIN_EMPTY_STRING;
+            }
+
+            @Override
+            protected byte[] getEmptyEventListResult() {
+                return BIN_EMPTY_EVENT_LIST;
+            }
+
+            @Override
+            protected byte[] getEmptyArrayResult() {
+                return BIN_EMPTY_ARRAY;
+            }
+
+            @Override
+            protected RpcRequest<byte[]> createRpcRequest() {
+                return new BinRpcMessage(null, BinRpcMessage.TYPE.RESPONSE, config.getEncoding());
+            }
+        };
     }
 
     @Override
     public void start() throws IOException {
-        logger.debug("Initializing BIN-RPC server at port {}", config.getBinCallbackPort());
-
-        networkService = new BinRpcNetworkService(listener, config);
-        networkServiceThread = new Thread(networkService);
+        Runnable service;
+        if (config.isBinCallbackKeepAlive()) {
+            logger.debug("Initializing BIN-RPC server with keep-alive connections at port {}",
+                    config.getBinCallbackPort());
+            selectorService = new BinRpcSelectorService(rpcResponseHandler, config);
+            service = selectorService;
+        } else {
+            logger.debug("Initializing BIN-RPC server at port {}", config.getBinCallbackPort());
+            networkService = new BinRpcNetworkService(rpcResponseHandler, config);
+            service = networkService;
+        }
+        networkServiceThread = new Thread(service);
         networkServiceThread.setName("HomematicRpcServer");
         networkServiceThread.start();
     }
 
     @Override
     public void shutdown() {
-        if (networkService != null) {
+        if (networkService != null || selectorService != null) {
             logger.debug("Stopping BIN-RPC server");
             try {
                 if (networkServiceThread != null) {
@@ -53,8 +90,14 @@ public class BinRpcServer implements RpcServer {
             } catch (Exception e) {
                 logger.error("{}", e.getMessage(), e);
             }
-            networkService.shutdown();
-            networkService = null;
+            if (networkService != null) {
+                networkService.shutdown();
+                networkService = null;
+            }
+            if (selectorService != null) {
+                selectorService.shutdown();
+                selectorService = null;
+            }
         }
     }
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.homematic.internal.communicator.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openhab.binding.homematic.internal.model.HmDatapointInfo;
+
+/**
+ * The events of one system.multicall from a Homematic gateway in the order in which they have been received. Events
+ * of the same datapoint are not merged here, because only the gateway knows which datapoints are triggers.
+ *
+ * @author agent - Initial contribution
+ */
+public class RpcEventBatch {
+    private List<Event> events = new ArrayList<Event>();
+
+    /**
+     * A single event of the batch.
+     */
+    public static class Event {
+        private final HmDatapointInfo dpInfo;
+        private final Object value;
+
+        private Event(HmDatapointInfo dpInfo, Object value) {
+            this.dpInfo = dpInfo;
+            this.value = value;
+        }
+
+        public HmDatapointInfo getDpInfo() {
+            return dpInfo;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * Adds an event.
+     */
+    public void add(HmDatapointInfo dpInfo, Object value) {
+        events.add(new Event(dpInfo, value));
+    }
+
+    /**
+     * Returns all events in the order in which they have been added.
+     */
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the number of all added events.
+     */
+    public int getReceivedCount() {
+        return events.size();
+    }
+
+    /**
+     * Returns true, if no event has been added.
+     */
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+}
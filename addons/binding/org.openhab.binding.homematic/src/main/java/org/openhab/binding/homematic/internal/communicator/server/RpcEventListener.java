@@ -24,6 +24,11 @@ public interface RpcEventListener {
      */
     public void eventReceived(HmDatapointInfo dpInfo, Object newValue);
 
+    /**
+     * Called when multiple events are received with one call from a Homeamtic gateway.
+     */
+    public void eventsReceived(RpcEventBatch eventBatch);
+
     /**
      * Called when new devices has been detected on the Homeamtic gateway.
      */
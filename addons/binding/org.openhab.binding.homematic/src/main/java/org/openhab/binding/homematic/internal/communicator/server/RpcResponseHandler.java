@@ -56,15 +56,7 @@ public abstract class RpcResponseHandler<T> {
             msg.addArg(getListMethods());
             return msg.createMessage();
         } else if (RPC_METHODNAME_SYSTEM_MULTICALL.equals(methodName)) {
-            for (Object o : (Object[]) responseData[0]) {
-                Map<?, ?> call = (Map<?, ?>) o;
-                if (call != null) {
-                    String method = ObjectUtils.toString(call.get("methodName"));
-                    Object[] data = (Object[]) call.get("params");
-                    handleMethodCall(method, data);
-                }
-            }
-            return getEmptyEventListResult();
+            return handleMultiCall(responseData);
         } else if (RPC_METHODNAME_SET_CONFIG_READY.equals(methodName)) {
             return getEmptyEventListResult();
         } else {
@@ -95,6 +87,36 @@ public abstract class RpcResponseHandler<T> {
         return getEmptyStringResult();
     }
 
+    /**
+     * Collects the events of a multicall and populates them as one batch to the listener. Other method calls are
+     * handled after all previous events have been populated.
+     */
+    private T handleMultiCall(Object[] message) throws IOException {
+        RpcEventBatch eventBatch = new RpcEventBatch();
+        for (Object o : (Object[]) message[0]) {
+            Map<?, ?> call = (Map<?, ?>) o;
+            if (call != null) {
+                String method = ObjectUtils.toString(call.get("methodName"));
+                Object[] data = (Object[]) call.get("params");
+                if (RPC_METHODNAME_EVENT.equals(method)) {
+                    EventParser eventParser = new EventParser();
+                    HmDatapointInfo dpInfo = eventParser.parse(data);
+                    eventBatch.add(dpInfo, eventParser.getValue());
+                } else {
+                    if (!eventBatch.isEmpty()) {
+                        listener.eventsReceived(eventBatch);
+                        eventBatch = new RpcEventBatch();
+                    }
+                    handleMethodCall(method, data);
+                }
+            }
+        }
+        if (!eventBatch.isEmpty()) {
+            listener.eventsReceived(eventBatch);
+        }
+        return getEmptyEventListResult();
+    }
+
     /**
      * Calls the listener when a devices has been detected.
      */
@@ -43,6 +43,11 @@ public abstract class AbstractVirtualDatapointHandler implements VirtualDatapoin
         return false;
     }
 
+    @Override
+    public boolean isEventHandlerFor(HmDatapoint dp) {
+        return false;
+    }
+
     @Override
     public void handleEvent(VirtualGateway gateway, HmDatapoint dp) {
     }
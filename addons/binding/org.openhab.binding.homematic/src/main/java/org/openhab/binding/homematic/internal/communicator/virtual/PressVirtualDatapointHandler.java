@@ -50,6 +50,11 @@ public class PressVirtualDatapointHandler extends AbstractVirtualDatapointHandle
         return dp.isPressDatapoint() && MiscUtils.isTrueValue(dp.getValue());
     }
 
+    @Override
+    public boolean isEventHandlerFor(HmDatapoint dp) {
+        return dp.isPressDatapoint();
+    }
+
     @Override
     public void handleEvent(VirtualGateway gateway, HmDatapoint dp) {
         HmDatapoint vdp = getVirtualDatapoint(dp.getChannel());
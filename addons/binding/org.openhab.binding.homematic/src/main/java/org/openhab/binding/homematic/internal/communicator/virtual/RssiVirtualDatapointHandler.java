@@ -44,6 +44,11 @@ public class RssiVirtualDatapointHandler extends AbstractVirtualDatapointHandler
                 && (DATAPOINT_NAME_RSSI_DEVICE.equals(dp.getName()) || DATAPOINT_NAME_RSSI_PEER.equals(dp.getName()));
     }
 
+    @Override
+    public boolean isEventHandlerFor(HmDatapoint dp) {
+        return canHandleEvent(dp);
+    }
+
     @Override
     public void handleEvent(VirtualGateway gateway, HmDatapoint dp) {
         HmChannel channel = dp.getChannel();
@@ -46,6 +46,11 @@ public class StateContactVirtualDatapointHandler extends AbstractVirtualDatapoin
         return isApplicable(dp.getChannel().getDevice()) && DATAPOINT_NAME_STATE.equals(dp.getName());
     }
 
+    @Override
+    public boolean isEventHandlerFor(HmDatapoint dp) {
+        return canHandleEvent(dp);
+    }
+
     @Override
     public void handleEvent(VirtualGateway gateway, HmDatapoint dp) {
         Object value = convertState(dp.getValue());
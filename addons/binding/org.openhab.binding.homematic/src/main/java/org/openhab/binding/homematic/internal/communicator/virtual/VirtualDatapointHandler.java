@@ -50,6 +50,13 @@ public interface VirtualDatapointHandler {
      */
     public boolean canHandleEvent(HmDatapoint dp);
 
+    /**
+     * Returns true, if events of the given datapoint may be handled, independent of the current value. Evaluated once
+     * for each datapoint when the device is prepared, {@link #canHandleEvent(HmDatapoint)} is only called for these
+     * datapoints.
+     */
+    public boolean isEventHandlerFor(HmDatapoint dp);
+
     /**
      * Handles a event to extract data required for the virtual datapoint.
      */
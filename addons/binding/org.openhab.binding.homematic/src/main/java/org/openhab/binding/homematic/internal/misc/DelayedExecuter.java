@@ -9,24 +9,46 @@
 package org.openhab.binding.homematic.internal.misc;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.homematic.internal.model.HmDatapointInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Executes a callback method either immediately or after a given delay for a datapoint.
+ * Executes a callback method either immediately or after a given delay for a datapoint. All delayed callbacks of all
+ * gateways share one scheduled thread pool. If a datapoint is delayed again before the callback has been executed,
+ * the previous callback is discarded (debounce).
  *
  * @author Gerhard Riegler - Initial contribution
  */
 public class DelayedExecuter {
     private final Logger logger = LoggerFactory.getLogger(DelayedExecuter.class);
+    private static final String DELAYED_EXECUTER_POOL_NAME = "homematicDelayedExecuter";
 
-    private Map<HmDatapointInfo, Timer> delayedEvents = new HashMap<HmDatapointInfo, Timer>();
+    private final ScheduledExecutorService scheduler;
+    private final Map<HmDatapointInfo, DelayedTask> delayedEvents = new ConcurrentHashMap<>();
+
+    private final AtomicLong immediateCount = new AtomicLong();
+    private final AtomicLong delayedCount = new AtomicLong();
+    private final AtomicLong rescheduledCount = new AtomicLong();
+    private final AtomicLong executedCount = new AtomicLong();
+
+    public DelayedExecuter() {
+        this(ThreadPoolManager.getScheduledPool(DELAYED_EXECUTER_POOL_NAME));
+    }
+
+    public DelayedExecuter(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
 
     /**
      * Executes a callback method either immediately or after a given delay.
@@ -34,30 +56,18 @@ public class DelayedExecuter {
     public void start(final HmDatapointInfo dpInfo, final double delay, final DelayedExecuterCallback callback)
             throws IOException, HomematicClientException {
         if (delay > 0.0) {
-            synchronized (DelayedExecuter.class) {
-                logger.debug("Delaying event for {} seconds: '{}'", delay, dpInfo);
-
-                Timer timer = delayedEvents.get(dpInfo);
-                if (timer != null) {
-                    timer.cancel();
+            logger.debug("Delaying event for {} seconds: '{}'", delay, dpInfo);
+            delayedCount.incrementAndGet();
+            delayedEvents.compute(dpInfo, (key, previousTask) -> {
+                if (previousTask != null && previousTask.cancel()) {
+                    rescheduledCount.incrementAndGet();
                 }
-
-                timer = new Timer();
-                delayedEvents.put(dpInfo, timer);
-                timer.schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        logger.debug("Executing delayed event for '{}'", dpInfo);
-                        delayedEvents.remove(dpInfo);
-                        try {
-                            callback.execute();
-                        } catch (Exception ex) {
-                            logger.error("{}", ex.getMessage(), ex);
-                        }
-                    }
-                }, (long) (delay * 1000));
-            }
+                DelayedTask task = new DelayedTask(dpInfo, callback);
+                task.future = scheduler.schedule(task, (long) (delay * 1000), TimeUnit.MILLISECONDS);
+                return task;
+            });
         } else {
+            immediateCount.incrementAndGet();
             callback.execute();
         }
     }
@@ -66,12 +76,91 @@ public class DelayedExecuter {
      * Stops all delayed events.
      */
     public void stop() {
-        for (Timer timer : delayedEvents.values()) {
-            timer.cancel();
+        for (DelayedTask task : delayedEvents.values()) {
+            task.cancel();
         }
         delayedEvents.clear();
     }
 
+    /**
+     * Returns the number of currently pending delayed events.
+     */
+    public int getPendingCount() {
+        return delayedEvents.size();
+    }
+
+    /**
+     * Returns the number of callbacks executed immediately.
+     */
+    public long getImmediateCount() {
+        return immediateCount.get();
+    }
+
+    /**
+     * Returns the number of delayed callbacks.
+     */
+    public long getDelayedCount() {
+        return delayedCount.get();
+    }
+
+    /**
+     * Returns the number of delayed callbacks which have been replaced by a newer one for the same datapoint.
+     */
+    public long getRescheduledCount() {
+        return rescheduledCount.get();
+    }
+
+    /**
+     * Returns the number of executed delayed callbacks.
+     */
+    public long getExecutedCount() {
+        return executedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("immediate", getImmediateCount())
+                .append("delayed", getDelayedCount()).append("rescheduled", getRescheduledCount())
+                .append("executed", getExecutedCount()).append("pending", getPendingCount()).toString();
+    }
+
+    /**
+     * A delayed callback for a datapoint, removes itself from the pending events before execution.
+     */
+    private class DelayedTask implements Runnable {
+        private final HmDatapointInfo dpInfo;
+        private final DelayedExecuterCallback callback;
+        private volatile ScheduledFuture<?> future;
+
+        public DelayedTask(HmDatapointInfo dpInfo, DelayedExecuterCallback callback) {
+            this.dpInfo = dpInfo;
+            this.callback = callback;
+        }
+
+        /**
+         * Cancels the task, returns false if the task is already running or has been executed.
+         */
+        public boolean cancel() {
+            return future != null && future.cancel(false);
+        }
+
+        @Override
+        public void run() {
+            // remove() waits until a concurrent compute() for the same datapoint has finished
+            if (!delayedEvents.remove(dpInfo, this)) {
+                // replaced by a newer event in the meantime
+                return;
+            }
+            logger.debug("Executing delayed event for '{}'", dpInfo);
+            executedCount.incrementAndGet();
+            try {
+                callback.execute();
+            } catch (Exception ex) {
+                logger.error("{}", ex.getMessage(), ex);
+            }
+        }
+    }
+
     /**
      * Callback interface for the {@link DelayedExecuter}.
      *
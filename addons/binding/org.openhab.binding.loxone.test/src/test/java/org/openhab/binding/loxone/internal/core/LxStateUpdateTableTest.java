@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.loxone.internal.core;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test cases for the binary decoders of {@link LxStateUpdateTable}
+ *
+ * @author agent - initial contribution
+ *
+ */
+public class LxStateUpdateTableTest {
+    private static final double DELTA = 0.000001;
+    private static final long MSB_A = 0x0f2f6e3c02c01b5eL;
+    private static final long LSB_A = 0xffff403fb0c34b9eL;
+    private static final long MSB_B = 0x10a1b2c3d4e5f607L;
+    private static final long LSB_B = 0x0102030405060708L;
+
+    private final LxStateUpdateTable table = new LxStateUpdateTable();
+
+    @Test
+    public void decodeValueStatesTest() {
+        byte[] data = valueStates(MSB_A, LSB_A, 21.5, MSB_B, LSB_B, -1);
+
+        assertTrue(table.decodeValueStates(data, 0, data.length));
+        assertEquals(2, table.size());
+        assertUpdate(table.get(0), MSB_A, LSB_A);
+        assertEquals(21.5, table.get(0).getValue(), DELTA);
+        assertNull(table.get(0).getText());
+        assertUpdate(table.get(1), MSB_B, LSB_B);
+        assertEquals(-1, table.get(1).getValue(), DELTA);
+
+        // the UUID is decoded like the string representation of the UUID
+        LxUuid uuid = new LxUuid(data, 0);
+        assertEquals(uuid.getMostSignificantBits(), table.get(0).getMostSignificantBits());
+        assertEquals(uuid.getLeastSignificantBits(), table.get(0).getLeastSignificantBits());
+    }
+
+    @Test
+    public void decodeValueStatesAtOffsetTest() {
+        byte[] states = valueStates(MSB_A, LSB_A, 3);
+        byte[] data = new byte[8 + states.length];
+        System.arraycopy(states, 0, data, 8, states.length);
+
+        table.decodeValueStates(data, 8, states.length);
+        assertEquals(1, table.size());
+        assertUpdate(table.get(0), MSB_A, LSB_A);
+        assertEquals(3, table.get(0).getValue(), DELTA);
+    }
+
+    @Test
+    public void laterUpdatesAreMergedTest() {
+        byte[] first = valueStates(MSB_A, LSB_A, 1, MSB_B, LSB_B, 2);
+        byte[] second = valueStates(MSB_B, LSB_B, 4, MSB_A, LSB_A, 3);
+
+        assertTrue(table.decodeValueStates(first, 0, first.length));
+        assertFalse(table.decodeValueStates(second, 0, second.length));
+
+        // the order of the first reception is kept
+        assertEquals(2, table.size());
+        assertUpdate(table.get(0), MSB_A, LSB_A);
+        assertEquals(3, table.get(0).getValue(), DELTA);
+        assertUpdate(table.get(1), MSB_B, LSB_B);
+        assertEquals(4, table.get(1).getValue(), DELTA);
+    }
+
+    @Test
+    public void decodeTextStatesTest() {
+        // the first text is padded to 8 bytes
+        byte[] data = textStates(MSB_A, LSB_A, "hello", MSB_B, LSB_B, "Grüße");
+
+        assertTrue(table.decodeTextStates(data, 0, data.length));
+        assertEquals(2, table.size());
+        assertUpdate(table.get(0), MSB_A, LSB_A);
+        assertEquals("hello", table.get(0).getText());
+        assertUpdate(table.get(1), MSB_B, LSB_B);
+        assertEquals("Grüße", table.get(1).getText());
+    }
+
+    @Test
+    public void textReplacesValueTest() {
+        byte[] values = valueStates(MSB_A, LSB_A, 1);
+        byte[] texts = textStates(MSB_A, LSB_A, "");
+
+        table.decodeValueStates(values, 0, values.length);
+        table.decodeTextStates(texts, 0, texts.length);
+
+        assertEquals(1, table.size());
+        assertEquals("", table.get(0).getText());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void malformedValueStatesTest() {
+        byte[] data = valueStates(MSB_A, LSB_A, 1);
+        table.decodeValueStates(data, 0, data.length - 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void valueStatesExceedingTheDataTest() {
+        byte[] data = valueStates(MSB_A, LSB_A, 1);
+        table.decodeValueStates(data, 4, data.length);
+    }
+
+    @Test
+    public void malformedTextStatesLeaveNoUpdatesTest() {
+        byte[] data = textStates(MSB_A, LSB_A, "valid", MSB_B, LSB_B, "too long");
+        // the length of the second text exceeds the table
+        ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).putInt(44 + 32, 1000);
+
+        try {
+            table.decodeTextStates(data, 0, data.length);
+            fail("malformed table decoded");
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals(0, table.size());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void negativeTextLengthTest() {
+        byte[] data = textStates(MSB_A, LSB_A, "text");
+        ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).putInt(32, -1);
+        table.decodeTextStates(data, 0, data.length);
+    }
+
+    @Test
+    public void transferToTest() {
+        byte[] data = valueStates(MSB_A, LSB_A, 1, MSB_B, LSB_B, 2);
+        table.decodeValueStates(data, 0, data.length);
+        LxStateUpdateTable target = new LxStateUpdateTable();
+
+        table.transferTo(target);
+
+        assertEquals(0, table.size());
+        assertEquals(2, target.size());
+        assertUpdate(target.get(1), MSB_B, LSB_B);
+
+        // both tables are independent afterwards
+        byte[] next = valueStates(MSB_B, LSB_B, 5);
+        assertTrue(table.decodeValueStates(next, 0, next.length));
+        assertEquals(1, table.size());
+        assertEquals(2, target.get(1).getValue(), DELTA);
+    }
+
+    @Test
+    public void clearTest() {
+        byte[] data = textStates(MSB_A, LSB_A, "text");
+        table.decodeTextStates(data, 0, data.length);
+
+        table.clear();
+        assertEquals(0, table.size());
+
+        byte[] values = valueStates(MSB_B, LSB_B, 7);
+        assertTrue(table.decodeValueStates(values, 0, values.length));
+        assertEquals(1, table.size());
+        assertUpdate(table.get(0), MSB_B, LSB_B);
+        assertNull(table.get(0).getText());
+    }
+
+    @Test
+    public void tableGrowsTest() {
+        int states = 1000;
+        ByteBuffer buffer = ByteBuffer.allocate(states * 24).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < states; i++) {
+            putUuid(buffer, i, -i);
+            buffer.putDouble(i);
+        }
+        byte[] data = buffer.array();
+
+        table.decodeValueStates(data, 0, data.length);
+
+        assertEquals(states, table.size());
+        for (int i = 0; i < states; i++) {
+            assertUpdate(table.get(i), i, -i);
+            assertEquals(i, table.get(i).getValue(), DELTA);
+        }
+    }
+
+    private static void assertUpdate(LxStateUpdateTable.Update update, long msb, long lsb) {
+        assertEquals(msb, update.getMostSignificantBits());
+        assertEquals(lsb, update.getLeastSignificantBits());
+    }
+
+    /**
+     * Encode value states, each given as most and least significant bits and value
+     */
+    private static byte[] valueStates(Object... states) {
+        ByteBuffer buffer = ByteBuffer.allocate(states.length / 3 * 24).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < states.length; i += 3) {
+            putUuid(buffer, (Long) states[i], (Long) states[i + 1]);
+            buffer.putDouble(((Number) states[i + 2]).doubleValue());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Encode text states, each given as most and least significant bits and text
+     */
+    private static byte[] textStates(Object... states) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < states.length; i += 3) {
+            byte[] text = ((String) states[i + 2]).getBytes(StandardCharsets.UTF_8);
+            putUuid(buffer, (Long) states[i], (Long) states[i + 1]);
+            // icon UUID
+            putUuid(buffer, 0, 0);
+            buffer.putInt(text.length);
+            buffer.put(text);
+            buffer.position(buffer.position() + ((4 - text.length % 4) % 4));
+        }
+        byte[] data = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, data, 0, data.length);
+        return data;
+    }
+
+    private static void putUuid(ByteBuffer buffer, long msb, long lsb) {
+        buffer.putInt((int) (msb >>> 32));
+        buffer.putShort((short) (msb >>> 16));
+        buffer.putShort((short) msb);
+        buffer.putLong(Long.reverseBytes(lsb));
+    }
+}
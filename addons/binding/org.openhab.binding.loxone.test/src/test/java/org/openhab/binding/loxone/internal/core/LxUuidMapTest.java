@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.loxone.internal.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Test cases for {@link LxUuidMap}
+ *
+ * @author agent - initial contribution
+ *
+ */
+public class LxUuidMapTest {
+    // multiplier of the most significant bits in the hash of the map
+    private static final long MSB_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final LxUuidMap<String> map = new LxUuidMap<>(8);
+
+    @Test
+    public void putAndGetTest() {
+        map.put(1, 2, "a");
+        map.put(2, 1, "b");
+
+        assertEquals("a", map.get(1, 2));
+        assertEquals("b", map.get(2, 1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void missingKeyTest() {
+        assertNull(map.get(1, 2));
+
+        map.put(1, 2, "a");
+        assertNull(map.get(1, 3));
+        assertNull(map.get(0, 2));
+    }
+
+    @Test
+    public void replaceTest() {
+        map.put(1, 2, "a");
+        map.put(1, 2, "b");
+
+        assertEquals("b", map.get(1, 2));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void collisionsTest() {
+        // keys with the same hash occupy consecutive slots
+        for (long msb = 0; msb < 5; msb++) {
+            map.put(msb, (msb * MSB_MULTIPLIER) ^ 42, "key" + msb);
+        }
+        for (long msb = 0; msb < 5; msb++) {
+            assertEquals("key" + msb, map.get(msb, (msb * MSB_MULTIPLIER) ^ 42));
+        }
+        assertNull(map.get(5, (5 * MSB_MULTIPLIER) ^ 42));
+        assertEquals(5, map.size());
+    }
+
+    @Test
+    public void resizeTest() {
+        int entries = 10000;
+        for (int i = 0; i < entries; i++) {
+            map.put(i, -i, "value" + i);
+        }
+        assertEquals(entries, map.size());
+        for (int i = 0; i < entries; i++) {
+            assertEquals("value" + i, map.get(i, -i));
+        }
+        assertNull(map.get(entries, -entries));
+    }
+
+    @Test
+    public void clearTest() {
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i, "value" + i);
+        }
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertNull(map.get(1, 1));
+        map.put(1, 1, "again");
+        assertEquals("again", map.get(1, 1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void putUuidTest() {
+        LxUuid uuid = new LxUuid("0f2f6e3c-02c0-1b5e-ffff403fb0c34b9e");
+        map.put(uuid, "binary");
+        map.put(new LxUuid("not a binary uuid"), "text");
+
+        assertEquals(1, map.size());
+        assertEquals("binary", map.get(0x0f2f6e3c02c01b5eL, 0xffff403fb0c34b9eL));
+    }
+}
@@ -79,6 +79,23 @@ class LxControlState {
         }
     }
 
+    /**
+     * Sets current value of the control's state, the value is only boxed if it has changed
+     *
+     * @param value
+     *            current state's value to set
+     */
+    void setValue(double value) {
+        uuid.setUpdate(true);
+
+        if (this.value == null || Double.doubleToLongBits(this.value) != Double.doubleToLongBits(value)) {
+            this.value = value;
+            for (LxControlStateListener listener : listeners) {
+                listener.onStateChange(this);
+            }
+        }
+    }
+
     /**
      * Sets current text value of the control's state
      *
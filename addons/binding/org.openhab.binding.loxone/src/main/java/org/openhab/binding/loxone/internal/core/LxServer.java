@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -75,6 +76,10 @@ public class LxServer {
     private Map<LxUuid, LxContainer> rooms = new HashMap<>();
     private Map<LxUuid, LxCategory> categories = new HashMap<>();
     private Map<LxUuid, LxControlState> states = new HashMap<>();
+    // states by the bits of their UUID, used to apply updates from binary messages
+    private LxUuidMap<LxControlState> stateIndex = new LxUuidMap<>(256);
+    private LxStateUpdateTable stateUpdates = new LxStateUpdateTable();
+    private Set<LxControl> updatedControls = new LinkedHashSet<>();
     private List<LxServerListener> listeners = new ArrayList<>();
 
     // Services
@@ -389,23 +394,10 @@ public class LxServer {
                                 }
                                 break;
                             case STATE_UPDATE:
-                                LxWsStateUpdateEvent update = (LxWsStateUpdateEvent) wsMsg.getObject();
-                                LxControlState state = findState(update.getUuid());
-                                if (state != null) {
-                                    state.setValue(update.getValue(), update.getText());
-                                    LxControl control = state.getControl();
-                                    if (control != null) {
-                                        logger.debug("[{}] State update {} ({}:{}) to value {}, text '{}'", debugId,
-                                                update.getUuid(), control.getName(), state.getName(), update.getValue(),
-                                                update.getText());
-                                        for (LxServerListener listener : listeners) {
-                                            listener.onControlStateUpdate(control);
-                                        }
-                                    } else {
-                                        logger.debug("[{}] State update {} ({}) of unknown control", debugId,
-                                                update.getUuid(), state.getName());
-                                    }
-                                }
+                                LxStateUpdateTable updates = (LxStateUpdateTable) wsMsg.getObject();
+                                updates.transferTo(stateUpdates);
+                                updateStates(stateUpdates);
+                                stateUpdates.clear();
                                 break;
                             case SERVER_ONLINE:
                                 for (LxServerListener listener : listeners) {
@@ -460,6 +452,47 @@ public class LxServer {
         }
     }
 
+    /**
+     * Applies a table of state updates received from the Miniserver.
+     * Listeners are notified once per updated control, after all updates of the table have been applied.
+     *
+     * @param updates
+     *            table of state updates
+     */
+    private void updateStates(LxStateUpdateTable updates) {
+        for (int i = 0; i < updates.size(); i++) {
+            LxStateUpdateTable.Update update = updates.get(i);
+            LxControlState state = stateIndex.get(update.getMostSignificantBits(), update.getLeastSignificantBits());
+            if (state == null) {
+                continue;
+            }
+            if (update.getText() != null) {
+                state.setValue(null, update.getText());
+            } else {
+                state.setValue(update.getValue());
+            }
+            LxControl control = state.getControl();
+            if (control != null) {
+                if (logger.isTraceEnabled()) {
+                    logger.trace("[{}] State update {} ({}:{}) to value {}, text '{}'", debugId, state.getUuid(),
+                            control.getName(), state.getName(), state.getValue(), state.getTextValue());
+                }
+                updatedControls.add(control);
+            } else {
+                logger.debug("[{}] State update {} ({}) of unknown control", debugId, state.getUuid(),
+                        state.getName());
+            }
+        }
+        logger.debug("[{}] Applied {} state updates to {} controls", debugId, updates.size(),
+                updatedControls.size());
+        for (LxControl control : updatedControls) {
+            for (LxServerListener listener : listeners) {
+                listener.onControlStateUpdate(control);
+            }
+        }
+        updatedControls.clear();
+    }
+
     /**
      * Updates runtime configuration from parsed JSON configuration file of Loxone Miniserver (LoxApp3.json)
      *
@@ -517,6 +550,11 @@ public class LxServer {
         removeUnusedFromMap(categories);
         removeUnusedFromMap(controls);
         removeUnusedFromMap(states);
+
+        stateIndex.clear();
+        for (LxControlState state : states.values()) {
+            stateIndex.put(state.getUuid(), state);
+        }
     }
 
     /**
@@ -622,24 +660,6 @@ public class LxServer {
         return nr;
     }
 
-    /**
-     * Search for a state with given UUID
-     *
-     * @param id
-     *            UUID of state to locate
-     * @return
-     *         state object
-     */
-    private LxControlState findState(LxUuid id) {
-        if (states == null || id == null) {
-            return null;
-        }
-        if (states.containsKey(id)) {
-            return states.get(id);
-        }
-        return null;
-    }
-
     /**
      * Search for a category on the server
      *
@@ -42,7 +42,7 @@ class LxServerEvent {
          */
         RECEIVED_CONFIG,
         /**
-         * Received control's state value or text update from Miniserver. There is a {@link LxWsStateUpdateEvent} object
+         * Received control's state value or text updates from Miniserver. There is a {@link LxStateUpdateTable} object
          * associated.
          */
         STATE_UPDATE,
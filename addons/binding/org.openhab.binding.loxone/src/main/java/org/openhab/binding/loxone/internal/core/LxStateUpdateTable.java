@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.loxone.internal.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A table of control's state updates received from Loxone Miniserver.
+ * <p>
+ * The websocket client decodes the binary event tables directly into this table. Only the latest update of each state
+ * is kept, so a table that has not been processed yet by the {@link LxServer} thread merges all later updates.
+ * The server thread takes all updates at once with {@link #transferTo(LxStateUpdateTable)}. The update entries are
+ * reused, so decoding value states does not create new objects once the table has grown.
+ *
+ * @author agent - initial contribution
+ *
+ */
+class LxStateUpdateTable {
+    private static final int VALUE_STATE_SIZE = 24;
+    private static final int TEXT_STATE_HEADER_SIZE = 36;
+
+    /**
+     * An update of a single state
+     */
+    static class Update {
+        private long msb;
+        private long lsb;
+        private double value;
+        private String text;
+
+        /**
+         * Get most significant bits of the state's UUID
+         */
+        long getMostSignificantBits() {
+            return msb;
+        }
+
+        /**
+         * Get least significant bits of the state's UUID
+         */
+        long getLeastSignificantBits() {
+            return lsb;
+        }
+
+        /**
+         * Get new value of the state, only valid if there is no text
+         */
+        double getValue() {
+            return value;
+        }
+
+        /**
+         * Get new text of the state
+         *
+         * @return
+         *         text of the state or null if this is a value update
+         */
+        String getText() {
+            return text;
+        }
+    }
+
+    private LxUuidMap<Update> index = new LxUuidMap<>(64);
+    private Update[] updates = new Update[64];
+    private int count;
+
+    /**
+     * Decode a binary table of value states into this table
+     *
+     * @param data
+     *            buffer with binary message received from Miniserver
+     * @param offset
+     *            offset in buffer where the table starts
+     * @param length
+     *            length of the table in bytes
+     * @return
+     *         true if this table was empty before
+     * @throws IndexOutOfBoundsException
+     *             if the table is malformed
+     */
+    synchronized boolean decodeValueStates(byte[] data, int offset, int length) throws IndexOutOfBoundsException {
+        if (length % VALUE_STATE_SIZE != 0 || offset < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException("malformed table of value states");
+        }
+        boolean wasEmpty = count == 0;
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int end = offset + length;
+        while (offset < end) {
+            Update update = getUpdate(LxUuid.mostSignificantBits(buffer, offset),
+                    LxUuid.leastSignificantBits(buffer, offset));
+            update.value = buffer.getDouble(offset + 16);
+            update.text = null;
+            offset += VALUE_STATE_SIZE;
+        }
+        return wasEmpty;
+    }
+
+    /**
+     * Decode a binary table of text states into this table
+     *
+     * @param data
+     *            buffer with binary message received from Miniserver
+     * @param offset
+     *            offset in buffer where the table starts
+     * @param length
+     *            length of the table in bytes
+     * @return
+     *         true if this table was empty before
+     * @throws IndexOutOfBoundsException
+     *             if the table is malformed
+     */
+    synchronized boolean decodeTextStates(byte[] data, int offset, int length) throws IndexOutOfBoundsException {
+        if (offset < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException("malformed table of text states");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int end = offset + length;
+        // check the whole table first, so that a malformed table does not leave partial updates
+        int position = offset;
+        while (position < end) {
+            position += textStateSize(buffer, position, end);
+        }
+        boolean wasEmpty = count == 0;
+        while (offset < end) {
+            int textLen = buffer.getInt(offset + 32);
+            Update update = getUpdate(LxUuid.mostSignificantBits(buffer, offset),
+                    LxUuid.leastSignificantBits(buffer, offset));
+            update.text = new String(data, offset + TEXT_STATE_HEADER_SIZE, textLen, StandardCharsets.UTF_8);
+            offset += textStateSize(buffer, offset, end);
+        }
+        return wasEmpty;
+    }
+
+    /**
+     * Get size of a text state in a binary table
+     *
+     * @throws IndexOutOfBoundsException
+     *             if the text state exceeds the table
+     */
+    private static int textStateSize(ByteBuffer buffer, int offset, int end) throws IndexOutOfBoundsException {
+        if (offset + TEXT_STATE_HEADER_SIZE > end) {
+            throw new IndexOutOfBoundsException("text state exceeds table");
+        }
+        // icon UUID at offset + 16 is not used
+        int textLen = buffer.getInt(offset + 32);
+        if (textLen < 0 || offset + TEXT_STATE_HEADER_SIZE + textLen > end) {
+            throw new IndexOutOfBoundsException("text exceeds table");
+        }
+        // text is padded to 4 bytes
+        return TEXT_STATE_HEADER_SIZE + ((textLen + 3) & ~3);
+    }
+
+    /**
+     * Move all updates to another table, which must be empty. This table is empty afterwards.
+     *
+     * @param target
+     *            table to move the updates to
+     */
+    synchronized void transferTo(LxStateUpdateTable target) {
+        LxUuidMap<Update> targetIndex = target.index;
+        Update[] targetUpdates = target.updates;
+        target.index = index;
+        target.updates = updates;
+        target.count = count;
+        index = targetIndex;
+        updates = targetUpdates;
+        count = 0;
+    }
+
+    /**
+     * Get number of updates in the table
+     *
+     * @return
+     *         number of updates
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Get an update from the table, in the order of their first reception
+     *
+     * @param i
+     *            index of the update, less than {@link #size()}
+     * @return
+     *         update
+     */
+    Update get(int i) {
+        return updates[i];
+    }
+
+    /**
+     * Remove all updates, the update entries are kept for reuse
+     */
+    void clear() {
+        for (int i = 0; i < count; i++) {
+            updates[i].text = null;
+        }
+        count = 0;
+        index.clear();
+    }
+
+    private Update getUpdate(long msb, long lsb) {
+        Update update = index.get(msb, lsb);
+        if (update == null) {
+            if (count == updates.length) {
+                Update[] grown = new Update[count * 2];
+                System.arraycopy(updates, 0, grown, 0, count);
+                updates = grown;
+            }
+            update = updates[count];
+            if (update == null) {
+                update = new Update();
+                updates[count] = update;
+            }
+            count++;
+            update.msb = msb;
+            update.lsb = lsb;
+            index.put(msb, lsb, update);
+        }
+        return update;
+    }
+}
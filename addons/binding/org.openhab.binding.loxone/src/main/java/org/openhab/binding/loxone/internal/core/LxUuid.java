@@ -24,6 +24,10 @@ public class LxUuid {
     private String uuid;
     private String uuidOriginal;
     private boolean updated;
+    // the 128 bits of the UUID, as they are used in binary messages, if the UUID consists of 32 hex digits
+    private long msb;
+    private long lsb;
+    private boolean binary;
 
     /**
      * Create a new {@link LxUuid} object from an UUID on a Miniserver.
@@ -36,12 +40,10 @@ public class LxUuid {
     }
 
     public LxUuid(byte data[], int offset) {
-        String id = String.format("%08x-%04x-%04x-%02x%02x%02x%02x%02x%02x%02x%02x",
-                ByteBuffer.wrap(data, offset, 4).order(ByteOrder.LITTLE_ENDIAN).getInt(),
-                ByteBuffer.wrap(data, offset + 4, 2).order(ByteOrder.LITTLE_ENDIAN).getShort(),
-                ByteBuffer.wrap(data, offset + 6, 2).order(ByteOrder.LITTLE_ENDIAN).getShort(), data[offset + 8],
-                data[offset + 9], data[offset + 10], data[offset + 11], data[offset + 12], data[offset + 13],
-                data[offset + 14], data[offset + 15]);
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        long msb = mostSignificantBits(buffer, offset);
+        long lsb = leastSignificantBits(buffer, offset);
+        String id = String.format("%08x-%04x-%04x-%016x", msb >>> 32, (msb >>> 16) & 0xffff, msb & 0xffff, lsb);
         init(id);
     }
 
@@ -49,6 +51,46 @@ public class LxUuid {
         uuidOriginal = uuid;
         this.uuid = uuidOriginal.replaceAll("[^a-zA-Z0-9-]", "-").toUpperCase();
         updated = true;
+
+        String hex = this.uuid.replace("-", "");
+        binary = hex.length() == 32 && hex.matches("[0-9A-F]+");
+        if (binary) {
+            msb = Long.parseUnsignedLong(hex.substring(0, 16), 16);
+            lsb = Long.parseUnsignedLong(hex.substring(16), 16);
+        }
+    }
+
+    /**
+     * Reads the most significant 64 bits of an UUID in a binary message.
+     * <p>
+     * The first three fields of the UUID are little endian, so that the bits equal those of the string representation.
+     *
+     * @param buffer
+     *            little endian buffer with the binary message
+     * @param offset
+     *            offset of the UUID in the buffer
+     * @return
+     *         most significant bits of the UUID
+     */
+    static long mostSignificantBits(ByteBuffer buffer, int offset) {
+        return ((buffer.getInt(offset) & 0xffffffffL) << 32) | ((buffer.getShort(offset + 4) & 0xffffL) << 16)
+                | (buffer.getShort(offset + 6) & 0xffffL);
+    }
+
+    /**
+     * Reads the least significant 64 bits of an UUID in a binary message.
+     * <p>
+     * The last field of the UUID is a sequence of bytes, it is read in big endian order.
+     *
+     * @param buffer
+     *            little endian buffer with the binary message
+     * @param offset
+     *            offset of the UUID in the buffer
+     * @return
+     *         least significant bits of the UUID
+     */
+    static long leastSignificantBits(ByteBuffer buffer, int offset) {
+        return Long.reverseBytes(buffer.getLong(offset + 8));
     }
 
     @Override
@@ -87,6 +129,36 @@ public class LxUuid {
         return uuidOriginal;
     }
 
+    /**
+     * See if the UUID can be represented by 128 bits, as it is done in binary messages from the Miniserver.
+     *
+     * @return
+     *         true if the UUID consists of 32 hex digits
+     */
+    boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Get the most significant 64 bits of the UUID
+     *
+     * @return
+     *         most significant bits, 0 if the UUID is not binary
+     */
+    long getMostSignificantBits() {
+        return msb;
+    }
+
+    /**
+     * Get the least significant 64 bits of the UUID
+     *
+     * @return
+     *         least significant bits, 0 if the UUID is not binary
+     */
+    long getLeastSignificantBits() {
+        return lsb;
+    }
+
     /**
      * Indicate the object corresponding to UUID has recently been updated.
      *
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.loxone.internal.core;
+
+import java.util.Arrays;
+
+/**
+ * A map of objects by the 128 bits of their UUID, as received in binary messages from the Miniserver.
+ * <p>
+ * The keys are kept in primitive arrays with open addressing, so a lookup does not need an {@link LxUuid} object.
+ * Entries can not be removed, the map is cleared and filled again instead.
+ *
+ * @author agent - initial contribution
+ *
+ * @param <T>
+ *            type of the mapped objects
+ */
+class LxUuidMap<T> {
+    private long[] msbs;
+    private long[] lsbs;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Create a new map
+     *
+     * @param expectedSize
+     *            number of entries the map should hold without growing
+     */
+    LxUuidMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1);
+    }
+
+    /**
+     * Get the object of an UUID
+     *
+     * @param msb
+     *            most significant bits of the UUID
+     * @param lsb
+     *            least significant bits of the UUID
+     * @return
+     *         object of the UUID or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    T get(long msb, long lsb) {
+        int mask = values.length - 1;
+        for (int i = hash(msb, lsb) & mask;; i = (i + 1) & mask) {
+            Object value = values[i];
+            if (value == null) {
+                return null;
+            }
+            if (msbs[i] == msb && lsbs[i] == lsb) {
+                return (T) value;
+            }
+        }
+    }
+
+    /**
+     * Put the object of an UUID into the map, replacing the previous one
+     *
+     * @param msb
+     *            most significant bits of the UUID
+     * @param lsb
+     *            least significant bits of the UUID
+     * @param value
+     *            object to put, must not be null
+     */
+    void put(long msb, long lsb, T value) {
+        if ((size + 1) * 2 > values.length) {
+            grow();
+        }
+        int mask = values.length - 1;
+        int i = hash(msb, lsb) & mask;
+        while (values[i] != null) {
+            if (msbs[i] == msb && lsbs[i] == lsb) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        msbs[i] = msb;
+        lsbs[i] = lsb;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     * Put the object of an UUID into the map, if the UUID is binary
+     *
+     * @param uuid
+     *            UUID of the object
+     * @param value
+     *            object to put, must not be null
+     */
+    void put(LxUuid uuid, T value) {
+        if (uuid.isBinary()) {
+            put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), value);
+        }
+    }
+
+    /**
+     * Remove all entries, the capacity of the map is kept
+     */
+    void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * Get number of entries in the map
+     *
+     * @return
+     *         number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldMsbs = msbs;
+        long[] oldLsbs = lsbs;
+        Object[] oldValues = values;
+        allocate(values.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                @SuppressWarnings("unchecked")
+                T value = (T) oldValues[i];
+                put(oldMsbs[i], oldLsbs[i], value);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        msbs = new long[capacity];
+        lsbs = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -8,11 +8,17 @@
  */
 package org.openhab.binding.loxone.internal.core;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.concurrent.BlockingQueue;
@@ -35,6 +41,7 @@ import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
+import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.binding.loxone.internal.core.LxJsonResponse.LxJsonSubResponse;
 import org.openhab.binding.loxone.internal.core.LxServerEvent.EventType;
@@ -42,12 +49,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 
 /**
  * Websocket client facilitating communication with Loxone Miniserver.
  * This client is implemented as a state machine, according to guidelines in Loxone API documentation.
  * It uses jetty websocket client and creates one own thread to send keep-alive messages to the Miniserver.
+ * <p>
+ * The Miniserver's configuration file is downloaded only if its modification stamp differs from the configuration
+ * the {@link LxServer} already has. The last downloaded file is also stored in the user data folder, so it does not
+ * have to be downloaded again after a restart, as long as it has not been modified on the Miniserver.
  *
  * @author Pawel Pieczul - initial contribution
  *
@@ -67,6 +79,11 @@ class LxWsClient {
     private LxWebSocket socket;
     private WebSocketClient wsClient;
     private BlockingQueue<LxServerEvent> queue;
+    private final LxStateUpdateTable stateUpdates = new LxStateUpdateTable();
+    private final Gson gson = new Gson();
+    private final File configFile;
+    // modification stamp of the configuration the master has received last
+    private String configLastModified;
     private ClientState state = ClientState.IDLE;
     private Logger logger = LoggerFactory.getLogger(LxWsClient.class);
 
@@ -80,6 +97,8 @@ class LxWsClient {
     private static final String CMD_KEEPALIVE = "keepalive";
     private static final String CMD_ENABLE_UPDATES = "jdev/sps/enablebinstatusupdate";
     private static final String CMD_GET_APP_CONFIG = "data/LoxAPP3.json";
+    private static final String CMD_GET_APP_VERSION = "jdev/sps/LoxAPPversion3";
+    private static final String CONFIG_FOLDER = "loxone";
 
     /**
      * Internal state of the websocket client.
@@ -104,6 +123,10 @@ class LxWsClient {
          * Waiting for authentication
          */
         AUTHENTICATING,
+        /**
+         * Waiting for modification stamp of Miniserver's configuration
+         */
+        CHECKING_CONFIGURATION,
         /**
          * Waiting for Miniserver's configuration
          */
@@ -237,6 +260,8 @@ class LxWsClient {
         this.port = port;
         this.user = user;
         this.password = password;
+        this.configFile = new File(ConfigConstants.getUserDataFolder() + File.separator + CONFIG_FOLDER,
+                "LoxAPP3-" + host.getHostAddress() + "-" + port + ".json");
     }
 
     /**
@@ -474,6 +499,51 @@ class LxWsClient {
         }
     }
 
+    /**
+     * Reads the configuration stored after the last download, if it has the requested modification stamp
+     *
+     * @param lastModified
+     *            modification stamp of the configuration on the Miniserver
+     * @return
+     *         stored configuration or null if there is none with this stamp
+     */
+    private LxJsonApp3 readConfigFile(String lastModified) {
+        if (!configFile.isFile()) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(configFile.toPath(), StandardCharsets.UTF_8)) {
+            LxJsonApp3 config = gson.fromJson(reader, LxJsonApp3.class);
+            if (config != null && lastModified.equals(config.lastModified)) {
+                return config;
+            }
+        } catch (IOException | JsonParseException e) {
+            logger.debug("[{}] Error reading stored configuration {}: {}", debugId, configFile, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Stores a configuration received from the Miniserver, replacing the previous one
+     *
+     * @param json
+     *            configuration file as received from the Miniserver
+     */
+    private void writeConfigFile(String json) {
+        try {
+            Path folder = configFile.getParentFile().toPath();
+            Files.createDirectories(folder);
+            Path tmp = Files.createTempFile(folder, "LoxAPP3", ".tmp");
+            try {
+                Files.write(tmp, json.getBytes(StandardCharsets.UTF_8));
+                Files.move(tmp, configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            logger.debug("[{}] Error storing configuration {}: {}", debugId, configFile, e.getMessage());
+        }
+    }
+
     /**
      * Implementation of jetty websocket client
      *
@@ -483,7 +553,6 @@ class LxWsClient {
     @WebSocket
     public class LxWebSocket {
         Session session;
-        Gson gson = new Gson();
         private ScheduledFuture<?> keepAlive;
         private LxWsBinaryHeader header;
 
@@ -595,19 +664,14 @@ class LxWsClient {
                         switch (header.type) {
                             case EVENT_TABLE_OF_VALUE_STATES:
                                 stopResponseTimeout();
-                                while (length > 0) {
-                                    LxWsStateUpdateEvent event = new LxWsStateUpdateEvent(true, data, offset);
-                                    offset += event.getSize();
-                                    length -= event.getSize();
-                                    notifyMaster(EventType.STATE_UPDATE, null, event);
+                                // the master is notified only if it has already taken all previous updates
+                                if (stateUpdates.decodeValueStates(data, offset, length)) {
+                                    notifyMaster(EventType.STATE_UPDATE, null, stateUpdates);
                                 }
                                 break;
                             case EVENT_TABLE_OF_TEXT_STATES:
-                                while (length > 0) {
-                                    LxWsStateUpdateEvent event = new LxWsStateUpdateEvent(false, data, offset);
-                                    offset += event.getSize();
-                                    length -= event.getSize();
-                                    notifyMaster(EventType.STATE_UPDATE, null, event);
+                                if (stateUpdates.decodeTextStates(data, offset, length)) {
+                                    notifyMaster(EventType.STATE_UPDATE, null, stateUpdates);
                                 }
                                 break;
                             case KEEPALIVE_RESPONSE:
@@ -679,22 +743,49 @@ class LxWsClient {
                                                 "Timeout on authentication procedure, response : " + subResp.value);
                                     } else if (code == 200) {
                                         logger.debug("[{}] Websocket authentication successfull.", debugId);
-                                        sendString(CMD_GET_APP_CONFIG);
-                                        setClientState(ClientState.UPDATING_CONFIGURATION);
+                                        sendString(CMD_GET_APP_VERSION);
+                                        setClientState(ClientState.CHECKING_CONFIGURATION);
                                         startResponseTimeout();
                                     }
                                 }
                             }
                             break;
+                        case CHECKING_CONFIGURATION:
+                            resp = gson.fromJson(msg, LxJsonResponse.class);
+                            String lastModified = null;
+                            if (resp != null && resp.subResponse != null && resp.subResponse.code == 200) {
+                                lastModified = resp.subResponse.value;
+                            }
+                            if (lastModified == null) {
+                                logger.debug("[{}] Configuration modification stamp not received", debugId);
+                                requestConfig();
+                            } else if (lastModified.equals(configLastModified)) {
+                                // the master keeps its controls from the previous connection
+                                logger.debug("[{}] Configuration not modified since {}", debugId, lastModified);
+                                enableUpdates();
+                            } else {
+                                LxJsonApp3 config = readConfigFile(lastModified);
+                                if (config != null) {
+                                    logger.debug("[{}] Using stored configuration modified {}", debugId, lastModified);
+                                    configLastModified = lastModified;
+                                    notifyMaster(EventType.RECEIVED_CONFIG, null, config);
+                                    enableUpdates();
+                                } else {
+                                    requestConfig();
+                                }
+                            }
+                            break;
                         case UPDATING_CONFIGURATION:
                             LxJsonApp3 config = gson.fromJson(msg, LxJsonApp3.class);
                             if (config != null) {
-                                logger.debug("[{}] Received configuration from server", debugId);
+                                logger.debug("[{}] Received configuration from server modified {}", debugId,
+                                        config.lastModified);
+                                configLastModified = config.lastModified;
+                                if (config.lastModified != null) {
+                                    writeConfigFile(msg);
+                                }
                                 notifyMaster(EventType.RECEIVED_CONFIG, null, config);
-                                sendString(CMD_ENABLE_UPDATES);
-                                setClientState(ClientState.RUNNING);
-                                startResponseTimeout();
-                                notifyMaster(EventType.SERVER_ONLINE, null, null);
+                                enableUpdates();
                             } else {
                                 notifyAndClose(LxOfflineReason.INTERNAL_ERROR,
                                         "Error processing received configuration");
@@ -712,6 +803,31 @@ class LxWsClient {
             }
         }
 
+        /**
+         * Requests the configuration file from the Miniserver
+         *
+         * @throws IOException
+         *             exception when communication error occurs
+         */
+        private void requestConfig() throws IOException {
+            sendString(CMD_GET_APP_CONFIG);
+            setClientState(ClientState.UPDATING_CONFIGURATION);
+            startResponseTimeout();
+        }
+
+        /**
+         * Enables state updates from the Miniserver and reports the server online
+         *
+         * @throws IOException
+         *             exception when communication error occurs
+         */
+        private void enableUpdates() throws IOException {
+            sendString(CMD_ENABLE_UPDATES);
+            setClientState(ClientState.RUNNING);
+            startResponseTimeout();
+            notifyMaster(EventType.SERVER_ONLINE, null, null);
+        }
+
         /**
          * Stops keep alive thread and ceases sending keep alive messages to the Miniserver
          */
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.max.internal.handler;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.max.internal.command.F_Command;
+import org.openhab.binding.max.internal.command.Q_Command;
+import org.openhab.binding.max.internal.command.S_ConfigCommand;
+import org.openhab.binding.max.internal.command.S_ConfigCommand.ConfigCommandType;
+
+/**
+ * Tests cases for {@link CubeCommandScheduler}.
+ *
+ * @author agent - Initial version
+ */
+public class CubeCommandSchedulerTest {
+
+    private static final long POLL_INTERVAL = 30000;
+
+    private CubeCommandScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = new CubeCommandScheduler(POLL_INTERVAL);
+        scheduler.setPollInterval(POLL_INTERVAL, 0);
+    }
+
+    private SendCommand channelCommand(String serial, double temperature) {
+        return new SendCommand(serial, new ChannelUID("max:thermostat:cube:" + serial + ":set_temp"),
+                new DecimalType(temperature));
+    }
+
+    private SendCommand radioCommand(String serial) {
+        return new SendCommand(serial, new S_ConfigCommand("0b0da3", 1, ConfigCommandType.SetRoom), "Set Room");
+    }
+
+    private CubeCommandScheduler.Task runNext(long now) {
+        CubeCommandScheduler.Task task = scheduler.next(now);
+        if (task != null) {
+            scheduler.completed(task, now);
+        }
+        return task;
+    }
+
+    private CubeCommandScheduler.Task runNextCommand(long now) {
+        CubeCommandScheduler.Task task = runNext(now);
+        while (task != null && task.isPoll()) {
+            task = runNext(now);
+        }
+        return task;
+    }
+
+    @Test
+    public void pollIntervalTest() {
+        assertTrue(runNext(0).isPoll());
+        assertNull(runNext(1000));
+        assertTrue(runNext(POLL_INTERVAL).isPoll());
+    }
+
+    @Test
+    public void priorityTest() {
+        runNext(0);
+        SendCommand other = new SendCommand("cube", new Q_Command(), "Reload Data");
+        SendCommand channel = channelCommand("dev1", 21);
+        scheduler.queue(other, 1000);
+        scheduler.queue(channel, 1000);
+
+        assertSame(channel, runNext(1000).getCommand());
+        assertSame(other, runNext(1000).getCommand());
+        assertNull(runNext(1000));
+    }
+
+    @Test
+    public void pollInterleaveTest() {
+        runNext(0);
+        for (int i = 0; i < 5; i++) {
+            scheduler.queue(channelCommand("dev" + i, 21), 1000);
+        }
+        scheduler.queue(new SendCommand("cube", new F_Command(), "Request NTP info"), 1000);
+
+        for (int i = 0; i < CubeCommandScheduler.MAX_COMMANDS_BEFORE_POLL; i++) {
+            assertFalse(runNext(POLL_INTERVAL).isPoll());
+        }
+        assertTrue(runNext(POLL_INTERVAL).isPoll());
+        assertEquals(3, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void supersedeTest() {
+        runNext(0);
+        SendCommand first = channelCommand("dev1", 21);
+        SendCommand second = channelCommand("dev1", 22);
+        assertNull(scheduler.queue(first, 1000));
+        assertSame(first, scheduler.queue(second, 1000));
+
+        assertEquals(1, scheduler.getQueueDepth());
+        assertSame(second, runNext(1000).getCommand());
+    }
+
+    @Test
+    public void queueFullTest() {
+        runNext(0);
+        for (int i = 0; i < CubeCommandScheduler.MAX_COMMANDS; i++) {
+            assertNull(scheduler.queue(channelCommand("dev" + i, 21), 1000));
+        }
+        SendCommand dropped = channelCommand("devX", 21);
+        assertSame(dropped, scheduler.queue(dropped, 1000));
+        assertEquals(CubeCommandScheduler.MAX_COMMANDS, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void dutyCycleThrottleTest() {
+        runNext(0);
+        scheduler.updateCubeState(CubeCommandScheduler.DUTY_CYCLE_LIMIT, 49, 1000);
+        assertTrue(scheduler.isThrottled(1000));
+
+        SendCommand radio = radioCommand("dev1");
+        SendCommand other = new SendCommand("cube", new Q_Command(), "Reload Data");
+        scheduler.queue(radio, 1000);
+        scheduler.queue(other, 1000);
+
+        // commands without radio transmission are not held back
+        assertSame(other, runNextCommand(2000).getCommand());
+        assertNull(runNextCommand(2000));
+
+        // a single command is let through after the interval
+        scheduler.queue(radioCommand("dev2"), 2000);
+        long probe = 1000 + CubeCommandScheduler.THROTTLE_INTERVAL;
+        assertSame(radio, runNextCommand(probe).getCommand());
+        assertNull(runNextCommand(probe));
+
+        scheduler.updateCubeState(10, 49, probe);
+        assertFalse(scheduler.isThrottled(probe));
+        assertNotNull(runNextCommand(probe));
+    }
+
+    @Test
+    public void freeMemoryThrottleTest() {
+        runNext(0);
+        scheduler.updateCubeState(0, CubeCommandScheduler.MIN_FREE_MEMORY_SLOTS - 1, 1000);
+        scheduler.queue(channelCommand("dev1", 21), 1000);
+        assertNull(runNextCommand(1000));
+        assertEquals(1, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void commandDiscardedTest() {
+        runNext(0);
+        scheduler.updateCubeState(10, 49, 1000);
+        scheduler.commandDiscarded(1000);
+        scheduler.queue(channelCommand("dev1", 21), 1000);
+        assertNull(runNextCommand(1000));
+        assertNotNull(runNextCommand(1000 + CubeCommandScheduler.THROTTLE_INTERVAL));
+    }
+
+    @Test
+    public void commandDiscardedSurvivesCubeStateTest() {
+        runNext(0);
+        scheduler.commandDiscarded(1000);
+        // the S message of the discarded command reports values below the limits
+        scheduler.updateCubeState(10, 49, 1000);
+        assertTrue(scheduler.isThrottled(1000));
+
+        scheduler.queue(channelCommand("dev1", 21), 1000);
+        assertNull(runNextCommand(2000));
+        assertNotNull(runNextCommand(1000 + CubeCommandScheduler.THROTTLE_INTERVAL));
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.max.internal.message;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.max.internal.device.Device;
+import org.openhab.binding.max.internal.device.DeviceConfiguration;
+import org.openhab.binding.max.internal.device.ShutterContact;
+
+/**
+ * Tests cases for {@link L_Message}.
+ *
+ * @author agent - Initial version
+ */
+public class L_MessageTest {
+
+    private final String configData = "C:0e75f6,EQ519gQCEABLRVExMTA0Mzgw";
+    private final String closedData = "L:Bg519gkSEA==";
+    private final String openData = "L:Bg519gkSEg==";
+    // the closed record twice
+    private final String repeatedData = "L:Bg519gkSEAYOdfYJEhA=";
+
+    private List<DeviceConfiguration> configurations = new ArrayList<DeviceConfiguration>();
+    private List<Device> devices = new ArrayList<Device>();
+
+    @Before
+    public void Before() {
+        configurations.add(DeviceConfiguration.create(new C_Message(configData)));
+    }
+
+    @Test
+    public void getMessageTypeTest() {
+        MessageType messageType = ((Message) new L_Message(closedData)).getType();
+        assertEquals(MessageType.L, messageType);
+    }
+
+    @Test
+    public void updateNewDeviceTest() {
+        Collection<? extends Device> changed = new L_Message(closedData).updateDevices(devices, configurations);
+
+        assertEquals(1, changed.size());
+        assertEquals(1, devices.size());
+        assertEquals("KEQ1104380", devices.get(0).getSerialNumber());
+        assertEquals(OpenClosedType.CLOSED, ((ShutterContact) devices.get(0)).getShutterState());
+    }
+
+    @Test
+    public void updateUnchangedDeviceTest() {
+        new L_Message(closedData).updateDevices(devices, configurations);
+        Collection<? extends Device> changed = new L_Message(closedData).updateDevices(devices, configurations);
+
+        assertEquals(0, changed.size());
+        assertEquals(1, devices.size());
+    }
+
+    @Test
+    public void updateChangedDeviceTest() {
+        new L_Message(closedData).updateDevices(devices, configurations);
+        Device device = devices.get(0);
+        Collection<? extends Device> changed = new L_Message(openData).updateDevices(devices, configurations);
+
+        assertEquals(1, changed.size());
+        assertEquals(device, changed.iterator().next());
+        assertEquals(1, devices.size());
+        assertEquals(OpenClosedType.OPEN, ((ShutterContact) device).getShutterState());
+    }
+
+    @Test
+    public void resentRecordAfterChangeTest() {
+        new L_Message(closedData).updateDevices(devices, configurations);
+        new L_Message(openData).updateDevices(devices, configurations);
+        Collection<? extends Device> changed = new L_Message(openData).updateDevices(devices, configurations);
+
+        assertEquals(0, changed.size());
+        assertEquals(OpenClosedType.OPEN, ((ShutterContact) devices.get(0)).getShutterState());
+    }
+
+    @Test
+    public void recordRepeatedInMessageTest() {
+        Collection<? extends Device> changed = new L_Message(repeatedData).updateDevices(devices, configurations);
+
+        assertEquals(1, changed.size());
+        assertEquals(1, devices.size());
+    }
+}
@@ -8,6 +8,7 @@
  */
 package org.openhab.binding.max.internal.device;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -47,6 +48,8 @@ public abstract class Device {
     private boolean panelLocked;
     private boolean linkStatusError;
     private HashMap<String, Object> properties = new HashMap<>();
+    // the L message record the device has been updated from last
+    private byte[] lastRawData;
 
     public Device(DeviceConfiguration c) {
         this.serialNumber = c.getSerialNumber();
@@ -127,6 +130,7 @@ public abstract class Device {
     public static Device update(byte[] raw, List<DeviceConfiguration> configurations, Device device) {
 
         String rfAddress = device.getRFAddress();
+        device.lastRawData = raw;
 
         // byte 4 is skipped
 
@@ -340,6 +344,14 @@ public abstract class Device {
         return updated;
     }
 
+    /**
+     * @param raw the record of the device in a L message
+     * @return true if the device has been updated from the same record last
+     */
+    public boolean isRawDataUnchanged(byte[] raw) {
+        return Arrays.equals(lastRawData, raw);
+    }
+
     public void setUpdated(boolean updated) {
         this.updated = updated;
     }
@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.max.internal.handler;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import org.openhab.binding.max.internal.command.CubeCommand;
+import org.openhab.binding.max.internal.command.S_Command;
+import org.openhab.binding.max.internal.command.S_ConfigCommand;
+import org.openhab.binding.max.internal.command.Z_Command;
+
+/**
+ * The {@link CubeCommandScheduler} decides which request is sent next to a single MAX! Cube.
+ *
+ * Channel commands are sent first, followed by the polls of the Cube and then by all other queued commands. A due
+ * poll is delayed by at most {@link #MAX_COMMANDS_BEFORE_POLL} channel commands. Commands sent by radio are held
+ * back while the duty cycle or the free memory slots of the Cube reported in the last H or S message are close to
+ * the limits at which the Cube discards commands. While held back, a single radio command is let through every
+ * {@link #THROTTLE_INTERVAL} to learn the current values from its S message. After the Cube has discarded a command,
+ * radio commands are held back for {@link #THROTTLE_INTERVAL} regardless of the reported values.
+ *
+ * All methods take the current time in milliseconds, which keeps the scheduler independent of a clock.
+ *
+ * @author agent - Initial contribution
+ *
+ */
+final class CubeCommandScheduler {
+
+    /** maximum queue size that we're allowing */
+    static final int MAX_COMMANDS = 50;
+
+    /** maximum number of channel commands sent while a poll is due */
+    static final int MAX_COMMANDS_BEFORE_POLL = 3;
+
+    /** duty cycle in percent from which radio commands are throttled */
+    static final int DUTY_CYCLE_LIMIT = 80;
+
+    /** number of free memory slots below which radio commands are throttled */
+    static final int MIN_FREE_MEMORY_SLOTS = 3;
+
+    /** interval in milliseconds at which radio commands are sent while throttled */
+    static final long THROTTLE_INTERVAL = 60000;
+
+    /**
+     * A poll or a queued command to be sent to the Cube.
+     */
+    static final class Task {
+        private final SendCommand command;
+        private final long queued;
+
+        private Task(SendCommand command, long queued) {
+            this.command = command;
+            this.queued = queued;
+        }
+
+        /**
+         * @return true if the Cube has to be polled for the device states
+         */
+        boolean isPoll() {
+            return command == null;
+        }
+
+        /**
+         * @return the command to send, null for a poll
+         */
+        SendCommand getCommand() {
+            return command;
+        }
+    }
+
+    private final ArrayDeque<Task> channelCommands = new ArrayDeque<>();
+    private final ArrayDeque<Task> otherCommands = new ArrayDeque<>();
+
+    private long pollInterval;
+    private long nextPoll;
+    private int commandsSincePoll;
+
+    // values reported by the Cube, -1 as long as unknown
+    private int dutyCycle = -1;
+    private int freeMemorySlots = -1;
+    private long throttledUntil;
+    // hold back after a discarded command, not cleared by the reported values
+    private long discardedUntil;
+
+    // statistics
+    private int maxQueueDepth;
+    private long sentCommands;
+    private long polls;
+    private long droppedCommands;
+    private long supersededCommands;
+    private long throttles;
+    private long totalLatency;
+    private long maxLatency;
+    private long maxPollDelay;
+
+    /**
+     * @param pollInterval the interval in milliseconds at which the Cube is polled
+     */
+    CubeCommandScheduler(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Sets the interval at which the Cube is polled and requests a poll at the given time.
+     *
+     * @param pollInterval the interval in milliseconds
+     * @param now the current time in milliseconds
+     */
+    synchronized void setPollInterval(long pollInterval, long now) {
+        this.pollInterval = pollInterval;
+        this.nextPoll = now;
+    }
+
+    /**
+     * Requests a poll of the Cube as soon as possible.
+     *
+     * @param now the current time in milliseconds
+     */
+    synchronized void requestPoll(long now) {
+        nextPoll = Math.min(nextPoll, now);
+    }
+
+    /**
+     * Puts a command on the queue. A queued command with the same key is removed, as it would not be meaningful
+     * anymore.
+     *
+     * @param command the command to queue
+     * @param now the current time in milliseconds
+     * @return the superseded command, the command itself if the queue is full or null
+     */
+    synchronized SendCommand queue(SendCommand command, long now) {
+        SendCommand superseded = remove(channelCommands, command.getKey());
+        if (superseded == null) {
+            superseded = remove(otherCommands, command.getKey());
+        }
+        if (superseded != null) {
+            supersededCommands++;
+        } else if (getQueueDepth() >= MAX_COMMANDS) {
+            droppedCommands++;
+            return command;
+        }
+        (command.getCubeCommand() == null ? channelCommands : otherCommands).add(new Task(command, now));
+        maxQueueDepth = Math.max(maxQueueDepth, getQueueDepth());
+        return superseded;
+    }
+
+    /**
+     * Takes the next task to be executed.
+     *
+     * @param now the current time in milliseconds
+     * @return the next task or null if there is nothing to be done now
+     */
+    synchronized Task next(long now) {
+        boolean radioAllowed = !isThrottled(now);
+        boolean pollDue = now >= nextPoll;
+        Task task = null;
+        if (!pollDue || commandsSincePoll < MAX_COMMANDS_BEFORE_POLL) {
+            task = take(channelCommands, radioAllowed);
+        }
+        if (task == null && pollDue) {
+            maxPollDelay = Math.max(maxPollDelay, now - nextPoll);
+            nextPoll = now + pollInterval;
+            commandsSincePoll = 0;
+            return new Task(null, now);
+        }
+        if (task == null) {
+            task = take(otherCommands, radioAllowed);
+        }
+        if (task != null) {
+            commandsSincePoll++;
+            if (isRadioCommand(task.command) && isOverLimit()) {
+                // let the next radio command through after the interval, its S message updates the values
+                throttledUntil = now + THROTTLE_INTERVAL;
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Records the completion of a task.
+     *
+     * @param task the task taken by {@link #next(long)}
+     * @param now the current time in milliseconds
+     */
+    synchronized void completed(Task task, long now) {
+        if (task.isPoll()) {
+            polls++;
+        } else {
+            long latency = now - task.queued;
+            sentCommands++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+    }
+
+    /**
+     * Updates the duty cycle and the free memory slots as reported by the Cube.
+     *
+     * @param dutyCycle the duty cycle in percent
+     * @param freeMemorySlots the number of free memory slots
+     * @param now the current time in milliseconds
+     */
+    synchronized void updateCubeState(int dutyCycle, int freeMemorySlots, long now) {
+        boolean wasOverLimit = isOverLimit();
+        this.dutyCycle = dutyCycle;
+        this.freeMemorySlots = freeMemorySlots;
+        if (!isOverLimit()) {
+            throttledUntil = 0;
+        } else if (!wasOverLimit) {
+            throttles++;
+            throttledUntil = now + THROTTLE_INTERVAL;
+        }
+    }
+
+    /**
+     * Holds back radio commands after the Cube has discarded a command.
+     *
+     * @param now the current time in milliseconds
+     */
+    synchronized void commandDiscarded(long now) {
+        throttles++;
+        discardedUntil = now + THROTTLE_INTERVAL;
+    }
+
+    /**
+     * @return the number of queued commands
+     */
+    synchronized int getQueueDepth() {
+        return channelCommands.size() + otherCommands.size();
+    }
+
+    /**
+     * @param now the current time in milliseconds
+     * @return true if radio commands are held back
+     */
+    synchronized boolean isThrottled(long now) {
+        return now < throttledUntil || now < discardedUntil;
+    }
+
+    private boolean isOverLimit() {
+        return dutyCycle >= DUTY_CYCLE_LIMIT || (freeMemorySlots >= 0 && freeMemorySlots < MIN_FREE_MEMORY_SLOTS);
+    }
+
+    /**
+     * Channel commands are always converted to an {@link S_Command}.
+     */
+    private static boolean isRadioCommand(SendCommand command) {
+        CubeCommand cubeCommand = command.getCubeCommand();
+        return cubeCommand == null || cubeCommand instanceof S_Command || cubeCommand instanceof S_ConfigCommand
+                || cubeCommand instanceof Z_Command;
+    }
+
+    private static SendCommand remove(ArrayDeque<Task> tasks, String key) {
+        for (Iterator<Task> iterator = tasks.iterator(); iterator.hasNext();) {
+            Task task = iterator.next();
+            if (task.command.getKey().equals(key)) {
+                iterator.remove();
+                return task.command;
+            }
+        }
+        return null;
+    }
+
+    private static Task take(ArrayDeque<Task> tasks, boolean radioAllowed) {
+        for (Iterator<Task> iterator = tasks.iterator(); iterator.hasNext();) {
+            Task task = iterator.next();
+            if (radioAllowed || !isRadioCommand(task.command)) {
+                iterator.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "queue depth=" + getQueueDepth() + ", max queue depth=" + maxQueueDepth + ", sent commands="
+                + sentCommands + ", avg latency=" + (sentCommands == 0 ? 0 : totalLatency / sentCommands)
+                + " ms, max latency=" + maxLatency + " ms, polls=" + polls + ", max poll delay=" + maxPollDelay
+                + " ms, superseded=" + supersededCommands + ", dropped=" + droppedCommands + ", throttles="
+                + throttles + ", duty cycle=" + dutyCycle + ", free memory slots=" + freeMemorySlots;
+    }
+}
@@ -20,14 +20,18 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.core.library.types.DecimalType;
@@ -81,6 +85,12 @@ import org.slf4j.LoggerFactory;
  * to the framework. All {@link MaxDevicesHandler}s use the
  * {@link MaxCubeBridgeHandler} to execute the actual commands.
  *
+ * Every Cube has its own connection and its own {@link CubeCommandScheduler}, which interleaves the polls with the
+ * queued commands. Requests to different Cubes do not wait for each other.
+ *
+ * Device state changes are only passed to the listener registered for the serial number of the device, and only for
+ * devices whose L message record has changed, unless a refresh is requested.
+ *
  * @author Marcel Verpaalen - Initial contribution OH2 version
  * @author Andreas Heil (info@aheil.de) - OH1 version
  * @author Bernd Michael Helm (bernd.helm at helmundwalter.de) - Exclusive mode
@@ -103,7 +113,12 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
 
     private ArrayList<Device> devices = new ArrayList<Device>();
     private ArrayList<RoomInformation> rooms;
-    private HashSet<String> lastActiveDevices = new HashSet<String>();
+    private Set<String> lastActiveDevices = ConcurrentHashMap.newKeySet();
+    // devices created or changed by the L messages since the last refreshData
+    private Set<Device> changedDevices = new HashSet<Device>();
+    // devices to pass to their listener on the next refreshData, even if unchanged
+    private Set<String> refreshDevices = ConcurrentHashMap.newKeySet();
+    private volatile boolean refreshAllDevices = false;
 
     /** MAX! Thermostat default off temperature */
     private static final DecimalType DEFAULT_OFF_TEMPERATURE = new DecimalType(4.5);
@@ -113,11 +128,9 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
 
     private ArrayList<DeviceConfiguration> configurations = new ArrayList<DeviceConfiguration>();
 
-    /** maximum queue size that we're allowing */
-    private static final int MAX_COMMANDS = 50;
-    private ArrayBlockingQueue<SendCommand> commandQueue = new ArrayBlockingQueue<SendCommand>(MAX_COMMANDS);
-
-    private SendCommand lastCommandId = null;
+    private final CubeCommandScheduler commandScheduler = new CubeCommandScheduler(
+            TimeUnit.SECONDS.toMillis(refreshInterval));
+    private final AtomicBoolean processingCommands = new AtomicBoolean();
 
     private String ipAddress;
     private int port;
@@ -151,20 +164,17 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
     private boolean previousOnline = false;
 
     private Set<DeviceStatusListener> deviceStatusListeners = new CopyOnWriteArraySet<>();
+    private Map<String, DeviceStatusListener> deviceListeners = new ConcurrentHashMap<>();
+    // minutes between refreshes of the actual temperature, by serial number of the thermostat
+    private Map<String, Integer> refreshActualRates = new ConcurrentHashMap<>();
 
     private ScheduledFuture<?> pollingJob;
-    private Runnable pollingRunnable = new Runnable() {
+    /** interval in milliseconds at which the scheduler is checked for due polls and throttled commands */
+    private static final long SCHEDULER_TICK = 1000;
+    private Runnable processCommandsRunnable = new Runnable() {
         @Override
         public void run() {
-            refreshData();
-        }
-    };
-    private ScheduledFuture<?> sendCommandJob;
-    private long sendCommandInterval = 5;
-    private Runnable sendCommandRunnable = new Runnable() {
-        @Override
-        public void run() {
-            sendCommands();
+            processCommands();
         }
     };
 
@@ -172,7 +182,9 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
     public void handleCommand(ChannelUID channelUID, Command command) {
         if (command instanceof RefreshType) {
             logger.debug("Refresh command received.");
-            refreshData();
+            refreshAllDevices = true;
+            commandScheduler.requestPoll(System.currentTimeMillis());
+            scheduler.execute(processCommandsRunnable);
         } else {
             logger.warn("No bridge commands defined. Cannot process '{}'.", command.toString());
         }
@@ -182,6 +194,7 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
     public void dispose() {
         logger.debug("Handler disposed.");
         stopAutomaticRefresh();
+        logger.debug("MAX! Cube {} command statistics: {}", ipAddress, commandScheduler);
         clearDeviceList();
         socketClose();
         super.dispose();
@@ -206,6 +219,7 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
         logger.debug("Max Requests    {}.", maxRequestsPerConnection);
 
         previousOnline = true; // To trigger offline in case no connection @ startup
+        commandScheduler.setPollInterval(TimeUnit.SECONDS.toMillis(refreshInterval), System.currentTimeMillis());
         startAutomaticRefresh();
     }
 
@@ -255,7 +269,7 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
         logger.info("Resetting configuration for MAX! Cube {}", getThing().getUID());
         sendCubeCommand(new A_Command());
         for (Device di : devices) {
-            for (DeviceStatusListener deviceStatusListener : deviceStatusListeners) {
+            for (DeviceStatusListener deviceStatusListener : getDeviceStatusListeners(di)) {
                 try {
                     deviceStatusListener.onDeviceRemoved(this, di);
                 } catch (Exception e) {
@@ -304,11 +318,8 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
 
     private synchronized void startAutomaticRefresh() {
         if (pollingJob == null || pollingJob.isCancelled()) {
-            pollingJob = scheduler.scheduleWithFixedDelay(pollingRunnable, 0, refreshInterval, TimeUnit.SECONDS);
-        }
-        if (sendCommandJob == null || sendCommandJob.isCancelled()) {
-            sendCommandJob = scheduler.scheduleWithFixedDelay(sendCommandRunnable, 0, sendCommandInterval,
-                    TimeUnit.SECONDS);
+            pollingJob = scheduler.scheduleWithFixedDelay(processCommandsRunnable, 0, SCHEDULER_TICK,
+                    TimeUnit.MILLISECONDS);
         }
     }
 
@@ -320,20 +331,39 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
             pollingJob.cancel(true);
             pollingJob = null;
         }
-        if (sendCommandJob != null && !sendCommandJob.isCancelled()) {
-            sendCommandJob.cancel(true);
-            sendCommandJob = null;
+    }
+
+    /**
+     * Executes the polls and commands the {@link CubeCommandScheduler} has due. Only one thread processes the
+     * commands of the Cube at a time, a trigger while processing is picked up by the next tick.
+     */
+    private void processCommands() {
+        if (!processingCommands.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            CubeCommandScheduler.Task task;
+            while (pollingJob != null && (task = commandScheduler.next(System.currentTimeMillis())) != null) {
+                if (task.isPoll()) {
+                    refreshData();
+                    logger.trace("MAX! Cube {} command statistics: {}", ipAddress, commandScheduler);
+                } else {
+                    sendCommand(task.getCommand());
+                }
+                commandScheduler.completed(task, System.currentTimeMillis());
+            }
+        } catch (Exception e) {
+            logger.debug("Unexpected exception occurred during command processing: {}", e.getMessage(), e);
+        } finally {
+            processingCommands.set(false);
         }
     }
 
     /**
-     * Takes a command from the command queue and send it to
-     * {@link executeCommand} for execution.
+     * Converts a queued command if needed and sends it to the MAX! Cube.
      *
      */
-    private synchronized void sendCommands() {
-
-        SendCommand sendCommand = commandQueue.poll();
+    private void sendCommand(SendCommand sendCommand) {
         if (sendCommand != null) {
             CubeCommand cmd = sendCommand.getCubeCommand();
             if (cmd == null) {
@@ -361,31 +391,39 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
     private void refreshData() {
 
         try {
+            boolean wasOnline = getThing().getStatus() == ThingStatus.ONLINE;
             if (sendCubeCommand(new L_Command())) {
                 updateStatus(ThingStatus.ONLINE);
                 previousOnline = true;
+                boolean refreshAll = refreshAllDevices || !wasOnline;
+                refreshAllDevices = false;
+                Set<Device> changed;
+                synchronized (changedDevices) {
+                    changed = new HashSet<Device>(changedDevices);
+                    changedDevices.clear();
+                }
                 for (Device di : devices) {
-                    if (lastActiveDevices != null && lastActiveDevices.contains(di.getSerialNumber())) {
-                        for (DeviceStatusListener deviceStatusListener : deviceStatusListeners) {
-                            try {
-                                deviceStatusListener.onDeviceStateChanged(getThing().getUID(), di);
-                            } catch (Exception e) {
-                                logger.error("An exception occurred while calling the DeviceStatusListener", e);
-                                unregisterDeviceStatusListener(deviceStatusListener);
-                            }
+                    String serialNumber = di.getSerialNumber();
+                    boolean refresh = refreshDevices.remove(serialNumber) || refreshAll;
+                    if (lastActiveDevices.contains(serialNumber)) {
+                        if (refresh || changed.contains(di) || isRefreshActualDue(di)) {
+                            notifyDeviceStateChanged(di);
                         }
                     }
                     // New device, not seen before, pass to Discovery
                     else {
-                        for (DeviceStatusListener deviceStatusListener : deviceStatusListeners) {
+                        Collection<DeviceStatusListener> listeners = getDeviceStatusListeners(di);
+                        for (DeviceStatusListener deviceStatusListener : listeners) {
                             try {
                                 deviceStatusListener.onDeviceAdded(getThing(), di);
-                                di.setUpdated(true);
-                                deviceStatusListener.onDeviceStateChanged(getThing().getUID(), di);
                             } catch (Exception e) {
                                 logger.error("An exception occurred while calling the DeviceStatusListener", e);
                             }
-                            lastActiveDevices.add(di.getSerialNumber());
+                        }
+                        if (!listeners.isEmpty()) {
+                            di.setUpdated(true);
+                            notifyDeviceStateChanged(di);
+                            lastActiveDevices.add(serialNumber);
                         }
                     }
                 }
@@ -398,6 +436,50 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
         }
     }
 
+    /**
+     * The actual temperature of a thermostat is only reported by the Cube after its valve has moved, so an unchanged
+     * thermostat is passed to its listener when the refresh rate of the actual temperature has passed.
+     *
+     * @return true if the actual temperature of the device is due for a refresh
+     */
+    private boolean isRefreshActualDue(Device device) {
+        Integer refreshActualRate = refreshActualRates.get(device.getSerialNumber());
+        if (refreshActualRate == null || (device.getType() != DeviceType.HeatingThermostat
+                && device.getType() != DeviceType.HeatingThermostatPlus)) {
+            return false;
+        }
+        Date lastUpdated = ((HeatingThermostat) device).getActualTempLastUpdated();
+        return lastUpdated == null
+                || System.currentTimeMillis() - lastUpdated.getTime() > TimeUnit.MINUTES.toMillis(refreshActualRate);
+    }
+
+    /**
+     * Passes the state of a device to the listener registered for its serial number
+     */
+    private void notifyDeviceStateChanged(Device device) {
+        DeviceStatusListener deviceStatusListener = deviceListeners.get(device.getSerialNumber());
+        if (deviceStatusListener != null) {
+            try {
+                deviceStatusListener.onDeviceStateChanged(getThing().getUID(), device);
+            } catch (Exception e) {
+                logger.error("An exception occurred while calling the DeviceStatusListener", e);
+                unregisterDeviceStatusListener(deviceStatusListener);
+            }
+        }
+    }
+
+    /**
+     * @return the listeners for all devices and the listener registered for the serial number of the device
+     */
+    private Collection<DeviceStatusListener> getDeviceStatusListeners(Device device) {
+        Collection<DeviceStatusListener> listeners = new ArrayList<DeviceStatusListener>(deviceStatusListeners);
+        DeviceStatusListener deviceStatusListener = deviceListeners.get(device.getSerialNumber());
+        if (deviceStatusListener != null) {
+            listeners.add(deviceStatusListener);
+        }
+        return listeners;
+    }
+
     public void onConnectionLost() {
         logger.debug("Bridge connection lost. Updating thing status to OFFLINE.");
         previousOnline = false;
@@ -427,11 +509,44 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
         return result;
     }
 
+    /**
+     * Registers a listener for a single device. Only this listener is notified about state and configuration
+     * changes of the device, starting with its current state on the next refresh.
+     * An unchanged thermostat is passed to the listener as well once its actual temperature is due for a refresh.
+     *
+     * @param serialNumber the serial number of the device
+     * @param deviceStatusListener the listener
+     * @param refreshActualRate minutes between refreshes of the actual temperature, 0 to disable them
+     * @return true if the listener has not been registered for the device before
+     */
+    public boolean registerDeviceStatusListener(String serialNumber, DeviceStatusListener deviceStatusListener,
+            int refreshActualRate) {
+        if (deviceStatusListener == null) {
+            throw new IllegalArgumentException("It's not allowed to pass a null deviceStatusListener.");
+        }
+        DeviceStatusListener previous = deviceListeners.put(serialNumber, deviceStatusListener);
+        if (refreshActualRate > 0) {
+            refreshActualRates.put(serialNumber, refreshActualRate);
+        } else {
+            refreshActualRates.remove(serialNumber);
+        }
+        refreshDevices.add(serialNumber);
+        return previous != deviceStatusListener;
+    }
+
     public boolean unregisterDeviceStatusListener(DeviceStatusListener deviceStatusListener) {
         if (deviceStatusListener == null) {
             throw new IllegalArgumentException("It's not allowed to pass a null deviceStatusListener.");
         }
         boolean result = deviceStatusListeners.remove(deviceStatusListener);
+        for (Iterator<Entry<String, DeviceStatusListener>> it = deviceListeners.entrySet().iterator(); it.hasNext();) {
+            Entry<String, DeviceStatusListener> entry = it.next();
+            if (entry.getValue() == deviceStatusListener) {
+                it.remove();
+                refreshActualRates.remove(entry.getKey());
+                result = true;
+            }
+        }
         if (result) {
             clearDeviceList();
         }
@@ -450,68 +565,66 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
      * @return boolean success
      */
     private synchronized boolean sendCubeCommand(CubeCommand command) {
-        synchronized (MaxCubeBridgeHandler.class) {
-            boolean sendSuccess = false;
-            try {
-                if (socket == null || socket.isClosed()) {
-                    this.socketConnect();
-                }
+        boolean sendSuccess = false;
+        try {
+            if (socket == null || socket.isClosed()) {
+                this.socketConnect();
+            }
 
-                if (maxRequestsPerConnection > 0 && requestCount >= maxRequestsPerConnection) {
-                    logger.debug("maxRequestsPerConnection reached, reconnecting.");
-                    socket.close();
-                    this.socketConnect();
-                } else {
+            if (maxRequestsPerConnection > 0 && requestCount >= maxRequestsPerConnection) {
+                logger.debug("maxRequestsPerConnection reached, reconnecting.");
+                socket.close();
+                this.socketConnect();
+            } else {
 
-                    if (requestCount == 0) {
-                        logger.debug("Connect to MAX! Cube");
-                        readliness("L:");
+                if (requestCount == 0) {
+                    logger.debug("Connect to MAX! Cube");
+                    readliness("L:");
 
-                    }
-                    if (!(requestCount == 0 && command instanceof L_Command)) {
+                }
+                if (!(requestCount == 0 && command instanceof L_Command)) {
 
-                        logger.debug("Sending request #{} to MAX! Cube", this.requestCount);
-                        if (writer == null) {
-                            logger.warn("Can't write to MAX! Cube");
-                            this.socketConnect();
-                        }
+                    logger.debug("Sending request #{} to MAX! Cube", this.requestCount);
+                    if (writer == null) {
+                        logger.warn("Can't write to MAX! Cube");
+                        this.socketConnect();
+                    }
 
-                        writer.write(command.getCommandString());
-                        logger.trace("Write string to Max! Cube {}: {}", ipAddress, command.getCommandString());
-                        writer.flush();
-                        if (command.getReturnStrings() != null) {
-                            readliness(command.getReturnStrings());
-                        } else {
-                            socketClose();
-                        }
+                    writer.write(command.getCommandString());
+                    logger.trace("Write string to Max! Cube {}: {}", ipAddress, command.getCommandString());
+                    writer.flush();
+                    if (command.getReturnStrings() != null) {
+                        readliness(command.getReturnStrings());
+                    } else {
+                        socketClose();
                     }
                 }
+            }
 
-                requestCount++;
-                sendSuccess = true;
+            requestCount++;
+            sendSuccess = true;
 
-                if (!exclusive) {
-                    socketClose();
-                }
-            } catch (ConnectException e) {
-                logger.debug("Connection timed out on {} port {}", ipAddress, port);
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
-            } catch (UnknownHostException e) {
-                logger.debug("Host error occurred during execution: {}", e.getMessage());
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
-            } catch (IOException e) {
-                logger.debug("IO error occurred during execution: {}", e.getMessage());
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
-            } catch (Exception e) {
-                logger.debug("Exception occurred during execution: {}", e.getMessage(), e);
-                sendSuccess = false;
-                socketClose(); // reconnect on next execution
+            if (!exclusive) {
+                socketClose();
             }
-            return sendSuccess;
+        } catch (ConnectException e) {
+            logger.debug("Connection timed out on {} port {}", ipAddress, port);
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
+        } catch (UnknownHostException e) {
+            logger.debug("Host error occurred during execution: {}", e.getMessage());
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
+        } catch (IOException e) {
+            logger.debug("IO error occurred during execution: {}", e.getMessage());
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
+        } catch (Exception e) {
+            logger.debug("Exception occurred during execution: {}", e.getMessage(), e);
+            sendSuccess = false;
+            socketClose(); // reconnect on next execution
         }
+        return sendSuccess;
     }
 
     /**
@@ -572,6 +685,7 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
             if (message.getType() == MessageType.H) {
                 int freeMemorySlotsMsg = ((H_Message) message).getFreeMemorySlots();
                 int dutyCycleMsg = ((H_Message) message).getDutyCycle();
+                commandScheduler.updateCubeState(dutyCycleMsg, freeMemorySlotsMsg, System.currentTimeMillis());
                 if (freeMemorySlotsMsg != freeMemorySlots || dutyCycleMsg != dutyCycle) {
                     freeMemorySlots = freeMemorySlotsMsg;
                     dutyCycle = dutyCycleMsg;
@@ -636,14 +750,12 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
                     }
                 }
                 if (exclusive == true) {
-                    for (DeviceStatusListener deviceStatusListener : deviceStatusListeners) {
+                    Device di = getDevice(((C_Message) message).getSerialNumber());
+                    DeviceStatusListener deviceStatusListener = di != null
+                            ? deviceListeners.get(di.getSerialNumber()) : null;
+                    if (deviceStatusListener != null) {
                         try {
-                            Device di = getDevice(((C_Message) message).getSerialNumber());
-                            if (di != null) {
-                                deviceStatusListener.onDeviceConfigUpdate(getThing(), di);
-                            }
-                        } catch (NullPointerException e) {
-                            // ignore
+                            deviceStatusListener.onDeviceConfigUpdate(getThing(), di);
                         } catch (Exception e) {
                             logger.error("An exception occurred while calling the DeviceStatusListener", e);
                             unregisterDeviceStatusListener(deviceStatusListener);
@@ -651,13 +763,18 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
                     }
                 }
             } else if (message.getType() == MessageType.L) {
-                ((L_Message) message).updateDevices(devices, configurations);
-                logger.trace("{} devices found.", devices.size());
+                Collection<? extends Device> changed = ((L_Message) message).updateDevices(devices, configurations);
+                synchronized (changedDevices) {
+                    changedDevices.addAll(changed);
+                }
+                logger.trace("{} devices found, {} changed.", devices.size(), changed.size());
             } else if (message.getType() == MessageType.S) {
                 dutyCycle = ((S_Message) message).getDutyCycle();
                 freeMemorySlots = ((S_Message) message).getFreeMemorySlots();
                 updateCubeState();
+                commandScheduler.updateCubeState(dutyCycle, freeMemorySlots, System.currentTimeMillis());
                 if (((S_Message) message).isCommandDiscarded()) {
+                    commandScheduler.commandDiscarded(System.currentTimeMillis());
                     logger.warn("Last Send Command discarded. Duty Cycle: {}, Free Memory Slots: {}", dutyCycle,
                             freeMemorySlots);
                 } else {
@@ -771,27 +888,26 @@ public class MaxCubeBridgeHandler extends BaseBridgeHandler {
      * item-channel combination are send prior that they are processed by the
      * Max! Cube, they will be removed from the queue as they would not be
      * meaningful. This will improve the behavior when using sliders in the GUI.
+     * The queue is processed right away, unless the Cube is busy or throttled.
      *
      * @param SendCommand
      *            the SendCommand containing the serial number of the device as
      *            String the channelUID used to send the command and the the
      *            command data
      */
-    public synchronized void queueCommand(SendCommand sendCommand) {
-
-        if (commandQueue.offer(sendCommand)) {
-            if (lastCommandId != null) {
-                if (lastCommandId.getKey().equals(sendCommand.getKey())) {
-                    if (commandQueue.remove(lastCommandId)) {
-                        logger.debug("Removed Command id {} ({}) from queue. Superceeded by {}", lastCommandId.getId(),
-                                lastCommandId.getKey(), sendCommand.getId());
-                    }
-                }
-            }
-            lastCommandId = sendCommand;
-            logger.debug("Command queued id {} ({}:{}).", sendCommand.getId(), sendCommand.getKey(),
-                    sendCommand.getCommandText());
+    public void queueCommand(SendCommand sendCommand) {
 
+        SendCommand superseded = commandScheduler.queue(sendCommand, System.currentTimeMillis());
+        if (superseded != sendCommand) {
+            if (superseded != null) {
+                logger.debug("Removed Command id {} ({}) from queue. Superceeded by {}", superseded.getId(),
+                        superseded.getKey(), sendCommand.getId());
+            }
+            logger.debug("Command queued id {} ({}:{}), queue depth {}.", sendCommand.getId(), sendCommand.getKey(),
+                    sendCommand.getCommandText(), commandScheduler.getQueueDepth());
+            if (pollingJob != null) {
+                scheduler.execute(processCommandsRunnable);
+            }
         } else {
             logger.debug("Command queued full dropping command id {} ({}).", sendCommand.getId(), sendCommand.getKey());
         }
@@ -314,7 +314,12 @@ public class MaxDevicesHandler extends BaseThingHandler implements DeviceStatusL
             ThingHandler handler = bridge.getHandler();
             if (handler instanceof MaxCubeBridgeHandler) {
                 this.bridgeHandler = (MaxCubeBridgeHandler) handler;
-                this.bridgeHandler.registerDeviceStatusListener(this);
+                if (maxDeviceSerial != null) {
+                    this.bridgeHandler.registerDeviceStatusListener(maxDeviceSerial, this,
+                            refreshActualRate >= REFRESH_ACTUAL_MIN_RATE ? refreshActualRate : 0);
+                } else {
+                    this.bridgeHandler.registerDeviceStatusListener(this);
+                }
                 forceRefresh = true;
             } else {
                 logger.debug("No available bridge handler found for {} bridge {} .", maxDeviceSerial, bridge.getUID());
@@ -420,7 +425,7 @@ public class MaxDevicesHandler extends BaseThingHandler implements DeviceStatusL
         }
     }
 
-    private void refreshActualCheck(HeatingThermostat device) {
+    private synchronized void refreshActualCheck(HeatingThermostat device) {
         DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
 
         if (device.getActualTempLastUpdated() == null) {
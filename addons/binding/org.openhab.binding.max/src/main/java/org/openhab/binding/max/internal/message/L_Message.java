@@ -10,7 +10,9 @@ package org.openhab.binding.max.internal.message;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.net.util.Base64;
 import org.openhab.binding.max.internal.Utils;
@@ -51,38 +53,47 @@ public final class L_Message extends Message {
         return devices;
     }
 
+    /**
+     * Updates the devices from the records in this message. A device is only decoded again if its record differs
+     * from the one it has been updated from last. Devices not in the list yet are created and added to it.
+     *
+     * @param devices the known devices, new devices are added
+     * @param configurations the device configurations needed to create new devices
+     * @return the devices which have been created or whose record has changed
+     */
     public Collection<? extends Device> updateDevices(List<Device> devices, List<DeviceConfiguration> configurations) {
 
+        List<Device> changedDevices = new ArrayList<Device>();
+
         byte[] decodedRawMessage = Base64.decodeBase64(getPayload().getBytes());
 
         MaxTokenizer tokenizer = new MaxTokenizer(decodedRawMessage);
 
+        Map<String, Device> devicesByAddress = new HashMap<String, Device>(devices.size() * 2);
+        for (Device device : devices) {
+            devicesByAddress.put(device.getRFAddress().toUpperCase(), device);
+        }
+
         while (tokenizer.hasMoreElements()) {
             byte[] token = tokenizer.nextElement();
             String rfAddress = Utils.toHex(token[0] & 0xFF, token[1] & 0xFF, token[2] & 0xFF);
-            // logger.debug("token: "+token+" rfaddress: "+rfAddress);
-
-            Device foundDevice = null;
-            for (Device device : devices) {
-                // logger.debug(device.getRFAddress().toUpperCase()+ " vs "+rfAddress);
-                if (device.getRFAddress().toUpperCase().equals(rfAddress)) {
-                    // logger.debug("Updating device..."+rfAddress);
-                    foundDevice = device;
-                }
-            }
+
+            Device foundDevice = devicesByAddress.get(rfAddress);
             if (foundDevice != null) {
-                foundDevice = Device.update(token, configurations, foundDevice);
-                // devices.remove(token);
-                // devices.add(foundDevice);
+                if (!foundDevice.isRawDataUnchanged(token)) {
+                    changedDevices.add(Device.update(token, configurations, foundDevice));
+                }
             } else {
                 Device tempDevice = Device.create(token, configurations);
                 if (tempDevice != null) {
                     devices.add(tempDevice);
+                    devicesByAddress.put(rfAddress, tempDevice);
+                    changedDevices.add(tempDevice);
                 }
             }
         }
 
-        return devices;
+        return changedDevices;
     }
 
     @Override
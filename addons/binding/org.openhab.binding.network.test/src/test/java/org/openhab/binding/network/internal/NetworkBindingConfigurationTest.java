@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for {@see NetworkBindingConfiguration}
+ *
+ * @author agent - Initial contribution
+ */
+public class NetworkBindingConfigurationTest {
+    @Test
+    public void validDiscoveryLimitsTest() {
+        NetworkBindingConfiguration newConfiguration = new NetworkBindingConfiguration();
+        newConfiguration.discoveryMaxConnectionsInFlight = BigDecimal.valueOf(16);
+        newConfiguration.discoveryConnectionsPerSecond = BigDecimal.valueOf(50);
+
+        NetworkBindingConfiguration configuration = new NetworkBindingConfiguration();
+        configuration.update(newConfiguration);
+
+        assertThat(configuration.discoveryMaxConnectionsInFlight.intValue(), is(16));
+        assertThat(configuration.discoveryConnectionsPerSecond.intValue(), is(50));
+    }
+
+    @Test
+    public void invalidDiscoveryLimitsAreRejectedTest() {
+        NetworkBindingConfiguration newConfiguration = new NetworkBindingConfiguration();
+        newConfiguration.discoveryMaxConnectionsInFlight = BigDecimal.valueOf(-1);
+        newConfiguration.discoveryConnectionsPerSecond = BigDecimal.ZERO;
+
+        NetworkBindingConfiguration configuration = new NetworkBindingConfiguration();
+        configuration.update(newConfiguration);
+
+        assertThat(configuration.discoveryMaxConnectionsInFlight.intValue(), is(256));
+        assertThat(configuration.discoveryConnectionsPerSecond.intValue(), is(1000));
+    }
+}
@@ -14,8 +14,10 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -28,6 +30,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openhab.binding.network.internal.probe.PresenceProbeService;
 import org.openhab.binding.network.internal.toberemoved.cache.ExpiringCacheAsync;
 import org.openhab.binding.network.internal.toberemoved.cache.ExpiringCacheHelper;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
@@ -54,6 +57,8 @@ public class PresenceDetectionTest {
     @Mock
     Consumer<PresenceDetectionValue> callback;
 
+    PresenceProbeService probeService;
+
     PresenceDetection subject;
 
     @Before
@@ -65,8 +70,14 @@ public class PresenceDetectionTest {
         doReturn(ArpPingUtilEnum.IPUTILS_ARPING).when(networkUtils).determineNativeARPpingMethod(anyString());
         doReturn(IpPingMethodEnum.WINDOWS_PING).when(networkUtils).determinePingMethod();
 
+        // The probe service performs blocking probes with the mocked executor service, if not replaced
+        probeService = spy(new PresenceProbeService());
+        doReturn(CompletableFuture.completedFuture(1.0)).when(probeService).servicePing(any(InetAddress.class),
+                anyInt(), anyInt());
+
         subject = spy(new PresenceDetection(listener, (int) CACHETIME));
         subject.networkUtils = networkUtils;
+        subject.probeService = probeService;
         subject.cache = spy(new ExpiringCacheAsync<PresenceDetectionValue>(CACHETIME, () -> {
             subject.performPresenceDetection(false);
         }));
@@ -86,28 +97,30 @@ public class PresenceDetectionTest {
     @After
     public void shutDown() {
         subject.waitForPresenceDetection();
+        probeService.dispose();
     }
 
-    // Depending on the amount of test methods an according amount of threads is spawned.
-    // We will check if they spawn and return in time.
+    // Depending on the amount of test methods an according amount of checks is performed.
+    // We will check if they are started and return in time.
     @Test
     public void threadCountTest() {
-        assertNull(subject.executorService);
+        assertNull(subject.detection);
 
-        doNothing().when(subject).performARPping(anyObject());
-        doNothing().when(subject).performJavaPing();
-        doNothing().when(subject).performSystemPing();
-        doNothing().when(subject).performServicePing(anyInt());
+        CompletableFuture<Double> pending = new CompletableFuture<>();
+        doReturn(pending).when(subject).performARPping(anyObject());
+        doReturn(pending).when(subject).performJavaPing();
+        doReturn(pending).when(subject).performSystemPing();
+        doReturn(pending).when(subject).performServicePing(anyInt());
 
         subject.performPresenceDetection(false);
 
-        // Thread count: ARP + ICMP + 1*TCP
+        // Check count: ARP + ICMP + 1*TCP
         assertThat(subject.detectionChecks, is(3));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
 
         subject.waitForPresenceDetection();
         assertThat(subject.detectionChecks, is(0));
-        assertNull(subject.executorService);
+        assertNull(subject.detection);
     }
 
     @Test
@@ -115,7 +128,6 @@ public class PresenceDetectionTest {
         doReturn(true).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING), anyString(), anyInt());
         doReturn(true).when(networkUtils).nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(),
                 anyObject(), anyInt());
-        doReturn(true).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
 
         assertTrue(subject.performPresenceDetection(false));
         subject.waitForPresenceDetection();
@@ -137,22 +149,26 @@ public class PresenceDetectionTest {
         doReturn(true).when(networkUtils).nativePing(eq(IpPingMethodEnum.WINDOWS_PING), anyString(), anyInt());
         doReturn(true).when(networkUtils).nativeARPPing(eq(ArpPingUtilEnum.IPUTILS_ARPING), anyString(), anyString(),
                 anyObject(), anyInt());
-        doReturn(true).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
 
-        doReturn(executorService).when(subject).getThreadsFor(anyInt());
+        probeService = spy(new PresenceProbeService(executorService));
+        doReturn(CompletableFuture.completedFuture(1.0)).when(probeService).servicePing(any(InetAddress.class),
+                anyInt(), anyInt());
+        // Do not wait for the iOS device to wake up, the ARP check is requested immediately
+        doReturn(CompletableFuture.completedFuture(null)).when(probeService).delay(anyLong());
+        subject.probeService = probeService;
 
         // We expect no valid value
         assertTrue(subject.cache.isExpired());
         // Get value will issue a PresenceDetection internally.
         subject.getValue(callback);
         verify(subject).performPresenceDetection(eq(false));
-        assertNotNull(subject.executorService);
-        // There should be no straight callback yet
-        verify(callback, times(0)).accept(anyObject());
+        assertNotNull(subject.detection);
+        // The TCP check is finished already, the ARP and ICMP checks are waiting for a worker thread
+        verify(callback, times(1)).accept(anyObject());
 
-        // Perform the different presence detection threads now
+        // Perform the waiting presence detection checks now
         ArgumentCaptor<Runnable> capture = ArgumentCaptor.forClass(Runnable.class);
-        verify(executorService, times(3)).execute(capture.capture());
+        verify(executorService, times(2)).execute(capture.capture());
         for (Runnable r : capture.getAllValues()) {
             r.run();
         }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal.discovery;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.net.util.SubnetUtils;
+import org.apache.commons.net.util.SubnetUtils.SubnetInfo;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.probe.PresenceProbeService;
+
+/**
+ * Tests cases for {@see NetworkSweep}
+ *
+ * @author agent - Initial contribution
+ */
+public class NetworkSweepTest {
+    private final Set<Integer> tcpPorts = Collections.singleton(80);
+
+    @Mock
+    NetworkDiscoveryService discoveryService;
+
+    @Mock
+    PresenceProbeService probeService;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        when(probeService.servicePing(any(InetAddress.class), anyInt(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(PresenceDetection.NOT_REACHABLE));
+        when(probeService.servicePing(eq(InetAddress.getByName("192.168.0.2")), eq(80), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(1.0));
+    }
+
+    @Test
+    public void countConnectionsTest() {
+        List<SubnetInfo> subnets = Arrays.asList(new SubnetUtils("192.168.0.10/24").getInfo(),
+                new SubnetUtils("10.1.130.10/16").getInfo());
+        assertThat(NetworkSweep.countConnections(subnets, tcpPorts), is(254L + 65534L));
+
+        NetworkSweep sweep = new NetworkSweep(discoveryService, probeService, subnets, tcpPorts, 100, 10, 1000);
+        assertThat(sweep.getTotalConnections(), is(254L + 65534L));
+    }
+
+    @Test
+    public void largeNetworkIsScannedCompletelyTest() {
+        List<SubnetInfo> subnets = Collections.singletonList(new SubnetUtils("10.1.130.10/8").getInfo());
+        Set<Integer> ports = new HashSet<>(Arrays.asList(80, 548));
+        NetworkSweep sweep = new NetworkSweep(discoveryService, probeService, subnets, ports, 100, 10, 1000);
+        assertThat(sweep.getTotalConnections(), is(2L * 16777214L));
+    }
+
+    @Test
+    public void sweepTest() {
+        List<SubnetInfo> subnets = Collections.singletonList(new SubnetUtils("192.168.0.1/29").getInfo());
+        NetworkSweep sweep = new NetworkSweep(discoveryService, probeService, subnets, tcpPorts, 100, 2, 1000);
+
+        sweep.run();
+
+        assertThat(sweep.getFinishedConnections(), is(6L));
+        verify(probeService, times(6)).servicePing(any(InetAddress.class), eq(80), eq(100));
+        verify(discoveryService).newServiceDevice("192.168.0.2", 80);
+        verify(discoveryService, times(1)).newServiceDevice(anyString(), anyInt());
+        verify(discoveryService).sweepFinished(sweep);
+    }
+
+    @Test
+    public void stoppedSweepTest() {
+        List<SubnetInfo> subnets = Collections.singletonList(new SubnetUtils("192.168.0.1/29").getInfo());
+        NetworkSweep sweep = new NetworkSweep(discoveryService, probeService, subnets, tcpPorts, 100, 2, 1000);
+
+        sweep.stop();
+        sweep.run();
+
+        verify(probeService, never()).servicePing(any(InetAddress.class), anyInt(), anyInt());
+        verify(discoveryService, never()).sweepFinished(sweep);
+    }
+}
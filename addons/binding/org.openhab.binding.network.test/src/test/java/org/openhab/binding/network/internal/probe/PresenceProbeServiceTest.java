@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal.probe;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.PresenceDetectionType;
+
+/**
+ * Tests cases for {@see PresenceProbeService}
+ *
+ * @author agent - Initial contribution
+ */
+public class PresenceProbeServiceTest {
+    @Mock
+    ExecutorService executorService;
+
+    PresenceProbeService subject;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        subject = new PresenceProbeService(executorService);
+    }
+
+    @After
+    public void shutDown() {
+        subject.dispose();
+    }
+
+    private Runnable capturePendingProbe(int probes) {
+        ArgumentCaptor<Runnable> capture = ArgumentCaptor.forClass(Runnable.class);
+        verify(executorService, times(probes)).execute(capture.capture());
+        return capture.getValue();
+    }
+
+    @Test
+    public void identicalProbesAreJoinedTest() {
+        CompletableFuture<Double> first = subject.submit(PresenceDetectionType.ICMP_PING, "192.168.0.1", 300,
+                () -> true);
+        CompletableFuture<Double> second = subject.submit(PresenceDetectionType.ICMP_PING, "192.168.0.1", 300,
+                () -> true);
+
+        assertSame(first, second);
+        Runnable probe = capturePendingProbe(1);
+        assertThat(subject.getStatistics(PresenceDetectionType.ICMP_PING).getDeduplicated(), is(1L));
+
+        // Both requesters get the result of the single probe
+        probe.run();
+        assertTrue(first.isDone());
+        assertThat(subject.getStatistics(PresenceDetectionType.ICMP_PING).getProbes(), is(1L));
+        assertThat(subject.getStatistics(PresenceDetectionType.ICMP_PING).getReachable(), is(1L));
+
+        // The probe is not in flight anymore, the next request performs a new probe
+        CompletableFuture<Double> third = subject.submit(PresenceDetectionType.ICMP_PING, "192.168.0.1", 300,
+                () -> false);
+        assertNotSame(first, third);
+        capturePendingProbe(2).run();
+        assertThat(third.getNow(null), is(PresenceDetection.NOT_REACHABLE));
+    }
+
+    @Test
+    public void differentProbesAreNotJoinedTest() {
+        CompletableFuture<Double> probe = subject.submit(PresenceDetectionType.ICMP_PING, "192.168.0.1", 300,
+                () -> true);
+
+        assertNotSame(probe, subject.submit(PresenceDetectionType.ICMP_PING, "192.168.0.1", 1000, () -> true));
+        assertNotSame(probe, subject.submit(PresenceDetectionType.ICMP_PING, "192.168.0.2", 300, () -> true));
+        assertNotSame(probe, subject.submit(PresenceDetectionType.ARP_PING, "192.168.0.1", 300, () -> true));
+
+        verify(executorService, times(4)).execute(any(Runnable.class));
+        assertThat(subject.getStatistics(PresenceDetectionType.ICMP_PING).getDeduplicated(), is(0L));
+    }
+
+    @Test
+    public void delayTest() throws Exception {
+        CompletableFuture<Void> delay = subject.delay(10);
+        delay.get(1, TimeUnit.SECONDS);
+
+        subject.dispose();
+        assertTrue(subject.delay(10).isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal.probe;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests cases for {@see ServicePingSelector}
+ *
+ * @author agent - Initial contribution
+ */
+public class ServicePingSelectorTest {
+    private static final int TIMEOUT_IN_MS = 1000;
+
+    ServicePingSelector subject = new ServicePingSelector();
+
+    @After
+    public void shutDown() {
+        subject.shutdown();
+    }
+
+    @Test
+    public void openPortTest() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            double latency = subject.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()),
+                    TIMEOUT_IN_MS).get(2, TimeUnit.SECONDS);
+            assertTrue(latency >= 0);
+        }
+    }
+
+    @Test
+    public void refusedConnectionTest() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = server.getLocalPort();
+        }
+
+        // There is a device on the other end, although no service listens on the port
+        double latency = subject.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), TIMEOUT_IN_MS)
+                .get(2, TimeUnit.SECONDS);
+        assertTrue(latency >= 0);
+    }
+
+    @Test
+    public void shutdownTest() throws Exception {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            subject.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()), TIMEOUT_IN_MS)
+                    .get(2, TimeUnit.SECONDS);
+            subject.shutdown();
+
+            // The selector thread is started again on demand
+            double latency = subject.connect(new InetSocketAddress(server.getInetAddress(), server.getLocalPort()),
+                    TIMEOUT_IN_MS).get(2, TimeUnit.SECONDS);
+            assertTrue(latency >= 0);
+        }
+    }
+}
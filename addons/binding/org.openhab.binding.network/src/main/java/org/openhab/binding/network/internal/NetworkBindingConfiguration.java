@@ -11,6 +11,7 @@ package org.openhab.binding.network.internal;
 import java.math.BigDecimal;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.slf4j.LoggerFactory;
 
 /**
  * Contains the binding configuration and default values. The field names represent the configuration names,
@@ -19,15 +20,39 @@ import org.eclipse.jdt.annotation.NonNull;
  * @author David Graeff
  */
 public class NetworkBindingConfiguration {
+    private static final BigDecimal DEFAULT_DISCOVERY_MAX_CONNECTIONS_IN_FLIGHT = BigDecimal.valueOf(256);
+    private static final BigDecimal DEFAULT_DISCOVERY_CONNECTIONS_PER_SECOND = BigDecimal.valueOf(1000);
+
     public Boolean allowSystemPings = true;
     public Boolean allowDHCPlisten = true;
     public BigDecimal cacheDeviceStateTimeInMS = BigDecimal.valueOf(2000);
     public String arpPingToolPath = "arping";
+    public Boolean discoveryLargeNetworks = false;
+    public BigDecimal discoveryMaxConnectionsInFlight = DEFAULT_DISCOVERY_MAX_CONNECTIONS_IN_FLIGHT;
+    public BigDecimal discoveryConnectionsPerSecond = DEFAULT_DISCOVERY_CONNECTIONS_PER_SECOND;
 
     public void update(@NonNull NetworkBindingConfiguration newConfiguration) {
         this.allowSystemPings = newConfiguration.allowSystemPings;
         this.allowDHCPlisten = newConfiguration.allowDHCPlisten;
         this.cacheDeviceStateTimeInMS = newConfiguration.cacheDeviceStateTimeInMS;
         this.arpPingToolPath = newConfiguration.arpPingToolPath;
+        this.discoveryLargeNetworks = newConfiguration.discoveryLargeNetworks;
+        this.discoveryMaxConnectionsInFlight = positiveOrDefault("discoveryMaxConnectionsInFlight",
+                newConfiguration.discoveryMaxConnectionsInFlight, DEFAULT_DISCOVERY_MAX_CONNECTIONS_IN_FLIGHT);
+        this.discoveryConnectionsPerSecond = positiveOrDefault("discoveryConnectionsPerSecond",
+                newConfiguration.discoveryConnectionsPerSecond, DEFAULT_DISCOVERY_CONNECTIONS_PER_SECOND);
+    }
+
+    /**
+     * Values of a configuration file are not checked against the minimum of the config description.
+     * Reject values that are not positive, the network scan divides by them.
+     */
+    private static BigDecimal positiveOrDefault(String name, BigDecimal value, BigDecimal defaultValue) {
+        if (value == null || value.intValue() <= 0) {
+            LoggerFactory.getLogger(NetworkBindingConfiguration.class)
+                    .warn("Invalid value {} of {}, the default {} is used instead", value, name, defaultValue);
+            return defaultValue;
+        }
+        return value;
     }
 }
@@ -15,16 +15,18 @@ import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.network.internal.dhcp.DHCPListenService;
 import org.openhab.binding.network.internal.dhcp.IPRequestReceivedCallback;
+import org.openhab.binding.network.internal.probe.PresenceProbeService;
 import org.openhab.binding.network.internal.toberemoved.cache.ExpiringCacheAsync;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
@@ -40,7 +42,9 @@ import org.slf4j.LoggerFactory;
  */
 public class PresenceDetection implements IPRequestReceivedCallback {
     public static final double NOT_REACHABLE = -1;
+    private static final long IOS_WAKE_UP_DELAY_IN_MS = 50;
     NetworkUtils networkUtils = new NetworkUtils();
+    PresenceProbeService probeService = PresenceProbeService.getInstance();
     private Logger logger = LoggerFactory.getLogger(PresenceDetection.class);
 
     /// Configuration variables
@@ -62,7 +66,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     private final PresenceDetectionListener updateListener;
     private ScheduledFuture<?> refreshJob;
     private InetAddress destination;
-    ExecutorService executorService;
+    CompletableFuture<Void> detection;
     private String dhcpState = "off";
     Integer currentCheck = 0;
     int detectionChecks;
@@ -202,14 +206,11 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         cache.getValue(callback);
     }
 
-    public ExecutorService getThreadsFor(int threadCount) {
-        return Executors.newFixedThreadPool(threadCount);
-    }
-
     /**
      * Perform a presence detection with ICMP-, ARP ping and
-     * TCP connection attempts simultaneously. A fixed thread pool will be created with as many
-     * thread as necessary to perform all tests at once.
+     * TCP connection attempts simultaneously. The checks are performed by the binding wide
+     * {@link PresenceProbeService}: TCP connection attempts are non-blocking, pings are
+     * performed by a bounded pool of workers and identical checks in flight are joined.
      *
      * This is a NO-OP, if there is already an ongoing detection or if the cached value
      * is not expired yet.
@@ -223,7 +224,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * @return Return true if a presence detection is performed and false otherwise.
      */
     public boolean performPresenceDetection(boolean waitForDetectionToFinish) {
-        if (executorService != null) {
+        if (detection != null) {
             logger.debug(
                     "There is already an ongoing presence discovery for {} and a new one was issued by the scheduler! TCP Port {}",
                     hostname, tcpPorts);
@@ -250,38 +251,33 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             return false;
         }
 
-        executorService = getThreadsFor(detectionChecks);
+        // Set before the first check is started, because checks may finish immediately
+        final CompletableFuture<Void> detection = new CompletableFuture<>();
+        this.detection = detection;
 
         for (Integer tcpPort : tcpPorts) {
-            executorService.execute(() -> {
-                Thread.currentThread().setName("presenceDetectionTCP_" + hostname + " " + String.valueOf(tcpPort));
-                performServicePing(tcpPort);
-                checkIfFinished();
-            });
+            performServicePing(tcpPort).whenComplete((latency, e) -> checkIfFinished(detection));
         }
 
-        // ARP ping for IPv4 addresses. Use an own executor for each network interface
+        // ARP ping for IPv4 addresses. One check for each network interface
         if (interfaceNames != null) {
-            for (final String interfaceName : interfaceNames) {
-                executorService.execute(() -> {
-                    Thread.currentThread().setName("presenceDetectionARP_" + hostname + " " + interfaceName);
-                    performARPping(interfaceName);
-                    checkIfFinished();
-                });
-            }
+            final Set<String> arpInterfaceNames = interfaceNames;
+            wakeUpIOS().whenComplete((result, ex) -> {
+                for (final String interfaceName : arpInterfaceNames) {
+                    performARPping(interfaceName).whenComplete((latency, e) -> checkIfFinished(detection));
+                }
+            });
         }
 
         // ICMP ping
         if (pingMethod != null) {
-            executorService.execute(() -> {
-                if (pingMethod != IpPingMethodEnum.JAVA_PING) {
-                    Thread.currentThread().setName("presenceDetectionICMP_" + hostname);
-                    performSystemPing();
-                } else {
-                    performJavaPing();
-                }
-                checkIfFinished();
-            });
+            CompletableFuture<Double> check;
+            if (pingMethod != IpPingMethodEnum.JAVA_PING) {
+                check = performSystemPing();
+            } else {
+                check = performJavaPing();
+            }
+            check.whenComplete((latency, e) -> checkIfFinished(detection));
         }
 
         if (waitForDetectionToFinish) {
@@ -294,17 +290,17 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     /**
      * Calls updateListener.finalDetectionResult() with a final result value.
      * Safe to be called from different threads. After a call to this method,
-     * the presence detection process is finished and all threads are forcefully
-     * shut down.
+     * the presence detection process is finished. Checks still in flight are not
+     * awaited anymore.
      */
     private synchronized void submitFinalResult() {
         // Do nothing if we are not in a detection process
-        if (executorService == null) {
+        if (detection == null) {
             return;
         }
         // Finish the detection process
-        executorService.shutdownNow();
-        executorService = null;
+        CompletableFuture<Void> finishedDetection = detection;
+        detection = null;
         detectionChecks = 0;
 
         PresenceDetectionValue v;
@@ -320,15 +316,22 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         }
         cache.setValue(v);
         updateListener.finalDetectionResult(v);
+        finishedDetection.complete(null);
     }
 
     /**
      * This method is called after each individual check and increases a check counter.
      * If the counter equals the total checks,the final result is submitted. This will
      * happen way before the "timeoutInMS", if all checks were successful.
+     * Checks that finish after their detection process are ignored.
      * Thread safe.
+     *
+     * @param checkDetection The detection process of the finished check
      */
-    private synchronized void checkIfFinished() {
+    private synchronized void checkIfFinished(CompletableFuture<Void> checkDetection) {
+        if (detection != checkDetection) {
+            return;
+        }
         currentCheck += 1;
         if (currentCheck < detectionChecks) {
             return;
@@ -337,22 +340,28 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     }
 
     /**
-     * Waits for the presence detection threads to finish. Returns immediately
+     * Waits for the presence detection checks to finish. Returns immediately
      * if no presence detection is performed right now.
      */
     public void waitForPresenceDetection() {
-        if (executorService == null) {
+        CompletableFuture<Void> detection = this.detection;
+        if (detection == null) {
             return;
         }
         try {
             // We may get interrupted here by cancelRefreshJob().
-            executorService.awaitTermination(timeoutInMS + 100, TimeUnit.MILLISECONDS);
-            submitFinalResult();
+            detection.get(timeoutInMS + 100, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException ignored) {
+            // Submit the final result with the checks that finished in time
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Reset interrupt flag
-            executorService.shutdownNow();
-            executorService = null;
+            synchronized (this) {
+                this.detection = null;
+                detectionChecks = 0;
+            }
+            return;
         }
+        submitFinalResult();
     }
 
     /**
@@ -380,49 +389,61 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         return v;
     }
 
-    protected void performServicePing(int tcpPort) {
-        logger.trace("Perform TCP presence detection for {} on port", hostname, tcpPorts);
-        try {
-            double pingTime = System.nanoTime();
-            if (networkUtils.servicePing(destination.getHostAddress(), tcpPort, timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
+    protected CompletableFuture<Double> performServicePing(int tcpPort) {
+        logger.trace("Perform TCP presence detection for {} on port {}", hostname, tcpPort);
+        return probeService.servicePing(destination, tcpPort, timeoutInMS).whenComplete((latency, e) -> {
+            if (e != null) {
+                // This should not happen and might be a user configuration issue, we log a warning message therefore.
+                logger.warn("Could not create a socket connection", e);
+            } else if (latency != NOT_REACHABLE) {
                 PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION, latency);
                 v.addReachableTcpService(tcpPort);
                 updateListener.partialDetectionResult(v);
             }
+        });
+    }
+
+    /**
+     * iOS devices only respond to ARP pings after a wake up packet, see {@see NetworkUtils.wakeUpIOS()}.
+     * Sends the packet, if this is an iOS device.
+     *
+     * @return A future that completes when the device had a moment to wake up. It completes immediately
+     *         if this is no iOS device or the packet could not be sent.
+     */
+    private CompletableFuture<Void> wakeUpIOS() {
+        if (!iosDevice) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            networkUtils.wakeUpIOS(destination);
         } catch (IOException e) {
-            // This should not happen and might be a user configuration issue, we log a warning message therefore.
-            logger.warn("Could not create a socket connection", e);
+            logger.trace("Failed to wake up iOS device {}", hostname, e);
+            return CompletableFuture.completedFuture(null);
         }
+        return probeService.delay(IOS_WAKE_UP_DELAY_IN_MS);
     }
 
     /**
      * Performs an "ARP ping" (ARP request) on the given interface.
-     * If it is an iOS device, the {@see NetworkUtils.wakeUpIOS()} method is
-     * called before performing the ARP ping.
+     * For iOS devices {@link #wakeUpIOS()} needs to be called and awaited before.
      *
      * @param interfaceName The interface name. You can request a list of interface names
      *            from {@see NetworkUtils.getInterfaceNames()} for example.
      */
-    protected void performARPping(String interfaceName) {
-        try {
-            logger.trace("Perform ARP ping presence detection for {} on interface", hostname, interfaceName);
-            if (iosDevice) {
-                networkUtils.wakeUpIOS(destination);
-                Thread.sleep(50);
-            }
-            double pingTime = System.nanoTime();
-            if (networkUtils.nativeARPPing(arpPingMethod, arpPingUtilPath, interfaceName, destination.getHostAddress(),
-                    timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING, latency);
-                updateListener.partialDetectionResult(v);
-            }
-        } catch (IOException e) {
-            logger.trace("Failed to execute an arp ping for ip {}", hostname, e);
-        } catch (InterruptedException ignored) {
-            // This can be ignored, the thread will end anyway
-        }
+    protected CompletableFuture<Double> performARPping(String interfaceName) {
+        logger.trace("Perform ARP ping presence detection for {} on interface {}", hostname, interfaceName);
+        final String ipAddress = destination.getHostAddress();
+        return probeService.submit(PresenceDetectionType.ARP_PING, ipAddress + " " + interfaceName, timeoutInMS,
+                () -> networkUtils.nativeARPPing(arpPingMethod, arpPingUtilPath, interfaceName, ipAddress,
+                        timeoutInMS))
+                .whenComplete((latency, e) -> {
+                    if (e != null) {
+                        logger.trace("Failed to execute an arp ping for ip {}", hostname, e);
+                    } else if (latency != NOT_REACHABLE) {
+                        PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING, latency);
+                        updateListener.partialDetectionResult(v);
+                    }
+                });
     }
 
     /**
@@ -431,34 +452,32 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * the TCP echo service on port 7 which barely no device or server supports nowadays.
      * (http://docs.oracle.com/javase/7/docs/api/java/net/InetAddress.html#isReachable%28int%29)
      */
-    protected void performJavaPing() {
-        try {
-            logger.trace("Perform java ping presence detection for {}", hostname);
-            double pingTime = System.nanoTime();
-            if (destination.isReachable(timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency);
-                updateListener.partialDetectionResult(v);
-            }
-        } catch (IOException e) {
-            logger.trace("Failed to execute a java ping for ip {}", hostname, e);
-        }
+    protected CompletableFuture<Double> performJavaPing() {
+        logger.trace("Perform java ping presence detection for {}", hostname);
+        final String target = "java " + destination.getHostAddress();
+        return probeService.submit(PresenceDetectionType.ICMP_PING, target, timeoutInMS,
+                () -> destination.isReachable(timeoutInMS)).whenComplete((latency, e) -> {
+                    if (e != null) {
+                        logger.trace("Failed to execute a java ping for ip {}", hostname, e);
+                    } else if (latency != NOT_REACHABLE) {
+                        PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency);
+                        updateListener.partialDetectionResult(v);
+                    }
+                });
     }
 
-    protected void performSystemPing() {
-        try {
-            logger.trace("Perform native ping presence detection for {}", hostname);
-            double pingTime = System.nanoTime();
-            if (networkUtils.nativePing(pingMethod, destination.getHostAddress(), timeoutInMS)) {
-                final double latency = Math.round((System.nanoTime() - pingTime) / 1000000.0f);
-                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency);
-                updateListener.partialDetectionResult(v);
-            }
-        } catch (IOException e) {
-            logger.trace("Failed to execute a native ping for ip {}", hostname, e);
-        } catch (InterruptedException e) {
-            // This can be ignored, the thread will end anyway
-        }
+    protected CompletableFuture<Double> performSystemPing() {
+        logger.trace("Perform native ping presence detection for {}", hostname);
+        final String ipAddress = destination.getHostAddress();
+        return probeService.submit(PresenceDetectionType.ICMP_PING, ipAddress, timeoutInMS,
+                () -> networkUtils.nativePing(pingMethod, ipAddress, timeoutInMS)).whenComplete((latency, e) -> {
+                    if (e != null) {
+                        logger.trace("Failed to execute a native ping for ip {}", hostname, e);
+                    } else if (latency != NOT_REACHABLE) {
+                        PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, latency);
+                        updateListener.partialDetectionResult(v);
+                    }
+                });
     }
 
     @Override
@@ -10,7 +10,9 @@ package org.openhab.binding.network.internal.dhcp;
 
 import java.net.SocketException;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,17 +23,39 @@ import org.slf4j.LoggerFactory;
  * receiver thread will be started. If the last IPRequestReceivedCallback is removed, the thread will be stopped
  * after the receive socket is closed.
  * IPRequestReceivedCallback will be called for the address that is registered and matches the
- * DHO_DHCP_REQUESTED_ADDRESS address field.
+ * DHO_DHCP_REQUESTED_ADDRESS address field. Callbacks registered for any address, like the network
+ * discovery, will be called for every DHCP request.
  *
  * @author David Graeff - Initial contribution
  */
 public class DHCPListenService {
     static DHCPPacketListenerServer instance;
     static Map<String, IPRequestReceivedCallback> registeredListeners = new TreeMap<>();
+    static Set<IPRequestReceivedCallback> anyAddressListeners = new CopyOnWriteArraySet<>();
     static Logger logger = LoggerFactory.getLogger(DHCPListenService.class);
 
     public static synchronized DHCPPacketListenerServer register(String hostAddress,
             IPRequestReceivedCallback dhcpListener) throws SocketException {
+        startListenerServer();
+        synchronized (registeredListeners) {
+            registeredListeners.put(hostAddress, dhcpListener);
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a callback for the DHCP requests of all addresses.
+     */
+    public static synchronized DHCPPacketListenerServer registerAnyAddress(IPRequestReceivedCallback dhcpListener)
+            throws SocketException {
+        startListenerServer();
+        synchronized (registeredListeners) {
+            anyAddressListeners.add(dhcpListener);
+        }
+        return instance;
+    }
+
+    private static void startListenerServer() throws SocketException {
         if (instance == null) {
             instance = new DHCPPacketListenerServer((String ipAddress) -> {
                 IPRequestReceivedCallback listener = registeredListeners.get(ipAddress);
@@ -41,23 +65,35 @@ public class DHCPListenService {
                 } else {
                     logger.info("DHCP request for unknown address: {}", ipAddress);
                 }
+                for (IPRequestReceivedCallback anyAddressListener : anyAddressListeners) {
+                    anyAddressListener.dhcpRequestReceived(ipAddress);
+                }
             });
             instance.start();
         }
-        synchronized (registeredListeners) {
-            registeredListeners.put(hostAddress, dhcpListener);
-        }
-        return instance;
     }
 
     public static void unregister(String hostAddress) {
         synchronized (registeredListeners) {
             registeredListeners.remove(hostAddress);
-            if (!registeredListeners.isEmpty()) {
+            if (!registeredListeners.isEmpty() || !anyAddressListeners.isEmpty()) {
                 return;
             }
         }
+        stopListenerServer();
+    }
+
+    public static void unregisterAnyAddress(IPRequestReceivedCallback dhcpListener) {
+        synchronized (registeredListeners) {
+            anyAddressListeners.remove(dhcpListener);
+            if (!registeredListeners.isEmpty() || !anyAddressListeners.isEmpty()) {
+                return;
+            }
+        }
+        stopListenerServer();
+    }
 
+    private static void stopListenerServer() {
         if (instance != null) {
             instance.close();
         }
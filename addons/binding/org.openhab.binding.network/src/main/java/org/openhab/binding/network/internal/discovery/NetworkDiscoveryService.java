@@ -10,6 +10,7 @@ package org.openhab.binding.network.internal.discovery;
 
 import static org.openhab.binding.network.NetworkBindingConstants.*;
 
+import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.List;
@@ -18,7 +19,9 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.net.util.SubnetUtils.SubnetInfo;
 import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.config.discovery.AbstractDiscoveryService;
 import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
@@ -28,6 +31,9 @@ import org.openhab.binding.network.internal.NetworkBindingConfiguration;
 import org.openhab.binding.network.internal.PresenceDetection;
 import org.openhab.binding.network.internal.PresenceDetectionListener;
 import org.openhab.binding.network.internal.PresenceDetectionValue;
+import org.openhab.binding.network.internal.dhcp.DHCPListenService;
+import org.openhab.binding.network.internal.dhcp.IPRequestReceivedCallback;
+import org.openhab.binding.network.internal.probe.PresenceProbeService;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -43,11 +49,16 @@ import com.google.common.collect.Sets;
  * the current Network. It uses every Network Interface which is connected to a network.
  * It tries common TCP ports to connect to, ICMP pings and ARP pings.
  *
+ * If large networks are enabled in the binding configuration, all addresses of each network are scanned by a
+ * {@link NetworkSweep} with TCP connection attempts only. Devices that send a DHCP request during the scan are
+ * discovered as well.
+ *
  * @author David Graeff - Rewritten
  * @author Marc Mettke - Initial contribution
  */
 @Component(immediate = true, service = DiscoveryService.class)
-public class NetworkDiscoveryService extends AbstractDiscoveryService implements PresenceDetectionListener {
+public class NetworkDiscoveryService extends AbstractDiscoveryService
+        implements PresenceDetectionListener, IPRequestReceivedCallback {
     static final int PING_TIMEOUT_IN_MS = 500;
     static final int MAXIMUM_IPS_PER_INTERFACE = 255;
     private static final long DISCOVERY_RESULT_TTL = TimeUnit.MINUTES.toSeconds(10);
@@ -57,8 +68,9 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     // TCP port 554 (Windows share / Linux samba)
     // TCP port 1025 (Xbox / MS-RPC)
     private Set<Integer> tcp_service_ports = Sets.newHashSet(80, 548, 554, 1025);
-    private Integer scannedIPcount;
+    private final AtomicInteger scannedIPcount = new AtomicInteger();
     private ExecutorService executorService = null;
+    private NetworkSweep sweep = null;
     private final NetworkBindingConfiguration configuration = new NetworkBindingConfiguration();
     NetworkUtils networkUtils = new NetworkUtils();
 
@@ -108,20 +120,44 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     public void finalDetectionResult(PresenceDetectionValue value) {
     }
 
+    @Override
+    public void dhcpRequestReceived(String ipAddress) {
+        newPingDevice(ipAddress);
+    }
+
+    /**
+     * Return the scan timeout in seconds. Scanning large networks takes as long as the connection
+     * attempts of all addresses at the configured rate.
+     */
+    @Override
+    public int getScanTimeout() {
+        if (!configuration.discoveryLargeNetworks) {
+            return super.getScanTimeout();
+        }
+        long connections = NetworkSweep.countConnections(networkUtils.getInterfaceSubnets(), tcp_service_ports);
+        return (int) (connections / configuration.discoveryConnectionsPerSecond.intValue()
+                + TimeUnit.MILLISECONDS.toSeconds(PING_TIMEOUT_IN_MS) + 2);
+    }
+
     /**
      * Starts the DiscoveryThread for each IP on each interface on the network
      */
     @Override
     protected void startScan() {
-        if (executorService != null) {
+        if (executorService != null || sweep != null) {
             return;
         }
         removeOlderResults(getTimestampOfLastScan(), null);
         logger.trace("Starting Network Device Discovery");
 
+        if (configuration.discoveryLargeNetworks) {
+            startSweep();
+            return;
+        }
+
         final Set<String> networkIPs = networkUtils.getNetworkIPs(MAXIMUM_IPS_PER_INTERFACE);
         executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
-        scannedIPcount = 0;
+        scannedIPcount.set(0);
 
         for (String ip : networkIPs) {
             final PresenceDetection s = new PresenceDetection(this, 2000);
@@ -143,20 +179,55 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
             executorService.execute(() -> {
                 Thread.currentThread().setName("Discovery thread " + ip);
                 s.performPresenceDetection(true);
-                synchronized (scannedIPcount) {
-                    scannedIPcount += 1;
-                    if (scannedIPcount == networkIPs.size()) {
-                        logger.trace("Scan of {} IPs successful", scannedIPcount);
-                        stopScan();
-                    }
+                int scanned = scannedIPcount.incrementAndGet();
+                if (scanned == networkIPs.size()) {
+                    logger.trace("Scan of {} IPs successful", scanned);
+                    stopScan();
+                } else if (scanned % 10 == 0) {
+                    logger.trace("Scanned {} of {} IPs", scanned, networkIPs.size());
                 }
             });
         }
     }
 
+    /**
+     * Starts a {@link NetworkSweep} of all addresses of each network and listens for DHCP requests during the scan.
+     */
+    private void startSweep() {
+        List<SubnetInfo> subnets = networkUtils.getInterfaceSubnets();
+        sweep = new NetworkSweep(this, PresenceProbeService.getInstance(), subnets, tcp_service_ports,
+                PING_TIMEOUT_IN_MS, configuration.discoveryMaxConnectionsInFlight.intValue(),
+                configuration.discoveryConnectionsPerSecond.intValue());
+
+        if (configuration.allowDHCPlisten) {
+            try {
+                DHCPListenService.registerAnyAddress(this);
+            } catch (SocketException e) {
+                logger.debug("Cannot listen for DHCP requests during the scan", e);
+            }
+        }
+
+        Thread thread = new Thread(sweep, "networkDiscoverySweep");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Called by the {@link NetworkSweep} after all connection attempts finished.
+     */
+    void sweepFinished(NetworkSweep finishedSweep) {
+        logger.trace("Scan of {} connection attempts successful", finishedSweep.getTotalConnections());
+        stopScan();
+    }
+
     @Override
     protected synchronized void stopScan() {
         super.stopScan();
+        if (sweep != null) {
+            sweep.stop();
+            sweep = null;
+            DHCPListenService.unregisterAnyAddress(this);
+        }
         if (executorService == null) {
             return;
         }
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal.discovery;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.net.util.SubnetUtils.SubnetInfo;
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.probe.PresenceProbeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans all addresses of the given networks with TCP connection attempts. The connection attempts are
+ * performed non-blocking by the {@link PresenceProbeService}, this thread only starts them: At most
+ * maxInFlight attempts are pending at the same time and at most connectionsPerSecond attempts are started
+ * per second. Large networks are scanned completely, the duration of the scan grows with the amount of addresses.
+ *
+ * Reachable services are reported to the {@link NetworkDiscoveryService} as soon as they are found.
+ *
+ * @author agent - Initial contribution
+ */
+public class NetworkSweep implements Runnable {
+    private static final int PROGRESS_STEPS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(NetworkSweep.class);
+    private final NetworkDiscoveryService discoveryService;
+    private final PresenceProbeService probeService;
+    private final List<SubnetInfo> subnets;
+    private final Set<Integer> tcpPorts;
+    private final int timeoutInMS;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final long connectIntervalInNanos;
+    private final long totalConnections;
+    private final AtomicLong finishedConnections = new AtomicLong();
+    private volatile boolean stopped;
+
+    public NetworkSweep(NetworkDiscoveryService discoveryService, PresenceProbeService probeService,
+            List<SubnetInfo> subnets, Set<Integer> tcpPorts, int timeoutInMS, int maxInFlight,
+            int connectionsPerSecond) {
+        this.discoveryService = discoveryService;
+        this.probeService = probeService;
+        this.subnets = new ArrayList<>(subnets);
+        this.tcpPorts = tcpPorts;
+        this.timeoutInMS = timeoutInMS;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.connectIntervalInNanos = TimeUnit.SECONDS.toNanos(1) / connectionsPerSecond;
+        this.totalConnections = countConnections(this.subnets, tcpPorts);
+    }
+
+    /**
+     * Return the amount of connection attempts that are necessary to scan the given networks.
+     */
+    public static long countConnections(List<SubnetInfo> subnets, Set<Integer> tcpPorts) {
+        long addresses = 0;
+        for (SubnetInfo subnet : subnets) {
+            addresses += subnet.getAddressCount();
+        }
+        return addresses * tcpPorts.size();
+    }
+
+    /**
+     * Return the amount of all connection attempts of this scan.
+     */
+    public long getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * Return the amount of finished connection attempts.
+     */
+    public long getFinishedConnections() {
+        return finishedConnections.get();
+    }
+
+    /**
+     * Stops the scan. Connection attempts in flight are not awaited.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        logger.debug("Scanning {} networks with {} connection attempts", subnets.size(), totalConnections);
+        long nextConnect = System.nanoTime();
+        try {
+            for (SubnetInfo subnet : subnets) {
+                long low = subnet.asInteger(subnet.getLowAddress()) & 0xFFFFFFFFL;
+                long high = subnet.asInteger(subnet.getHighAddress()) & 0xFFFFFFFFL;
+                for (long address = low; address <= high && !stopped; address++) {
+                    InetAddress destination = toInetAddress(address);
+                    for (int tcpPort : tcpPorts) {
+                        inFlight.acquire();
+                        long now = System.nanoTime();
+                        if (nextConnect > now) {
+                            TimeUnit.NANOSECONDS.sleep(nextConnect - now);
+                        }
+                        nextConnect = Math.max(nextConnect, now) + connectIntervalInNanos;
+                        connect(destination, tcpPort);
+                    }
+                }
+            }
+            // Wait for the connection attempts in flight
+            if (inFlight.tryAcquire(maxInFlight, timeoutInMS + 1000, TimeUnit.MILLISECONDS)) {
+                inFlight.release(maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Reset interrupt flag
+        }
+        if (!stopped) {
+            logger.debug("Scan of {} networks finished", subnets.size());
+            discoveryService.sweepFinished(this);
+        }
+    }
+
+    private void connect(InetAddress destination, int tcpPort) {
+        probeService.servicePing(destination, tcpPort, timeoutInMS).whenComplete((latency, e) -> {
+            inFlight.release();
+            if (e == null && latency != PresenceDetection.NOT_REACHABLE && !stopped) {
+                discoveryService.newServiceDevice(destination.getHostAddress(), tcpPort);
+            }
+            long finished = finishedConnections.incrementAndGet();
+            if (finished % Math.max(1, totalConnections / PROGRESS_STEPS) == 0) {
+                logger.debug("Network scan progress: {} of {} connection attempts", finished, totalConnections);
+            }
+        });
+    }
+
+    private static InetAddress toInetAddress(long address) {
+        byte[] bytes = { (byte) (address >>> 24), (byte) (address >>> 16), (byte) (address >>> 8), (byte) address };
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            // Cannot happen for an address of 4 bytes
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal.probe;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.openhab.binding.network.internal.PresenceDetectionType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A singleton, shared by all presence detections of the binding. Blocking probes like native
+ * ping and arping processes are performed by a bounded pool of worker threads, TCP connection
+ * attempts are performed non-blocking by one {@link ServicePingSelector} thread.
+ *
+ * Identical probes, that are requested while one is still in flight, are joined: All requesters
+ * get the result of the probe in flight and apply it to their own cache. Probes are identical if
+ * type, target and timeout match.
+ *
+ * For each {@see PresenceDetectionType} a {@link ProbeStatistics} object counts the probes and
+ * their latencies.
+ *
+ * @author agent - Initial contribution
+ */
+public class PresenceProbeService {
+    public static final int MAX_WORKER_THREADS = 32;
+    private static final long WORKER_KEEP_ALIVE_IN_S = 60;
+
+    private static PresenceProbeService instance;
+    private final Logger logger = LoggerFactory.getLogger(PresenceProbeService.class);
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final ServicePingSelector servicePingSelector = new ServicePingSelector();
+    private final Map<String, CompletableFuture<Double>> probesInFlight = new ConcurrentHashMap<>();
+    private final Map<PresenceDetectionType, ProbeStatistics> statistics;
+
+    /**
+     * A blocking probe, performed by a worker thread.
+     */
+    @FunctionalInterface
+    public interface Probe {
+        /**
+         * Return true if the device responded.
+         */
+        boolean run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Return the binding wide instance. It will be created if there is none yet.
+     */
+    public static synchronized PresenceProbeService getInstance() {
+        if (instance == null) {
+            instance = new PresenceProbeService();
+        }
+        return instance;
+    }
+
+    /**
+     * Stops the binding wide instance, if there is one.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.dispose();
+            instance = null;
+        }
+    }
+
+    public PresenceProbeService() {
+        this(createWorkerPool());
+    }
+
+    /**
+     * Creates a service with the given executor for blocking probes.
+     */
+    public PresenceProbeService(ExecutorService workers) {
+        this.workers = workers;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "presenceProbeTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Map<PresenceDetectionType, ProbeStatistics> statistics = new EnumMap<>(PresenceDetectionType.class);
+        for (PresenceDetectionType type : PresenceDetectionType.values()) {
+            statistics.put(type, new ProbeStatistics());
+        }
+        this.statistics = Collections.unmodifiableMap(statistics);
+    }
+
+    private static ExecutorService createWorkerPool() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_WORKER_THREADS, MAX_WORKER_THREADS,
+                WORKER_KEEP_ALIVE_IN_S, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "presenceProbe-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Performs a blocking probe on a worker thread. If an identical probe is in flight, no new
+     * probe is performed and the future of the probe in flight is returned.
+     *
+     * @param type The detection type, used for the statistics and to identify identical probes
+     * @param target A description of the probe target, for example the IP address and interface.
+     *            Used to identify identical probes.
+     * @param timeoutInMS The timeout of the probe in milliseconds. Used to identify identical probes.
+     * @param probe The probe
+     * @return A future with the latency in milliseconds or {@link PresenceDetection#NOT_REACHABLE}.
+     *         The future completes exceptionally if the probe could not be performed.
+     */
+    public CompletableFuture<Double> submit(PresenceDetectionType type, String target, int timeoutInMS,
+            Probe probe) {
+        final CompletableFuture<Double> future = new CompletableFuture<>();
+        CompletableFuture<Double> inFlight = registerProbe(type, target, timeoutInMS, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        try {
+            workers.execute(() -> {
+                try {
+                    double start = System.nanoTime();
+                    if (probe.run()) {
+                        future.complete((double) Math.round((System.nanoTime() - start) / 1000000.0f));
+                    } else {
+                        future.complete(PresenceDetection.NOT_REACHABLE);
+                    }
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // Reset interrupt flag
+                    future.complete(PresenceDetection.NOT_REACHABLE);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Try to establish a tcp connection to the given port without blocking a thread. If an
+     * identical connection attempt is in flight, its future is returned.
+     *
+     * @param destination The IP address
+     * @param port The tcp port. Must be not 0.
+     * @param timeoutInMS Timeout in milliseconds
+     * @return A future with the latency in milliseconds or {@link PresenceDetection#NOT_REACHABLE}.
+     *         A refused connection counts as reachable.
+     */
+    public CompletableFuture<Double> servicePing(InetAddress destination, int port, int timeoutInMS) {
+        final CompletableFuture<Double> future = new CompletableFuture<>();
+        CompletableFuture<Double> inFlight = registerProbe(PresenceDetectionType.TCP_CONNECTION,
+                destination.getHostAddress() + ":" + port, timeoutInMS, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        servicePingSelector.connect(new InetSocketAddress(destination, port), timeoutInMS)
+                .whenComplete((latency, e) -> {
+                    if (e != null) {
+                        future.completeExceptionally(e);
+                    } else {
+                        future.complete(latency);
+                    }
+                });
+        return future;
+    }
+
+    /**
+     * Return a future that completes after the given delay, without blocking a thread in the meantime.
+     * Dependent actions are performed by the timer thread and must not block.
+     *
+     * @param delayInMS The delay in milliseconds
+     * @return A future that completes after the delay. It completes exceptionally if the service has been disposed.
+     */
+    public CompletableFuture<Void> delay(long delayInMS) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            timer.schedule(() -> future.complete(null), delayInMS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Registers the future of a new probe. The future is removed and recorded in the statistics as soon as it
+     * completes.
+     *
+     * @return The future of an identical probe in flight or null if the given future has been registered.
+     */
+    private CompletableFuture<Double> registerProbe(PresenceDetectionType type, String target, int timeoutInMS,
+            CompletableFuture<Double> future) {
+        final String key = type + " " + target + " " + timeoutInMS;
+        CompletableFuture<Double> inFlight = probesInFlight.putIfAbsent(key, future);
+        if (inFlight != null) {
+            statistics.get(type).recordDeduplicated();
+            return inFlight;
+        }
+        future.whenComplete((latency, e) -> {
+            probesInFlight.remove(key, future);
+            statistics.get(type).record(e == null ? latency : PresenceDetection.NOT_REACHABLE);
+        });
+        return null;
+    }
+
+    /**
+     * Return the statistics of all performed probes of the given type.
+     */
+    public ProbeStatistics getStatistics(PresenceDetectionType type) {
+        return statistics.get(type);
+    }
+
+    /**
+     * Return the statistics of all performed probes per detection type.
+     */
+    public Map<PresenceDetectionType, ProbeStatistics> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Stops the worker threads, the timer thread and the TCP selector thread.
+     */
+    public void dispose() {
+        servicePingSelector.shutdown();
+        timer.shutdownNow();
+        workers.shutdownNow();
+        if (logger.isDebugEnabled()) {
+            for (Map.Entry<PresenceDetectionType, ProbeStatistics> entry : statistics.entrySet()) {
+                logger.debug("Presence probes {}: {}", entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal.probe;
+
+/**
+ * Counts the probes of one {@see PresenceDetectionType} performed by the {@link PresenceProbeService}
+ * and the latencies of the successful ones.
+ *
+ * @author agent - Initial contribution
+ */
+public class ProbeStatistics {
+    private long probes;
+    private long reachable;
+    private long deduplicated;
+    private double totalLatency;
+    private double maxLatency;
+
+    /**
+     * Records a finished probe.
+     *
+     * @param latency The latency in milliseconds or a negative value if the device was not reachable
+     */
+    synchronized void record(double latency) {
+        probes++;
+        if (latency >= 0) {
+            reachable++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+    }
+
+    /**
+     * Records a probe request, that has been answered by an identical probe already in flight.
+     */
+    synchronized void recordDeduplicated() {
+        deduplicated++;
+    }
+
+    /**
+     * Return the amount of performed probes.
+     */
+    public synchronized long getProbes() {
+        return probes;
+    }
+
+    /**
+     * Return the amount of probes that reached the device.
+     */
+    public synchronized long getReachable() {
+        return reachable;
+    }
+
+    /**
+     * Return the amount of probe requests that were joined to an identical probe in flight.
+     */
+    public synchronized long getDeduplicated() {
+        return deduplicated;
+    }
+
+    /**
+     * Return the average latency of all successful probes in milliseconds or 0 if there was none.
+     */
+    public synchronized double getAverageLatency() {
+        return reachable == 0 ? 0 : totalLatency / reachable;
+    }
+
+    /**
+     * Return the highest latency of all successful probes in milliseconds.
+     */
+    public synchronized double getMaxLatency() {
+        return maxLatency;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("probes=%d, reachable=%d, deduplicated=%d, avgLatency=%.1fms, maxLatency=%.1fms",
+                probes, reachable, deduplicated, getAverageLatency(), maxLatency);
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.network.internal.probe;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.network.internal.PresenceDetection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performs TCP connection attempts ("port knocks") with non-blocking sockets. All connection
+ * attempts of the binding are handled by one selector thread, which is started with the first attempt.
+ *
+ * A refused connection counts as reachable, because there is a device on the other end.
+ *
+ * @author agent - Initial contribution
+ */
+public class ServicePingSelector implements Runnable {
+    private final Logger logger = LoggerFactory.getLogger(ServicePingSelector.class);
+
+    private final Queue<PendingConnect> registrations = new ConcurrentLinkedQueue<>();
+    private volatile Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Starts a connection attempt to the given address.
+     *
+     * @param address The IP address and TCP port
+     * @param timeoutInMS Timeout in milliseconds
+     * @return A future with the latency in milliseconds or {@link PresenceDetection#NOT_REACHABLE}.
+     *         The future completes exceptionally if the socket cannot be created. Dependent actions
+     *         are performed by the selector thread and must not block.
+     */
+    public synchronized CompletableFuture<Double> connect(InetSocketAddress address, int timeoutInMS) {
+        PendingConnect pending = new PendingConnect(address, timeoutInMS);
+        try {
+            if (thread == null) {
+                selector = Selector.open();
+                running = true;
+                thread = new Thread(this, "presenceProbeTCP");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (IOException e) {
+            pending.future.completeExceptionally(e);
+            return pending.future;
+        }
+        registrations.add(pending);
+        selector.wakeup();
+        return pending.future;
+    }
+
+    /**
+     * Stops the selector thread. Pending connection attempts are completed as not reachable.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        if (thread != null) {
+            selector.wakeup();
+            thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        final Selector selector = this.selector;
+        try {
+            while (running && this.selector == selector) {
+                selector.select(registerPending(selector));
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isConnectable()) {
+                        finishConnect(key);
+                    }
+                }
+                expireTimedOut(selector);
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.warn("TCP presence detection stopped", e);
+        } finally {
+            closeAll(selector);
+        }
+    }
+
+    /**
+     * Starts the connection attempts which have been requested in the meantime.
+     *
+     * @return The time in milliseconds until the next connection attempt times out, or 0 if there is none.
+     */
+    private long registerPending(Selector selector) {
+        PendingConnect pending;
+        while ((pending = registrations.poll()) != null) {
+            try {
+                SocketChannel channel = SocketChannel.open();
+                pending.channel = channel;
+                channel.configureBlocking(false);
+                if (channel.connect(pending.address)) {
+                    pending.complete(true);
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, pending);
+                }
+            } catch (ConnectException e) {
+                pending.complete(true);
+            } catch (IOException e) {
+                logger.trace("Could not connect to {}", pending.address, e);
+                pending.complete(false);
+            }
+        }
+
+        long now = System.nanoTime();
+        long nextDeadline = Long.MAX_VALUE;
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid()) {
+                continue;
+            }
+            nextDeadline = Math.min(nextDeadline, ((PendingConnect) key.attachment()).deadline);
+        }
+        if (nextDeadline == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDeadline - now));
+    }
+
+    private void finishConnect(SelectionKey key) {
+        PendingConnect pending = (PendingConnect) key.attachment();
+        try {
+            pending.channel.finishConnect();
+            pending.complete(true);
+        } catch (ConnectException e) {
+            // Connection refused, there is a device on the other end though
+            pending.complete(true);
+        } catch (IOException e) {
+            // No route to host and similar errors
+            pending.complete(false);
+        }
+    }
+
+    private void expireTimedOut(Selector selector) {
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            PendingConnect pending = (PendingConnect) key.attachment();
+            if (key.isValid() && now - pending.deadline >= 0) {
+                pending.complete(false);
+            }
+        }
+    }
+
+    private void closeAll(Selector selector) {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                ((PendingConnect) key.attachment()).complete(false);
+            }
+        } catch (ClosedSelectorException ignored) {
+        }
+        // Requests for a restarted selector thread are left in the queue
+        PendingConnect pending;
+        while (!running && (pending = registrations.poll()) != null) {
+            pending.complete(false);
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * A connection attempt in flight.
+     */
+    private static class PendingConnect {
+        final CompletableFuture<Double> future = new CompletableFuture<>();
+        final InetSocketAddress address;
+        final long start = System.nanoTime();
+        final long deadline;
+        SocketChannel channel;
+
+        PendingConnect(InetSocketAddress address, int timeoutInMS) {
+            this.address = address;
+            this.deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutInMS);
+        }
+
+        /**
+         * Closes the socket and completes the future with the latency or as not reachable.
+         */
+        void complete(boolean reachable) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            if (reachable) {
+                future.complete((double) Math.round((System.nanoTime() - start) / 1000000.0f));
+            } else {
+                future.complete(PresenceDetection.NOT_REACHABLE);
+            }
+        }
+    }
+}
@@ -9,28 +9,28 @@
 package org.openhab.binding.network.internal.utils;
 
 import java.io.IOException;
-import java.net.ConnectException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.InetSocketAddress;
 import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
-import java.net.NoRouteToHostException;
 import java.net.PortUnreachableException;
-import java.net.Socket;
-import java.net.SocketAddress;
 import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.apache.commons.net.util.SubnetUtils;
+import org.apache.commons.net.util.SubnetUtils.SubnetInfo;
 import org.eclipse.smarthome.io.net.exec.ExecUtil;
 
 /**
@@ -39,6 +39,8 @@ import org.eclipse.smarthome.io.net.exec.ExecUtil;
  * @author David Graeff <david.graeff@web.de>
  */
 public class NetworkUtils {
+    private static final int PROCESS_GRACE_TIME_IN_MS = 1000;
+
     /**
      * Gets every IPv4 Address on each Interface except the loopback
      * The Address format is ip/subnet
@@ -144,29 +146,27 @@ public class NetworkUtils {
     }
 
     /**
-     * Try to establish a tcp connection to the given port. Returns false if a timeout occurred
-     * or the connection was denied.
+     * Determines the IPv4 networks of all interfaces. A network that is assigned to more than
+     * one interface is returned only once. In contrast to {@link #getNetworkIPs(int)} the
+     * addresses are not enumerated, which makes this method suitable for large networks.
      *
-     * @param host The IP or hostname
-     * @param port The tcp port. Must be not 0.
-     * @param timeout Timeout in ms
-     * @param logger A slf4j logger instance to log IOException
-     * @return
-     * @throws IOException
+     * @return The subnet information of every network with at least one assignable address
      */
-    public boolean servicePing(String host, int port, int timeout) throws IOException {
-        SocketAddress socketAddress = new InetSocketAddress(host, port);
-        try (Socket socket = new Socket()) {
-            socket.connect(socketAddress, timeout);
-            return true;
-        } catch (NoRouteToHostException ignored) {
-            return false;
-        } catch (SocketTimeoutException ignored) {
-            return false;
-        } catch (ConnectException e) {
-            // Connection refused, there is a device on the other end though
-            return true;
+    public List<SubnetInfo> getInterfaceSubnets() {
+        Map<String, SubnetInfo> subnets = new LinkedHashMap<>();
+
+        for (String interfaceIP : getInterfaceIPs()) {
+            try {
+                SubnetInfo info = new SubnetUtils(interfaceIP).getInfo();
+                if (info.getAddressCount() > 0) {
+                    subnets.putIfAbsent(info.getNetworkAddress() + "/" + info.getNetmask(), info);
+                }
+            } catch (IllegalArgumentException ignored) {
+                // IPv6 networks are not supported
+            }
         }
+
+        return new ArrayList<>(subnets.values());
     }
 
     /**
@@ -256,7 +256,7 @@ public class NetworkUtils {
 
         // The return code is 0 for a successful ping. 1 if device didn't respond and 2 if there is another error like
         // network interface not ready.
-        return proc.waitFor() == 0;
+        return waitForSuccess(proc, timeoutInMS);
     }
 
     public enum ArpPingUtilEnum {
@@ -295,7 +295,22 @@ public class NetworkUtils {
 
         // The return code is 0 for a successful ping. 1 if device didn't respond and 2 if there is another error like
         // network interface not ready.
-        return proc.waitFor() == 0;
+        return waitForSuccess(proc, timeoutInMS);
+    }
+
+    /**
+     * Waits for a ping utility to finish. The utilities only accept timeouts in seconds, therefore
+     * the process is destroyed if it is still running a grace time after the given timeout.
+     * Ping workers are a bounded resource and must not be blocked by a hanging process.
+     *
+     * @return Return true if the process returned 0
+     */
+    private boolean waitForSuccess(Process proc, int timeoutInMS) throws InterruptedException {
+        if (!proc.waitFor(timeoutInMS + PROCESS_GRACE_TIME_IN_MS, TimeUnit.MILLISECONDS)) {
+            proc.destroyForcibly();
+            return false;
+        }
+        return proc.exitValue() == 0;
     }
 
     /**
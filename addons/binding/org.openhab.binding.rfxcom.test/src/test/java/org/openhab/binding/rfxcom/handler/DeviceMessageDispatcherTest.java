@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.rfxcom.handler;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.rfxcom.internal.DeviceMessageListener;
+import org.openhab.binding.rfxcom.internal.exceptions.RFXComException;
+import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
+import org.openhab.binding.rfxcom.internal.messages.RFXComDeviceMessage;
+import org.openhab.binding.rfxcom.internal.messages.RFXComMessageFactory;
+
+/**
+ * Test for {@link DeviceMessageDispatcher}.
+ *
+ * @author agent - Initial contribution
+ */
+public class DeviceMessageDispatcherTest {
+
+    private static final long DUPLICATE_WINDOW = 500;
+
+    // temperature messages of device 64257, the second one repeats the first one with another sequence number
+    private static final String FRAME = "0850021DFB0100D770";
+    private static final String REPEATED_FRAME = "0850021EFB0100D770";
+    private static final String CHANGED_FRAME = "0850021FFB0100D870";
+    private static final String OTHER_DEVICE_FRAME = "08500502770000D389";
+
+    private static class TestListener implements DeviceMessageListener {
+        @Override
+        public void onDeviceMessageReceived(ThingUID bridge, RFXComDeviceMessage message) throws RFXComException {
+        }
+    }
+
+    private DeviceMessageDispatcher dispatcher;
+    private DeviceMessageListener deviceListener = new TestListener();
+    private DeviceMessageListener discoveryListener = new TestListener();
+
+    @Before
+    public void setUp() {
+        dispatcher = new DeviceMessageDispatcher();
+        dispatcher.setDuplicateWindow(DUPLICATE_WINDOW);
+        dispatcher.addListener(Collections.singletonList(PacketType.TEMPERATURE), "64257", deviceListener);
+    }
+
+    private List<DeviceMessageListener> route(String hexMsg, long now) throws RFXComException {
+        byte[] packet = DatatypeConverter.parseHexBinary(hexMsg);
+        return dispatcher.route((RFXComDeviceMessage) RFXComMessageFactory.createMessage(packet), packet, now);
+    }
+
+    @Test
+    public void testRouting() throws RFXComException {
+        assertEquals(Collections.singletonList(deviceListener), route(FRAME, 0));
+        assertTrue(route(OTHER_DEVICE_FRAME, 0).isEmpty());
+
+        assertEquals(2, dispatcher.getReceived());
+        assertEquals(1, dispatcher.getUnrouted());
+    }
+
+    @Test
+    public void testListenerOfAllMessages() throws RFXComException {
+        dispatcher.addListener(discoveryListener);
+
+        List<DeviceMessageListener> listeners = route(FRAME, 0);
+        assertEquals(2, listeners.size());
+        assertTrue(listeners.contains(deviceListener));
+        assertTrue(listeners.contains(discoveryListener));
+        assertEquals(Collections.singletonList(discoveryListener), route(OTHER_DEVICE_FRAME, 0));
+    }
+
+    @Test
+    public void testRemoveListener() throws RFXComException {
+        assertTrue(dispatcher.removeListener(deviceListener));
+        assertFalse(dispatcher.removeListener(deviceListener));
+        assertTrue(route(FRAME, 0).isEmpty());
+        assertEquals(1, dispatcher.getUnrouted());
+    }
+
+    @Test
+    public void testRegisterOtherDevice() throws RFXComException {
+        dispatcher.addListener(Collections.singletonList(PacketType.TEMPERATURE), "30464", deviceListener);
+
+        assertTrue(route(FRAME, 0).isEmpty());
+        assertEquals(Collections.singletonList(deviceListener), route(OTHER_DEVICE_FRAME, 0));
+    }
+
+    @Test
+    public void testDuplicateSuppression() throws RFXComException {
+        assertFalse(route(FRAME, 0).isEmpty());
+        assertTrue(route(REPEATED_FRAME, 100).isEmpty());
+        assertFalse(route(CHANGED_FRAME, 200).isEmpty());
+        assertFalse(route(REPEATED_FRAME, 300).isEmpty());
+        assertFalse(route(REPEATED_FRAME, 300 + DUPLICATE_WINDOW + 1).isEmpty());
+
+        assertEquals(5, dispatcher.getReceived());
+        assertEquals(1, dispatcher.getDeduplicated());
+    }
+
+    @Test
+    public void testDuplicateSuppressionDisabled() throws RFXComException {
+        dispatcher.setDuplicateWindow(0);
+
+        assertFalse(route(FRAME, 0).isEmpty());
+        assertFalse(route(REPEATED_FRAME, 0).isEmpty());
+        assertEquals(0, dispatcher.getDeduplicated());
+    }
+}
@@ -52,6 +52,11 @@ public class RFXComBindingConstants {
     public static final Set<ThingTypeUID> DISCOVERABLE_BRIDGE_THING_TYPES_UIDS = ImmutableSet.of(BRIDGE_RFXTRX443,
             BRIDGE_RFXTRX315, BRIDGE_RFXREC443);
 
+    // List of all bridge properties
+    public static final String PROPERTY_RECEIVED_MESSAGES = "receivedMessages";
+    public static final String PROPERTY_DEDUPLICATED_MESSAGES = "deduplicatedMessages";
+    public static final String PROPERTY_UNROUTED_MESSAGES = "unroutedMessages";
+
     // List of all Channel ids
     public static final String CHANNEL_RAW_MESSAGE = "rawMessage";
     public static final String CHANNEL_RAW_PAYLOAD = "rawPayload";
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.rfxcom.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.openhab.binding.rfxcom.internal.DeviceMessageListener;
+import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
+import org.openhab.binding.rfxcom.internal.messages.RFXComDeviceMessage;
+
+/**
+ * The {@link DeviceMessageDispatcher} decides which {@link DeviceMessageListener}s receive a device message of a
+ * single RFXCOM bridge.
+ *
+ * Listeners of a device are indexed by packet type and device id, listeners of all messages (e.g. the discovery
+ * service) receive every message. Many RF devices send each frame several times in a row, a frame with the same
+ * packet type, device id and payload as the previous one is dropped if it is received within the duplicate window.
+ *
+ * All methods take the current time in milliseconds, which keeps the dispatcher independent of a clock.
+ *
+ * @author agent - Initial contribution
+ */
+final class DeviceMessageDispatcher {
+
+    /** number of remembered frames above which expired frames are removed */
+    static final int MAX_FRAMES = 256;
+
+    /** position of the sequence number, which is incremented by the transceiver for every received frame */
+    private static final int SEQ_NBR_INDEX = 3;
+
+    private static class Frame {
+        private final byte[] data;
+        private final long received;
+
+        private Frame(byte[] data, long received) {
+            this.data = data;
+            this.received = received;
+        }
+    }
+
+    private final List<DeviceMessageListener> messageListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, List<DeviceMessageListener>> deviceListeners = new ConcurrentHashMap<>();
+
+    private final Map<String, Frame> lastFrames = new HashMap<>();
+    private long duplicateWindow;
+
+    // statistics
+    private long received;
+    private long deduplicated;
+    private long unrouted;
+
+    /**
+     * Sets the window in which repeated frames are dropped, 0 disables the suppression.
+     *
+     * @param duplicateWindow the window in milliseconds
+     */
+    synchronized void setDuplicateWindow(long duplicateWindow) {
+        this.duplicateWindow = duplicateWindow;
+        lastFrames.clear();
+    }
+
+    /**
+     * Adds a listener for all device messages.
+     *
+     * @param listener the listener to add
+     * @return true if the listener was added
+     */
+    boolean addListener(DeviceMessageListener listener) {
+        return messageListeners.contains(listener) ? false : messageListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener for the messages of a single device. Previous registrations of the listener for other devices
+     * are removed.
+     *
+     * @param packetTypes the packet types of the device
+     * @param deviceId the id of the device
+     * @param listener the listener to add
+     * @return true if the listener was added
+     */
+    synchronized boolean addListener(Iterable<PacketType> packetTypes, String deviceId,
+            DeviceMessageListener listener) {
+        List<String> keys = new ArrayList<>();
+        for (PacketType packetType : packetTypes) {
+            keys.add(getKey(packetType, deviceId));
+        }
+
+        boolean added = false;
+        for (Iterator<Map.Entry<String, List<DeviceMessageListener>>> iterator = deviceListeners.entrySet()
+                .iterator(); iterator.hasNext();) {
+            Map.Entry<String, List<DeviceMessageListener>> entry = iterator.next();
+            if (!keys.contains(entry.getKey()) && entry.getValue().remove(listener) && entry.getValue().isEmpty()) {
+                iterator.remove();
+            }
+        }
+        for (String key : keys) {
+            List<DeviceMessageListener> listeners = deviceListeners.get(key);
+            if (listeners == null) {
+                listeners = new CopyOnWriteArrayList<>();
+                deviceListeners.put(key, listeners);
+            }
+            if (!listeners.contains(listener)) {
+                added = listeners.add(listener);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes a listener of all device messages or of a single device.
+     *
+     * @param listener the listener to remove
+     * @return true if the listener was registered
+     */
+    synchronized boolean removeListener(DeviceMessageListener listener) {
+        boolean removed = messageListeners.remove(listener);
+        for (Iterator<List<DeviceMessageListener>> iterator = deviceListeners.values().iterator(); iterator
+                .hasNext();) {
+            List<DeviceMessageListener> listeners = iterator.next();
+            if (listeners.remove(listener)) {
+                removed = true;
+                if (listeners.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all listeners.
+     */
+    synchronized void removeAllListeners() {
+        messageListeners.clear();
+        deviceListeners.clear();
+    }
+
+    /**
+     * Determines the listeners of a received device message.
+     *
+     * @param message the received message
+     * @param packet the raw data of the message
+     * @param now the current time in milliseconds
+     * @return the listeners to notify, empty if the message repeats a recently received frame
+     */
+    synchronized List<DeviceMessageListener> route(RFXComDeviceMessage message, byte[] packet, long now) {
+        received++;
+        String key = getKey(message.getPacketType(), message.getDeviceId());
+        if (isDuplicate(key, packet, now)) {
+            deduplicated++;
+            return Collections.emptyList();
+        }
+
+        List<DeviceMessageListener> listeners = deviceListeners.get(key);
+        if (listeners == null) {
+            unrouted++;
+            return messageListeners;
+        }
+        if (messageListeners.isEmpty()) {
+            return listeners;
+        }
+        List<DeviceMessageListener> result = new ArrayList<>(listeners);
+        result.addAll(messageListeners);
+        return result;
+    }
+
+    private boolean isDuplicate(String key, byte[] packet, long now) {
+        if (duplicateWindow <= 0) {
+            return false;
+        }
+
+        Frame last = lastFrames.get(key);
+        if (last != null && now - last.received <= duplicateWindow && isSamePayload(last.data, packet)) {
+            return true;
+        }
+
+        if (lastFrames.size() >= MAX_FRAMES) {
+            for (Iterator<Frame> iterator = lastFrames.values().iterator(); iterator.hasNext();) {
+                if (now - iterator.next().received > duplicateWindow) {
+                    iterator.remove();
+                }
+            }
+        }
+        lastFrames.put(key, new Frame(packet, now));
+        return false;
+    }
+
+    private static boolean isSamePayload(byte[] data1, byte[] data2) {
+        if (data1.length != data2.length) {
+            return false;
+        }
+        for (int i = 0; i < data1.length; i++) {
+            if (i != SEQ_NBR_INDEX && data1[i] != data2[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getKey(PacketType packetType, String deviceId) {
+        return packetType + ":" + deviceId;
+    }
+
+    /**
+     * @return the number of received device messages
+     */
+    synchronized long getReceived() {
+        return received;
+    }
+
+    /**
+     * @return the number of dropped repeated frames
+     */
+    synchronized long getDeduplicated() {
+        return deduplicated;
+    }
+
+    /**
+     * @return the number of device messages without a listener for the device
+     */
+    synchronized long getUnrouted() {
+        return unrouted;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "received=" + received + ", deduplicated=" + deduplicated + ", unrouted=" + unrouted + ", devices="
+                + deviceListeners.size() + ", duplicate window=" + duplicateWindow + " ms";
+    }
+}
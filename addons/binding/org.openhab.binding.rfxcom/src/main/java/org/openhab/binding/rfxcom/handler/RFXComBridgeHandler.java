@@ -9,9 +9,10 @@
 package org.openhab.binding.rfxcom.handler;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -23,8 +24,10 @@ import org.eclipse.smarthome.core.thing.Bridge;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
+import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseBridgeHandler;
 import org.eclipse.smarthome.core.types.Command;
+import org.openhab.binding.rfxcom.RFXComBindingConstants;
 import org.openhab.binding.rfxcom.internal.DeviceMessageListener;
 import org.openhab.binding.rfxcom.internal.config.RFXComBridgeConfiguration;
 import org.openhab.binding.rfxcom.internal.connector.RFXComConnectorInterface;
@@ -35,6 +38,7 @@ import org.openhab.binding.rfxcom.internal.connector.RFXComTcpConnector;
 import org.openhab.binding.rfxcom.internal.exceptions.RFXComException;
 import org.openhab.binding.rfxcom.internal.exceptions.RFXComMessageNotImplementedException;
 import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage;
+import org.openhab.binding.rfxcom.internal.messages.RFXComBaseMessage.PacketType;
 import org.openhab.binding.rfxcom.internal.messages.RFXComDeviceMessage;
 import org.openhab.binding.rfxcom.internal.messages.RFXComInterfaceControlMessage;
 import org.openhab.binding.rfxcom.internal.messages.RFXComInterfaceMessage;
@@ -61,10 +65,11 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
     private RFXComConnectorInterface connector = null;
     private MessageListener eventListener = new MessageListener();
 
-    private List<DeviceMessageListener> deviceStatusListeners = new CopyOnWriteArrayList<>();
+    private DeviceMessageDispatcher dispatcher = new DeviceMessageDispatcher();
 
     private RFXComBridgeConfiguration configuration = null;
     private ScheduledFuture<?> connectorTask;
+    private ScheduledFuture<?> statisticsTask;
 
     private class TransmitQueue {
         private Queue<RFXComBaseMessage> queue = new LinkedBlockingQueue<>();
@@ -117,9 +122,8 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
     public synchronized void dispose() {
         logger.debug("Handler disposed.");
 
-        for (DeviceMessageListener deviceStatusListener : deviceStatusListeners) {
-            unregisterDeviceStatusListener(deviceStatusListener);
-        }
+        logger.debug("Device message statistics: {}", dispatcher);
+        dispatcher.removeAllListeners();
 
         if (connector != null) {
             connector.removeEventListener(eventListener);
@@ -132,6 +136,11 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
             connectorTask = null;
         }
 
+        if (statisticsTask != null) {
+            statisticsTask.cancel(true);
+            statisticsTask = null;
+        }
+
         super.dispose();
     }
 
@@ -141,6 +150,7 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
         updateStatus(ThingStatus.OFFLINE);
 
         configuration = getConfigAs(RFXComBridgeConfiguration.class);
+        dispatcher.setDuplicateWindow(configuration.duplicateWindow);
 
         if (connectorTask == null || connectorTask.isCancelled()) {
             connectorTask = scheduler.scheduleWithFixedDelay(new Runnable() {
@@ -154,6 +164,18 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
                 }
             }, 0, 60, TimeUnit.SECONDS);
         }
+
+        if (statisticsTask == null || statisticsTask.isCancelled()) {
+            statisticsTask = scheduler.scheduleWithFixedDelay(this::updateStatistics, 60, 60, TimeUnit.SECONDS);
+        }
+    }
+
+    private void updateStatistics() {
+        logger.debug("Device message statistics: {}", dispatcher);
+        updateProperty(RFXComBindingConstants.PROPERTY_RECEIVED_MESSAGES, String.valueOf(dispatcher.getReceived()));
+        updateProperty(RFXComBindingConstants.PROPERTY_DEDUPLICATED_MESSAGES,
+                String.valueOf(dispatcher.getDeduplicated()));
+        updateProperty(RFXComBindingConstants.PROPERTY_UNROUTED_MESSAGES, String.valueOf(dispatcher.getUnrouted()));
     }
 
     private synchronized void connect() {
@@ -285,10 +307,11 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
 
                     transmitQueue.sendNext();
                 } else if (message instanceof RFXComDeviceMessage) {
-                    for (DeviceMessageListener deviceStatusListener : deviceStatusListeners) {
+                    RFXComDeviceMessage deviceMessage = (RFXComDeviceMessage) message;
+                    for (DeviceMessageListener deviceStatusListener : dispatcher.route(deviceMessage, packet,
+                            System.currentTimeMillis())) {
                         try {
-                            deviceStatusListener.onDeviceMessageReceived(getThing().getUID(),
-                                    (RFXComDeviceMessage) message);
+                            deviceStatusListener.onDeviceMessageReceived(getThing().getUID(), deviceMessage);
                         } catch (Exception e) {
                             // catch all exceptions give all handlers a fair chance of handling the messages
                             logger.error("An exception occurred while calling the DeviceStatusListener", e);
@@ -315,19 +338,47 @@ public class RFXComBridgeHandler extends BaseBridgeHandler {
         }
     }
 
+    /**
+     * Registers a listener for the messages of all devices.
+     *
+     * @param deviceStatusListener the listener to register
+     * @return true if the listener was registered
+     */
     public boolean registerDeviceStatusListener(DeviceMessageListener deviceStatusListener) {
         if (deviceStatusListener == null) {
             throw new IllegalArgumentException("It's not allowed to pass a null deviceStatusListener.");
         }
-        return deviceStatusListeners.contains(deviceStatusListener) ? false
-                : deviceStatusListeners.add(deviceStatusListener);
+        return dispatcher.addListener(deviceStatusListener);
+    }
+
+    /**
+     * Registers a listener for the messages of a single device.
+     *
+     * @param thingTypeUID the thing type of the device
+     * @param deviceId the id of the device
+     * @param deviceStatusListener the listener to register
+     * @return true if the listener was registered
+     */
+    public boolean registerDeviceStatusListener(ThingTypeUID thingTypeUID, String deviceId,
+            DeviceMessageListener deviceStatusListener) {
+        if (deviceStatusListener == null) {
+            throw new IllegalArgumentException("It's not allowed to pass a null deviceStatusListener.");
+        }
+        List<PacketType> packetTypes = new ArrayList<>();
+        for (Map.Entry<PacketType, ThingTypeUID> entry : RFXComBindingConstants.PACKET_TYPE_THING_TYPE_UID_MAP
+                .entrySet()) {
+            if (entry.getValue().equals(thingTypeUID)) {
+                packetTypes.add(entry.getKey());
+            }
+        }
+        return dispatcher.addListener(packetTypes, deviceId, deviceStatusListener);
     }
 
     public boolean unregisterDeviceStatusListener(DeviceMessageListener deviceStatusListener) {
         if (deviceStatusListener == null) {
             throw new IllegalArgumentException("It's not allowed to pass a null deviceStatusListener.");
         }
-        return deviceStatusListeners.remove(deviceStatusListener);
+        return dispatcher.removeListener(deviceStatusListener);
     }
 
     public RFXComBridgeConfiguration getConfiguration() {
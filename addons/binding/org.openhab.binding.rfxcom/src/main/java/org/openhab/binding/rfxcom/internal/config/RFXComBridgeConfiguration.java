@@ -36,6 +36,9 @@ public class RFXComBridgeConfiguration {
     // Prevent unknown devices from being added to the inbox
     public boolean disableDiscovery;
 
+    // Window in milliseconds in which repeated frames of a device are dropped
+    public int duplicateWindow;
+
     public int transmitPower;
 
     // Won't configure protocols to RFXCOM transceiver
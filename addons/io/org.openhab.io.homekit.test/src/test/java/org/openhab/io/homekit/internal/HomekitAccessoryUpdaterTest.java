@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.homekit.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.items.GenericItem;
+import org.eclipse.smarthome.core.library.items.NumberItem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests cases for {@link HomekitAccessoryUpdater}
+ *
+ * @author agent - Initial contribution
+ */
+public class HomekitAccessoryUpdaterTest {
+    private static final long NOTIFICATION_INTERVAL_MS = 250;
+    private static final int ACCESSORIES = 500;
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 500000;
+
+    private final Logger logger = LoggerFactory.getLogger(HomekitAccessoryUpdaterTest.class);
+    private ScheduledExecutorService scheduler;
+    private HomekitAccessoryUpdater updater;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newScheduledThreadPool(2);
+        updater = new HomekitAccessoryUpdater(scheduler, NOTIFICATION_INTERVAL_MS);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void onlySubscriptionsOfTheItemAreNotifiedTest() {
+        AtomicInteger light = new AtomicInteger();
+        AtomicInteger brightness = new AtomicInteger();
+        AtomicInteger other = new AtomicInteger();
+        GenericItem lightItem = new NumberItem("light");
+        updater.subscribe(lightItem, light::incrementAndGet);
+        updater.subscribe(lightItem, "brightness", brightness::incrementAndGet);
+        updater.subscribe(new NumberItem("other"), other::incrementAndGet);
+
+        updater.stateChanged("light");
+        updater.stateChanged("unknown");
+
+        assertThat(light.get(), is(1));
+        assertThat(brightness.get(), is(1));
+        assertThat(other.get(), is(0));
+    }
+
+    @Test
+    public void unsubscribedCallbackIsNotNotifiedTest() {
+        AtomicInteger light = new AtomicInteger();
+        AtomicInteger brightness = new AtomicInteger();
+        GenericItem lightItem = new NumberItem("light");
+        updater.subscribe(lightItem, light::incrementAndGet);
+        updater.subscribe(lightItem, "brightness", brightness::incrementAndGet);
+
+        updater.unsubscribe(lightItem);
+        updater.stateChanged("light");
+
+        assertThat(light.get(), is(0));
+        assertThat(brightness.get(), is(1));
+    }
+
+    @Test
+    public void changesWithinTheIntervalAreCoalescedTest() throws InterruptedException {
+        AtomicInteger notifications = new AtomicInteger();
+        updater.subscribe(new NumberItem("dimmer"), notifications::incrementAndGet);
+
+        for (int i = 0; i < 100; i++) {
+            updater.stateChanged("dimmer");
+        }
+        // the first change is passed on immediately, the others at the end of the interval
+        assertThat(notifications.get(), is(1));
+        Thread.sleep(2 * NOTIFICATION_INTERVAL_MS);
+        assertThat(notifications.get(), is(2));
+    }
+
+    /**
+     * 500 accessories with two characteristics each receive a storm of state changes from several threads.
+     * Every characteristic is notified at most once per interval, plus the trailing notification.
+     */
+    @Test
+    public void stateChangeStormBenchmarkTest() throws InterruptedException {
+        List<AtomicInteger> notifications = new ArrayList<>();
+        for (int i = 0; i < ACCESSORIES; i++) {
+            GenericItem item = new NumberItem("accessory" + i);
+            AtomicInteger state = new AtomicInteger();
+            AtomicInteger brightness = new AtomicInteger();
+            updater.subscribe(item, state::incrementAndGet);
+            updater.subscribe(item, "brightness", brightness::incrementAndGet);
+            notifications.add(state);
+            notifications.add(brightness);
+        }
+
+        long start = System.nanoTime();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    updater.stateChanged("accessory" + (i % ACCESSORIES));
+                }
+            }, "homekitProducer" + p);
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Thread.sleep(2 * NOTIFICATION_INTERVAL_MS);
+
+        long maxNotifications = elapsedMs / NOTIFICATION_INTERVAL_MS + 2;
+        long total = 0;
+        for (AtomicInteger count : notifications) {
+            assertTrue(count.get() >= 1);
+            assertTrue(count.get() <= maxNotifications);
+            total += count.get();
+        }
+        logger.info("{} state changes of {} accessories in {} ms caused {} notifications",
+                PRODUCERS * EVENTS_PER_PRODUCER, ACCESSORIES, elapsedMs, total);
+    }
+}
@@ -9,13 +9,16 @@
 package org.openhab.io.homekit.internal;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.io.homekit.internal.accessories.GroupedAccessory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,40 +30,80 @@ import com.beowulfe.hap.HomekitRoot;
  * Stores the created HomekitAccessories. GroupedAccessories are also held here
  * in a pre-created pending state until all required characteristics are found.
  *
+ * Every accessory added to or removed from a running bridge makes the Homekit clients reload the
+ * bridge configuration. So changes are not passed to the bridge one by one: They are published
+ * together once no further change happened for a quiet period, or when a batch ends.
+ *
  * @author Andy Lintner
  */
 class HomekitAccessoryRegistry {
 
+    private static final String THREADPOOL_HOMEKIT = "homekit";
+    private static final long QUIET_PERIOD_MS = 1000;
+
     private HomekitRoot bridge;
-    private final List<HomekitAccessory> createdAccessories = new LinkedList<>();
-    private final Set<Integer> createdIds = new HashSet<>();
+    // the created accessories by their id
+    private final Map<Integer, HomekitAccessory> createdAccessories = new LinkedHashMap<>();
+    // the accessories which have been added to the bridge by their id
+    private final Map<Integer, HomekitAccessory> publishedAccessories = new HashMap<>();
     private final Map<String, GroupedAccessory> pendingGroupedAccessories = new HashMap<>();
     private final List<HomekitTaggedItem> pendingCharacteristics = new LinkedList<>();
 
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> publishJob;
+    private int batchDepth;
+    private int publishCount;
+
     private final Logger logger = LoggerFactory.getLogger(HomekitAccessoryRegistry.class);
 
-    public void remove(HomekitTaggedItem taggedItem) {
-        Iterator<HomekitAccessory> i = createdAccessories.iterator();
-        while (i.hasNext()) {
-            HomekitAccessory accessory = i.next();
-            if (accessory.getId() == taggedItem.getId()) {
-                logger.debug("Removed accessory {}", accessory.getId());
-                bridge.removeAccessory(accessory);
-                i.remove();
-            }
+    HomekitAccessoryRegistry() {
+        this(ThreadPoolManager.getScheduledPool(THREADPOOL_HOMEKIT));
+    }
+
+    HomekitAccessoryRegistry(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public synchronized void remove(HomekitTaggedItem taggedItem) {
+        HomekitAccessory accessory = createdAccessories.remove(taggedItem.getId());
+        if (accessory != null) {
+            logger.debug("Removed accessory {}", accessory.getId());
+            schedulePublish();
         }
     }
 
     public synchronized void clear() {
-        while (!createdAccessories.isEmpty()) {
-            bridge.removeAccessory(createdAccessories.remove(0));
-        }
-        createdIds.clear();
+        createdAccessories.clear();
+        publish();
     }
 
     public synchronized void setBridge(HomekitRoot bridge) {
+        cancelPublish();
+        publishedAccessories.clear();
         this.bridge = bridge;
-        createdAccessories.forEach(accessory -> bridge.addAccessory(accessory));
+        publish();
+    }
+
+    /**
+     * Starts a batch of changes. The changes are not published before the batch has ended.
+     * Batches may be nested.
+     */
+    public synchronized void beginBatch() {
+        batchDepth++;
+        cancelPublish();
+    }
+
+    /**
+     * Ends a batch of changes. The changes are published after the quiet period, if this was the outermost batch.
+     */
+    public synchronized void endBatch() {
+        if (batchDepth > 0 && --batchDepth == 0) {
+            schedulePublish();
+        }
+    }
+
+    public synchronized int size() {
+        return createdAccessories.size();
     }
 
     public synchronized void addRootDevice(HomekitAccessory accessory) {
@@ -99,12 +142,61 @@ class HomekitAccessoryRegistry {
     }
 
     private void doAddDevice(HomekitAccessory accessory) {
-        createdAccessories.add(accessory);
-        createdIds.add(accessory.getId());
-        if (bridge != null) {
-            bridge.addAccessory(accessory);
-        }
+        createdAccessories.put(accessory.getId(), accessory);
+        schedulePublish();
         logger.debug("Added accessory {}", accessory.getId());
     }
 
+    private void schedulePublish() {
+        if (bridge == null || batchDepth > 0) {
+            return;
+        }
+        cancelPublish();
+        publishJob = scheduler.schedule(() -> {
+            synchronized (HomekitAccessoryRegistry.this) {
+                publishJob = null;
+                publish();
+            }
+        }, QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelPublish() {
+        if (publishJob != null) {
+            publishJob.cancel(false);
+            publishJob = null;
+        }
+    }
+
+    /**
+     * Brings the accessories of the bridge in line with the created accessories.
+     */
+    private void publish() {
+        if (bridge == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        int removed = 0;
+        int added = 0;
+        Iterator<Map.Entry<Integer, HomekitAccessory>> i = publishedAccessories.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<Integer, HomekitAccessory> entry = i.next();
+            if (createdAccessories.get(entry.getKey()) != entry.getValue()) {
+                bridge.removeAccessory(entry.getValue());
+                i.remove();
+                removed++;
+            }
+        }
+        for (HomekitAccessory accessory : createdAccessories.values()) {
+            if (!publishedAccessories.containsKey(accessory.getId())) {
+                bridge.addAccessory(accessory);
+                publishedAccessories.put(accessory.getId(), accessory);
+                added++;
+            }
+        }
+        if (added > 0 || removed > 0) {
+            publishCount++;
+            logger.debug("Published bridge update {} ({} accessories added, {} removed) in {} ms", publishCount,
+                    added, removed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
 }
@@ -8,13 +8,15 @@
  */
 package org.openhab.io.homekit.internal;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.GenericItem;
-import org.eclipse.smarthome.core.items.Item;
-import org.eclipse.smarthome.core.items.StateChangeListener;
-import org.eclipse.smarthome.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,12 +28,32 @@ import com.beowulfe.hap.HomekitCharacteristicChangeCallback;
  * Homekit library takes care of insuring only a single subscription exists for
  * each accessory.
  *
+ * The subscriptions are indexed by item name and are notified by {@link #stateChanged(String)}, which is called
+ * for the state changed events of all items and groups. A subscription is notified at most once per notification
+ * interval: Further changes within the interval are coalesced into one notification at the end of the interval.
+ *
  * @author Andy Lintner
  */
 public class HomekitAccessoryUpdater {
 
+    private static final String THREADPOOL_HOMEKIT = "homekit";
+    private static final long NOTIFICATION_INTERVAL_MS = 250;
+    // used as key of subscriptions without a key
+    private static final String NO_KEY = "";
+
     private Logger logger = LoggerFactory.getLogger(HomekitAccessoryUpdater.class);
-    private final ConcurrentMap<ItemKey, Subscription> subscriptionsByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Map<String, Subscription>> subscriptionsByName = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final long notificationInterval;
+
+    public HomekitAccessoryUpdater() {
+        this(ThreadPoolManager.getScheduledPool(THREADPOOL_HOMEKIT), NOTIFICATION_INTERVAL_MS);
+    }
+
+    HomekitAccessoryUpdater(ScheduledExecutorService scheduler, long notificationInterval) {
+        this.scheduler = scheduler;
+        this.notificationInterval = TimeUnit.MILLISECONDS.toNanos(notificationInterval);
+    }
 
     public void subscribe(GenericItem item, HomekitCharacteristicChangeCallback callback) {
         subscribe(item, null, callback);
@@ -41,19 +63,12 @@ public class HomekitAccessoryUpdater {
         if (item == null) {
             return;
         }
-        ItemKey itemKey = new ItemKey(item, key);
-        if (subscriptionsByName.containsKey(itemKey)) {
+        Subscription previous = subscriptionsByName
+                .computeIfAbsent(item.getName(), name -> new ConcurrentHashMap<>())
+                .put(key == null ? NO_KEY : key, new Subscription(callback));
+        if (previous != null) {
             logger.error("Received duplicate subscription on {}", item.getName());
         }
-        subscriptionsByName.compute(itemKey, (k, v) -> {
-            if (v != null) {
-                logger.error("Received duplicate subscription on {}", item.getName());
-                unsubscribe(item, key);
-            }
-            Subscription subscription = (changedItem, oldState, newState) -> callback.changed();
-            item.addStateChangeListener(subscription);
-            return subscription;
-        });
     }
 
     public void unsubscribe(GenericItem item) {
@@ -64,69 +79,80 @@ public class HomekitAccessoryUpdater {
         if (item == null) {
             return;
         }
-        subscriptionsByName.computeIfPresent(new ItemKey(item, key), (k, v) -> {
-            item.removeStateChangeListener(v);
-            return null;
+        subscriptionsByName.computeIfPresent(item.getName(), (name, subscriptions) -> {
+            subscriptions.remove(key == null ? NO_KEY : key);
+            return subscriptions.isEmpty() ? null : subscriptions;
         });
     }
 
-    @FunctionalInterface
-    private static interface Subscription extends StateChangeListener {
-
-        @Override
-        void stateChanged(Item item, State oldState, State newState);
-
-        @Override
-        default void stateUpdated(Item item, State state) {
-            // Do nothing on non-change update
+    /**
+     * Notifies the subscriptions of the item about a changed state.
+     *
+     * @param itemName the name of the item, whose state has changed
+     */
+    public void stateChanged(String itemName) {
+        Map<String, Subscription> subscriptions = subscriptionsByName.get(itemName);
+        if (subscriptions != null) {
+            for (Subscription subscription : subscriptions.values()) {
+                subscription.changed();
+            }
         }
     }
 
-    private static class ItemKey {
-        public GenericItem item;
-        public String key;
-
-        public ItemKey(GenericItem item, String key) {
-            this.item = item;
-            this.key = key;
+    /**
+     * A subscribed characteristic and the time of its last notification
+     */
+    private class Subscription {
+        private final HomekitCharacteristicChangeCallback callback;
+        private long lastNotification;
+        private boolean notificationScheduled;
+
+        public Subscription(HomekitCharacteristicChangeCallback callback) {
+            this.callback = callback;
+            this.lastNotification = System.nanoTime() - notificationInterval;
         }
 
-        @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + ((item == null) ? 0 : item.hashCode());
-            result = prime * result + ((key == null) ? 0 : key.hashCode());
-            return result;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) {
-                return true;
-            }
-            if (obj == null) {
-                return false;
-            }
-            if (getClass() != obj.getClass()) {
-                return false;
-            }
-            ItemKey other = (ItemKey) obj;
-            if (item == null) {
-                if (other.item != null) {
-                    return false;
+        public void changed() {
+            long delay;
+            synchronized (this) {
+                if (notificationScheduled) {
+                    return;
+                }
+                long now = System.nanoTime();
+                delay = lastNotification + notificationInterval - now;
+                if (delay <= 0) {
+                    lastNotification = now;
+                } else {
+                    notificationScheduled = true;
                 }
-            } else if (!item.equals(other.item)) {
-                return false;
             }
-            if (key == null) {
-                if (other.key != null) {
-                    return false;
+            if (delay <= 0) {
+                notifyCallback();
+            } else {
+                try {
+                    scheduler.schedule(this::scheduledNotification, delay, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    synchronized (this) {
+                        notificationScheduled = false;
+                    }
                 }
-            } else if (!key.equals(other.key)) {
-                return false;
             }
-            return true;
+        }
+
+        private void scheduledNotification() {
+            synchronized (this) {
+                notificationScheduled = false;
+                lastNotification = System.nanoTime();
+            }
+            notifyCallback();
+        }
+
+        private void notifyCallback() {
+            try {
+                callback.changed();
+            } catch (RuntimeException e) {
+                logger.warn("Could not notify Homekit clients: {}", e.getMessage(), e);
+            }
         }
     }
 
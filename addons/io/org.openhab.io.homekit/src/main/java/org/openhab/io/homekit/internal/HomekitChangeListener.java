@@ -9,6 +9,7 @@
 package org.openhab.io.homekit.internal;
 
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemRegistry;
@@ -28,7 +29,7 @@ import com.beowulfe.hap.HomekitRoot;
 public class HomekitChangeListener implements ItemRegistryChangeListener {
 
     private ItemRegistry itemRegistry;
-    private HomekitAccessoryUpdater updater = new HomekitAccessoryUpdater();
+    private HomekitAccessoryUpdater updater;
     private Logger logger = LoggerFactory.getLogger(HomekitChangeListener.class);
     private final HomekitAccessoryRegistry accessoryRegistry = new HomekitAccessoryRegistry();
     private HomekitSettings settings;
@@ -60,9 +61,14 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     }
 
     @Override
-    public void updated(Item oldElement, Item element) {
-        removed(oldElement);
-        added(element);
+    public synchronized void updated(Item oldElement, Item element) {
+        accessoryRegistry.beginBatch();
+        try {
+            removed(oldElement);
+            added(element);
+        } finally {
+            accessoryRegistry.endBatch();
+        }
     }
 
     public synchronized void clearAccessories() {
@@ -76,7 +82,19 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     public synchronized void setItemRegistry(ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
         itemRegistry.addRegistryChangeListener(this);
-        itemRegistry.getAll().forEach(item -> added(item));
+        long start = System.nanoTime();
+        int itemCount = 0;
+        accessoryRegistry.beginBatch();
+        try {
+            for (Item item : itemRegistry.getAll()) {
+                added(item);
+                itemCount++;
+            }
+        } finally {
+            accessoryRegistry.endBatch();
+        }
+        logger.debug("Created {} homekit accessories from {} items in {} ms", accessoryRegistry.size(), itemCount,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
     public void setUpdater(HomekitAccessoryUpdater updater) {
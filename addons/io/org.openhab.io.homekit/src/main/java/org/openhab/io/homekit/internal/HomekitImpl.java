@@ -11,8 +11,17 @@ package org.openhab.io.homekit.internal;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.security.InvalidAlgorithmParameterException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventFilter;
+import org.eclipse.smarthome.core.events.EventSubscriber;
 import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.items.events.GroupItemStateChangedEvent;
+import org.eclipse.smarthome.core.items.events.ItemStateChangedEvent;
 import org.eclipse.smarthome.core.storage.StorageService;
 import org.openhab.io.homekit.Homekit;
 import org.osgi.service.component.ComponentContext;
@@ -23,19 +32,28 @@ import com.beowulfe.hap.HomekitRoot;
 import com.beowulfe.hap.HomekitServer;
 
 /**
- * Provides access to openHAB items via the Homekit API
+ * Provides access to openHAB items via the Homekit API. The state changes of the items
+ * are received from the event bus and passed to the {@link HomekitAccessoryUpdater}.
  *
  * @author Andy Lintner
  */
-public class HomekitImpl implements Homekit {
+public class HomekitImpl implements Homekit, EventSubscriber {
+    // the state changes of groups are sent as GroupItemStateChangedEvent, which is an ItemStateChangedEvent
+    private static final Set<String> SUBSCRIBED_EVENT_TYPES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(ItemStateChangedEvent.TYPE, GroupItemStateChangedEvent.TYPE)));
 
     private final HomekitSettings settings = new HomekitSettings();
     private HomekitServer homekit;
     private HomekitRoot bridge;
     private StorageService storageService;
+    private final HomekitAccessoryUpdater updater = new HomekitAccessoryUpdater();
     private final HomekitChangeListener changeListener = new HomekitChangeListener();
     private Logger logger = LoggerFactory.getLogger(HomekitImpl.class);
 
+    public HomekitImpl() {
+        changeListener.setUpdater(updater);
+    }
+
     public void setStorageService(StorageService storageService) {
         this.storageService = storageService;
     }
@@ -79,6 +97,21 @@ public class HomekitImpl implements Homekit {
         changeListener.stop();
     }
 
+    @Override
+    public Set<String> getSubscribedEventTypes() {
+        return SUBSCRIBED_EVENT_TYPES;
+    }
+
+    @Override
+    public EventFilter getEventFilter() {
+        return null;
+    }
+
+    @Override
+    public void receive(Event event) {
+        updater.stateChanged(((ItemStateChangedEvent) event).getItemName());
+    }
+
     @Override
     public void refreshAuthInfo() throws IOException {
         if (bridge != null) {
@@ -97,7 +130,8 @@ public class HomekitImpl implements Homekit {
         homekit = new HomekitServer(settings.getNetworkInterface(), settings.getPort());
         bridge = homekit.createBridge(new HomekitAuthInfoImpl(storageService, settings.getPin()), settings.getName(),
                 settings.getManufacturer(), settings.getModel(), settings.getSerialNumber());
-        bridge.start();
+        // add the accessories before the bridge is started, so that the clients do not have to reload each of them
         changeListener.setBridge(bridge);
+        bridge.start();
     }
 }
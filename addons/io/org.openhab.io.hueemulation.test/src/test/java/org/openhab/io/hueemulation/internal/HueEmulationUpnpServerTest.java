@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.hueemulation.internal;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for the reply limit of {@link HueEmulationUpnpServer}
+ *
+ * @author agent - Initial contribution
+ */
+public class HueEmulationUpnpServerTest {
+    private final HueEmulationUpnpServer server = new HueEmulationUpnpServer("/api/description.xml",
+            "2f402f80-da50-11e1-9b23-001788255acc", 8080, null);
+
+    @Test
+    public void repeatedRequestsAreAnsweredOncePerIntervalTest() throws UnknownHostException {
+        InetAddress requester = InetAddress.getByName("192.168.0.10");
+
+        assertTrue(server.acceptRequest(requester, 10000));
+        assertFalse(server.acceptRequest(requester, 10500));
+        assertTrue(server.acceptRequest(InetAddress.getByName("192.168.0.11"), 10500));
+        assertFalse(server.acceptRequest(requester, 10999));
+        assertTrue(server.acceptRequest(requester, 11000));
+    }
+
+    @Test
+    public void mSearchFloodTest() throws UnknownHostException {
+        // 500 hosts send 20 requests per second each for 10 seconds
+        int hosts = 500;
+        int replies = 0;
+        for (long now = 0; now < 10000; now += 50) {
+            for (int host = 0; host < hosts; host++) {
+                if (server.acceptRequest(address(host), now)) {
+                    replies++;
+                }
+            }
+        }
+        assertEquals(hosts * 10, replies);
+        assertEquals(hosts, server.getRequesterCount());
+    }
+
+    @Test
+    public void mSearchFloodOfChangingAddressesIsBoundedTest() throws UnknownHostException {
+        int requests = 100 * HueEmulationUpnpServer.MAX_REQUESTERS;
+        for (int host = 0; host < requests; host++) {
+            assertTrue(server.acceptRequest(address(host), host / 100));
+            assertTrue(server.getRequesterCount() <= HueEmulationUpnpServer.MAX_REQUESTERS);
+        }
+        assertEquals(HueEmulationUpnpServer.MAX_REQUESTERS, server.getRequesterCount());
+
+        // the newest requesters are still remembered
+        assertFalse(server.acceptRequest(address(requests - 1), requests / 100));
+    }
+
+    private static InetAddress address(int host) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[] { 10, (byte) (host >> 16), (byte) (host >> 8), (byte) host });
+    }
+}
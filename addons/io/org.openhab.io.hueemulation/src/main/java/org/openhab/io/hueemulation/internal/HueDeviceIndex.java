@@ -0,0 +1,397 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.hueemulation.internal;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.items.ItemRegistryChangeListener;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.io.hueemulation.internal.api.HueDataStore;
+import org.openhab.io.hueemulation.internal.api.HueDevice;
+import org.openhab.io.hueemulation.internal.api.HueState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Keeps the items tagged for the Hue emulation in an index. The index is maintained by listening to the
+ * item registry and to the state changes of the tagged items, the item registry is only scanned once.
+ *
+ * The Hue API responses are rendered into a versioned {@link Snapshot}, which is reused until a tagged item
+ * or its state changes. The device id map is persisted in the background whenever ids are assigned or removed.
+ *
+ * @author agent - Initial contribution
+ */
+public class HueDeviceIndex implements ItemRegistryChangeListener {
+    private static final Set<String> SUPPORTED_TAGS = Collections
+            .unmodifiableSet(new HashSet<String>(Arrays.asList("Switchable", "Lighting")));
+    private static final String THREADPOOL_NAME = "hueEmulation";
+
+    private final Logger logger = LoggerFactory.getLogger(HueDeviceIndex.class);
+    private final Gson gson = new Gson();
+    private final File itemFile;
+    // a random ETag prefix, so that the ETags of a previous run are never valid
+    private final String etagPrefix = Long.toHexString(System.nanoTime());
+    private final ExecutorService persistExecutor = ThreadPoolManager.getPool(THREADPOOL_NAME);
+    private final AtomicBoolean persistScheduled = new AtomicBoolean();
+    private final Object persistLock = new Object();
+
+    private ItemRegistry itemRegistry;
+    // deviceMap maps a Hue numeric id to a Item Name, ordered by that id
+    private final TreeMap<Integer, String> deviceMap = new TreeMap<>();
+    // the tagged items by their Hue numeric id
+    private final Map<Integer, Item> items = new HashMap<>();
+    private final Map<String, Integer> idsByItemName = new HashMap<>();
+    // only changed while holding the lock of the index
+    private volatile long version;
+    private volatile Snapshot snapshot;
+
+    /**
+     * The rendered Hue API responses of one version of the index. Immutable.
+     */
+    public static class Snapshot {
+        private final long version;
+        private final String etag;
+        private final TreeMap<Integer, HueDevice> devices;
+        private final String lightsJson;
+        private final String dataStoreJson;
+
+        Snapshot(long version, String etag, TreeMap<Integer, HueDevice> devices, String lightsJson,
+                String dataStoreJson) {
+            this.version = version;
+            this.etag = etag;
+            this.devices = devices;
+            this.lightsJson = lightsJson;
+            this.dataStoreJson = dataStoreJson;
+        }
+
+        /**
+         * Returns the HTTP entity tag of this version, including the quotes.
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        /**
+         * Returns the device with the given Hue id or null.
+         */
+        public HueDevice getDevice(Integer id) {
+            return devices.get(id);
+        }
+
+        /**
+         * Returns the Hue ids of all devices in ascending order.
+         */
+        public Set<Integer> getIds() {
+            return Collections.unmodifiableSet(devices.keySet());
+        }
+
+        /**
+         * Returns the JSON of /api/{username}/lights.
+         */
+        public String getLightsJson() {
+            return lightsJson;
+        }
+
+        /**
+         * Returns the JSON of /api/{username}.
+         */
+        public String getDataStoreJson() {
+            return dataStoreJson;
+        }
+    }
+
+    public HueDeviceIndex(File itemFile) {
+        this.itemFile = itemFile;
+    }
+
+    /**
+     * Loads the device id map from disk.
+     */
+    public synchronized void load() throws IOException {
+        if (!itemFile.exists()) {
+            return;
+        }
+        JsonReader reader = null;
+        try {
+            reader = new JsonReader(new FileReader(itemFile));
+            LinkedHashMap<Integer, String> tmpMap = gson.fromJson(reader, new TypeToken<Map<Integer, String>>() {
+            }.getType());
+            if (tmpMap != null) {
+                deviceMap.putAll(tmpMap);
+            }
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Registers the index at the item registry and synchronizes the device id map with the tagged items.
+     */
+    public synchronized void start(ItemRegistry itemRegistry) {
+        this.itemRegistry = itemRegistry;
+        itemRegistry.addRegistryChangeListener(this);
+        synchronize(itemRegistry.getItems());
+    }
+
+    /**
+     * Unregisters the index from the item registry and writes pending changes of the device id map.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (itemRegistry != null) {
+                itemRegistry.removeRegistryChangeListener(this);
+                itemRegistry = null;
+            }
+        }
+        if (persistScheduled.getAndSet(false)) {
+            writeDeviceMap();
+        }
+    }
+
+    @Override
+    public synchronized void added(Item item) {
+        if (isTagged(item)) {
+            changed(addItem(item));
+        }
+    }
+
+    @Override
+    public synchronized void removed(Item item) {
+        Integer id = idsByItemName.remove(item.getName());
+        if (id != null) {
+            items.remove(id);
+            deviceMap.remove(id);
+            changed(true);
+        }
+    }
+
+    @Override
+    public synchronized void updated(Item oldItem, Item item) {
+        if (!oldItem.getName().equals(item.getName())) {
+            removed(oldItem);
+            added(item);
+        } else if (!isTagged(item)) {
+            removed(oldItem);
+        } else {
+            changed(addItem(item));
+        }
+    }
+
+    @Override
+    public synchronized void allItemsChanged(Collection<String> oldItemNames) {
+        if (itemRegistry != null) {
+            synchronize(itemRegistry.getItems());
+        }
+    }
+
+    /**
+     * Invalidates the snapshot, if the item is a tagged item.
+     */
+    public synchronized void stateChanged(String itemName) {
+        if (idsByItemName.containsKey(itemName)) {
+            changed(false);
+        }
+    }
+
+    /**
+     * Returns the item name of the given Hue id or null.
+     */
+    public synchronized String getItemName(Integer id) {
+        return deviceMap.get(id);
+    }
+
+    /**
+     * Returns the rendered Hue API responses of the current version of the index. The snapshot is only rendered
+     * again if a tagged item or the state of a tagged item has changed in the meantime.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == version) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null || snapshot.version != version) {
+                snapshot = render();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Gets and syncs all items tagged for voice. Only called on startup and if all items changed.
+     */
+    private void synchronize(Collection<Item> allItems) {
+        boolean modified = false;
+        Set<String> taggedItemNames = new HashSet<>();
+
+        items.clear();
+        idsByItemName.clear();
+        for (Item item : allItems) {
+            if (isTagged(item)) {
+                taggedItemNames.add(item.getName());
+                modified |= addItem(item);
+            }
+        }
+
+        // clean up removed entries
+        List<Integer> keysToRemove = new ArrayList<>();
+        for (Map.Entry<Integer, String> entry : deviceMap.entrySet()) {
+            if (!taggedItemNames.contains(entry.getValue())) {
+                keysToRemove.add(entry.getKey());
+            }
+        }
+        for (Integer key : keysToRemove) {
+            deviceMap.remove(key);
+            modified = true;
+        }
+
+        changed(modified);
+    }
+
+    /**
+     * Adds or replaces a tagged item. Returns true, if a new Hue id has been assigned.
+     */
+    private boolean addItem(Item item) {
+        Integer id = idsByItemName.get(item.getName());
+        boolean newId = false;
+        if (id == null) {
+            for (Map.Entry<Integer, String> entry : deviceMap.entrySet()) {
+                if (entry.getValue().equals(item.getName())) {
+                    id = entry.getKey();
+                    break;
+                }
+            }
+        }
+        if (id == null) {
+            // hue devices are assigned a numeric number starting with 1, if a device is
+            // removed that number is not used again. Not sure how high this id can get
+            // not worrying about it here
+            id = deviceMap.isEmpty() ? 1 : deviceMap.lastKey().intValue() + 1;
+            deviceMap.put(id, item.getName());
+            newId = true;
+        }
+        idsByItemName.put(item.getName(), id);
+        items.put(id, item);
+        return newId;
+    }
+
+    /**
+     * Starts a new version of the index and persists the device id map if necessary.
+     */
+    private void changed(boolean deviceMapModified) {
+        version++;
+        if (deviceMapModified) {
+            persist();
+        }
+    }
+
+    private boolean isTagged(Item item) {
+        for (String tag : item.getTags()) {
+            if (SUPPORTED_TAGS.contains(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Snapshot render() {
+        TreeMap<Integer, HueDevice> devices = new TreeMap<>();
+        for (Map.Entry<Integer, Item> entry : items.entrySet()) {
+            devices.put(entry.getKey(), itemToDevice(entry.getValue(), entry.getKey()));
+        }
+        HueDataStore ds = new HueDataStore();
+        ds.lights = devices;
+        return new Snapshot(version, "\"" + etagPrefix + "-" + version + "\"", devices, gson.toJson(devices),
+                gson.toJson(ds));
+    }
+
+    /**
+     * Converts an Item to a HueDevice
+     */
+    private HueDevice itemToDevice(Item item, Integer key) {
+        State itemState = item.getState();
+        HueState hueState;
+        if (itemState instanceof HSBType) {
+            HSBType color = (HSBType) itemState;
+            hueState = new HueState(color);
+        } else if (itemState instanceof DecimalType) {
+            short bri = (short) ((((DecimalType) itemState).intValue() * 255) / 100);
+            hueState = new HueState(bri);
+        } else if (itemState instanceof OnOffType) {
+            short bri = (short) (((OnOffType) itemState) == OnOffType.ON ? 255 : 0);
+            hueState = new HueState(bri);
+        } else {
+            hueState = new HueState((short) 0);
+        }
+
+        HueDevice d = new HueDevice(hueState, item.getLabel(), key);
+        return d;
+    }
+
+    /**
+     * Writes the device id map to disk in the background. Several changes in a row are written at once.
+     */
+    private void persist() {
+        if (persistScheduled.compareAndSet(false, true)) {
+            persistExecutor.execute(() -> {
+                if (persistScheduled.getAndSet(false)) {
+                    writeDeviceMap();
+                }
+            });
+        }
+    }
+
+    private void writeDeviceMap() {
+        Map<Integer, String> copy;
+        synchronized (this) {
+            copy = new TreeMap<>(deviceMap);
+        }
+        synchronized (persistLock) {
+            JsonWriter writer = null;
+            try {
+                itemFile.getParentFile().mkdirs();
+                writer = new JsonWriter(new FileWriter(itemFile));
+                gson.toJson(copy, new TypeToken<Map<Integer, String>>() {
+                }.getType(), writer);
+            } catch (IOException e) {
+                logger.error("Could not persist item cache", e);
+            } finally {
+                IOUtils.closeQuietly(writer);
+            }
+        }
+    }
+}
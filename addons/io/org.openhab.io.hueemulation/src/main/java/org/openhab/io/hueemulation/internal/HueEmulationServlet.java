@@ -11,22 +11,18 @@ package org.openhab.io.hueemulation.internal;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
 
 import javax.servlet.ServletException;
@@ -35,21 +31,21 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.eclipse.smarthome.config.core.ConfigConstants;
+import org.eclipse.smarthome.core.events.Event;
+import org.eclipse.smarthome.core.events.EventFilter;
 import org.eclipse.smarthome.core.events.EventPublisher;
+import org.eclipse.smarthome.core.events.EventSubscriber;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemNotFoundException;
 import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.items.events.GroupItemStateChangedEvent;
 import org.eclipse.smarthome.core.items.events.ItemEventFactory;
-import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.items.events.ItemStateChangedEvent;
 import org.eclipse.smarthome.core.library.types.HSBType;
-import org.eclipse.smarthome.core.library.types.OnOffType;
 import org.eclipse.smarthome.core.types.Command;
-import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.TypeParser;
 import org.openhab.io.hueemulation.internal.api.HueCreateUser;
-import org.openhab.io.hueemulation.internal.api.HueDataStore;
 import org.openhab.io.hueemulation.internal.api.HueDevice;
 import org.openhab.io.hueemulation.internal.api.HueErrorResponse;
 import org.openhab.io.hueemulation.internal.api.HueGroup;
@@ -60,9 +56,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonWriter;
 
 /**
  * Emulates A Hue compatible HTTP API server
@@ -72,7 +65,7 @@ import com.google.gson.stream.JsonWriter;
  *
  */
 @SuppressWarnings("serial")
-public class HueEmulationServlet extends HttpServlet {
+public class HueEmulationServlet extends HttpServlet implements EventSubscriber {
     private Logger logger = LoggerFactory.getLogger(HueEmulationServlet.class);
     private static final String CONFIG_PAIRING_ENABLED = "pairingEnabled";
     private static final String CONFIG_DISCOVERY_IP = "discoveryIp";
@@ -91,7 +84,8 @@ public class HueEmulationServlet extends HttpServlet {
             ConfigConstants.getUserDataFolder() + File.separator + "hueemulation" + File.separator + "udn");
     private static final File ITEM_FILE = new File(
             ConfigConstants.getUserDataFolder() + File.separator + "hueemulation" + File.separator + "items");
-    private static final String[] SUPPORTED_TAGS = new String[] { "Switchable", "Lighting" };
+    private static final Set<String> SUBSCRIBED_EVENT_TYPES = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(ItemStateChangedEvent.TYPE, GroupItemStateChangedEvent.TYPE)));
     private Gson gson = new Gson();
     private HttpService httpService;
     private ItemRegistry itemRegistry;
@@ -100,15 +94,20 @@ public class HueEmulationServlet extends HttpServlet {
     private String udn;
     private String xmlDoc;
     private int webPort;
+    private String discoveryIp;
     private boolean pairingEnabled = false;
     // list of valid Hue API user ids
     private List<String> userNames = new ArrayList<>();
-    // deviceMap maps a Hue numeric id to a Item Name, ordered by that id
-    private TreeMap<Integer, String> deviceMap = new TreeMap<>();
+    private HueDeviceIndex deviceIndex;
 
     protected void activate(Map<String, Object> config) {
         modified(config);
         try {
+            // load item list from disk and index all tagged items
+            deviceIndex = new HueDeviceIndex(ITEM_FILE);
+            deviceIndex.load();
+            deviceIndex.start(itemRegistry);
+
             Dictionary<String, String> servletParams = new Hashtable<String, String>();
             httpService.registerServlet(PATH, this, servletParams, httpService.createDefaultHttpContext());
 
@@ -123,21 +122,6 @@ public class HueEmulationServlet extends HttpServlet {
                 }
             }
 
-            // load item list from disk
-            if (ITEM_FILE.exists()) {
-                JsonReader reader = null;
-                try {
-                    reader = new JsonReader(new FileReader(ITEM_FILE));
-                    LinkedHashMap<Integer, String> tmpMap = gson.fromJson(reader,
-                            new TypeToken<Map<Integer, String>>() {
-                            }.getType());
-                    if (tmpMap != null) {
-                        deviceMap.putAll(tmpMap);
-                    }
-                } finally {
-                    IOUtils.closeQuietly(reader);
-                }
-            }
             logger.info("Started Hue Emulation service at " + PATH);
         } catch (Exception e) {
             logger.error("Could not start Hue Emulation service: {}", e.getMessage(), e);
@@ -152,6 +136,7 @@ public class HueEmulationServlet extends HttpServlet {
 
         Object obj = config.get(CONFIG_DISCOVERY_IP);
         String ip = obj != null ? (String) obj : null;
+        discoveryIp = ip != null && ip.trim().length() > 0 ? ip.trim() : null;
 
         obj = config.get(CONFIG_DISCOVERY_HTTP_PORT);
         webPort = obj == null ? Integer.getInteger("org.osgi.service.http.port") : Integer.parseInt((String) obj);
@@ -183,6 +168,28 @@ public class HueEmulationServlet extends HttpServlet {
         if (disco != null) {
             disco.shutdown();
         }
+        if (deviceIndex != null) {
+            deviceIndex.stop();
+        }
+    }
+
+    @Override
+    public Set<String> getSubscribedEventTypes() {
+        return SUBSCRIBED_EVENT_TYPES;
+    }
+
+    @Override
+    public EventFilter getEventFilter() {
+        return null;
+    }
+
+    @Override
+    public void receive(Event event) {
+        // group state changes are sent as GroupItemStateChangedEvent, which is an ItemStateChangedEvent
+        HueDeviceIndex index = deviceIndex;
+        if (index != null) {
+            index.stateChanged(((ItemStateChangedEvent) event).getItemName());
+        }
     }
 
     protected void setItemRegistry(ItemRegistry itemRegistry) {
@@ -266,7 +273,7 @@ public class HueEmulationServlet extends HttpServlet {
                                 /**
                                  * /api/{username}/lights
                                  */
-                                apiLights(req, out);
+                                apiLights(req, resp, out);
                                 break;
                             case 3:
                                 /**
@@ -320,7 +327,7 @@ public class HueEmulationServlet extends HttpServlet {
         }
         try {
             // will throw exception if not found
-            Item item = itemRegistry.getItem(deviceMap.get(new Integer(id)));
+            Item item = itemRegistry.getItem(deviceIndex.getItemName(new Integer(id)));
             HueState state = gson.fromJson(req.getReader(), HueState.class);
             HSBType hsb = state.toHSBType();
             logger.debug("HuState {}", state);
@@ -365,7 +372,7 @@ public class HueEmulationServlet extends HttpServlet {
      * Hue API call to get the state of a single light
      */
     private void apiLight(String id, HttpServletRequest req, PrintWriter out) throws IOException {
-        HueDevice device = getHueDevices().get(new Integer(id));
+        HueDevice device = deviceIndex.getSnapshot().getDevice(new Integer(id));
 
         if (device == null) {
             logger.error("\"Could not find light for id {}. ", id);
@@ -379,8 +386,11 @@ public class HueEmulationServlet extends HttpServlet {
     /**
      * Hue API call to get a listing of all lights
      */
-    public void apiLights(HttpServletRequest req, PrintWriter out) throws IOException {
-        out.write(gson.toJson(getHueDevices()));
+    public void apiLights(HttpServletRequest req, HttpServletResponse resp, PrintWriter out) throws IOException {
+        HueDeviceIndex.Snapshot snapshot = deviceIndex.getSnapshot();
+        if (!notModified(snapshot, req, resp)) {
+            out.write(snapshot.getLightsJson());
+        }
     }
 
     /**
@@ -388,7 +398,7 @@ public class HueEmulationServlet extends HttpServlet {
      */
     public void apiGroupZero(HttpServletRequest req, PrintWriter out) throws IOException {
         List<String> lights = new LinkedList<String>();
-        for (Integer key : deviceMap.keySet()) {
+        for (Integer key : deviceIndex.getSnapshot().getIds()) {
             lights.add(key.toString());
         }
         HueState action = new HueState();
@@ -399,10 +409,24 @@ public class HueEmulationServlet extends HttpServlet {
      * HUE API call to get the Data Store of the bridge (only lights supported for now)
      */
     public void apiDataStore(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        PrintWriter out = resp.getWriter();
-        HueDataStore ds = new HueDataStore();
-        ds.lights = getHueDevices();
-        out.write(gson.toJson(ds));
+        HueDeviceIndex.Snapshot snapshot = deviceIndex.getSnapshot();
+        if (!notModified(snapshot, req, resp)) {
+            PrintWriter out = resp.getWriter();
+            out.write(snapshot.getDataStoreJson());
+        }
+    }
+
+    /**
+     * Sets the ETag of the snapshot. Returns true and responds with "304 Not Modified", if the client
+     * already has this version.
+     */
+    private boolean notModified(HueDeviceIndex.Snapshot snapshot, HttpServletRequest req, HttpServletResponse resp) {
+        resp.setHeader("ETag", snapshot.getETag());
+        if (snapshot.getETag().equals(req.getHeader("If-None-Match"))) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -453,108 +477,16 @@ public class HueEmulationServlet extends HttpServlet {
             xmlDoc = IOUtils.toString(getClass().getClassLoader().getResourceAsStream("discovery.xml"), "UTF-8");
         }
 
-        InetAddress address = disco.getAddress();
-        if (address == null) {
-            return;
-        }
-
-        String formattedXML = String.format(xmlDoc, address.getHostAddress(), webPort, getUDN());
+        // the description must name the address the UPNP responses advertise: the configured one, or else the
+        // address the client reached us on, which is the one it got from the responder for its network
+        String address = discoveryIp != null ? discoveryIp : req.getLocalAddr();
+        String formattedXML = String.format(xmlDoc, address, webPort, getUDN());
         resp.setContentType(APPLICATION_XML);
         try (PrintWriter out = resp.getWriter()) {
             out.write(formattedXML);
         }
     }
 
-    /**
-     * Converts an Item to a HueDevice
-     */
-    private HueDevice itemToDevice(Item item, Integer key) {
-        State itemState = item.getState();
-        HueState hueState;
-        if (itemState instanceof HSBType) {
-            HSBType color = (HSBType) itemState;
-            hueState = new HueState(color);
-        } else if (itemState instanceof DecimalType) {
-            short bri = (short) ((((DecimalType) itemState).intValue() * 255) / 100);
-            hueState = new HueState(bri);
-        } else if (itemState instanceof OnOffType) {
-            short bri = (short) (((OnOffType) itemState) == OnOffType.ON ? 255 : 0);
-            hueState = new HueState(bri);
-        } else {
-            hueState = new HueState((short) 0);
-        }
-
-        HueDevice d = new HueDevice(hueState, item.getLabel(), key);
-        return d;
-    }
-
-    /**
-     * Gets and syncs all items tagged for voice.
-     */
-    private synchronized TreeMap<Integer, HueDevice> getHueDevices() {
-        TreeMap<Integer, HueDevice> returnMap = new TreeMap<Integer, HueDevice>();
-        HashMap<String, Item> taggedItems = new HashMap<String, Item>();
-
-        // if we modify our internal map, persist it to disk
-        boolean modified = false;
-
-        // get all tagged items
-        for (Item item : itemRegistry.getItems()) {
-            for (String tag : item.getTags()) {
-                if (ArrayUtils.contains(SUPPORTED_TAGS, tag)) {
-                    taggedItems.put(item.getName(), item);
-                    if (!deviceMap.containsValue(item.getName())) {
-                        // hue devices are assigned a numeric number starting with 1, if a device is
-                        // removed that number is not used again. Not sure how high this id can get
-                        // not worrying about it here
-                        Integer next = deviceMap.size() == 0 ? 1 : new Integer(deviceMap.lastKey().intValue() + 1);
-                        deviceMap.put(next, item.getName());
-                        modified = true;
-                    }
-                    break;
-                }
-            }
-        }
-
-        Set<Integer> keysToRemove = new HashSet<>();
-
-        // clean up removed entries
-        for (Map.Entry<Integer, String> entry : deviceMap.entrySet()) {
-            String itemName = entry.getValue();
-            if (!taggedItems.containsKey(itemName)) {
-                keysToRemove.add(entry.getKey());
-                modified = true;
-            }
-        }
-
-        for (Integer key : keysToRemove) {
-            deviceMap.remove(key);
-        }
-
-        // for each entry, lookup the item and convert it to a hue device
-        for (Integer key : deviceMap.keySet()) {
-            try {
-                returnMap.put(key, itemToDevice(itemRegistry.getItem(deviceMap.get(key)), key));
-            } catch (ItemNotFoundException e) {
-                logger.warn("Could not find item", e);
-            }
-        }
-
-        if (modified) {
-            JsonWriter writer = null;
-            try {
-                writer = new JsonWriter(new FileWriter(ITEM_FILE));
-                gson.toJson(deviceMap, new TypeToken<Map<Integer, String>>() {
-                }.getType(), writer);
-            } catch (IOException e) {
-                logger.error("Could not persist item cache", e);
-            } finally {
-                IOUtils.closeQuietly(writer);
-            }
-        }
-        return returnMap;
-    }
-
     /**
      * Checks if the username exists in our user list
      */
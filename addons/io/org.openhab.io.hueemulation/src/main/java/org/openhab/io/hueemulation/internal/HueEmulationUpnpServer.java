@@ -9,23 +9,41 @@
 package org.openhab.io.hueemulation.internal;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.MulticastSocket;
+import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
-import java.net.SocketException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Advertises a Hue UPNP compatible bridge
  *
+ * The M-SEARCH requests are received with a non-blocking channel. The response packets are built once for each
+ * local IPv4 address and only rebuilt if the network interfaces change. A requester gets the responses with the
+ * address of the interface in its own network, repeated requests of the same requester host are answered at most
+ * once per {@value #REPLY_INTERVAL_MS} ms. At most {@value #MAX_REQUESTERS} requesters are remembered, a flood of
+ * requests from changing addresses evicts the oldest ones instead of growing the map.
+ *
  * @author Dan Cunningham
  *
  */
@@ -35,13 +53,30 @@ public class HueEmulationUpnpServer extends Thread {
     // jUPNP shares port 1900, but since this is multicast, we can also bind to it
     private static final int UPNP_PORT_RECV = 1900;
     private static final String MULTI_ADDR = "239.255.255.250";
-    private boolean running;
+    private static final byte[] M_SEARCH = "M-SEARCH".getBytes(StandardCharsets.US_ASCII);
+    private static final long INTERFACE_CHECK_INTERVAL_MS = 30000;
+    private static final long REPLY_INTERVAL_MS = 1000;
+    private static final long RETRY_INTERVAL_MS = 3000;
+    static final int MAX_REQUESTERS = 1024;
+    private volatile boolean running;
+    private volatile Selector selector;
     private String discoPath;
     private String usn;
-    private InetAddress address;
+    private volatile InetAddress address;
     private String discoveryIp;
     private int webPort;
 
+    private String interfaceSignature;
+    private List<Responder> responders = Collections.emptyList();
+    private final Map<NetworkInterface, MembershipKey> memberships = new HashMap<>();
+    @SuppressWarnings("serial")
+    private final Map<InetAddress, Long> lastReplies = new LinkedHashMap<InetAddress, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<InetAddress, Long> eldest) {
+            return size() > MAX_REQUESTERS;
+        }
+    };
+
     private String discoString = "HTTP/1.1 200 OK\r\n" + "HOST: %s:%d\r\n" + "EXT:\r\n"
             + "CACHE-CONTROL: max-age=100\r\n" + "LOCATION: %s\r\n"
             + "SERVER: FreeRTOS/7.4.2, UPnP/1.0, IpBridge/1.15.0\r\n" + "hue-bridgeid: %s\r\n" + "ST: %s\r\n"
@@ -58,6 +93,7 @@ public class HueEmulationUpnpServer extends Thread {
      *            Optional IP to use advertise for UPNP, if null the first available non localhost IP will be used
      */
     public HueEmulationUpnpServer(String discoPath, String usn, int webPort, String discoveryIP) {
+        super("HueEmulationUpnpServer");
         this.running = true;
         this.discoPath = discoPath;
         this.usn = usn;
@@ -66,88 +102,262 @@ public class HueEmulationUpnpServer extends Thread {
     }
 
     /**
-     * Stops the upnp server from running
+     * Stops the upnp server from running and waits for the channels to be closed.
      */
     public void shutdown() {
         this.running = false;
+        Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (Thread.currentThread() != this) {
+            try {
+                join(RETRY_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
     @Override
     public void run() {
-        MulticastSocket recvSocket = null;
-        // since jupnp shares port 1900, lets use a different port to send UDP packets on just to be safe.
-        DatagramSocket sendSocket = null;
-        byte[] buf = new byte[1000];
-        DatagramPacket recv = new DatagramPacket(buf, buf.length);
         while (running) {
-            try {
-                if (discoveryIp != null && discoveryIp.trim().length() > 0) {
-                    address = InetAddress.getByName(discoveryIp);
-                } else {
-                    Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
-                    while (interfaces.hasMoreElements()) {
-                        NetworkInterface ni = interfaces.nextElement();
-                        Enumeration<InetAddress> addresses = ni.getInetAddresses();
-                        while (addresses.hasMoreElements()) {
-                            InetAddress addr = addresses.nextElement();
-                            if (addr instanceof Inet4Address && !addr.isLoopbackAddress()) {
-                                address = addr;
-                                break;
-                            }
-                        }
-                    }
-                }
-                InetSocketAddress socketAddr = new InetSocketAddress(MULTI_ADDR, UPNP_PORT_RECV);
-                recvSocket = new MulticastSocket(UPNP_PORT_RECV);
-                recvSocket.joinGroup(socketAddr, NetworkInterface.getByInetAddress(address));
-                sendSocket = new DatagramSocket();
+            // since jupnp shares port 1900, lets use a different channel to send UDP packets on just to be safe.
+            try (Selector selector = Selector.open();
+                    DatagramChannel recvChannel = DatagramChannel.open(StandardProtocolFamily.INET);
+                    DatagramChannel sendChannel = DatagramChannel.open(StandardProtocolFamily.INET)) {
+                recvChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                recvChannel.bind(new InetSocketAddress(UPNP_PORT_RECV));
+                recvChannel.configureBlocking(false);
+                recvChannel.register(selector, SelectionKey.OP_READ);
+                sendChannel.configureBlocking(false);
+                this.selector = selector;
+
+                ByteBuffer buffer = ByteBuffer.allocate(1024);
+                long nextInterfaceCheck = 0;
                 while (running) {
-                    recvSocket.receive(recv);
-                    if (recv.getLength() > 0) {
-                        String data = new String(recv.getData());
-                        logger.trace("Got SSDP Discovery packet from {}:{}", recv.getAddress().getHostAddress(),
-                                recv.getPort());
-                        if (data.startsWith("M-SEARCH")) {
-                            String hueId = usn.substring(usn.length() - 12).toUpperCase();
-
-                            String[] stVersions = { "upnp:rootdevice", "urn:schemas-upnp-org:device:basic:1",
-                                    "uuid:" + usn };
-
-                            for (String st : stVersions) {
-                                String msg = String.format(discoString, MULTI_ADDR, UPNP_PORT_RECV,
-                                        "http://" + address.getHostAddress().toString() + ":" + webPort + discoPath,
-                                        hueId, st, usn);
-
-                                DatagramPacket response = new DatagramPacket(msg.getBytes(), msg.length(),
-                                        recv.getAddress(), recv.getPort());
-                                try {
-                                    logger.trace("Sending to {} : {}", recv.getAddress().getHostAddress(), msg);
-                                    sendSocket.send(response);
-                                } catch (IOException e) {
-                                    logger.debug("Could not send UPNP response: {}", e.getMessage());
-                                }
-                            }
-                        }
+                    long now = System.currentTimeMillis();
+                    if (now >= nextInterfaceCheck) {
+                        refreshInterfaces(recvChannel);
+                        lastReplies.values().removeIf(time -> now - time >= REPLY_INTERVAL_MS);
+                        nextInterfaceCheck = now + INTERFACE_CHECK_INTERVAL_MS;
+                    }
+
+                    selector.select(INTERFACE_CHECK_INTERVAL_MS);
+                    selector.selectedKeys().clear();
+
+                    SocketAddress sender;
+                    while (running && (sender = recvChannel.receive(buffer)) != null) {
+                        buffer.flip();
+                        handlePacket(buffer, (InetSocketAddress) sender, sendChannel);
+                        buffer.clear();
                     }
                 }
-            } catch (SocketException e) {
-                logger.error("Socket error with UPNP server", e);
             } catch (IOException e) {
-                logger.error("IO Error with UPNP server", e);
-            } finally {
-                IOUtils.closeQuietly(recvSocket);
-                IOUtils.closeQuietly(sendSocket);
                 if (running) {
-                    try {
-                        Thread.sleep(3000);
-                    } catch (InterruptedException e) {
-                    }
+                    logger.error("IO Error with UPNP server", e);
+                }
+            } finally {
+                this.selector = null;
+                memberships.clear();
+                interfaceSignature = null;
+            }
+            if (running) {
+                try {
+                    Thread.sleep(RETRY_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    running = false;
                 }
             }
         }
+        logger.debug("UPNP server stopped");
     }
 
     public InetAddress getAddress() {
         return address;
     }
+
+    /**
+     * Answers an M-SEARCH request with the precomputed responses of the interface in the network of the sender.
+     */
+    private void handlePacket(ByteBuffer packet, InetSocketAddress sender, DatagramChannel sendChannel) {
+        if (!startsWith(packet, M_SEARCH)) {
+            return;
+        }
+        logger.trace("Got SSDP Discovery packet from {}:{}", sender.getAddress().getHostAddress(), sender.getPort());
+
+        Responder responder = getResponder(sender.getAddress());
+        if (responder == null) {
+            return;
+        }
+        if (!acceptRequest(sender.getAddress(), System.currentTimeMillis())) {
+            logger.trace("Skipping SSDP Discovery packet from {}, answered already", sender);
+            return;
+        }
+        for (ByteBuffer response : responder.responses) {
+            try {
+                if (sendChannel.send(response.duplicate(), sender) == 0) {
+                    logger.debug("Could not send UPNP response to {}, the send buffer is full", sender);
+                }
+            } catch (IOException e) {
+                logger.debug("Could not send UPNP response: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns true and remembers the reply if the requester was not answered within the last
+     * {@value #REPLY_INTERVAL_MS} ms. Requesters are identified by their address only, as a client sends
+     * its requests from changing ports.
+     */
+    boolean acceptRequest(InetAddress requester, long now) {
+        Long lastReply = lastReplies.get(requester);
+        if (lastReply != null && now - lastReply < REPLY_INTERVAL_MS) {
+            return false;
+        }
+        // remove before put, so that the requester becomes the newest entry
+        lastReplies.remove(requester);
+        lastReplies.put(requester, now);
+        return true;
+    }
+
+    /**
+     * Returns the amount of remembered requesters.
+     */
+    int getRequesterCount() {
+        return lastReplies.size();
+    }
+
+    private boolean startsWith(ByteBuffer packet, byte[] prefix) {
+        if (packet.remaining() < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (packet.get(packet.position() + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the responder of the interface in the network of the requester, or the first one.
+     */
+    private Responder getResponder(InetAddress requester) {
+        for (Responder responder : responders) {
+            if (responder.isInNetwork(requester)) {
+                return responder;
+            }
+        }
+        return responders.isEmpty() ? null : responders.get(0);
+    }
+
+    /**
+     * Rebuilds the responses and joins the multicast group on new interfaces, if the interfaces changed.
+     */
+    private void refreshInterfaces(DatagramChannel recvChannel) throws IOException {
+        Map<InterfaceAddress, NetworkInterface> interfaceAddresses = new LinkedHashMap<>();
+        Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+        while (interfaces.hasMoreElements()) {
+            NetworkInterface ni = interfaces.nextElement();
+            if (!ni.isUp() || ni.isLoopback() || !ni.supportsMulticast()) {
+                continue;
+            }
+            for (InterfaceAddress interfaceAddress : ni.getInterfaceAddresses()) {
+                if (interfaceAddress.getAddress() instanceof Inet4Address) {
+                    interfaceAddresses.put(interfaceAddress, ni);
+                }
+            }
+        }
+
+        String signature = String.valueOf(discoveryIp) + interfaceAddresses;
+        if (signature.equals(interfaceSignature)) {
+            return;
+        }
+        interfaceSignature = signature;
+
+        List<Responder> newResponders = new ArrayList<>();
+        Map<NetworkInterface, InetAddress> joinInterfaces = new HashMap<>();
+        if (discoveryIp != null && discoveryIp.trim().length() > 0) {
+            InetAddress discoveryAddress = InetAddress.getByName(discoveryIp.trim());
+            newResponders.add(new Responder(discoveryAddress, 0));
+            for (Map.Entry<InterfaceAddress, NetworkInterface> entry : interfaceAddresses.entrySet()) {
+                if (entry.getKey().getAddress().equals(discoveryAddress)) {
+                    joinInterfaces.put(entry.getValue(), discoveryAddress);
+                }
+            }
+        }
+        if (newResponders.isEmpty() || joinInterfaces.isEmpty()) {
+            for (Map.Entry<InterfaceAddress, NetworkInterface> entry : interfaceAddresses.entrySet()) {
+                if (discoveryIp == null || discoveryIp.trim().length() == 0) {
+                    newResponders.add(
+                            new Responder(entry.getKey().getAddress(), entry.getKey().getNetworkPrefixLength()));
+                }
+                joinInterfaces.put(entry.getValue(), entry.getKey().getAddress());
+            }
+        }
+        responders = newResponders;
+        address = newResponders.isEmpty() ? null : newResponders.get(0).address;
+        logger.debug("UPNP responses prepared for {}", address);
+
+        InetAddress group = InetAddress.getByName(MULTI_ADDR);
+        for (Iterator<Map.Entry<NetworkInterface, MembershipKey>> it = memberships.entrySet().iterator(); it
+                .hasNext();) {
+            Map.Entry<NetworkInterface, MembershipKey> entry = it.next();
+            if (!joinInterfaces.containsKey(entry.getKey())) {
+                entry.getValue().drop();
+                it.remove();
+            }
+        }
+        for (NetworkInterface ni : joinInterfaces.keySet()) {
+            if (!memberships.containsKey(ni)) {
+                try {
+                    memberships.put(ni, recvChannel.join(group, ni));
+                } catch (IOException e) {
+                    logger.debug("Could not join UPNP multicast group on {}: {}", ni.getName(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * The precomputed responses for one local address.
+     */
+    private class Responder {
+        private final InetAddress address;
+        private final byte[] network;
+        private final int prefixLength;
+        private final List<ByteBuffer> responses = new ArrayList<>();
+
+        Responder(InetAddress address, int prefixLength) {
+            this.address = address;
+            this.network = address.getAddress();
+            this.prefixLength = prefixLength;
+
+            String hueId = usn.substring(usn.length() - 12).toUpperCase();
+            String[] stVersions = { "upnp:rootdevice", "urn:schemas-upnp-org:device:basic:1", "uuid:" + usn };
+            for (String st : stVersions) {
+                String msg = String.format(discoString, MULTI_ADDR, UPNP_PORT_RECV,
+                        "http://" + address.getHostAddress() + ":" + webPort + discoPath, hueId, st, usn);
+                responses.add(ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer());
+            }
+        }
+
+        /**
+         * Returns true if the given address is in the network of this address. A prefix length of 0 matches all.
+         */
+        boolean isInNetwork(InetAddress other) {
+            byte[] otherBytes = other.getAddress();
+            if (otherBytes.length != network.length) {
+                return false;
+            }
+            for (int bit = 0; bit < prefixLength; bit++) {
+                int mask = 0x80 >> (bit % 8);
+                if ((network[bit / 8] & mask) != (otherBytes[bit / 8] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URISyntaxException;
+
+import org.junit.Test;
+
+import io.socket.client.IO;
+import io.socket.client.Manager;
+import io.socket.client.Socket;
+import io.socket.emitter.Emitter;
+
+/**
+ * Tests cases for the access of {@link CloudClient} to the Engine.IO socket of the embedded Socket.IO client.
+ * They fail if an update of the Socket.IO client breaks the flow control of proxied responses.
+ *
+ * @author agent - Initial contribution
+ */
+public class CloudClientTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    @Test
+    public void engineFieldIsAccessibleTest() {
+        assertNotNull(CloudClient.ENGINE_FIELD);
+    }
+
+    @Test
+    public void engineOfOpenedManagerIsFoundTest() throws IOException, URISyntaxException, IllegalAccessException,
+            InterruptedException {
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            IO.Options options = new IO.Options();
+            options.forceNew = true;
+            options.reconnection = false;
+            Socket socket = IO.socket("http://127.0.0.1:" + serverSocket.getLocalPort(), options);
+            try {
+                // the engine is created by the event thread of Socket.IO
+                socket.connect();
+                Manager manager = socket.io();
+                long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+                while (CloudClient.ENGINE_FIELD.get(manager) == null && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                Emitter engine = CloudClient.getEngine(manager);
+                assertTrue(engine instanceof io.socket.engineio.client.Socket);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+}
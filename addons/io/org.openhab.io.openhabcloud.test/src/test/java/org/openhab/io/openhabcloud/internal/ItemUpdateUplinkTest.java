@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests cases for {@link ItemUpdateUplink}
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemUpdateUplinkTest {
+    private final List<String> sent = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        // flushes are only recorded by the scheduler and performed by the test
+        scheduler = mock(ScheduledExecutorService.class);
+    }
+
+    @Test
+    public void supersededStatesAreNotSentTest() {
+        ItemUpdateUplink uplink = new ItemUpdateUplink(this::send, scheduler, 1000, 10);
+        uplink.setConnected(true);
+
+        uplink.update("a", "1");
+        uplink.update("b", "1");
+        uplink.update("a", "2");
+        uplink.flush();
+
+        assertThat(sent, is(Arrays.asList("a=2", "b=1")));
+        assertThat(uplink.getReceivedUpdates(), is(3L));
+        assertThat(uplink.getSupersededUpdates(), is(1L));
+        assertThat(uplink.getSentUpdates(), is(2L));
+        assertThat(uplink.getPendingUpdates(), is(0));
+    }
+
+    @Test
+    public void pendingUpdatesAreBoundedTest() {
+        ItemUpdateUplink uplink = new ItemUpdateUplink(this::send, scheduler, 1000, 10, 2);
+
+        uplink.update("a", "1");
+        uplink.update("b", "1");
+        uplink.update("c", "1");
+        // the state of a pending item is still replaced
+        uplink.update("a", "2");
+
+        assertThat(uplink.getDroppedUpdates(), is(1L));
+        assertThat(uplink.getSupersededUpdates(), is(1L));
+        assertThat(uplink.getPendingUpdates(), is(2));
+    }
+
+    @Test
+    public void updatesAreKeptWhileDisconnectedTest() {
+        ItemUpdateUplink uplink = new ItemUpdateUplink(this::send, scheduler, 1000, 10);
+
+        uplink.update("a", "1");
+        uplink.flush();
+        assertTrue(sent.isEmpty());
+        verify(scheduler, never()).execute(any(Runnable.class));
+
+        uplink.setConnected(true);
+        verify(scheduler).execute(any(Runnable.class));
+        uplink.flush();
+        assertThat(sent, is(Arrays.asList("a=1")));
+    }
+
+    @Test
+    public void fullBatchRequestsOneFlushTest() {
+        ItemUpdateUplink uplink = new ItemUpdateUplink(this::send, scheduler, 1000, 2);
+        uplink.setConnected(true);
+        uplink.flush();
+        reset(scheduler);
+
+        uplink.update("a", "1");
+        verify(scheduler, never()).execute(any(Runnable.class));
+        uplink.update("b", "1");
+        uplink.update("c", "1");
+        uplink.update("d", "1");
+        // the requested flush did not run yet, so no further flush is requested
+        verify(scheduler, times(1)).execute(any(Runnable.class));
+
+        uplink.flush();
+        assertThat(sent, is(Arrays.asList("a=1", "b=1", "c=1", "d=1")));
+        assertThat(uplink.toString(), containsString("in 2 batches"));
+    }
+
+    @Test
+    public void failedSendDoesNotStopTheFlushTest() {
+        ItemUpdateUplink uplink = new ItemUpdateUplink((itemName, itemState) -> {
+            if (itemName.equals("a")) {
+                throw new IllegalStateException("not connected");
+            }
+            send(itemName, itemState);
+        }, scheduler, 1000, 10);
+        uplink.setConnected(true);
+
+        uplink.update("a", "1");
+        uplink.update("b", "1");
+        uplink.flush();
+
+        assertThat(sent, is(Arrays.asList("b=1")));
+        assertThat(uplink.getPendingUpdates(), is(0));
+    }
+
+    @Test
+    public void stopDropsPendingUpdatesTest() {
+        ItemUpdateUplink uplink = new ItemUpdateUplink(this::send, scheduler, 1000, 10);
+        uplink.update("a", "1");
+
+        uplink.stop();
+        uplink.setConnected(true);
+        uplink.flush();
+
+        assertTrue(sent.isEmpty());
+    }
+
+    private void send(String itemName, String itemState) {
+        sent.add(itemName + "=" + itemState);
+    }
+}
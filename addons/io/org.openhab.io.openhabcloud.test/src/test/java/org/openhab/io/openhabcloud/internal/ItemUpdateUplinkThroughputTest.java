@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends a burst of item updates through an {@link ItemUpdateUplink} to a receiver on the loopback interface and
+ * checks that the latest state of every item arrives.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemUpdateUplinkThroughputTest {
+    private static final int PRODUCERS = 4;
+    private static final int ITEMS_PER_PRODUCER = 200;
+    private static final int UPDATES_PER_PRODUCER = 50000;
+    private static final long TIMEOUT_MS = 30000;
+
+    private final Logger logger = LoggerFactory.getLogger(ItemUpdateUplinkThroughputTest.class);
+    private final Map<String, String> receivedStates = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ServerSocket serverSocket;
+    private Socket socket;
+    private Writer writer;
+    private Thread receiver;
+
+    @Before
+    public void setUp() throws IOException {
+        scheduler = Executors.newScheduledThreadPool(2);
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        Socket accepted = serverSocket.accept();
+        receiver = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(accepted.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.indexOf('=');
+                    receivedStates.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            } catch (IOException e) {
+                // the connection has been closed
+            }
+        }, "uplinkReceiver");
+        receiver.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        socket.close();
+        serverSocket.close();
+    }
+
+    @Test
+    public void loopbackThroughputTest() throws Exception {
+        ItemUpdateUplink uplink = new ItemUpdateUplink(this::send, scheduler, 50, 100);
+        uplink.start();
+        uplink.setConnected(true);
+
+        long start = System.nanoTime();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < UPDATES_PER_PRODUCER; i++) {
+                    uplink.update(itemName(producer, i % ITEMS_PER_PRODUCER), Integer.toString(i));
+                }
+            }, "uplinkProducer" + p);
+            producers.add(thread);
+            thread.start();
+        }
+        for (Thread thread : producers) {
+            thread.join(TIMEOUT_MS);
+        }
+
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (uplink.getPendingUpdates() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        uplink.flush();
+        uplink.stop();
+        synchronized (writer) {
+            writer.flush();
+        }
+        socket.shutdownOutput();
+        receiver.join(TIMEOUT_MS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long received = uplink.getReceivedUpdates();
+        assertThat(received, is((long) PRODUCERS * UPDATES_PER_PRODUCER));
+        assertThat(uplink.getDroppedUpdates(), is(0L));
+        assertThat(uplink.getSupersededUpdates() + uplink.getSentUpdates(), is(received));
+        for (int p = 0; p < PRODUCERS; p++) {
+            for (int item = 0; item < ITEMS_PER_PRODUCER; item++) {
+                int lastUpdate = UPDATES_PER_PRODUCER - ITEMS_PER_PRODUCER + item;
+                assertEquals(Integer.toString(lastUpdate), receivedStates.get(itemName(p, item)));
+            }
+        }
+        logger.info("{} item updates in {} ms: {}", received, elapsedMs, uplink);
+    }
+
+    private void send(String itemName, String itemState) {
+        synchronized (writer) {
+            try {
+                writer.write(itemName + "=" + itemState + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static String itemName(int producer, int item) {
+        return "item_" + producer + "_" + item;
+    }
+}
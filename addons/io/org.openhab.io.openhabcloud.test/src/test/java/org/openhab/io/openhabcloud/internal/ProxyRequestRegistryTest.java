@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.client.api.Request;
+import org.junit.Test;
+import org.openhab.io.openhabcloud.internal.ProxyRequestRegistry.ProxyRequest;
+
+/**
+ * Tests cases for {@link ProxyRequestRegistry}
+ *
+ * @author agent - Initial contribution
+ */
+public class ProxyRequestRegistryTest {
+    private static final long STALL_TIMEOUT = 30000;
+    private static final long NOW = TimeUnit.SECONDS.toNanos(1000);
+
+    @Test
+    public void slowConnectionStallsResponseTest() {
+        ProxyRequestRegistry registry = new ProxyRequestRegistry(STALL_TIMEOUT);
+        ProxyRequest proxyRequest = registry.add(1, mock(Request.class));
+        AtomicInteger readNextContent = new AtomicInteger();
+
+        // The next content is not read, as long as the connection did not write the pending chunks
+        registry.chunksPending(proxyRequest, 2, 1024, readNextContent::incrementAndGet, NOW);
+        assertThat(readNextContent.get(), is(0));
+
+        registry.drained();
+        assertThat(readNextContent.get(), is(1));
+
+        // A drain without pending content does not read further content
+        registry.drained();
+        assertThat(readNextContent.get(), is(1));
+    }
+
+    @Test
+    public void drainReleasesAllPendingRequestsTest() {
+        ProxyRequestRegistry registry = new ProxyRequestRegistry(STALL_TIMEOUT);
+        AtomicInteger readNextContent = new AtomicInteger();
+        registry.chunksPending(registry.add(1, mock(Request.class)), 1, 10, readNextContent::incrementAndGet, NOW);
+        registry.chunksPending(registry.add(2, mock(Request.class)), 1, 10, readNextContent::incrementAndGet, NOW);
+
+        registry.drained();
+        assertThat(readNextContent.get(), is(2));
+    }
+
+    @Test
+    public void stalledRequestIsAbortedTest() {
+        ProxyRequestRegistry registry = new ProxyRequestRegistry(STALL_TIMEOUT);
+        Request request = mock(Request.class);
+        Request waitingRequest = mock(Request.class);
+        registry.add(1, request);
+        registry.chunksPending(registry.add(2, waitingRequest), 1, 10, () -> {
+        }, NOW);
+
+        registry.checkTimeouts(NOW + TimeUnit.MILLISECONDS.toNanos(STALL_TIMEOUT));
+        verify(waitingRequest, never()).abort(any(Throwable.class));
+
+        registry.checkTimeouts(NOW + TimeUnit.MILLISECONDS.toNanos(STALL_TIMEOUT) + 1);
+
+        verify(waitingRequest).abort(any(TimeoutException.class));
+        verify(request, never()).abort(any(Throwable.class));
+        assertThat(registry.size(), is(1));
+    }
+
+    @Test
+    public void handedOverRequestIsNotAbortedTest() {
+        ProxyRequestRegistry registry = new ProxyRequestRegistry(STALL_TIMEOUT);
+        Request request = mock(Request.class);
+        registry.chunksPending(registry.add(1, request), 1, 10, () -> {
+        }, NOW);
+        registry.drained();
+
+        registry.checkTimeouts(NOW + TimeUnit.MILLISECONDS.toNanos(2 * STALL_TIMEOUT));
+
+        verify(request, never()).abort(any(Throwable.class));
+        assertThat(registry.size(), is(1));
+    }
+
+    @Test
+    public void cancelTest() {
+        ProxyRequestRegistry registry = new ProxyRequestRegistry(STALL_TIMEOUT);
+        Request request = mock(Request.class);
+        ProxyRequest proxyRequest = registry.add(1, request);
+
+        assertTrue(registry.cancel(1));
+        assertFalse(registry.cancel(1));
+        verify(request).abort(any(InterruptedException.class));
+
+        // A late completion of the cancelled request is ignored
+        registry.finished(proxyRequest, true);
+        assertThat(registry.size(), is(0));
+    }
+}
@@ -9,25 +9,28 @@
 package org.openhab.io.openhabcloud.internal;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.net.MalformedURLException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.api.Request;
 import org.eclipse.jetty.client.api.Request.FailureListener;
 import org.eclipse.jetty.client.api.Response;
-import org.eclipse.jetty.client.api.Response.ContentListener;
+import org.eclipse.jetty.client.api.Response.AsyncContentListener;
 import org.eclipse.jetty.client.api.Response.HeadersListener;
 import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.client.util.BytesContentProvider;
@@ -35,12 +38,13 @@ import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.HttpStatus;
-import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.openhab.core.OpenHAB;
+import org.openhab.io.openhabcloud.internal.ProxyRequestRegistry.ProxyRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +53,7 @@ import io.socket.client.Manager;
 import io.socket.client.Socket;
 import io.socket.emitter.Emitter;
 import io.socket.engineio.client.Transport;
+import io.socket.thread.EventThread;
 
 /**
  * This class provides communication between openHAB and the openHAB Cloud service.
@@ -79,6 +84,28 @@ public class CloudClient {
      */
     private static final int HTTP_CLIENT_TIMEOUT = 30000;
 
+    /*
+     * The thread pool which forwards responses and item updates to the openHAB Cloud
+     */
+    private static final String THREADPOOL_OPENHABCLOUD = "openhabcloud";
+
+    /*
+     * This constant defines the maximum size of a response content chunk sent to the openHAB Cloud
+     */
+    private static final int RESPONSE_CHUNK_SIZE = 64 * 1024;
+
+    /*
+     * This constant defines how long the response content of a request may wait to be handed over
+     * to the openHAB Cloud connection before the request is aborted
+     */
+    private static final int RESPONSE_STALL_TIMEOUT = 30000;
+
+    /*
+     * The private field of the Socket.IO manager which holds the Engine.IO socket
+     */
+    private static final String ENGINE_FIELD_NAME = "engine";
+    static final Field ENGINE_FIELD = findEngineField();
+
     /*
      * This variable holds base URL for the openHAB Cloud connections
      */
@@ -105,9 +132,21 @@ public class CloudClient {
     private HttpClient jettyClient;
 
     /*
-     * This hashmap holds HTTP requests to local openHAB which are currently running
+     * This registry holds HTTP requests to local openHAB which are currently running
      */
-    private HashMap<Integer, Request> runningRequests;
+    private final ProxyRequestRegistry runningRequests;
+
+    /*
+     * This variable holds the scheduler for response content, item updates and timeouts
+     */
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> timeoutJob;
+
+    /*
+     * This variable indicates if the drain event of the Engine.IO connection is available to tell when
+     * response content has been written to the openHAB Cloud connection
+     */
+    private volatile boolean drainSignalAvailable;
 
     /*
      * This variable indicates if connection to the openHAB Cloud is currently in an established state
@@ -138,6 +177,11 @@ public class CloudClient {
     private boolean remoteAccessEnabled;
     private Set<String> exposedItems;
 
+    /*
+     * This variable holds the coalescing queue of item updates to the openHAB Cloud
+     */
+    private final ItemUpdateUplink itemUpdateUplink;
+
     /**
      * Constructor of CloudClient
      *
@@ -145,20 +189,24 @@ public class CloudClient {
      * @param secret openHAB's Secret to connect to the openHAB Cloud
      * @param remoteAccessEnabled Allow the openHAB Cloud to be used as a remote proxy
      * @param exposedItems Items that are made available to apps connected to the openHAB Cloud
+     * @param updateInterval Interval in milliseconds in which item updates are sent to the openHAB Cloud
+     * @param updateBatchSize Number of pending item updates which are sent before the interval is over
      *
      */
     public CloudClient(String uuid, String secret, String baseURL, String localBaseUrl, boolean remoteAccessEnabled,
-            Set<String> exposedItems) {
+            Set<String> exposedItems, int updateInterval, int updateBatchSize) {
         this.uuid = uuid;
         this.secret = secret;
         this.baseURL = baseURL;
         this.localBaseUrl = localBaseUrl;
         this.remoteAccessEnabled = remoteAccessEnabled;
         this.exposedItems = exposedItems;
-        runningRequests = new HashMap<Integer, Request>();
+        runningRequests = new ProxyRequestRegistry(RESPONSE_STALL_TIMEOUT);
+        scheduler = ThreadPoolManager.getScheduledPool(THREADPOOL_OPENHABCLOUD);
         jettyClient = new HttpClient();
         jettyClient.setMaxConnectionsPerDestination(HTTP_CLIENT_MAX_CONNECTIONS_PER_DEST);
         jettyClient.setConnectTimeout(HTTP_CLIENT_TIMEOUT);
+        itemUpdateUplink = new ItemUpdateUplink(this::emitItemUpdate, scheduler, updateInterval, updateBatchSize);
     }
 
     /**
@@ -175,6 +223,22 @@ public class CloudClient {
         } catch (MalformedURLException e) {
             logger.error("Error parsing baseURL to get protocol, assuming https. Error: {}", e.getMessage());
         }
+        socket.io().on(Manager.EVENT_OPEN, new Emitter.Listener() {
+            @Override
+            public void call(Object... args) {
+                logger.trace("Manager.EVENT_OPEN");
+                Emitter engine = getEngine(socket.io());
+                if (engine != null) {
+                    engine.on(io.socket.engineio.client.Socket.EVENT_DRAIN, new Emitter.Listener() {
+                        @Override
+                        public void call(Object... args) {
+                            runningRequests.drained();
+                        }
+                    });
+                }
+                drainSignalAvailable = engine != null;
+            }
+        });
         socket.io().on(Manager.EVENT_TRANSPORT, new Emitter.Listener() {
             @Override
             public void call(Object... args) {
@@ -231,6 +295,9 @@ public class CloudClient {
                 onEvent("command", (JSONObject) args[0]);
             }
         });
+        itemUpdateUplink.start();
+        timeoutJob = scheduler.scheduleWithFixedDelay(() -> runningRequests.checkTimeouts(System.nanoTime()),
+                RESPONSE_STALL_TIMEOUT / 6, RESPONSE_STALL_TIMEOUT / 6, TimeUnit.MILLISECONDS);
         socket.connect();
     }
 
@@ -249,6 +316,7 @@ public class CloudClient {
                 logger.error("Could not start Jetty client: {}", e.getMessage());
             }
         }
+        itemUpdateUplink.setConnected(true);
     }
 
     /**
@@ -259,6 +327,7 @@ public class CloudClient {
         logger.info("Disconnected from the openHAB Cloud service (UUID = {}, base URL = {})", this.uuid,
                 this.localBaseUrl);
         isConnected = false;
+        itemUpdateUplink.setConnected(false);
         // On disconnect stop jetty client to shutdown all ongoing requests if there were any
         if (jettyClient != null) {
             try {
@@ -268,9 +337,8 @@ public class CloudClient {
             }
         }
         // And clean up the list of running requests
-        if (runningRequests != null) {
-            runningRequests.clear();
-        }
+        logger.debug("Proxied requests: {}", runningRequests);
+        runningRequests.clear();
     }
 
     /**
@@ -360,11 +428,11 @@ public class CloudClient {
                 logger.error("Unsupported request method {}", requestMethod);
                 return;
             }
-            ResponseListener listener = new ResponseListener(requestId);
-            request.onResponseHeaders(listener).onResponseContent(listener).onRequestFailure(listener).send(listener);
-            // If successfully submitted request to http client, add it to the list of currently
-            // running requests to be able to cancel it if needed
-            runningRequests.put(requestId, request);
+            // Add the request to the list of currently running requests before it is sent,
+            // to be able to cancel it if needed
+            ResponseListener listener = new ResponseListener(runningRequests.add(requestId, request));
+            request.onResponseHeaders(listener).onResponseContentAsync(listener).onRequestFailure(listener)
+                    .send(listener);
         } catch (JSONException e) {
             logger.error("{}", e.getMessage());
         } catch (IOException e) {
@@ -398,11 +466,7 @@ public class CloudClient {
             int requestId = data.getInt("id");
             logger.debug("Received cancel for request {}", requestId);
             // Find and abort running request
-            if (runningRequests.containsKey(requestId)) {
-                Request request = runningRequests.get(requestId);
-                request.abort(new InterruptedException());
-                runningRequests.remove(requestId);
-            }
+            runningRequests.cancel(requestId);
         } catch (JSONException e) {
             logger.error("{}", e.getMessage());
         }
@@ -499,13 +563,18 @@ public class CloudClient {
     }
 
     /**
-     * Send item update to openHAB Cloud
+     * Send item update to openHAB Cloud. The update is queued and sent with the next batch,
+     * a pending update of the same item is replaced.
      *
      * @param itemName the name of the item
      * @param itemState updated item state
      *
      */
     public void sendItemUpdate(String itemName, String itemState) {
+        itemUpdateUplink.update(itemName, itemState);
+    }
+
+    private void emitItemUpdate(String itemName, String itemState) {
         if (isConnected()) {
             logger.debug("Sending update '{}' for item '{}'", itemState, itemName);
             JSONObject itemUpdateMessage = new JSONObject();
@@ -533,6 +602,11 @@ public class CloudClient {
      */
     public void shutdown() {
         logger.info("Shutting down openHAB Cloud service connection");
+        itemUpdateUplink.stop();
+        if (timeoutJob != null) {
+            timeoutJob.cancel(false);
+            timeoutJob = null;
+        }
         try {
             jettyClient.stop();
         } catch (Exception e) {
@@ -553,18 +627,60 @@ public class CloudClient {
         this.listener = listener;
     }
 
+    /**
+     * Returns the Engine.IO socket of the Socket.IO manager, or null if it is not accessible. Socket.IO does
+     * not expose it, but only its drain event tells when the emitted packets have been written to the connection.
+     * The field is only known to exist in the embedded socket.io-client 0.8.2, which {@link CloudClientTest}
+     * verifies.
+     */
+    static Emitter getEngine(Manager manager) {
+        if (ENGINE_FIELD == null) {
+            return null;
+        }
+        try {
+            Emitter engine = (Emitter) ENGINE_FIELD.get(manager);
+            if (engine == null) {
+                LoggerFactory.getLogger(CloudClient.class).error(
+                        "The Socket.IO manager has no Engine.IO socket, response content is not flow controlled");
+            }
+            return engine;
+        } catch (IllegalAccessException | RuntimeException e) {
+            LoggerFactory.getLogger(CloudClient.class).error(
+                    "Cannot access the Engine.IO socket, response content is not flow controlled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Field findEngineField() {
+        try {
+            Field engine = Manager.class.getDeclaredField(ENGINE_FIELD_NAME);
+            if (!Emitter.class.isAssignableFrom(engine.getType())) {
+                throw new NoSuchFieldException(ENGINE_FIELD_NAME + " is of type " + engine.getType().getName());
+            }
+            engine.setAccessible(true);
+            return engine;
+        } catch (NoSuchFieldException | RuntimeException e) {
+            LoggerFactory.getLogger(CloudClient.class).error(
+                    "The Socket.IO client is not compatible, response content of proxied requests is not flow "
+                            + "controlled and the openHAB Cloud connection may buffer it without limit: {}",
+                    e.getMessage());
+            return null;
+        }
+    }
+
     /*
      * An internal class which forwards response headers and data back to the openHAB Cloud
      */
     private class ResponseListener
-            implements Response.CompleteListener, HeadersListener, ContentListener, FailureListener {
+            implements Response.CompleteListener, HeadersListener, AsyncContentListener, FailureListener {
 
-        private static final String THREADPOOL_OPENHABCLOUD = "openhabcloud";
+        private final ProxyRequest mProxyRequest;
         private int mRequestId;
         private boolean mHeadersSent = false;
 
-        public ResponseListener(int requestId) {
-            mRequestId = requestId;
+        public ResponseListener(ProxyRequest proxyRequest) {
+            mProxyRequest = proxyRequest;
+            mRequestId = proxyRequest.getId();
         }
 
         private JSONObject getJSONHeaders(HttpFields httpFields) {
@@ -582,7 +698,7 @@ public class CloudClient {
         @Override
         public void onComplete(Result result) {
             // Remove this request from list of running requests
-            runningRequests.remove(mRequestId);
+            runningRequests.finished(mProxyRequest, result.isFailed());
             if (result.isFailed() && result.getResponse().getStatus() != HttpStatus.OK_200) {
                 logger.warn("Jetty request {} failed: {}", mRequestId, result.getFailure().getMessage());
                 logger.warn("{}", result.getRequestFailure().getMessage());
@@ -594,7 +710,7 @@ public class CloudClient {
              * can receive responseFinished before the headers or content are received and I
              * cannot find another workaround to prevent it.
              */
-            ThreadPoolManager.getScheduledPool(THREADPOOL_OPENHABCLOUD).schedule(new Runnable() {
+            scheduler.schedule(new Runnable() {
 
                 @Override
                 public void run() {
@@ -623,18 +739,49 @@ public class CloudClient {
             }
         }
 
+        /**
+         * Sends the content in chunks of at most {@link CloudClient#RESPONSE_CHUNK_SIZE} bytes. Jetty does not
+         * deliver further content of this response until the callback has succeeded, which happens as soon as
+         * the Engine.IO write buffer has been drained, i.e. the chunks have been written to the openHAB Cloud
+         * connection. So a slow connection stalls the local response, and the memory held by a response is
+         * bounded by the size of one content buffer, no matter how large the response is.
+         */
         @Override
-        public void onContent(Response response, ByteBuffer content) {
-            logger.debug("Jetty received response content of size {}", String.valueOf(content.remaining()));
-            JSONObject responseJson = new JSONObject();
+        public void onContent(Response response, ByteBuffer content, Callback callback) {
+            int size = content.remaining();
+            logger.debug("Jetty received response content of size {}", size);
+            List<JSONObject> chunks = new ArrayList<>();
             try {
-                responseJson.put("id", mRequestId);
-                responseJson.put("body", BufferUtil.toArray(content));
-                socket.emit("responseContentBinary", responseJson);
-                logger.debug("Sent content to request {}", mRequestId);
+                while (content.hasRemaining()) {
+                    byte[] chunk = new byte[Math.min(RESPONSE_CHUNK_SIZE, content.remaining())];
+                    content.get(chunk);
+                    JSONObject responseJson = new JSONObject();
+                    responseJson.put("id", mRequestId);
+                    responseJson.put("body", chunk);
+                    chunks.add(responseJson);
+                }
             } catch (JSONException e) {
                 logger.error("{}", e.getMessage());
+                callback.failed(e);
+                return;
             }
+            Runnable handedOver = () -> {
+                logger.debug("Sent content to request {}", mRequestId);
+                // Do not let Jetty read the next content on the Socket.IO event thread
+                scheduler.execute(callback::succeeded);
+            };
+            // Emit and register in one task of the Socket.IO event thread, so the chunks are in the
+            // Engine.IO write buffer before the next drain event is processed
+            EventThread.exec(() -> {
+                for (JSONObject chunk : chunks) {
+                    socket.emit("responseContentBinary", chunk);
+                }
+                if (drainSignalAvailable) {
+                    runningRequests.chunksPending(mProxyRequest, chunks.size(), size, handedOver, System.nanoTime());
+                } else {
+                    handedOver.run();
+                }
+            });
         }
 
         @Override
@@ -60,6 +60,10 @@ public class CloudService implements ActionService, CloudClientListener, EventSu
     private static final String CFG_EXPOSE = "expose";
     private static final String CFG_BASE_URL = "baseURL";
     private static final String CFG_MODE = "mode";
+    private static final String CFG_UPDATE_INTERVAL = "updateInterval";
+    private static final String CFG_UPDATE_BATCH_SIZE = "updateBatchSize";
+    private static final int DEFAULT_UPDATE_INTERVAL = 500;
+    private static final int DEFAULT_UPDATE_BATCH_SIZE = 50;
     private static final String SECRET_FILE_NAME = "openhabcloud" + File.separator + "secret";
     private static final String DEFAULT_URL = "https://myopenhab.org/";
 
@@ -184,6 +188,9 @@ public class CloudService implements ActionService, CloudClientListener, EventSu
             }
         }
 
+        int updateInterval = getIntConfig(config, CFG_UPDATE_INTERVAL, DEFAULT_UPDATE_INTERVAL);
+        int updateBatchSize = getIntConfig(config, CFG_UPDATE_BATCH_SIZE, DEFAULT_UPDATE_BATCH_SIZE);
+
         logger.debug("UUID = {}, secret = {}", InstanceUUID.get(), getSecret());
 
         if (cloudClient != null) {
@@ -192,13 +199,30 @@ public class CloudService implements ActionService, CloudClientListener, EventSu
 
         String localBaseUrl = "http://localhost:" + localPort;
         cloudClient = new CloudClient(InstanceUUID.get(), getSecret(), cloudBaseUrl, localBaseUrl, remoteAccessEnabled,
-                exposedItems);
+                exposedItems, updateInterval, updateBatchSize);
         cloudClient.setOpenHABVersion(OpenHAB.getVersion());
         cloudClient.connect();
         cloudClient.setListener(this);
         NotificationAction.cloudService = this;
     }
 
+    /**
+     * Reads a positive number from the configuration, which is either a number or a String
+     */
+    private int getIntConfig(Map<String, ?> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        try {
+            if (value instanceof Number) {
+                return Math.max(1, ((Number) value).intValue());
+            } else if (value instanceof String && StringUtils.isNotBlank((String) value)) {
+                return Math.max(1, Integer.parseInt(((String) value).trim()));
+            }
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for '{}', using {}", value, key, defaultValue);
+        }
+        return defaultValue;
+    }
+
     @Override
     public String getActionClassName() {
         return NotificationAction.class.getCanonicalName();
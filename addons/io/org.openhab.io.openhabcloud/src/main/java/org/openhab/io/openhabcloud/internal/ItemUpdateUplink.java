@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class collects the item updates for the openHAB Cloud and sends them in batches.
+ * Only the latest state of an item is kept until it is sent, superseded states are dropped.
+ * The pending updates are sent every flush interval, or as soon as a batch is full.
+ *
+ * The amount of pending updates is bounded: If the limit is reached, updates of further items
+ * are dropped and counted. While there is no connection the latest states are kept and sent
+ * after the connection has been established.
+ *
+ * @author agent - Initial contribution
+ */
+public class ItemUpdateUplink {
+    /*
+     * The maximum number of items with a pending update
+     */
+    public static final int MAX_PENDING_UPDATES = 1000;
+
+    /**
+     * Sends one item update to the openHAB Cloud
+     */
+    @FunctionalInterface
+    public interface Sender {
+        void send(String itemName, String itemState);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ItemUpdateUplink.class);
+
+    private final Sender sender;
+    private final ScheduledExecutorService scheduler;
+    private final long flushInterval;
+    private final int batchSize;
+    private final int maxPendingUpdates;
+
+    /*
+     * The latest state of each item with a pending update, in the order of the first update
+     */
+    private final Map<String, String> pendingUpdates = new LinkedHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private volatile boolean connected;
+    private ScheduledFuture<?> flushJob;
+
+    private long receivedUpdates;
+    private long supersededUpdates;
+    private long droppedUpdates;
+    private long sentUpdates;
+    private long sentBatches;
+
+    /**
+     * Constructor of ItemUpdateUplink
+     *
+     * @param sender sends a single item update
+     * @param scheduler the scheduler which performs the flushes
+     * @param flushInterval the interval in milliseconds in which pending updates are sent
+     * @param batchSize the number of pending updates, which triggers a flush before the interval is over
+     */
+    public ItemUpdateUplink(Sender sender, ScheduledExecutorService scheduler, long flushInterval, int batchSize) {
+        this(sender, scheduler, flushInterval, batchSize, MAX_PENDING_UPDATES);
+    }
+
+    ItemUpdateUplink(Sender sender, ScheduledExecutorService scheduler, long flushInterval, int batchSize,
+            int maxPendingUpdates) {
+        this.sender = sender;
+        this.scheduler = scheduler;
+        this.flushInterval = Math.max(1, flushInterval);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPendingUpdates = maxPendingUpdates;
+    }
+
+    /**
+     * Starts the periodic flush
+     */
+    public synchronized void start() {
+        if (flushJob == null) {
+            flushJob = scheduler.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic flush and drops all pending updates
+     */
+    public synchronized void stop() {
+        if (flushJob != null) {
+            flushJob.cancel(false);
+            flushJob = null;
+        }
+        pendingUpdates.clear();
+        logger.debug("Item updates: {}", this);
+    }
+
+    /**
+     * Enables or disables the sending of updates. Pending updates are sent as soon as the connection is established.
+     */
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+        if (connected) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Adds an item update. If there is a pending update of the item, its state is replaced.
+     *
+     * @param itemName the name of the item
+     * @param itemState updated item state
+     */
+    public void update(String itemName, String itemState) {
+        boolean batchFull;
+        synchronized (this) {
+            receivedUpdates++;
+            if (pendingUpdates.containsKey(itemName)) {
+                supersededUpdates++;
+            } else if (pendingUpdates.size() >= maxPendingUpdates) {
+                droppedUpdates++;
+                logger.debug("Too many pending item updates, update '{}' for item '{}' is dropped", itemState,
+                        itemName);
+                return;
+            }
+            pendingUpdates.put(itemName, itemState);
+            batchFull = pendingUpdates.size() >= batchSize;
+        }
+        if (batchFull) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Sends all pending updates in batches, if there is a connection
+     */
+    public void flush() {
+        flushRequested.set(false);
+        synchronized (flushLock) {
+            List<Map.Entry<String, String>> batch;
+            while (connected && !(batch = nextBatch()).isEmpty()) {
+                for (Map.Entry<String, String> update : batch) {
+                    try {
+                        sender.send(update.getKey(), update.getValue());
+                    } catch (RuntimeException e) {
+                        logger.warn("Could not send update for item '{}': {}", update.getKey(), e.getMessage());
+                    }
+                }
+                synchronized (this) {
+                    sentUpdates += batch.size();
+                    sentBatches++;
+                }
+            }
+        }
+    }
+
+    public synchronized long getReceivedUpdates() {
+        return receivedUpdates;
+    }
+
+    public synchronized long getSupersededUpdates() {
+        return supersededUpdates;
+    }
+
+    public synchronized long getDroppedUpdates() {
+        return droppedUpdates;
+    }
+
+    public synchronized long getSentUpdates() {
+        return sentUpdates;
+    }
+
+    public synchronized int getPendingUpdates() {
+        return pendingUpdates.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "received=" + receivedUpdates + ", superseded=" + supersededUpdates + ", dropped=" + droppedUpdates
+                + ", sent=" + sentUpdates + " in " + sentBatches + " batches, pending=" + pendingUpdates.size();
+    }
+
+    private synchronized List<Map.Entry<String, String>> nextBatch() {
+        List<Map.Entry<String, String>> batch = new ArrayList<>(Math.min(batchSize, pendingUpdates.size()));
+        Iterator<Map.Entry<String, String>> iterator = pendingUpdates.entrySet().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            Map.Entry<String, String> entry = iterator.next();
+            batch.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void requestFlush() {
+        if (connected && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.openhabcloud.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.client.api.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class holds the HTTP requests to local openHAB which are currently proxied to the openHAB Cloud.
+ * It is accessed concurrently by the Socket.IO event thread and the Jetty client threads.
+ *
+ * The response content of a request is forwarded chunk by chunk, the next content is only read from
+ * the local connection after the previous chunks have been written to the openHAB Cloud connection, which
+ * is signalled by {@link #drained()}. A request which waits longer than the stall timeout for its chunks
+ * to be written is aborted.
+ *
+ * @author agent - Initial contribution
+ */
+public class ProxyRequestRegistry {
+    private final Logger logger = LoggerFactory.getLogger(ProxyRequestRegistry.class);
+
+    private final Map<Integer, ProxyRequest> requests = new ConcurrentHashMap<>();
+    private final Queue<ProxyRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final long stallTimeout;
+
+    private final AtomicLong startedRequests = new AtomicLong();
+    private final AtomicLong finishedRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong cancelledRequests = new AtomicLong();
+    private final AtomicLong timedOutRequests = new AtomicLong();
+    private final AtomicLong sentChunks = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicInteger maxRunningRequests = new AtomicInteger();
+
+    /**
+     * A proxied request and the state of its response content
+     */
+    public static class ProxyRequest {
+        private final int id;
+        private final Request request;
+        // nano time since when a chunk is waiting to be handed over, 0 if none
+        private volatile long waitingSince;
+        // called when the pending chunks have been handed over
+        private volatile Runnable handedOver;
+
+        ProxyRequest(int id, Request request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Request getRequest() {
+            return request;
+        }
+    }
+
+    /**
+     * Constructor of ProxyRequestRegistry
+     *
+     * @param stallTimeout the time in milliseconds a chunk may wait to be handed over to Socket.IO
+     */
+    public ProxyRequestRegistry(long stallTimeout) {
+        this.stallTimeout = TimeUnit.MILLISECONDS.toNanos(stallTimeout);
+    }
+
+    /**
+     * Adds a request, before it is sent. A running request with the same id is aborted.
+     */
+    public ProxyRequest add(int requestId, Request request) {
+        ProxyRequest proxyRequest = new ProxyRequest(requestId, request);
+        ProxyRequest previous = requests.put(requestId, proxyRequest);
+        if (previous != null) {
+            logger.debug("Request {} is replaced by a new request with the same id", requestId);
+            previous.request.abort(new InterruptedException());
+        }
+        startedRequests.incrementAndGet();
+        int running = requests.size();
+        maxRunningRequests.accumulateAndGet(running, Math::max);
+        return proxyRequest;
+    }
+
+    /**
+     * Removes a request after it has completed.
+     */
+    public void finished(ProxyRequest proxyRequest, boolean failed) {
+        if (requests.remove(proxyRequest.id, proxyRequest)) {
+            (failed ? failedRequests : finishedRequests).incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes and aborts the request with the given id, if it is running.
+     *
+     * @return true if the request has been running
+     */
+    public boolean cancel(int requestId) {
+        ProxyRequest proxyRequest = requests.remove(requestId);
+        if (proxyRequest == null) {
+            return false;
+        }
+        cancelledRequests.incrementAndGet();
+        proxyRequest.request.abort(new InterruptedException());
+        return true;
+    }
+
+    /**
+     * Removes all requests without aborting them.
+     */
+    public void clear() {
+        requests.clear();
+        pendingRequests.clear();
+    }
+
+    /**
+     * Marks that content of the request has been passed to Socket.IO and waits to be written to the
+     * openHAB Cloud connection.
+     *
+     * @param handedOver called by {@link #drained()} once the content has been written
+     * @param now the current {@link System#nanoTime()}
+     */
+    public void chunksPending(ProxyRequest proxyRequest, int chunks, int bytes, Runnable handedOver, long now) {
+        proxyRequest.handedOver = handedOver;
+        // 0 marks a request without pending content
+        proxyRequest.waitingSince = now != 0 ? now : 1;
+        sentChunks.addAndGet(chunks);
+        sentBytes.addAndGet(bytes);
+        pendingRequests.add(proxyRequest);
+    }
+
+    /**
+     * Marks that all content passed to Socket.IO so far has been written to the openHAB Cloud connection.
+     */
+    public void drained() {
+        ProxyRequest proxyRequest;
+        while ((proxyRequest = pendingRequests.poll()) != null) {
+            Runnable handedOver = proxyRequest.handedOver;
+            proxyRequest.handedOver = null;
+            proxyRequest.waitingSince = 0;
+            if (handedOver != null) {
+                handedOver.run();
+            }
+        }
+    }
+
+    /**
+     * Aborts all requests, which wait longer than the stall timeout for their content to be handed over.
+     *
+     * @param now the current {@link System#nanoTime()}
+     */
+    public void checkTimeouts(long now) {
+        Iterator<ProxyRequest> iterator = requests.values().iterator();
+        while (iterator.hasNext()) {
+            ProxyRequest proxyRequest = iterator.next();
+            long waitingSince = proxyRequest.waitingSince;
+            if (waitingSince != 0 && now - waitingSince > stallTimeout) {
+                iterator.remove();
+                timedOutRequests.incrementAndGet();
+                logger.warn("Request {} is aborted, the openHAB Cloud connection did not accept content for {} ms",
+                        proxyRequest.id, TimeUnit.NANOSECONDS.toMillis(stallTimeout));
+                proxyRequest.request.abort(new TimeoutException("Response content not accepted in time"));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of running requests
+     */
+    public int size() {
+        return requests.size();
+    }
+
+    @Override
+    public String toString() {
+        return "running=" + requests.size() + ", max running=" + maxRunningRequests.get() + ", started="
+                + startedRequests.get() + ", finished=" + finishedRequests.get() + ", failed=" + failedRequests.get()
+                + ", cancelled=" + cancelledRequests.get() + ", timed out=" + timedOutRequests.get() + ", sent "
+                + sentBytes.get() + " bytes in " + sentChunks.get() + " chunks";
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.internal.backend;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Test;
+import org.rrd4j.ConsolFun;
+
+/**
+ * Tests cases for the series cache and the consolidation of {@link ChartResource}
+ *
+ * @author agent
+ */
+public class ChartResourceTest {
+    private static final String KEY = "item:1000:2000";
+    private static final double DELTA = 0.000001;
+    private static final double[] VALUES = { 4, Double.NaN, 1, 7, 2, Double.NaN };
+
+    private final ChartResource chartResource = new ChartResource();
+
+    @Test
+    public void smallSeriesIsCachedTest() throws IOException {
+        byte[] series = "[[1000,[1.0]],[2000,[2.0]]]".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+        chartResource.cachingOutput(KEY, out -> out.write(series)).write(response);
+
+        assertArrayEquals(series, response.toByteArray());
+        assertArrayEquals(series, chartResource.getCachedSeries(KEY));
+    }
+
+    @Test
+    public void seriesExceedingTheLimitIsNotCachedTest() throws IOException {
+        byte[] chunk = new byte[ChartResource.SERIES_CACHE_MAX_BYTES / 3];
+        Arrays.fill(chunk, (byte) '1');
+        // the last chunks fit into the copy again, after it has been discarded
+        StreamingOutput output = out -> {
+            for (int i = 0; i < 4; i++) {
+                out.write(chunk);
+            }
+            out.write(']');
+        };
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+
+        chartResource.cachingOutput(KEY, output).write(response);
+
+        assertEquals(4 * chunk.length + 1, response.size());
+        assertNull(chartResource.getCachedSeries(KEY));
+    }
+
+    @Test
+    public void consolidateTest() {
+        assertEquals(1, ChartResource.consolidate(ConsolFun.MIN, VALUES, 0, 6), DELTA);
+        assertEquals(7, ChartResource.consolidate(ConsolFun.MAX, VALUES, 0, 6), DELTA);
+        assertEquals(4, ChartResource.consolidate(ConsolFun.FIRST, VALUES, 0, 6), DELTA);
+        assertEquals(2, ChartResource.consolidate(ConsolFun.LAST, VALUES, 0, 6), DELTA);
+        assertEquals(14, ChartResource.consolidate(ConsolFun.TOTAL, VALUES, 0, 6), DELTA);
+        // NaN values are not counted
+        assertEquals(3.5, ChartResource.consolidate(ConsolFun.AVERAGE, VALUES, 0, 6), DELTA);
+    }
+
+    @Test
+    public void consolidateRangeTest() {
+        // the end is exclusive
+        assertEquals(1, ChartResource.consolidate(ConsolFun.MAX, VALUES, 1, 3), DELTA);
+        assertEquals(7, ChartResource.consolidate(ConsolFun.LAST, VALUES, 2, 4), DELTA);
+        assertEquals(2.5, ChartResource.consolidate(ConsolFun.AVERAGE, VALUES, 0, 3), DELTA);
+    }
+
+    @Test
+    public void consolidateWithoutValuesTest() {
+        assertTrue(Double.isNaN(ChartResource.consolidate(ConsolFun.AVERAGE, VALUES, 5, 6)));
+        assertTrue(Double.isNaN(ChartResource.consolidate(ConsolFun.MAX, VALUES, 2, 2)));
+    }
+}
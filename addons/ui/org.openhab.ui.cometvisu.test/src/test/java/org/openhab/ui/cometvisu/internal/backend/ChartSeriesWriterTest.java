@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.internal.backend;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests cases for {@link ChartSeriesWriter}
+ *
+ * @author agent
+ */
+public class ChartSeriesWriterTest {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    public void rowsTest() throws IOException {
+        ChartSeriesWriter writer = new ChartSeriesWriter(out, 0, 0);
+        writer.writeRow(1000, 1.5, Double.NaN);
+        writer.writeRow(2000, -20);
+        writer.finish();
+
+        assertEquals("[[1000,[\"1.5000000000E00\",\"null\"]],[2000,[\"-2.0000000000E01\"]]]", result());
+        assertEquals(2, writer.getRowCount());
+    }
+
+    @Test
+    public void samplesAreNotReducedWithoutBucketsTest() throws IOException {
+        ChartSeriesWriter writer = new ChartSeriesWriter(out, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            writer.addSample(i * 100, i);
+        }
+        writer.finish();
+
+        assertEquals(5, writer.getSampleCount());
+        assertEquals(5, writer.getRowCount());
+    }
+
+    @Test
+    public void bucketKeepsMinimumAndMaximumTest() throws IOException {
+        ChartSeriesWriter writer = new ChartSeriesWriter(out, 0, 1000);
+        writer.addSample(100, 5);
+        writer.addSample(200, 1);
+        writer.addSample(300, 9);
+        writer.addSample(400, 3);
+        writer.finish();
+
+        assertEquals("[" + row(200, "1.0000000000E00") + "," + row(300, "9.0000000000E00") + "]", result());
+        assertEquals(4, writer.getSampleCount());
+        assertEquals(2, writer.getRowCount());
+    }
+
+    @Test
+    public void bucketRowsAreOrderedByTimeTest() throws IOException {
+        ChartSeriesWriter writer = new ChartSeriesWriter(out, 0, 1000);
+        // the maximum comes before the minimum
+        writer.addSample(100, 5);
+        writer.addSample(200, 8);
+        writer.addSample(300, -4);
+        writer.finish();
+
+        assertEquals("[" + row(200, "8.0000000000E00") + "," + row(300, "-4.0000000000E00") + "]", result());
+    }
+
+    @Test
+    public void constantBucketIsWrittenOnceTest() throws IOException {
+        ChartSeriesWriter writer = new ChartSeriesWriter(out, 0, 1000);
+        writer.addSample(100, 2);
+        writer.addSample(200, 2);
+        writer.addSample(300, 2);
+        writer.finish();
+
+        assertEquals("[" + row(100, "2.0000000000E00") + "]", result());
+    }
+
+    @Test
+    public void bucketBoundariesTest() throws IOException {
+        ChartSeriesWriter writer = new ChartSeriesWriter(out, 1000, 1000);
+        // before the start of the first bucket
+        writer.addSample(999, 1);
+        // first bucket
+        writer.addSample(1000, 2);
+        writer.addSample(1999, 3);
+        // second bucket
+        writer.addSample(2000, 4);
+        writer.finish();
+
+        assertEquals("[" + row(999, "1.0000000000E00") + "," + row(1000, "2.0000000000E00") + ","
+                + row(1999, "3.0000000000E00") + "," + row(2000, "4.0000000000E00") + "]", result());
+    }
+
+    @Test
+    public void lastBucketIsWrittenByFinishTest() throws IOException {
+        ChartSeriesWriter writer = new ChartSeriesWriter(out, 0, 1000);
+        writer.addSample(100, 1);
+        writer.addSample(1100, 2);
+        assertEquals(1, writer.getRowCount());
+
+        writer.finish();
+        assertEquals(2, writer.getRowCount());
+    }
+
+    @Test
+    public void emptySeriesTest() throws IOException {
+        new ChartSeriesWriter(out, 0, 1000).finish();
+        assertEquals("[]", result());
+    }
+
+    private String result() {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String row(long time, String value) {
+        return "[" + time + ",[\"" + value + "\"]]";
+    }
+}
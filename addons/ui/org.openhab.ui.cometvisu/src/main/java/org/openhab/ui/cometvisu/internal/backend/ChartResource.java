@@ -8,17 +8,19 @@
  */
 package org.openhab.ui.cometvisu.internal.backend;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
@@ -31,6 +33,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.eclipse.smarthome.core.items.GroupItem;
@@ -65,20 +68,16 @@ import org.slf4j.LoggerFactory;
 public class ChartResource implements RESTResource {
     private final Logger logger = LoggerFactory.getLogger(ChartResource.class);
 
-    // pattern RRDTool uses to format doubles in XML files
-    static final String PATTERN = "0.0000000000E00";
-
-    static final DecimalFormat df;
+    // number of recently requested series, which are cached
+    private static final int SERIES_CACHE_SIZE = 32;
+    // time in milliseconds a series is cached
+    private static final long SERIES_CACHE_TTL = 60000;
+    // series larger than this are not cached
+    static final int SERIES_CACHE_MAX_BYTES = 256 * 1024;
 
     protected static final String RRD_FOLDER = org.eclipse.smarthome.config.core.ConfigConstants.getUserDataFolder()
             + File.separator + "persistence" + File.separator + "rrd4j";
 
-    static {
-        df = (DecimalFormat) NumberFormat.getNumberInstance(Locale.ENGLISH);
-        df.applyPattern(PATTERN);
-        // df.setPositivePrefix("+");
-    }
-
     protected static Map<String, QueryablePersistenceService> persistenceServices = new HashMap<String, QueryablePersistenceService>();
 
     private ItemRegistry itemRegistry;
@@ -86,6 +85,27 @@ public class ChartResource implements RESTResource {
     @Context
     private UriInfo uriInfo;
 
+    private final Map<String, CachedSeries> seriesCache = new LinkedHashMap<String, CachedSeries>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedSeries> eldest) {
+            return size() > SERIES_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * the JSON of a recently requested series
+     */
+    private static class CachedSeries {
+        private final long created = System.currentTimeMillis();
+        private final byte[] content;
+
+        CachedSeries(byte[] content) {
+            this.content = content;
+        }
+    }
+
     public void addPersistenceService(PersistenceService service) {
         if (service instanceof QueryablePersistenceService) {
             persistenceServices.put(service.getId(), (QueryablePersistenceService) service);
@@ -124,6 +144,11 @@ public class ChartResource implements RESTResource {
         // read the start/end time as they are provided in the RRD-way, we use
         // the RRD4j to read them
         long[] times = Util.getTimestamps(start, end);
+        if (resolution > 0) {
+            // align the time range to the resolution, so that repeated requests use the same buckets
+            times[0] -= Math.floorMod(times[0], resolution);
+            times[1] += Math.floorMod(-times[1], resolution);
+        }
         Date startTime = new Date();
         startTime.setTime(times[0] * 1000L);
         Date endTime = new Date();
@@ -157,13 +182,38 @@ public class ChartResource implements RESTResource {
                     throw new IllegalArgumentException("No Persistence service found.");
                 }
             }
-            Object data = null;
+
+            String cacheKey = persistenceService.getId() + ":" + itemName + ":" + consilidationFunction + ":"
+                    + times[0] + ":" + times[1] + ":" + resolution;
+            byte[] cached = getCachedSeries(cacheKey);
+            if (cached != null) {
+                logger.debug("serving series '{}' from cache", cacheKey);
+                return Response.ok(cached, responseType).build();
+            }
+
+            long bucketSize = Math.max(0, resolution) * 1000L;
+            StreamingOutput output = null;
             if (persistenceService.getId().equals("rrd4j")) {
-                data = getRrdSeries(persistenceService, item, consilidationFunction, startTime, endTime, resolution);
-            } else {
-                data = getPersistenceSeries(persistenceService, item, startTime, endTime, resolution);
+                Map<Long, double[]> data = getRrdSeries(item, consilidationFunction, startTime, endTime, resolution);
+                if (data != null) {
+                    output = out -> {
+                        ChartSeriesWriter writer = new ChartSeriesWriter(out, startTime.getTime(), bucketSize);
+                        for (Map.Entry<Long, double[]> row : data.entrySet()) {
+                            writer.writeRow(row.getKey(), row.getValue());
+                        }
+                        writer.finish();
+                    };
+                }
+            }
+            if (output == null) {
+                QueryablePersistenceService queryService = persistenceService;
+                output = out -> {
+                    ChartSeriesWriter writer = new ChartSeriesWriter(out, startTime.getTime(), bucketSize);
+                    writePersistenceSeries(queryService, item, startTime, endTime, writer);
+                    writer.finish();
+                };
             }
-            return Response.ok(data, responseType).build();
+            return Response.ok(cachingOutput(cacheKey, output), responseType).build();
         } catch (ItemNotFoundException e1) {
             logger.error("Item '{}' not found error while requesting series data.", itemName);
 
@@ -171,10 +221,18 @@ public class ChartResource implements RESTResource {
         return Response.serverError().build();
     }
 
-    public Object getPersistenceSeries(QueryablePersistenceService persistenceService, Item item, Date timeBegin,
-            Date timeEnd, long resolution) {
-        Map<Long, ArrayList<String>> data = new HashMap<Long, ArrayList<String>>();
-
+    /**
+     * writes the series of a persisted item, the samples are reduced to the buckets of the writer
+     *
+     * @param persistenceService
+     * @param item
+     * @param timeBegin
+     * @param timeEnd
+     * @param writer
+     * @throws IOException
+     */
+    public void writePersistenceSeries(QueryablePersistenceService persistenceService, Item item, Date timeBegin,
+            Date timeEnd, ChartSeriesWriter writer) throws IOException {
         // Define the data filter
         FilterCriteria filter = new FilterCriteria();
         filter.setBeginDate(timeBegin);
@@ -193,30 +251,28 @@ public class ChartResource implements RESTResource {
             HistoricItem historicItem = it.next();
             org.eclipse.smarthome.core.types.State state = historicItem.getState();
             if (state instanceof DecimalType) {
-                ArrayList<String> vals = new ArrayList<String>();
-                vals.add(formatDouble(((DecimalType) state).doubleValue(), "null", true));
-                data.put(historicItem.getTimestamp().getTime(), vals);
+                writer.addSample(historicItem.getTimestamp().getTime(), ((DecimalType) state).doubleValue());
             }
         }
-        logger.debug("'{}' querying item '{}' from '{}' to '{}' => '{}' results", persistenceService.getId(),
-                filter.getItemName(), filter.getBeginDate(), filter.getEndDate(), dataCounter);
-        return convertToRrd(data);
+        logger.debug("'{}' querying item '{}' from '{}' to '{}' => '{}' results, {} rows written",
+                persistenceService.getId(), filter.getItemName(), filter.getBeginDate(), filter.getEndDate(),
+                dataCounter, writer.getRowCount());
     }
 
     /**
-     * returns a rrd series data, an array of [[timestamp,data1,data2,...]]
+     * returns the rrd series data as map of timestamp to the values of all data sources, the rows are consolidated
+     * to the requested resolution
      *
-     * @param persistenceService
      * @param item
      * @param consilidationFunction
      * @param timeBegin
      * @param timeEnd
      * @param resolution
-     * @return
+     * @return the series or null if the data can not be read from the rrd files
      */
-    public Object getRrdSeries(QueryablePersistenceService persistenceService, Item item,
-            ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution) {
-        Map<Long, ArrayList<String>> data = new TreeMap<Long, ArrayList<String>>();
+    public Map<Long, double[]> getRrdSeries(Item item, ConsolFun consilidationFunction, Date timeBegin, Date timeEnd,
+            long resolution) {
+        Map<Long, double[]> data = new TreeMap<Long, double[]>();
         try {
             List<String> itemNames = new ArrayList<String>();
 
@@ -235,65 +291,157 @@ public class ChartResource implements RESTResource {
         } catch (FileNotFoundException e) {
             // rrd file does not exist, fallback to generic persistance service
             logger.debug("no rrd file found '{}'", (RRD_FOLDER + File.separator + item.getName() + ".rrd"));
-            return getPersistenceSeries(persistenceService, item, timeBegin, timeEnd, resolution);
+            return null;
         } catch (Exception e) {
             logger.error("{}: fallback to generic persistance service", e.getLocalizedMessage());
-            return getPersistenceSeries(persistenceService, item, timeBegin, timeEnd, resolution);
+            return null;
         }
-        return convertToRrd(data);
+        return data;
     }
 
-    private ArrayList<Object> convertToRrd(Map<Long, ArrayList<String>> data) {
-        // sort data by key
-        Map<Long, ArrayList<String>> treeMap = new TreeMap<Long, ArrayList<String>>(data);
-        ArrayList<Object> rrd = new ArrayList<Object>();
-        for (Long time : treeMap.keySet()) {
-            Object[] entry = new Object[2];
-            entry[0] = time;
-            entry[1] = data.get(time);
-            rrd.add(entry);
+    private Map<Long, double[]> addRrdData(Map<Long, double[]> data, String itemName,
+            ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution) throws IOException {
+        RrdDb rrdDb = new RrdDb(RRD_FOLDER + File.separator + itemName + ".rrd");
+        try {
+            FetchRequest fetchRequest = rrdDb.createFetchRequest(consilidationFunction, Util.getTimestamp(timeBegin),
+                    Util.getTimestamp(timeEnd), resolution);
+            FetchData fetchData = fetchRequest.fetchData();
+            long[] timestamps = fetchData.getTimestamps();
+            double[][] values = fetchData.getValues();
+
+            logger.debug("RRD fetch returned '{}' rows and '{}' columns", fetchData.getRowCount(),
+                    fetchData.getColumnCount());
+
+            // the archive might be finer than requested, so consolidate its rows to the resolution
+            long bucketSize = Math.max(resolution, 1);
+            int row = 0;
+            while (row < fetchData.getRowCount()) {
+                long bucket = Math.floorDiv(timestamps[row], bucketSize);
+                int end = row + 1;
+                while (end < fetchData.getRowCount() && Math.floorDiv(timestamps[end], bucketSize) == bucket) {
+                    end++;
+                }
+                double[] consolidated = new double[fetchData.getColumnCount()];
+                for (int dsIndex = 0; dsIndex < consolidated.length; dsIndex++) {
+                    consolidated[dsIndex] = consolidate(consilidationFunction, values[dsIndex], row, end);
+                }
+
+                // change to milliseconds
+                long time = timestamps[row] * 1000;
+                double[] vals = data.get(time);
+                if (vals == null) {
+                    data.put(time, consolidated);
+                } else {
+                    double[] merged = Arrays.copyOf(vals, vals.length + consolidated.length);
+                    System.arraycopy(consolidated, 0, merged, vals.length, consolidated.length);
+                    data.put(time, merged);
+                }
+                row = end;
+            }
+        } finally {
+            rrdDb.close();
         }
-        return rrd;
+
+        return data;
     }
 
-    private Map<Long, ArrayList<String>> addRrdData(Map<Long, ArrayList<String>> data, String itemName,
-            ConsolFun consilidationFunction, Date timeBegin, Date timeEnd, long resolution) throws IOException {
-        RrdDb rrdDb = new RrdDb(RRD_FOLDER + File.separator + itemName + ".rrd");
-        FetchRequest fetchRequest = rrdDb.createFetchRequest(consilidationFunction, Util.getTimestamp(timeBegin),
-                Util.getTimestamp(timeEnd), resolution);
-        FetchData fetchData = fetchRequest.fetchData();
-        // logger.info(fetchData.toString());
-        long[] timestamps = fetchData.getTimestamps();
-        double[][] values = fetchData.getValues();
-
-        logger.debug("RRD fetch returned '{}' rows and '{}' columns", fetchData.getRowCount(),
-                fetchData.getColumnCount());
-
-        for (int row = 0; row < fetchData.getRowCount(); row++) {
-            // change to microseconds
-            long time = timestamps[row] * 1000;
-
-            if (!data.containsKey(time)) {
-                data.put(time, new ArrayList<String>());
+    /**
+     * consolidates the values from start (inclusive) to end (exclusive), NaN values are skipped
+     */
+    static double consolidate(ConsolFun function, double[] values, int start, int end) {
+        double result = Double.NaN;
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            double value = values[i];
+            if (Double.isNaN(value)) {
+                continue;
             }
-            ArrayList<String> vals = data.get(time);
-            int indexOffset = vals.size();
-            for (int dsIndex = 0; dsIndex < fetchData.getColumnCount(); dsIndex++) {
-                vals.add(dsIndex + indexOffset, formatDouble(values[dsIndex][row], "null", true));
+            if (count == 0) {
+                result = value;
+            } else {
+                switch (function) {
+                    case MIN:
+                        result = Math.min(result, value);
+                        break;
+                    case MAX:
+                        result = Math.max(result, value);
+                        break;
+                    case FIRST:
+                        break;
+                    case LAST:
+                        result = value;
+                        break;
+                    default:
+                        // AVERAGE and TOTAL
+                        result += value;
+                        break;
+                }
             }
+            count++;
+        }
+        if (function == ConsolFun.AVERAGE && count > 0) {
+            result /= count;
         }
-        rrdDb.close();
+        return result;
+    }
 
-        return data;
+    byte[] getCachedSeries(String key) {
+        synchronized (seriesCache) {
+            CachedSeries series = seriesCache.get(key);
+            if (series == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - series.created > SERIES_CACHE_TTL) {
+                seriesCache.remove(key);
+                return null;
+            }
+            return series.content;
+        }
+    }
+
+    /**
+     * wraps the output, so that the written series is cached if it is not too large
+     */
+    StreamingOutput cachingOutput(String key, StreamingOutput output) {
+        return out -> {
+            CachingOutputStream tee = new CachingOutputStream(out);
+            output.write(tee);
+            if (!tee.overflowed) {
+                synchronized (seriesCache) {
+                    seriesCache.put(key, new CachedSeries(tee.copy.toByteArray()));
+                }
+            }
+        };
     }
 
-    static String formatDouble(double x, String nanString, boolean forceExponents) {
-        if (Double.isNaN(x)) {
-            return nanString;
+    /**
+     * writes through to the response and keeps a copy, until the copy would exceed the cache limit
+     */
+    private static class CachingOutputStream extends FilterOutputStream {
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private boolean overflowed;
+
+        CachingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (overflowed) {
+                return;
+            }
+            if (copy.size() + len <= SERIES_CACHE_MAX_BYTES) {
+                copy.write(b, off, len);
+            } else {
+                overflowed = true;
+                copy.reset();
+            }
         }
-        if (forceExponents) {
-            return df.format(x);
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
         }
-        return "" + x;
     }
 }
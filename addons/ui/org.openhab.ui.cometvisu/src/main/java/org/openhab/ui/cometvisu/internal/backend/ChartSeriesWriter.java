@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.internal.backend;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Writes chart series data for the CometVisu diagram plugin as a JSON array of
+ * [timestamp,[value1,value2,...]] rows directly to the response.
+ *
+ * Raw samples of a single series can be reduced to buckets: Only the minimum and the maximum sample of each bucket
+ * are written, so the shape and the peaks of the series are kept.
+ *
+ * @author agent
+ * @since 2.2.0
+ */
+public class ChartSeriesWriter {
+
+    // pattern RRDTool uses to format doubles in XML files
+    static final String PATTERN = "0.0000000000E00";
+
+    private static final String NAN = "null";
+
+    private final Writer writer;
+    private final DecimalFormat format;
+    private final long bucketStart;
+    private final long bucketSize;
+
+    private boolean firstRow = true;
+    private int rowCount;
+    private int sampleCount;
+
+    // the current bucket and its minimum and maximum sample
+    private long bucket = Long.MIN_VALUE;
+    private long minTime;
+    private double minValue;
+    private long maxTime;
+    private double maxValue;
+
+    /**
+     * Constructor of ChartSeriesWriter
+     *
+     * @param out
+     *            - the stream to write to
+     * @param bucketStart
+     *            - the time in milliseconds the first bucket starts at
+     * @param bucketSize
+     *            - the size of the buckets in milliseconds, samples are not reduced if 0
+     */
+    public ChartSeriesWriter(OutputStream out, long bucketStart, long bucketSize) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.bucketStart = bucketStart;
+        this.bucketSize = bucketSize;
+        // DecimalFormat is not thread-safe, so every writer has its own
+        this.format = (DecimalFormat) NumberFormat.getNumberInstance(Locale.ENGLISH);
+        this.format.applyPattern(PATTERN);
+        writer.write('[');
+    }
+
+    /**
+     * Adds a raw sample of a single series, which is reduced to the minimum and maximum of its bucket.
+     * The samples have to be added in ascending order of time.
+     */
+    public void addSample(long time, double value) throws IOException {
+        sampleCount++;
+        if (bucketSize <= 0) {
+            writeRow(time, value);
+            return;
+        }
+        long sampleBucket = Math.floorDiv(time - bucketStart, bucketSize);
+        if (sampleBucket != bucket) {
+            flushBucket();
+            bucket = sampleBucket;
+            minTime = maxTime = time;
+            minValue = maxValue = value;
+        } else if (value < minValue) {
+            minTime = time;
+            minValue = value;
+        } else if (value > maxValue) {
+            maxTime = time;
+            maxValue = value;
+        }
+    }
+
+    /**
+     * Writes a row with the values of all series at the given time
+     */
+    public void writeRow(long time, double... values) throws IOException {
+        if (!firstRow) {
+            writer.write(',');
+        }
+        firstRow = false;
+        rowCount++;
+        writer.write('[');
+        writer.write(Long.toString(time));
+        writer.write(",[");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('"');
+            writer.write(Double.isNaN(values[i]) ? NAN : format.format(values[i]));
+            writer.write('"');
+        }
+        writer.write("]]");
+    }
+
+    /**
+     * Writes the pending bucket and ends the JSON array. The underlying stream is flushed, but not closed.
+     */
+    public void finish() throws IOException {
+        flushBucket();
+        writer.write(']');
+        writer.flush();
+    }
+
+    /**
+     * returns the number of written rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * returns the number of added raw samples
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    private void flushBucket() throws IOException {
+        if (bucket == Long.MIN_VALUE) {
+            return;
+        }
+        if (minTime == maxTime) {
+            writeRow(minTime, minValue);
+        } else if (minTime < maxTime) {
+            writeRow(minTime, minValue);
+            writeRow(maxTime, maxValue);
+        } else {
+            writeRow(maxTime, maxValue);
+            writeRow(minTime, minValue);
+        }
+        bucket = Long.MIN_VALUE;
+    }
+}
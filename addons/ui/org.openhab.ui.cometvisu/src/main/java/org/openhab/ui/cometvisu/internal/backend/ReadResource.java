@@ -11,12 +11,18 @@ package org.openhab.ui.cometvisu.internal.backend;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -27,6 +33,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.UriInfo;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemFactory;
@@ -35,12 +42,9 @@ import org.eclipse.smarthome.core.items.ItemRegistry;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.io.rest.RESTResource;
 import org.glassfish.jersey.media.sse.EventOutput;
-import org.glassfish.jersey.media.sse.SseBroadcaster;
 import org.glassfish.jersey.media.sse.SseFeature;
 import org.openhab.ui.cometvisu.internal.Config;
-import org.openhab.ui.cometvisu.internal.backend.beans.StateBean;
 import org.openhab.ui.cometvisu.internal.listeners.StateEventListener;
-import org.openhab.ui.cometvisu.internal.util.SseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +52,10 @@ import org.slf4j.LoggerFactory;
  * handles read request from the CometVisu client every request initializes a
  * SSE communication
  *
+ * Each client connection only receives the states of the items it has requested. The connections
+ * are indexed by the names of the requested items, so a state change is routed to the interested
+ * connections only.
+ *
  * @author Tobias Bräutigam
  * @since 2.0.0
  */
@@ -55,16 +63,19 @@ import org.slf4j.LoggerFactory;
 public class ReadResource implements EventBroadcaster, RESTResource {
     private final Logger logger = LoggerFactory.getLogger(ReadResource.class);
 
-    private SseBroadcaster broadcaster = new SseBroadcaster();
+    private static final String WRITER_THREAD_NAME = "cometvisuSse-";
+    private static final String TIMER_POOL_NAME = "cometvisu";
 
     private final ExecutorService executorService;
 
+    private final ScheduledFuture<?> slowClientCheck;
+
     private ItemRegistry itemRegistry;
 
     private StateEventListener stateEventListener;
 
-    private List<String> itemNames = new ArrayList<String>();
-    private Map<Item, Map<String, Class<? extends State>>> items = new HashMap<Item, Map<String, Class<? extends State>>>();
+    // the open client connections by the names of the openHAB items they have requested
+    private final Map<String, Set<SseConnection>> connectionsByItemName = new ConcurrentHashMap<>();
 
     @Context
     private UriInfo uriInfo;
@@ -78,9 +89,43 @@ public class ReadResource implements EventBroadcaster, RESTResource {
     private Collection<ItemFactory> itemFactories = new CopyOnWriteArrayList<ItemFactory>();
 
     public ReadResource() {
-        this.executorService = Executors.newSingleThreadExecutor();
+        // each connection writes with at most one thread at a time. The pool is not shared and grows with the
+        // writing connections, so a slow client only blocks its own writer until it is dropped.
+        AtomicInteger writerCount = new AtomicInteger();
+        this.executorService = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, WRITER_THREAD_NAME + writerCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
         this.stateEventListener = new StateEventListener();
         this.stateEventListener.setEventBroadcaster(this);
+        // clients which stop reading are dropped, even if no further state change is sent to them
+        this.slowClientCheck = ThreadPoolManager.getScheduledPool(TIMER_POOL_NAME).scheduleWithFixedDelay(
+                this::dropSlowClients, SseConnection.SLOW_CLIENT_TIMEOUT, SseConnection.SLOW_CLIENT_TIMEOUT,
+                TimeUnit.MILLISECONDS);
+    }
+
+    protected void deactivate() {
+        slowClientCheck.cancel(false);
+        for (SseConnection connection : getConnections()) {
+            connection.close();
+        }
+        executorService.shutdownNow();
+    }
+
+    private Set<SseConnection> getConnections() {
+        Set<SseConnection> connections = new HashSet<>();
+        for (Set<SseConnection> itemConnections : connectionsByItemName.values()) {
+            connections.addAll(itemConnections);
+        }
+        return connections;
+    }
+
+    private void dropSlowClients() {
+        for (SseConnection connection : getConnections()) {
+            connection.dropIfStalled();
+        }
     }
 
     protected void setItemRegistry(ItemRegistry itemRegistry) {
@@ -100,10 +145,11 @@ public class ReadResource implements EventBroadcaster, RESTResource {
     }
 
     /**
-     * Subscribes the connecting client to the stream of events filtered by the
-     * given eventFilter.
+     * Subscribes the connecting client to the state changes of the requested items.
+     * The current states of these items are sent as first frame.
      *
-     * @param eventFilter
+     * @param itemNames
+     *            - the requested items, optionally prefixed by a type
      * @return {@link EventOutput} object associated with the incoming
      *         connection.
      * @throws IOException
@@ -114,16 +160,11 @@ public class ReadResource implements EventBroadcaster, RESTResource {
     public Object getStates(@QueryParam("a") List<String> itemNames, @QueryParam("i") long index,
             @QueryParam("t") long time) throws IOException, InterruptedException {
         final EventOutput eventOutput = new EventOutput();
+        final SseConnection connection = new SseConnection(eventOutput, executorService, this);
 
-        this.itemNames = itemNames;
-
-        broadcaster.add(eventOutput);
-
-        // get all requested items and send their states to the client
-        items = new HashMap<Item, Map<String, Class<? extends State>>>();
-        // send the current states of all items to the client
+        // get all requested items
+        List<Item> items = new ArrayList<Item>();
         if (this.itemRegistry != null) {
-            List<StateBean> states = new ArrayList<StateBean>();
             for (String cvItemName : itemNames) {
                 try {
                     String[] parts = cvItemName.split(":");
@@ -133,49 +174,84 @@ public class ReadResource implements EventBroadcaster, RESTResource {
                         String classPrefix = parts[0].toLowerCase();
                         if (Config.itemTypeMapper.containsKey(classPrefix)) {
                             stateClass = Config.itemTypeMapper.get(classPrefix);
-                            classPrefix += ":";
                         } else {
                             logger.debug("no type found for '{}'", classPrefix);
-                            classPrefix = "";
                         }
                         ohItemName = parts[1];
                     }
                     Item item = this.itemRegistry.getItem(ohItemName);
-                    if (!items.containsKey(item)) {
-                        items.put(item, new HashMap<String, Class<? extends State>>());
-                    }
-                    items.get(item).put(cvItemName, stateClass);
-                    StateBean itemState = new StateBean();
-                    itemState.name = cvItemName;
-
-                    if (stateClass != null) {
-                        itemState.state = item.getStateAs(stateClass).toString();
-                        logger.trace("get state of '{}' as '{}' == '{}'", item, stateClass, itemState.state);
-                    } else {
-                        itemState.state = item.getState().toString();
-                    }
-                    states.add(itemState);
+                    connection.addClientItem(ohItemName, cvItemName, stateClass);
+                    items.add(item);
                 } catch (ItemNotFoundException e) {
                     logger.error("{}", e.getLocalizedMessage());
                 }
             }
-            logger.debug("initially broadcasting {}/{} item states", states.size(), itemNames.size());
-            broadcaster.broadcast(SseUtil.buildEvent(states));
         }
+
         // listen to state changes of the requested items
-        registerItems();
+        for (String ohItemName : connection.getItemNames()) {
+            connectionsByItemName.compute(ohItemName, (name, connections) -> {
+                Set<SseConnection> result = connections != null ? connections : ConcurrentHashMap.newKeySet();
+                result.add(connection);
+                return result;
+            });
+        }
+        for (Item item : items) {
+            registerItem(item);
+        }
+
+        // send the current states of all items to the client, they are batched into the first frame
+        logger.debug("initially sending {}/{} item states", items.size(), itemNames.size());
+        for (Item item : items) {
+            connection.sendState(item, false);
+        }
 
         return eventOutput;
     }
 
+    /**
+     * Removes a closed connection from the index and stops listening to the items no other
+     * connection has requested
+     */
+    void removeConnection(SseConnection connection) {
+        for (String ohItemName : connection.getItemNames()) {
+            connectionsByItemName.computeIfPresent(ohItemName, (name, connections) -> {
+                connections.remove(connection);
+                if (!connections.isEmpty()) {
+                    return connections;
+                }
+                // runs atomically with the registration of a new connection for the item
+                unregisterItemName(name);
+                return null;
+            });
+        }
+    }
+
+    private void unregisterItemName(String ohItemName) {
+        ItemRegistry registry = itemRegistry;
+        if (registry == null) {
+            return;
+        }
+        try {
+            unregisterItem(registry.getItem(ohItemName));
+        } catch (ItemNotFoundException e) {
+            logger.trace("{}", e.getLocalizedMessage());
+        }
+    }
+
     /**
      * listen for state changes from the requested items
      */
     @Override
     public void registerItems() {
-        for (Item item : items.keySet()) {
-            if (item instanceof GenericItem) {
-                ((GenericItem) item).addStateChangeListener(stateEventListener);
+        if (itemRegistry == null) {
+            return;
+        }
+        for (String ohItemName : connectionsByItemName.keySet()) {
+            try {
+                registerItem(itemRegistry.getItem(ohItemName));
+            } catch (ItemNotFoundException e) {
+                logger.debug("{}", e.getLocalizedMessage());
             }
         }
     }
@@ -189,54 +265,48 @@ public class ReadResource implements EventBroadcaster, RESTResource {
      */
     @Override
     public void registerItem(Item item) {
-        if (item == null || items.containsKey(item) || !itemNames.contains(item.getName())) {
+        if (item == null || !connectionsByItemName.containsKey(item.getName())) {
             return;
         }
         if (item instanceof GenericItem) {
+            // the listeners of an item are a set, so adding it again has no effect
             ((GenericItem) item).addStateChangeListener(stateEventListener);
         }
     }
 
     /**
-     * listens to state changes of the given item, if it is part of the
-     * requested items
+     * stops listening to state changes of the given item
      *
      * @param item
-     *            - the new item, that should be listened to
+     *            - the item, that should not be listened to anymore
      */
     @Override
     public void unregisterItem(Item item) {
-        if (item == null || items.containsKey(item) || !itemNames.contains(item.getName())) {
-            return;
-        }
         if (item instanceof GenericItem) {
             ((GenericItem) item).removeStateChangeListener(stateEventListener);
-            items.remove(item);
         }
     }
 
     /**
-     * Broadcasts an event described by the given parameters to all currently
-     * listening clients.
+     * Sends the state of the item to the clients, that have requested it.
      *
      * @param item
      *            - the item which has changed
-     * @param eventObject
-     *            - bean that can be converted to a JSON object.
+     * @param onlyTypedStates
+     *            - if true, only the states that should be converted to a specific type are sent
      */
     @Override
-    public void broadcastEvent(final Object eventObject) {
-        executorService.execute(new Runnable() {
-
-            @Override
-            public void run() {
-                broadcaster.broadcast(SseUtil.buildEvent(eventObject));
+    public void broadcastState(Item item, boolean onlyTypedStates) {
+        Set<SseConnection> connections = connectionsByItemName.get(item.getName());
+        if (connections == null) {
+            return;
+        }
+        for (SseConnection connection : connections) {
+            if (connection.isClosed()) {
+                connection.close();
+            } else {
+                connection.sendState(item, onlyTypedStates);
             }
-        });
-    }
-
-    @Override
-    public Map<String, Class<? extends State>> getClientItems(Item item) {
-        return items.get(item);
+        }
     }
 }
@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.internal.backend;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.types.State;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.openhab.ui.cometvisu.internal.backend.beans.StateBean;
+import org.openhab.ui.cometvisu.internal.util.SseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One SSE connection of a CometVisu client and the items it has requested.
+ *
+ * State changes are collected and written as one JSON frame, which contains the latest state of
+ * every item that changed since the previous frame. At most one write per connection is in progress,
+ * a client which does not accept a frame within {@link #SLOW_CLIENT_TIMEOUT} ms is dropped.
+ *
+ * @author agent
+ * @since 2.2.0
+ */
+public class SseConnection {
+    private final Logger logger = LoggerFactory.getLogger(SseConnection.class);
+
+    /**
+     * time in milliseconds a client may need to accept a frame
+     */
+    public static final long SLOW_CLIENT_TIMEOUT = 10000;
+
+    private final EventOutput eventOutput;
+    private final Executor writer;
+    private final ReadResource readResource;
+
+    // the requested CometVisu item names and state types by openHAB item name
+    private final Map<String, Map<String, Class<? extends State>>> clientItems = new HashMap<>();
+
+    // the latest states which have not been written yet by CometVisu item name
+    private Map<String, StateBean> pendingStates = new LinkedHashMap<>();
+    private boolean writing;
+    private long writeStartedAt;
+    private volatile boolean closed;
+
+    public SseConnection(EventOutput eventOutput, Executor writer, ReadResource readResource) {
+        this.eventOutput = eventOutput;
+        this.writer = writer;
+        this.readResource = readResource;
+    }
+
+    /**
+     * Adds a requested item
+     *
+     * @param ohItemName
+     *            - name of the openHAB item
+     * @param cvItemName
+     *            - name of the item used by the client, may contain a type prefix
+     * @param stateClass
+     *            - the type the state should be converted to or null
+     */
+    synchronized void addClientItem(String ohItemName, String cvItemName, Class<? extends State> stateClass) {
+        Map<String, Class<? extends State>> cvItems = clientItems.get(ohItemName);
+        if (cvItems == null) {
+            cvItems = new HashMap<>();
+            clientItems.put(ohItemName, cvItems);
+        }
+        cvItems.put(cvItemName, stateClass);
+    }
+
+    /**
+     * returns the names of all requested openHAB items
+     */
+    synchronized Set<String> getItemNames() {
+        return Collections.unmodifiableSet(new HashSet<>(clientItems.keySet()));
+    }
+
+    /**
+     * Queues the current state of the item for all CometVisu item names the client requested it with.
+     *
+     * @param item
+     *            - the item
+     * @param onlyTypedStates
+     *            - if true, only the states that should be converted to a specific type are sent
+     */
+    public void sendState(Item item, boolean onlyTypedStates) {
+        if (closed) {
+            return;
+        }
+        boolean startWriter;
+        boolean drop = false;
+        synchronized (this) {
+            Map<String, Class<? extends State>> cvItems = clientItems.get(item.getName());
+            if (cvItems == null) {
+                return;
+            }
+            for (Map.Entry<String, Class<? extends State>> entry : cvItems.entrySet()) {
+                Class<? extends State> stateClass = entry.getValue();
+                if (stateClass == null && onlyTypedStates) {
+                    continue;
+                }
+                StateBean stateBean = new StateBean();
+                stateBean.name = entry.getKey();
+                State state = stateClass != null ? item.getStateAs(stateClass) : item.getState();
+                stateBean.state = String.valueOf(state);
+                pendingStates.put(stateBean.name, stateBean);
+            }
+            if (isStalled()) {
+                startWriter = false;
+                drop = true;
+            } else {
+                startWriter = !writing && !pendingStates.isEmpty();
+                if (startWriter) {
+                    writing = true;
+                    writeStartedAt = System.currentTimeMillis();
+                }
+            }
+        }
+        if (drop) {
+            close();
+        } else if (startWriter) {
+            try {
+                writer.execute(this::writePendingStates);
+            } catch (RejectedExecutionException e) {
+                logger.debug("writer of CometVisu client is not available, closing connection");
+                close();
+            }
+        }
+    }
+
+    /**
+     * Closes the connection, if the client did not accept the current frame in time.
+     */
+    void dropIfStalled() {
+        boolean drop;
+        synchronized (this) {
+            drop = !closed && isStalled();
+        }
+        if (drop) {
+            close();
+        }
+    }
+
+    private boolean isStalled() {
+        if (writing && System.currentTimeMillis() - writeStartedAt > SLOW_CLIENT_TIMEOUT) {
+            logger.debug("dropping CometVisu client, which did not accept a frame within {} ms", SLOW_CLIENT_TIMEOUT);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes this connection from the read resource and closes the event output. The output is closed by the
+     * calling thread, which is the timer thread for a stalled client, as its writer is blocked.
+     */
+    public void close() {
+        closed = true;
+        readResource.removeConnection(this);
+        try {
+            eventOutput.close();
+        } catch (IOException | RuntimeException e) {
+            logger.trace("closing event output failed: {}", e.getMessage());
+        }
+    }
+
+    public boolean isClosed() {
+        return closed || eventOutput.isClosed();
+    }
+
+    private void writePendingStates() {
+        while (!closed) {
+            Map<String, StateBean> states;
+            synchronized (this) {
+                if (pendingStates.isEmpty()) {
+                    writing = false;
+                    return;
+                }
+                states = pendingStates;
+                pendingStates = new LinkedHashMap<>();
+                writeStartedAt = System.currentTimeMillis();
+            }
+            try {
+                eventOutput.write(SseUtil.buildEvent(new ArrayList<>(states.values())));
+            } catch (IOException | RuntimeException e) {
+                logger.debug("writing to CometVisu client failed, closing connection: {}", e.getMessage());
+                close();
+            }
+        }
+    }
+}
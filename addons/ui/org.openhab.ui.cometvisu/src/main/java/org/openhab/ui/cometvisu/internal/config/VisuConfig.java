@@ -86,6 +86,11 @@ public class VisuConfig {
      */
     private final String schemaFile = "visu_config.xsd";
 
+    /**
+     * the JAXB context is expensive to create and thread-safe, so it is shared by all configs
+     */
+    private static JAXBContext jaxbContext;
+
     private CometVisuApp app;
 
     private ConfigHelper configHelper;
@@ -139,7 +144,7 @@ public class VisuConfig {
     private String marshal(Pages bean, String xsdSchema) {
         String res = "";
         try {
-            JAXBContext jaxbContext = JAXBContext.newInstance(bean.getClass());
+            JAXBContext jaxbContext = getJaxbContext();
             SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
             Schema schema = (xsdSchema == null || xsdSchema.trim().length() == 0) ? null
                     : schemaFactory.newSchema(new File(xsdSchema));
@@ -158,6 +163,13 @@ public class VisuConfig {
         return res;
     }
 
+    private static synchronized JAXBContext getJaxbContext() throws JAXBException {
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(SchemaPages.class);
+        }
+        return jaxbContext;
+    }
+
     private Pages createPages(Pages pagesBean) {
         Page rootPage = new Page();
         rootPage.setName(sitemap.getName());
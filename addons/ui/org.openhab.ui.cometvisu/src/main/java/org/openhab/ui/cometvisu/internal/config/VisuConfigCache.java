@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.internal.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemRegistryChangeListener;
+import org.eclipse.smarthome.model.core.EventType;
+import org.eclipse.smarthome.model.core.ModelRepositoryChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the visu_config XML files generated from the sitemaps.
+ *
+ * A generated config only depends on the requested path, the sitemap and the item definitions. So it is
+ * generated once and served from the cache until a sitemap provider or the item registry reports a change.
+ * Every change increments the version of the cache, configs generated for an older version are not used anymore.
+ *
+ * @author agent
+ * @since 2.2.0
+ */
+public class VisuConfigCache implements ModelRepositoryChangeListener, ItemRegistryChangeListener {
+    private final Logger logger = LoggerFactory.getLogger(VisuConfigCache.class);
+
+    // the generated configs by request path
+    private final Map<String, CachedConfig> configs = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * A generated config in plain and gzip encoding
+     */
+    public static class CachedConfig {
+        private final long version;
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final String eTag;
+
+        CachedConfig(long version, String xml) throws IOException {
+            this.version = version;
+            this.content = xml.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(content);
+            }
+            this.gzipContent = out.toByteArray();
+            // derived from the content, so that an unchanged config keeps its ETag after an invalidation
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            this.eTag = "\"" + Long.toHexString(crc.getValue()) + "-" + content.length + "\"";
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public byte[] getGzipContent() {
+            return gzipContent;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+
+    /**
+     * Returns the cached config for the request path, or generates and caches it if there is no current one.
+     *
+     * @param path
+     *            - the request path of the config
+     * @param generator
+     *            - generates the config XML
+     * @return the config or null if it could not be generated
+     */
+    public CachedConfig get(String path, Supplier<String> generator) {
+        CachedConfig config = configs.get(path);
+        if (config != null && config.version == version.get()) {
+            return config;
+        }
+        synchronized (this) {
+            // another request might have generated the config meanwhile
+            long currentVersion = version.get();
+            config = configs.get(path);
+            if (config != null && config.version == currentVersion) {
+                return config;
+            }
+            long start = System.currentTimeMillis();
+            String xml = generator.get();
+            if (xml == null || xml.isEmpty()) {
+                return null;
+            }
+            try {
+                config = new CachedConfig(currentVersion, xml);
+            } catch (IOException e) {
+                logger.error("compressing config '{}' failed: {}", path, e.getMessage());
+                return null;
+            }
+            configs.put(path, config);
+            logger.debug("generated config '{}' ({} bytes, {} gzipped) in {} ms", path, config.content.length,
+                    config.gzipContent.length, System.currentTimeMillis() - start);
+            return config;
+        }
+    }
+
+    /**
+     * Discards all cached configs. A config which is generated concurrently is not used for later requests.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        configs.clear();
+    }
+
+    @Override
+    public void modelChanged(String modelName, EventType type) {
+        invalidate();
+    }
+
+    @Override
+    public void added(Item element) {
+        invalidate();
+    }
+
+    @Override
+    public void removed(Item element) {
+        invalidate();
+    }
+
+    @Override
+    public void updated(Item oldElement, Item element) {
+        invalidate();
+    }
+
+    @Override
+    public void allItemsChanged(Collection<String> oldItemNames) {
+        invalidate();
+    }
+}
@@ -27,6 +27,7 @@ import org.eclipse.smarthome.model.sitemap.SitemapProvider;
 import org.eclipse.smarthome.ui.icon.IconProvider;
 import org.eclipse.smarthome.ui.items.ItemUIRegistry;
 import org.openhab.ui.cometvisu.internal.Config;
+import org.openhab.ui.cometvisu.internal.config.VisuConfigCache;
 import org.openhab.ui.cometvisu.internal.util.ClientInstaller;
 import org.openhab.ui.cometvisu.php.PHProvider;
 import org.osgi.framework.BundleContext;
@@ -66,6 +67,8 @@ public class CometVisuApp {
 
     private final ClientInstaller installer = ClientInstaller.getInstance();
 
+    private final VisuConfigCache configCache = new VisuConfigCache();
+
     private Map<String, Object> properties = new HashMap<>();
 
     public Map<String, Object> getProperties() {
@@ -76,6 +79,10 @@ public class CometVisuApp {
         properties = props;
     }
 
+    public VisuConfigCache getConfigCache() {
+        return configCache;
+    }
+
     public CometVisuServlet getServlet() {
         return servlet;
     }
@@ -120,6 +127,8 @@ public class CometVisuApp {
 
     protected void setItemRegistry(ItemRegistry itemRegistry) {
         this.itemRegistry = itemRegistry;
+        this.itemRegistry.addRegistryChangeListener(configCache);
+        configCache.invalidate();
     }
 
     public ItemRegistry getItemRegistry() {
@@ -127,6 +136,7 @@ public class CometVisuApp {
     }
 
     protected void unsetItemRegistry(ItemRegistry itemRegistry) {
+        itemRegistry.removeRegistryChangeListener(configCache);
         this.itemRegistry = null;
     }
 
@@ -140,10 +150,14 @@ public class CometVisuApp {
 
     public void addSitemapProvider(SitemapProvider provider) {
         sitemapProviders.add(provider);
+        provider.addModelChangeListener(configCache);
+        configCache.invalidate();
     }
 
     public void removeSitemapProvider(SitemapProvider provider) {
+        provider.removeModelChangeListener(configCache);
         sitemapProviders.remove(provider);
+        configCache.invalidate();
     }
 
     public ItemUIRegistry getItemUIRegistry() {
@@ -167,6 +181,8 @@ public class CometVisuApp {
         if (servlet != null) {
             servlet.setPHProvider(prov);
         }
+        // the generated configs link the editor only if PHP is enabled
+        configCache.invalidate();
     }
 
     public PHProvider getPHProvider() {
@@ -178,6 +194,7 @@ public class CometVisuApp {
         if (servlet != null) {
             servlet.unsetPHProvider();
         }
+        configCache.invalidate();
     }
 
     private void readConfiguration(final Map<String, Object> properties) {
@@ -232,6 +249,7 @@ public class CometVisuApp {
 
     public void deactivate(BundleContext componentContext) {
         unregisterServlet();
+        configCache.invalidate();
         logger.info("Stopped CometVisu UI");
     }
 
@@ -279,6 +297,8 @@ public class CometVisuApp {
             unregisterServlet();
         }
         readConfiguration(configProps);
+        // the icon and mapping settings are part of the generated configs
+        configCache.invalidate();
         if (configProps.containsKey(Config.COMETVISU_WEBFOLDER_PROPERTY)
                 || configProps.containsKey(Config.COMETVISU_WEBAPP_ALIAS_PROPERTY)) {
             registerServlet();
@@ -15,7 +15,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.text.DateFormat;
@@ -69,6 +68,7 @@ import org.eclipse.smarthome.model.sitemap.SitemapProvider;
 import org.openhab.ui.cometvisu.internal.Config;
 import org.openhab.ui.cometvisu.internal.config.ConfigHelper.Transform;
 import org.openhab.ui.cometvisu.internal.config.VisuConfig;
+import org.openhab.ui.cometvisu.internal.config.VisuConfigCache.CachedConfig;
 import org.openhab.ui.cometvisu.internal.editor.dataprovider.beans.DataBean;
 import org.openhab.ui.cometvisu.internal.editor.dataprovider.beans.ItemBean;
 import org.openhab.ui.cometvisu.internal.rss.beans.Feed;
@@ -117,6 +117,8 @@ public class CometVisuServlet extends HttpServlet {
 
     private CometVisuApp cometVisuApp;
 
+    private final StaticAssetCache assetCache = new StaticAssetCache();
+
     public CometVisuServlet(String filesystemDir, CometVisuApp cometVisuApp) {
         root = filesystemDir;
         rootFolder = new File(root);
@@ -179,6 +181,13 @@ public class CometVisuServlet extends HttpServlet {
         }
     }
 
+    @Override
+    public void destroy() {
+        logger.debug("static files: {}", assetCache);
+        assetCache.clear();
+        super.destroy();
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -230,14 +239,15 @@ public class CometVisuServlet extends HttpServlet {
             if (!requestedFile.exists()) {
                 Sitemap sitemap = getSitemap(matcher.group(2));
                 if (sitemap != null) {
-                    logger.debug("reading sitemap '{}'", sitemap);
-                    VisuConfig config = new VisuConfig(sitemap, cometVisuApp, rootFolder);
-
-                    // logger.info("response: "+config.getConfigXml());
-                    resp.setContentType(MediaType.APPLICATION_XML);
-                    resp.getWriter().write(config.getConfigXml(req));
-                    resp.flushBuffer();
-
+                    CachedConfig config = cometVisuApp.getConfigCache().get(path, () -> {
+                        logger.debug("reading sitemap '{}'", sitemap);
+                        return new VisuConfig(sitemap, cometVisuApp, rootFolder).getConfigXml(req);
+                    });
+                    if (config == null) {
+                        resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    } else {
+                        processConfigRequest(config, req, resp);
+                    }
                     return;
                 } else {
                     logger.debug("Config file not found. Neither as normal config ('{}') nor as sitemap ('{}.sitemap')",
@@ -259,11 +269,46 @@ public class CometVisuServlet extends HttpServlet {
         }
     }
 
+    /**
+     * serves a config generated from a sitemap, the client has to revalidate it on every request
+     *
+     * @param config
+     * @param request
+     * @param response
+     */
+    private void processConfigRequest(CachedConfig config, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        response.setHeader("ETag", config.getETag());
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Vary", "Accept-Encoding");
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null && matches(ifNoneMatch, config.getETag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        byte[] content = config.getContent();
+        if (acceptEncoding != null && accepts(acceptEncoding, "gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            content = config.getGzipContent();
+        }
+        response.setContentType(MediaType.APPLICATION_XML + ";charset=UTF-8");
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+        response.flushBuffer();
+    }
+
     protected void processPhpRequest(File file, HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         if (!this.phpEnabled) {
             // try to initialize the php service
             initQuercusEngine();
+            if (this.phpEnabled) {
+                // the generated configs link the editor only if PHP is enabled
+                cometVisuApp.getConfigCache().invalidate();
+            }
         }
         if (this.phpEnabled) {
             this.engine.phpService(file, request, response);
@@ -716,8 +761,6 @@ public class CometVisuServlet extends HttpServlet {
         // the browser and expand content type with the one and right character
         // encoding.
         if (contentType.startsWith("text")) {
-            String acceptEncoding = request.getHeader("Accept-Encoding");
-            acceptsGzip = acceptEncoding != null && accepts(acceptEncoding, "gzip");
             contentType += ";charset=UTF-8";
         }
 
@@ -730,6 +773,13 @@ public class CometVisuServlet extends HttpServlet {
             disposition = accept != null && accepts(accept, contentType) ? "inline" : "attachment";
         }
 
+        // Scripts and stylesheets are compressed like text, if the browser supports GZIP
+        if (isCompressible(contentType)) {
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            acceptsGzip = acceptEncoding != null && accepts(acceptEncoding, "gzip");
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+
         response.setBufferSize(DEFAULT_BUFFER_SIZE);
         response.setHeader("Content-Disposition", disposition + ";filename=\"" + fileName + "\"");
         response.setHeader("Accept-Ranges", "bytes");
@@ -741,12 +791,10 @@ public class CometVisuServlet extends HttpServlet {
         // ------------------------------------------------
 
         // Prepare streams.
-        RandomAccessFile input = null;
         OutputStream output = null;
 
         try {
             // Open streams.
-            input = new RandomAccessFile(file, "r");
             output = response.getOutputStream();
 
             if (ranges.isEmpty() || ranges.get(0) == full) {
@@ -757,20 +805,25 @@ public class CometVisuServlet extends HttpServlet {
                 response.setHeader("Content-Range", "bytes " + r.start + "-" + r.end + "/" + r.total);
 
                 if (content) {
-                    if (acceptsGzip) {
-                        // The browser accepts GZIP, so GZIP the content.
+                    byte[] gzipContent = acceptsGzip ? assetCache.getGzipContent(file) : null;
+                    if (gzipContent != null) {
+                        // The browser accepts GZIP, so send the precompressed content.
+                        response.setHeader("Content-Encoding", "gzip");
+                        response.setHeader("Content-Length", String.valueOf(gzipContent.length));
+                        output.write(gzipContent);
+                        assetCache.served(gzipContent.length);
+                    } else if (acceptsGzip) {
+                        // The file is too large to be cached, so GZIP the content.
+                        // Content length is not directly predictable in this case.
                         response.setHeader("Content-Encoding", "gzip");
                         output = new GZIPOutputStream(output, DEFAULT_BUFFER_SIZE);
+                        assetCache.transfer(file, output, r.start, r.length);
                     } else {
-                        // Content length is not directly predictable in case of
-                        // GZIP.
-                        // So only add it if there is no means of GZIP, else
-                        // browser will hang.
                         response.setHeader("Content-Length", String.valueOf(r.length));
-                    }
 
-                    // Copy full range.
-                    copy(input, output, r.start, r.length);
+                        // Send full range.
+                        assetCache.send(file, output, r.start, r.length);
+                    }
                 }
 
             } else if (ranges.size() == 1) {
@@ -783,8 +836,8 @@ public class CometVisuServlet extends HttpServlet {
                 response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206.
 
                 if (content) {
-                    // Copy single part range.
-                    copy(input, output, r.start, r.length);
+                    // Send single part range.
+                    assetCache.send(file, output, r.start, r.length);
                 }
 
             } else {
@@ -808,7 +861,7 @@ public class CometVisuServlet extends HttpServlet {
                         sos.println("Content-Range: bytes " + r.start + "-" + r.end + "/" + r.total);
 
                         // Copy single part range of multi part range.
-                        copy(input, output, r.start, r.length);
+                        assetCache.transfer(file, output, r.start, r.length);
                     }
 
                     // End with multipart boundary.
@@ -819,7 +872,6 @@ public class CometVisuServlet extends HttpServlet {
         } finally {
             // Gently close streams.
             close(output);
-            close(input);
         }
     }
 
@@ -1067,6 +1119,19 @@ public class CometVisuServlet extends HttpServlet {
         return gson.toJson(bean);
     }
 
+    /**
+     * Returns true if content of the given type should be compressed.
+     *
+     * @param contentType
+     *            The content type.
+     * @return True if the content type is text, a script, a stylesheet or a markup.
+     */
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text") || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json") || contentType.startsWith("application/xml")
+                || contentType.startsWith("image/svg+xml");
+    }
+
     /**
      * Returns true if the given accept header accepts the given value.
      *
@@ -1118,45 +1183,6 @@ public class CometVisuServlet extends HttpServlet {
         return (substring.length() > 0) ? Long.parseLong(substring) : -1;
     }
 
-    /**
-     * Copy the given byte range of the given input to the given output.
-     *
-     * @param input
-     *            The input to copy the given range to the given output for.
-     * @param output
-     *            The output to copy the given range from the given input for.
-     * @param start
-     *            Start of the byte range.
-     * @param length
-     *            Length of the byte range.
-     * @throws IOException
-     *             If something fails at I/O level.
-     */
-    private static void copy(RandomAccessFile input, OutputStream output, long start, long length) throws IOException {
-        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-        int read;
-
-        if (input.length() == length) {
-            // Write full range.
-            while ((read = input.read(buffer)) > 0) {
-                output.write(buffer, 0, read);
-            }
-        } else {
-            // Write partial range.
-            input.seek(start);
-            long toRead = length;
-
-            while ((read = input.read(buffer)) > 0) {
-                if ((toRead -= read) > 0) {
-                    output.write(buffer, 0, read);
-                } else {
-                    output.write(buffer, 0, (int) toRead + read);
-                    break;
-                }
-            }
-        }
-    }
-
     /**
      * Close the given resource.
      *
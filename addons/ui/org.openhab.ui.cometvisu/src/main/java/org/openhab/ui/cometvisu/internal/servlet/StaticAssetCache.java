@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2010-2017 by the respective copyright holders.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.cometvisu.internal.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the static files of the CometVisu client.
+ *
+ * If a file is the whole response body, Jetty sends a memory mapped buffer of the file, so that its content is not
+ * copied into the heap. The gzip compressed content of text files is kept in a LRU cache, which is limited by the sum
+ * of the compressed sizes. A cached entry is only used as long as the modification time and the length of its file
+ * have not changed.
+ *
+ * @author agent
+ * @since 2.2.0
+ */
+public class StaticAssetCache {
+    private final Logger logger = LoggerFactory.getLogger(StaticAssetCache.class);
+
+    /**
+     * maximum sum of the compressed sizes of all cached files in bytes
+     */
+    public static final long DEFAULT_MAX_CACHE_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * files larger than this are compressed on the fly and not cached
+     */
+    public static final long DEFAULT_MAX_FILE_SIZE = 8 * 1024 * 1024;
+
+    private final long maxCacheSize;
+    private final long maxFileSize;
+
+    // the compressed files by their absolute path, in access order
+    private final LinkedHashMap<String, CompressedFile> compressedFiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long cacheSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+
+    private static class CompressedFile {
+        private final long lastModified;
+        private final long length;
+        private final byte[] content;
+
+        CompressedFile(long lastModified, long length, byte[] content) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.content = content;
+        }
+    }
+
+    public StaticAssetCache() {
+        this(DEFAULT_MAX_CACHE_SIZE, DEFAULT_MAX_FILE_SIZE);
+    }
+
+    public StaticAssetCache(long maxCacheSize, long maxFileSize) {
+        this.maxCacheSize = maxCacheSize;
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * Returns the gzip compressed content of the file. It is taken from the cache if the file has not been modified
+     * since it has been compressed.
+     *
+     * @param file
+     *            - the file
+     * @return the compressed content or null if the file is too large to be cached
+     * @throws IOException
+     *             If the file can not be read
+     */
+    public byte[] getGzipContent(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (compressedFiles) {
+            CompressedFile compressed = compressedFiles.get(key);
+            if (compressed != null) {
+                if (compressed.lastModified == lastModified && compressed.length == length) {
+                    hits.incrementAndGet();
+                    return compressed.content;
+                }
+                compressedFiles.remove(key);
+                cacheSize -= compressed.content.length;
+            }
+        }
+        misses.incrementAndGet();
+        if (length > maxFileSize) {
+            return null;
+        }
+
+        byte[] content = compress(file, length);
+        if (content.length <= maxCacheSize) {
+            synchronized (compressedFiles) {
+                CompressedFile previous = compressedFiles.put(key,
+                        new CompressedFile(lastModified, length, content));
+                if (previous != null) {
+                    cacheSize -= previous.content.length;
+                }
+                cacheSize += content.length;
+                evict();
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Sends the byte range of the file as the remaining response body. The response is complete afterwards, so
+     * nothing else must be written to the output.
+     *
+     * @param file
+     *            - the file
+     * @param output
+     *            - the output stream of the response
+     * @param start
+     *            - start of the byte range
+     * @param length
+     *            - length of the byte range
+     * @throws IOException
+     *             If something fails at I/O level.
+     */
+    public void send(File file, OutputStream output, long start, long length) throws IOException {
+        if (!(output instanceof HttpOutput) || length > Integer.MAX_VALUE) {
+            transfer(file, output, start, length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the file may have been truncated meanwhile
+            long mappedLength = Math.max(0, Math.min(length, channel.size() - start));
+            ((HttpOutput) output).sendContent(channel.map(MapMode.READ_ONLY, start, mappedLength));
+            served(mappedLength);
+        }
+    }
+
+    /**
+     * Copies the byte range of the file to the output.
+     *
+     * @param file
+     *            - the file
+     * @param output
+     *            - the output to write to
+     * @param start
+     *            - start of the byte range
+     * @param length
+     *            - length of the byte range
+     * @throws IOException
+     *             If something fails at I/O level.
+     */
+    public void transfer(File file, OutputStream output, long start, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(output);
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    // the file has been truncated meanwhile
+                    break;
+                }
+                position += transferred;
+            }
+            served(position - start);
+        }
+    }
+
+    /**
+     * Counts bytes sent to the clients.
+     */
+    public void served(long bytes) {
+        bytesServed.addAndGet(bytes);
+    }
+
+    /**
+     * Removes all compressed files from the cache
+     */
+    public void clear() {
+        synchronized (compressedFiles) {
+            compressedFiles.clear();
+            cacheSize = 0;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CompressedFile>> iterator = compressedFiles.entrySet().iterator();
+        while (cacheSize > maxCacheSize && iterator.hasNext()) {
+            Map.Entry<String, CompressedFile> eldest = iterator.next();
+            cacheSize -= eldest.getValue().content.length;
+            iterator.remove();
+            logger.trace("evicted compressed file '{}' from the cache", eldest.getKey());
+        }
+    }
+
+    private byte[] compress(File file, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(512, length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            Files.copy(file.toPath(), gzip);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        synchronized (compressedFiles) {
+            return "hits=" + hits.get() + ", misses=" + misses.get() + ", bytes served=" + bytesServed.get()
+                    + ", cached files=" + compressedFiles.size() + ", cache size=" + cacheSize;
+        }
+    }
+}